@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.spsc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.channels.Channel;
+import org.jctools.channels.ChannelConsumer;
+import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.mapping.ArrayLength;
+import org.jctools.channels.mapping.Mapper;
+import org.jctools.util.Template;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to the first producer and consumer of a channel in a fresh JVM, implementing the flyweights either by
+ * compiling the channel templates with javac or by generating their bytecode:
+ * <pre>
+ * java -jar target/microbenchmarks.jar SpscChannelStartupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class SpscChannelStartupBenchmark {
+
+    private static final int CAPACITY = 1024;
+
+    @Param(value = { "javac", "bytecode" })
+    String backend;
+
+    ByteBuffer buffer;
+    int messageSize;
+    ChannelReceiver<Trade> receiver;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        messageSize = new Mapper<Trade>(Trade.class, false).getSizeInBytes();
+        buffer = ByteBuffer.allocateDirect(SpscOffHeapFixedSizeRingBuffer.getRequiredBufferSize(CAPACITY, messageSize));
+        receiver = new ChannelReceiver<Trade>() {
+            @Override
+            public void accept(Trade element) {
+            }
+        };
+    }
+
+    @Benchmark
+    public Object firstProducerAndConsumer() {
+        Mapper<Trade> mapper = new Mapper<Trade>(Trade.class, false);
+        ChannelProducer<?> producer;
+        ChannelConsumer consumer;
+        if ("javac".equals(backend)) {
+            producer = mapper.newFlyweight(SpscChannelProducer.class, "ChannelProducerTemplate.java",
+                    Template.fromFile(Channel.class, "ChannelProducerTemplate.java"), buffer, CAPACITY, messageSize);
+            consumer = mapper.newFlyweight(SpscChannelConsumer.class, "ChannelConsumerTemplate.java",
+                    Template.fromFile(Channel.class, "ChannelConsumerTemplate.java"), buffer, CAPACITY, messageSize,
+                    receiver);
+        } else {
+            producer = mapper.generateFlyweight(SpscChannelProducer.class, buffer, CAPACITY, messageSize);
+            consumer = mapper.generateFlyweight(SpscChannelConsumer.class, buffer, CAPACITY, messageSize, receiver);
+        }
+        return consumer.read() ? consumer : producer.currentElement();
+    }
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    public interface Price {
+
+        long getMantissa();
+
+        void setMantissa(long value);
+
+        int getExponent();
+
+        void setExponent(int value);
+
+    }
+
+    public interface Trade {
+
+        long getId();
+
+        void setId(long value);
+
+        Price getPrice();
+
+        Side getSide();
+
+        void setSide(Side value);
+
+        @ArrayLength(4)
+        int getLeg(int index);
+
+        void setLeg(int index, int value);
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscUnboundedArrayQueue;
+import org.jctools.queues.SpscUnboundedArrayQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offers a burst spanning several chunks and then drains it, so every burst crosses chunk boundaries. Compare the
+ * allocation rate with and without chunk pooling by running with the GC profiler:
+ * <pre>
+ * java -jar target/microbenchmarks.jar LinkedChunkPoolingAllocation -prof gc
+ * </pre>
+ * and looking at {@code gc.alloc.rate.norm}, which with enough pooled chunks to cover a burst should drop to ~0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LinkedChunkPoolingAllocation {
+    static final Integer TEST_ELEMENT = 1;
+    static final int BURST_SIZE = 4096;
+
+    @Param(value = { "SpscUnboundedArrayQueue", "MpscUnboundedArrayQueue" })
+    String qType;
+
+    @Param(value = { "128" })
+    int chunkSize;
+
+    @Param(value = { "0", "32" })
+    int maxPooledChunks;
+
+    MessagePassingQueue<Integer> q;
+
+    @Setup
+    public void createQueue() {
+        if ("SpscUnboundedArrayQueue".equals(qType)) {
+            q = new SpscUnboundedArrayQueue<Integer>(chunkSize, maxPooledChunks);
+        } else if ("MpscUnboundedArrayQueue".equals(qType)) {
+            q = new MpscUnboundedArrayQueue<Integer>(chunkSize, maxPooledChunks);
+        } else {
+            throw new IllegalArgumentException("Unsupported queue type: " + qType);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public int burst() {
+        final MessagePassingQueue<Integer> q = this.q;
+        for (int i = 0; i < BURST_SIZE; i++) {
+            q.offer(TEST_ELEMENT);
+        }
+        int polled = 0;
+        while (q.relaxedPoll() != null) {
+            polled++;
+        }
+        return polled;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import org.jctools.queues.MpscBlockingConsumerArrayQueue;
+import org.jctools.queues.MpscBlockingConsumerChunkedArrayQueue;
+import org.jctools.queues.MpscBlockingConsumerUnboundedXaddArrayQueue;
+import org.jctools.queues.blocking.BlockingQueueFactory;
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.jctools.queues.spec.Preference;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link #PRODUCERS} virtual thread producers, each putting {@link #MESSAGES_PER_PRODUCER} elements, against a
+ * single consumer taking from the queue. The producers mostly find the queue full, so the cost is dominated by how the
+ * put/take paths wait: yielding or monitor waits keep carrier threads busy or pinned, parking releases them.
+ * <p>
+ * Virtual threads are looked up reflectively, so the benchmark compiles against older JDKs but needs JDK 21+ to run:
+ * <pre>
+ * java -jar target/microbenchmarks.jar VirtualThreadProducersThroughput
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class VirtualThreadProducersThroughput {
+    static final Integer TEST_ELEMENT = 1;
+    static final int PRODUCERS = 100000;
+    static final int MESSAGES_PER_PRODUCER = 10;
+    static final int MESSAGES = PRODUCERS * MESSAGES_PER_PRODUCER;
+
+    @Param(value = { "MpscBlockingConsumerArrayQueue", "MpscBlockingConsumerChunkedArrayQueue",
+        "MpscBlockingConsumerUnboundedXaddArrayQueue", "BlockingQueueFactory", "ArrayBlockingQueue",
+        "LinkedBlockingQueue" })
+    String qType;
+
+    @Param(value = { "1024" })
+    int qCapacity;
+
+    BlockingQueue<Integer> q;
+    ExecutorService producers;
+    Runnable producer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        if ("MpscBlockingConsumerArrayQueue".equals(qType)) {
+            q = new MpscBlockingConsumerArrayQueue<Integer>(qCapacity);
+        } else if ("MpscBlockingConsumerChunkedArrayQueue".equals(qType)) {
+            q = new MpscBlockingConsumerChunkedArrayQueue<Integer>(qCapacity);
+        } else if ("MpscBlockingConsumerUnboundedXaddArrayQueue".equals(qType)) {
+            q = new MpscBlockingConsumerUnboundedXaddArrayQueue<Integer>(qCapacity);
+        } else if ("BlockingQueueFactory".equals(qType)) {
+            q = BlockingQueueFactory.newBlockingQueue(
+                new ConcurrentQueueSpec(2, 1, qCapacity, Ordering.FIFO, Preference.NONE));
+        } else if ("ArrayBlockingQueue".equals(qType)) {
+            q = new ArrayBlockingQueue<Integer>(qCapacity);
+        } else if ("LinkedBlockingQueue".equals(qType)) {
+            q = new LinkedBlockingQueue<Integer>(qCapacity);
+        } else {
+            throw new IllegalArgumentException("Unsupported queue type: " + qType);
+        }
+        try {
+            producers = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21+", e);
+        }
+        final BlockingQueue<Integer> q = this.q;
+        producer = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < MESSAGES_PER_PRODUCER; i++) {
+                        q.put(TEST_ELEMENT);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        producers.shutdownNow();
+        producers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int manyProducersOneConsumer() throws InterruptedException {
+        final ExecutorService producers = this.producers;
+        final Runnable producer = this.producer;
+        for (int i = 0; i < PRODUCERS; i++) {
+            producers.execute(producer);
+        }
+        final BlockingQueue<Integer> q = this.q;
+        int sum = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            sum += q.take();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,145 @@
+package org.jctools.maps.nbhm_test.jmh;
+
+import org.jctools.maps.NonBlockingBoundedCache;
+import org.jctools.maps.NonBlockingHashMap;
+import org.jctools.maps.nbhm_test.SimpleRandom;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache load: keys are drawn from a Zipfian distribution, a miss is followed by a put.
+ * The hits and misses counters give the hit rate of the bounded cache, the unbounded NonBlockingHashMap
+ * is the baseline which only misses on the first access of each key.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode({Mode.Throughput})
+@Warmup(iterations = 2, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 6, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BoundedCacheZipfThroughput {
+    private static final int SAMPLES = 1 << 20;
+
+    @Param(value = {"NonBlockingBoundedCache", "NonBlockingHashMap"})
+    private String implementation;
+
+    @Param(value = "1000000")
+    private int keySpace;
+
+    /** Bound of the cache, as a fraction of the key space in percent. */
+    @Param(value = "10")
+    private int cachePercent;
+
+    @Param(value = "0.99")
+    private double skew;
+
+    private Integer[] samples;
+    private Cache cache;
+
+    interface Cache {
+        Integer get(Integer key);
+
+        void put(Integer key, Integer value);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (cachePercent <= 0 || cachePercent > 100) {
+            throw new IllegalArgumentException("cachePercent must be a value between 1 and 100");
+        }
+        samples = zipfSamples(keySpace, skew, SAMPLES, new Random(42));
+        if ("NonBlockingBoundedCache".equalsIgnoreCase(implementation)) {
+            final NonBlockingBoundedCache<Integer, Integer> c =
+                    new NonBlockingBoundedCache<Integer, Integer>((long) keySpace * cachePercent / 100);
+            cache = new Cache() {
+                public Integer get(Integer key) {
+                    return c.get(key);
+                }
+
+                public void put(Integer key, Integer value) {
+                    c.putIfAbsent(key, value);
+                }
+            };
+        } else if ("NonBlockingHashMap".equalsIgnoreCase(implementation)) {
+            final NonBlockingHashMap<Integer, Integer> m = new NonBlockingHashMap<Integer, Integer>();
+            cache = new Cache() {
+                public Integer get(Integer key) {
+                    return m.get(key);
+                }
+
+                public void put(Integer key, Integer value) {
+                    m.putIfAbsent(key, value);
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Unsupported cache: " + implementation);
+        }
+    }
+
+    // Inverse CDF sampling of ranks 1..n with P(k) proportional to 1/k^s, ranks are scrambled over the keys
+    static Integer[] zipfSamples(int n, double s, int count, Random random) {
+        final double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        final Integer[] keys = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            keys[k] = k * 0x9E3779B9;
+        }
+        final Integer[] samples = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            int idx = java.util.Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            samples[i] = keys[idx < 0 ? Math.min(-idx - 1, n - 1) : idx];
+        }
+        return samples;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class HitCounters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private SimpleRandom random = new SimpleRandom();
+        int next() { return random.next(); }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer readThrough(ThreadState state, HitCounters counters) {
+        final Integer key = samples[state.next() & (SAMPLES - 1)];
+        Integer value = cache.get(key);
+        if (value == null) {
+            counters.misses++;
+            value = key;
+            cache.put(key, value);
+        } else {
+            counters.hits++;
+        }
+        return value;
+    }
+}
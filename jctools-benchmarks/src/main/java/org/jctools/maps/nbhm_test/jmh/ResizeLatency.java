@@ -0,0 +1,120 @@
+package org.jctools.maps.nbhm_test.jmh;
+
+import org.jctools.maps.NonBlockingHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of get and put while the map keeps growing through resizes. One thread puts new keys
+ * into an initially empty map, starting over with a fresh map once the whole key space is in, while the other
+ * threads read random keys. The classic resize lets a single put copy a whole table, the incremental modes cap
+ * the copy work of each operation, optionally finishing the copy on a background thread.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode({Mode.SampleTime})
+@Warmup(iterations = 3, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+public class ResizeLatency {
+    @Param(value = {"classic", "incremental", "background"})
+    private String resize;
+
+    /** Most old table slots copied by one map operation in the incremental modes. */
+    @Param(value = "256")
+    private int copyWork;
+
+    @Param(value = "1048576")
+    private int keySpace;
+
+    private Integer[] keys;
+    private int mask;
+    private ExecutorService copier;
+    private volatile NonBlockingHashMap<Integer, Integer> map;
+
+    @State(Scope.Thread)
+    public static class PutCursor {
+        int next;
+    }
+
+    @State(Scope.Thread)
+    public static class GetCursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (Integer.bitCount(keySpace) != 1) {
+            throw new IllegalArgumentException("keySpace must be a power of 2");
+        }
+        keys = new Integer[keySpace];
+        for (int i = 0; i < keySpace; i++) {
+            keys[i] = i;
+        }
+        mask = keySpace - 1;
+        if ("background".equalsIgnoreCase(resize)) {
+            copier = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "nbhm-copier");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        map = newMap();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (copier != null) {
+            copier.shutdownNow();
+        }
+    }
+
+    private NonBlockingHashMap<Integer, Integer> newMap() {
+        if ("classic".equalsIgnoreCase(resize)) {
+            return new NonBlockingHashMap<Integer, Integer>();
+        } else if ("incremental".equalsIgnoreCase(resize) || "background".equalsIgnoreCase(resize)) {
+            return new NonBlockingHashMap<Integer, Integer>(0, copyWork, copier);
+        }
+        throw new IllegalArgumentException("Unsupported resize mode: " + resize);
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(1)
+    public Integer put(PutCursor cursor) {
+        int i = cursor.next;
+        if (i == keySpace) {
+            map = newMap();
+            i = 0;
+        }
+        cursor.next = i + 1;
+        return map.put(keys[i], keys[i]);
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(3)
+    public Integer get(GetCursor cursor) {
+        // a simple stride walk touches every key without the cost of a random number generator
+        final int i = cursor.next = (cursor.next + 0x9E3779B9) & mask;
+        return map.get(keys[i]);
+    }
+}
@@ -0,0 +1,129 @@
+package org.jctools.maps.nbhm_test.jmh;
+
+import org.jctools.maps.NonBlockingSkipListMapLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time series / order book load on a sorted map with long keys: one thread appends increasing keys and trims
+ * the oldest key once the map holds a full window, while the reader threads look up the floor of keys in the
+ * most recent part of the window.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.Throughput})
+@Warmup(iterations = 3, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+public class SkipListOrderBook {
+    private static final Object VALUE = new Object();
+
+    @Param(value = {"NonBlockingSkipListMapLong", "ConcurrentSkipListMap"})
+    private String implementation;
+
+    /** Keys kept in the map. */
+    @Param(value = "100000")
+    private int window;
+
+    /** Keys behind the tail the readers look up, a power of 2. */
+    @Param(value = "1024")
+    private int recent;
+
+    private SortedLongMap map;
+    private volatile long tail;
+
+    interface SortedLongMap {
+        void put(long key, Object value);
+
+        Object floor(long key);
+
+        void pollFirst();
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        long seed = System.nanoTime() | 1;
+
+        long nextOffset(int mask) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            return seed & mask;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (Integer.bitCount(recent) != 1 || recent > window) {
+            throw new IllegalArgumentException("recent must be a power of 2 no larger than window");
+        }
+        if ("NonBlockingSkipListMapLong".equalsIgnoreCase(implementation)) {
+            final NonBlockingSkipListMapLong<Object> m = new NonBlockingSkipListMapLong<Object>();
+            map = new SortedLongMap() {
+                public void put(long key, Object value) {
+                    m.put(key, value);
+                }
+
+                public Object floor(long key) {
+                    return m.floorEntry(key);
+                }
+
+                public void pollFirst() {
+                    m.pollFirstEntry();
+                }
+            };
+        } else if ("ConcurrentSkipListMap".equalsIgnoreCase(implementation)) {
+            final ConcurrentSkipListMap<Long, Object> m = new ConcurrentSkipListMap<Long, Object>();
+            map = new SortedLongMap() {
+                public void put(long key, Object value) {
+                    m.put(key, value);
+                }
+
+                public Object floor(long key) {
+                    return m.floorEntry(key);
+                }
+
+                public void pollFirst() {
+                    m.pollFirstEntry();
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Unsupported map: " + implementation);
+        }
+        for (long k = 0; k < window; k++) {
+            map.put(k, VALUE);
+        }
+        tail = window - 1;
+    }
+
+    @Benchmark
+    @Group("orderBook")
+    @GroupThreads(1)
+    public void append() {
+        final long k = tail + 1;
+        map.put(k, VALUE);
+        tail = k;
+        map.pollFirst();
+    }
+
+    @Benchmark
+    @Group("orderBook")
+    @GroupThreads(2)
+    public Object floorRecent(ReaderState state) {
+        return map.floor(tail - state.nextOffset(recent - 1));
+    }
+}
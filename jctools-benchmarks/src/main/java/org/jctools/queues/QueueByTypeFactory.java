@@ -67,6 +67,8 @@ public class QueueByTypeFactory {
                 return BlockingQueueFactory.newBlockingQueue(ConcurrentQueueSpec.createBoundedMpmc(queueCapacity));
         case 71:
             return new MpmcConcurrentQueueStateMarkers<T>(queueCapacity);
+        case 72:
+            return new MpmcCompoundQueue<T>(queueCapacity);
         }
         throw new IllegalArgumentException("Type: " + queueType);
     }
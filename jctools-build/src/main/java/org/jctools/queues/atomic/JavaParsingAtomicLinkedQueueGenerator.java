@@ -97,6 +97,15 @@ public final class JavaParsingAtomicLinkedQueueGenerator extends JavaParsingAtom
         }
     }
 
+    @Override
+    public void visit(ClassOrInterfaceType n, Void arg) {
+        super.visit(n, arg);
+        // chunk pools are plain array queues, use the atomic flavour
+        if ("SpscArrayQueue".equals(n.getNameAsString())) {
+            n.setName("SpscAtomicArrayQueue");
+        }
+    }
+
     @Override
     public void visit(MethodDeclaration n, Void arg) {
         super.visit(n, arg);
@@ -192,11 +201,18 @@ public final class JavaParsingAtomicLinkedQueueGenerator extends JavaParsingAtom
             }
         } else if (isRefType(type, "LinkedQueueNode")) {
             node.setType(simpleParametricType("LinkedQueueAtomicNode", "E"));
-        } else if (isRefArray(type, "E")) {
+        } else if (isRefArray(type, "E") && !isBatchArrayParameter(name)) {
             node.setType(atomicRefArrayType((ArrayType) type));
         }
     }
 
+    /**
+     * The batch offer/poll methods take user supplied arrays which are not queue buffers and must not be converted.
+     */
+    private boolean isBatchArrayParameter(String name) {
+        return "src".equals(name) || "dst".equals(name);
+    }
+
     /**
      * Searches all extended or implemented super classes or interfaces for
      * special classes that differ with the atomics version and replaces them
@@ -28,6 +28,18 @@ public interface ChannelProducer<E> {
      */
     boolean claim();
 
+    /**
+     * Attempt to claim the next element in the channel, sized to hold at least {@code length} bytes. For fixed size
+     * channels this is the same as {@link #claim()} if the element is big enough, for variable length channels the
+     * claimed region is exactly {@code length} bytes long.
+     *
+     * @see this#commit()
+     * @param length in bytes
+     * @return true if claimed, false if there is insufficient space in the channel.
+     * @throws IllegalArgumentException if length exceeds what the channel can hold in one element
+     */
+    boolean claim(int length);
+
     /**
      * Gets the flyweight to write via.
      *
@@ -170,6 +170,24 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
         UNSAFE.putOrderedInt(null, offset, READ_ACQUIRE_INDICATOR);
     }
 
+    /**
+     * Count the messages which are ready to be read from start on, the
+     * messages before it must all have been read.
+     *
+     * @param start the index of the first message to look at
+     * @param limit the maximum number of messages to count
+     * @return the number of consecutive messages ready to be read
+     */
+    protected final int countReadable(long start, int limit) {
+        // past capacity we would be looking at the same messages again
+        limit = Math.min(limit, capacity());
+        int count = 0;
+        while (count < limit && !isReadReleased(offsetForIndex(start + count))) {
+            count++;
+        }
+        return count;
+    }
+
     protected final long offsetForIndex(long currentHead) {
         return offsetForIndex(bufferAddress,  mask, messageSize, currentHead);
     }
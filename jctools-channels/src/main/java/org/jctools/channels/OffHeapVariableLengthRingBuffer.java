@@ -0,0 +1,270 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import static org.jctools.util.PortableJvmInfo.CACHE_LINE_SIZE;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeDirectByteBuffer.alignedSlice;
+import static org.jctools.util.UnsafeDirectByteBuffer.allocateAlignedByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.UnsafeDirectByteBuffer;
+
+/**
+ * Channel protocol:
+ * - Variable message size, capacity is in bytes
+ * - Each record is preceded by a header of state(4b) and length(4b), records are aligned to RECORD_ALIGNMENT
+ * - A record which does not fit before the end of the buffer is preceded by a padding record filling the remainder
+ * - The consumer zeroes consumed bytes before releasing them, so unwritten headers always read as RECORD_EMPTY
+ */
+public abstract class OffHeapVariableLengthRingBuffer {
+    public static final long EOF = 0;
+
+    public static final int RECORD_EMPTY = 0;
+    public static final int RECORD_COMMITTED = 1;
+    public static final int RECORD_PADDING = 2;
+    public static final int RECORD_HEADER_SIZE = 8;
+    public static final int RECORD_ALIGNMENT = 8;
+    public static final int HEADER_SIZE = 6 * CACHE_LINE_SIZE;
+    /**
+     * Smallest buffer we support, leaving room for a reasonable maximum record length.
+     */
+    public static final int MIN_CAPACITY = 8 * 8 * RECORD_ALIGNMENT;
+
+    private static final int LENGTH_OFFSET = 4;
+
+    private final ByteBuffer buffy;
+    protected final long bufferAddress;
+    protected final long consumerIndexAddress;
+    protected final long producerIndexAddress;
+    protected final long producerLimitAddress;
+    protected final long mask;
+    protected final int maxRecordLength;
+
+    public static int getRequiredBufferSize(final int capacity) {
+        return HEADER_SIZE + Pow2.roundToPowerOfTwo(capacity);
+    }
+
+    /**
+     * @param capacity in bytes, will be rounded up to the next power of 2
+     */
+    public OffHeapVariableLengthRingBuffer(final int capacity) {
+        this(allocateAlignedByteBuffer(getRequiredBufferSize(checkCapacity(capacity)), CACHE_LINE_SIZE),
+                capacity,
+                true);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity in bytes, will be rounded up to the next power of 2
+     * @param initialize true if the indices should be reset, the buffer itself is expected to be zeroed
+     */
+    protected OffHeapVariableLengthRingBuffer(final ByteBuffer buff, final int capacity, final boolean initialize) {
+        final int actualCapacity = Pow2.roundToPowerOfTwo(checkCapacity(capacity));
+        this.buffy = alignedSlice(HEADER_SIZE + actualCapacity, CACHE_LINE_SIZE, buff);
+
+        long alignedAddress = UnsafeDirectByteBuffer.getAddress(buffy);
+        if (alignedAddress % CACHE_LINE_SIZE != 0) {
+            throw new IllegalStateException("buffer is expected to be cache line aligned by now");
+        }
+        // Layout of the RingBuffer (assuming 64b cache line):
+        // consumerIndex(8b), pad(56b) |
+        // pad(64b) |
+        // producerIndex(8b), pad(56b) |
+        // pad(64b) |
+        // producerLimit(8b), pad(56b) |
+        // pad(64b) |
+        // buffer (capacity bytes)
+        this.consumerIndexAddress = alignedAddress;
+        this.producerIndexAddress = alignedAddress + 2l * CACHE_LINE_SIZE;
+        this.producerLimitAddress = alignedAddress + 4l * CACHE_LINE_SIZE;
+        this.bufferAddress = alignedAddress + HEADER_SIZE;
+        this.mask = actualCapacity - 1;
+        this.maxRecordLength = actualCapacity / 8 - RECORD_HEADER_SIZE;
+
+        if (initialize) {
+            UNSAFE.setMemory(bufferAddress, actualCapacity, (byte) 0);
+            soConsumerIndex(0);
+            soProducerLimit(actualCapacity);
+            soProducerIndex(0);
+        }
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be at least " + MIN_CAPACITY + " bytes: " + capacity);
+        }
+        return capacity;
+    }
+
+    /**
+     * @return the buffer capacity in bytes
+     */
+    public final int capacity() {
+        return (int) (mask + 1);
+    }
+
+    /**
+     * @return the largest record length which may be claimed, 1/8 of the capacity less the record header
+     */
+    public final int maxRecordLength() {
+        return maxRecordLength;
+    }
+
+    /**
+     * @return the number of bytes claimed and not yet released, including record headers and padding
+     */
+    public final int size() {
+        long after = lvConsumerIndex();
+        while (true) {
+            final long before = after;
+            final long currentProducerIndex = lvProducerIndex();
+            after = lvConsumerIndex();
+            if (before == after) {
+                return (int) (currentProducerIndex - after);
+            }
+        }
+    }
+
+    public final boolean isEmpty() {
+        return lvProducerIndex() == lvConsumerIndex();
+    }
+
+    /**
+     * @param length of the record payload
+     * @return the total number of bytes the record takes up in the buffer
+     */
+    protected static int alignedRecordSize(int length) {
+        return (int) Pow2.align(RECORD_HEADER_SIZE + length, RECORD_ALIGNMENT);
+    }
+
+    protected final void checkRecordLength(int length) {
+        if (length < 0 || length > maxRecordLength) {
+            throw new IllegalArgumentException("length is not in [0, " + maxRecordLength + "]: " + length);
+        }
+    }
+
+    protected final long offsetForIndex(long index) {
+        return bufferAddress + (index & mask);
+    }
+
+    /**
+     * Write the headers for a claimed range of [producerIndex, producerIndex + padding + record size).
+     *
+     * @return the address of the record payload
+     */
+    protected final long writeClaimed(long producerIndex, int padding, int length) {
+        if (padding != 0) {
+            UNSAFE.putOrderedInt(null, offsetForIndex(producerIndex), RECORD_PADDING);
+        }
+        final long recordOffset = offsetForIndex(producerIndex + padding);
+        UNSAFE.putInt(recordOffset + LENGTH_OFFSET, length);
+        return recordOffset + RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * @return the number of bytes which need to be padded to fit a record of the given size at the given index
+     */
+    protected final int paddingFor(long producerIndex, int recordSize) {
+        final int remaining = (int) (capacity() - (producerIndex & mask));
+        return recordSize > remaining ? remaining : 0;
+    }
+
+    /**
+     * @param length of the record payload, at most {@link #maxRecordLength()}
+     * @return the base address for a record payload acquired to be written, or EOF if there is no space
+     */
+    protected abstract long writeAcquire(int length);
+
+    /**
+     * @param address the payload address of a record that we are done writing and can be read now
+     */
+    protected final void writeRelease(long address) {
+        UNSAFE.putOrderedInt(null, address - RECORD_HEADER_SIZE, RECORD_COMMITTED);
+    }
+
+    /**
+     * @return the payload address of the next record to be read, or EOF if none is available
+     */
+    protected final long readAcquire() {
+        while (true) {
+            final long consumerIndex = lpConsumerIndex();
+            final long offset = offsetForIndex(consumerIndex);
+            final int state = UNSAFE.getIntVolatile(null, offset);
+            if (state == RECORD_COMMITTED) {
+                return offset + RECORD_HEADER_SIZE;
+            }
+            if (state != RECORD_PADDING) {
+                return EOF;
+            }
+            // skip to the start of the buffer
+            final int padding = (int) (capacity() - (consumerIndex & mask));
+            UNSAFE.setMemory(offset, padding, (byte) 0);
+            soConsumerIndex(consumerIndex + padding); // StoreStore
+        }
+    }
+
+    /**
+     * @param address the payload address of an acquired record
+     * @return the record payload length
+     */
+    protected static int recordLength(long address) {
+        return UNSAFE.getInt(address - RECORD_HEADER_SIZE + LENGTH_OFFSET);
+    }
+
+    /**
+     * @param address the payload address of the acquired record, which we are done reading and can be overwritten
+     */
+    protected final void readRelease(long address) {
+        final int recordSize = alignedRecordSize(recordLength(address));
+        UNSAFE.setMemory(address - RECORD_HEADER_SIZE, recordSize, (byte) 0);
+        soConsumerIndex(lpConsumerIndex() + recordSize); // StoreStore
+    }
+
+    protected final long lpConsumerIndex() {
+        return UNSAFE.getLong(null, consumerIndexAddress);
+    }
+
+    protected final long lvConsumerIndex() {
+        return UNSAFE.getLongVolatile(null, consumerIndexAddress);
+    }
+
+    protected final void soConsumerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, consumerIndexAddress, value);
+    }
+
+    protected final long lpProducerIndex() {
+        return UNSAFE.getLong(null, producerIndexAddress);
+    }
+
+    protected final long lvProducerIndex() {
+        return UNSAFE.getLongVolatile(null, producerIndexAddress);
+    }
+
+    protected final void soProducerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, producerIndexAddress, value);
+    }
+
+    protected final long lvProducerLimit() {
+        return UNSAFE.getLongVolatile(null, producerLimitAddress);
+    }
+
+    protected final void soProducerLimit(final long value) {
+        UNSAFE.putOrderedLong(null, producerLimitAddress, value);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+/**
+ * A flyweight over a single variable length record, as handed out by a {@link VariableLengthChannel}. Accesses are
+ * bounds checked against the record length, indices are relative to the record start.
+ * <p>
+ * NB: the region is only valid between claim and commit on the producer side, and for the lifecycle of the receiver
+ * callback on the consumer side.
+ */
+public final class RecordRegion {
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+
+    private long address;
+    private int length;
+
+    void wrap(long address, int length) {
+        this.address = address;
+        this.length = length;
+    }
+
+    /**
+     * @return the record length in bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the address of the record start, for use with raw memory access
+     */
+    public long address() {
+        return address;
+    }
+
+    public byte getByte(int index) {
+        checkBounds(index, 1);
+        return UNSAFE.getByte(address + index);
+    }
+
+    public void putByte(int index, byte value) {
+        checkBounds(index, 1);
+        UNSAFE.putByte(address + index, value);
+    }
+
+    public int getInt(int index) {
+        checkBounds(index, 4);
+        return UNSAFE.getInt(address + index);
+    }
+
+    public void putInt(int index, int value) {
+        checkBounds(index, 4);
+        UNSAFE.putInt(address + index, value);
+    }
+
+    public long getLong(int index) {
+        checkBounds(index, 8);
+        return UNSAFE.getLong(address + index);
+    }
+
+    public void putLong(int index, long value) {
+        checkBounds(index, 8);
+        UNSAFE.putLong(address + index, value);
+    }
+
+    public void getBytes(int index, byte[] dst, int dstOffset, int count) {
+        checkBounds(index, count);
+        if (dstOffset < 0 || dstOffset > dst.length - count) {
+            throw new IndexOutOfBoundsException("dstOffset=" + dstOffset + ", count=" + count
+                    + ", dst.length=" + dst.length);
+        }
+        UNSAFE.copyMemory(null, address + index, dst, BYTE_ARRAY_BASE + dstOffset, count);
+    }
+
+    public void putBytes(int index, byte[] src, int srcOffset, int count) {
+        checkBounds(index, count);
+        if (srcOffset < 0 || srcOffset > src.length - count) {
+            throw new IndexOutOfBoundsException("srcOffset=" + srcOffset + ", count=" + count
+                    + ", src.length=" + src.length);
+        }
+        UNSAFE.copyMemory(src, BYTE_ARRAY_BASE + srcOffset, null, address + index, count);
+    }
+
+    private void checkBounds(int index, int size) {
+        if (index < 0 || size < 0 || index > length - size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size + ", length=" + length);
+        }
+    }
+}
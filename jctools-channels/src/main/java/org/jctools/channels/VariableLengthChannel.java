@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.mpsc.MpscOffHeapVariableLengthRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapVariableLengthRingBuffer;
+
+/**
+ * A channel of variable length records. Producers must use {@link ChannelProducer#claim(int)}, the element is then a
+ * {@link RecordRegion} of exactly the claimed length. Sizes and capacities are in bytes rather than elements, as records
+ * take up varying amounts of space.
+ */
+public final class VariableLengthChannel implements Channel<RecordRegion> {
+
+    private final OffHeapVariableLengthRingBuffer buffer;
+    private final int requestedCapacity;
+    private final ChannelProducer<RecordRegion> producer;
+
+    /**
+     * @param requestedCapacity in bytes, will be rounded up to the next power of 2
+     * @param multiProducer true if the {@link #producer()} is to be shared between threads
+     */
+    public VariableLengthChannel(final int requestedCapacity, final boolean multiProducer) {
+        this(multiProducer ?
+                new MpscOffHeapVariableLengthRingBuffer(requestedCapacity) :
+                new SpscOffHeapVariableLengthRingBuffer(requestedCapacity),
+             requestedCapacity);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buffer
+     * @param requestedCapacity in bytes, will be rounded up to the next power of 2
+     * @param multiProducer
+     * @param initialize
+     */
+    public VariableLengthChannel(final ByteBuffer buffer,
+            final int requestedCapacity,
+            final boolean multiProducer,
+            final boolean initialize) {
+        this(multiProducer ?
+                new MpscOffHeapVariableLengthRingBuffer(checkByteBuffer(buffer), requestedCapacity, initialize) :
+                new SpscOffHeapVariableLengthRingBuffer(checkByteBuffer(buffer), requestedCapacity, initialize),
+             requestedCapacity);
+    }
+
+    private VariableLengthChannel(final OffHeapVariableLengthRingBuffer buffer, final int requestedCapacity) {
+        this.buffer = buffer;
+        this.requestedCapacity = requestedCapacity;
+        this.producer = new Producer(buffer);
+    }
+
+    private static ByteBuffer checkByteBuffer(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Channels only work with direct or memory mapped buffers");
+        }
+        return buffer;
+    }
+
+    public ChannelConsumer consumer(ChannelReceiver<RecordRegion> receiver) {
+        return new Consumer(buffer, receiver);
+    }
+
+    /**
+     * NB: the producer keeps the current claim in its {@link RecordRegion}, so even for a multi producer channel each
+     * claim/commit pair must be completed before another thread claims through the same producer instance. Use
+     * {@link #newProducer()} for a producer per thread.
+     */
+    public ChannelProducer<RecordRegion> producer() {
+        return producer;
+    }
+
+    /**
+     * @return a new producer instance, to be used by a single thread
+     */
+    public ChannelProducer<RecordRegion> newProducer() {
+        return new Producer(buffer);
+    }
+
+    /**
+     * @return the number of bytes in use, including record headers and padding
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * @return the capacity in bytes
+     */
+    public int maximumCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return the largest record length which may be claimed
+     */
+    public int maximumRecordLength() {
+        return buffer.maxRecordLength();
+    }
+
+    @Override
+    public int requestedCapacity() {
+        return requestedCapacity;
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    private static final class Producer implements ChannelProducer<RecordRegion> {
+        private final OffHeapVariableLengthRingBuffer buffer;
+        private final RecordRegion region = new RecordRegion();
+        private long pointer = OffHeapVariableLengthRingBuffer.EOF;
+
+        Producer(OffHeapVariableLengthRingBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @throws UnsupportedOperationException records need a length, use {@link #claim(int)}
+         */
+        public boolean claim() {
+            throw new UnsupportedOperationException("record length is required, use claim(int)");
+        }
+
+        public boolean claim(int length) {
+            pointer = buffer.writeAcquire(length);
+            if (pointer == OffHeapVariableLengthRingBuffer.EOF) {
+                return false;
+            }
+            region.wrap(pointer, length);
+            return true;
+        }
+
+        public RecordRegion currentElement() {
+            return region;
+        }
+
+        public boolean commit() {
+            if (pointer == OffHeapVariableLengthRingBuffer.EOF) {
+                return false;
+            }
+            buffer.writeRelease(pointer);
+            pointer = OffHeapVariableLengthRingBuffer.EOF;
+            return true;
+        }
+    }
+
+    private static final class Consumer implements ChannelConsumer {
+        private final OffHeapVariableLengthRingBuffer buffer;
+        private final ChannelReceiver<RecordRegion> receiver;
+        private final RecordRegion region = new RecordRegion();
+
+        Consumer(OffHeapVariableLengthRingBuffer buffer, ChannelReceiver<RecordRegion> receiver) {
+            this.buffer = buffer;
+            this.receiver = receiver;
+        }
+
+        public boolean read() {
+            final long pointer = buffer.readAcquire();
+            if (pointer == OffHeapVariableLengthRingBuffer.EOF) {
+                return false;
+            }
+            region.wrap(pointer, OffHeapVariableLengthRingBuffer.recordLength(pointer));
+            receiver.accept(region);
+            buffer.readRelease(pointer);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapped;
+
+import static org.jctools.util.PortableJvmInfo.CACHE_LINE_SIZE;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.UnsafeDirectByteBuffer;
+
+/**
+ * A fixed record size ring buffer living in a memory mapped file, for use as an IPC queue between processes.
+ * <p>
+ * File layout (assuming 64b cache line):
+ * <pre>
+ * magic(4b), version(4b), type(4b), capacity(4b), recordSize(4b), pad(44b) |
+ * pad(64b) |
+ * producerIndex(8b), pad(56b) |
+ * pad(64b) |
+ * producerLimit(8b), pad(56b) |
+ * pad(64b) |
+ * consumerIndex(8b), pad(56b) |
+ * pad(64b) |
+ * records (capacity * (RECORD_HEADER_SIZE + recordSize aligned to 8b))
+ * </pre>
+ * Each record is preceded by an indicator which is {@link #RECORD_FREE} (all zero, as in a freshly extended file) or
+ * {@link #RECORD_WRITTEN}. The consumer index is only advanced on {@link #readRelease(long)}, so a producer which has
+ * claimed an index below {@code consumerIndex + capacity} owns the slot outright.
+ * <p>
+ * The header is written by {@link #create}-ing side and validated by the {@link #open}-ing side, the magic is written
+ * last so a concurrent opener will never see a partially initialized header as valid. The indices live in the file,
+ * so a queue survives either side restarting.
+ */
+public abstract class MappedFixedSizeRingBuffer implements Closeable {
+    public static final long EOF = 0;
+
+    /** "JCTQ" */
+    public static final int MAGIC = 0x4A435451;
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 8 * CACHE_LINE_SIZE;
+    public static final int RECORD_HEADER_SIZE = 8;
+    public static final int RECORD_FREE = 0;
+    public static final int RECORD_WRITTEN = 1;
+
+    static final int TYPE_SPSC = 1;
+    static final int TYPE_MPSC = 2;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int TYPE_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int RECORD_SIZE_OFFSET = 16;
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+
+    private final RandomAccessFile file;
+    // keeps the mapping alive, the address below is only valid while this buffer is reachable
+    private final MappedByteBuffer buffy;
+    private final long headerAddress;
+    protected final long producerIndexAddress;
+    protected final long producerLimitAddress;
+    protected final long consumerIndexAddress;
+    protected final long bufferAddress;
+    protected final long mask;
+    protected final int recordSize;
+    protected final int recordStride;
+
+    public static long getRequiredFileSize(final int capacity, final int recordSize) {
+        return HEADER_SIZE + ((long) Pow2.roundToPowerOfTwo(capacity) * recordStride(recordSize));
+    }
+
+    private static int recordStride(int recordSize) {
+        return (int) Pow2.align(RECORD_HEADER_SIZE + recordSize, RECORD_HEADER_SIZE);
+    }
+
+    /**
+     * @param file to map
+     * @param type expected queue type
+     * @param capacity in records, rounded up to the next power of 2. Ignored if {@code create} is false.
+     * @param recordSize in bytes. Ignored if {@code create} is false.
+     * @param create true to (re)initialize the file, false to attach to an already initialized file
+     */
+    protected MappedFixedSizeRingBuffer(final File file,
+            final int type,
+            final int capacity,
+            final int recordSize,
+            final boolean create) throws IOException {
+        if (create) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity is not positive: " + capacity);
+            }
+            if (recordSize < 1) {
+                throw new IllegalArgumentException("recordSize is not positive: " + recordSize);
+            }
+        } else if (!file.isFile()) {
+            throw new IOException("No such queue file: " + file);
+        }
+        this.file = new RandomAccessFile(file, "rw");
+        try {
+            final long fileSize;
+            if (create) {
+                fileSize = getRequiredFileSize(capacity, recordSize);
+                if (fileSize > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("capacity * recordSize exceeds the maximum mapping size");
+                }
+                // truncate first so all pre-existing content is zeroed
+                this.file.setLength(0);
+                this.file.setLength(fileSize);
+            } else {
+                fileSize = this.file.length();
+                if (fileSize < HEADER_SIZE) {
+                    throw new IOException("Queue file is too short to hold a header: " + file);
+                }
+            }
+            this.buffy = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+
+        this.headerAddress = UnsafeDirectByteBuffer.getAddress(buffy);
+        if (headerAddress % CACHE_LINE_SIZE != 0) {
+            this.file.close();
+            throw new IllegalStateException("mapping is expected to be cache line aligned");
+        }
+        if (create) {
+            UNSAFE.putInt(headerAddress + VERSION_OFFSET, VERSION);
+            UNSAFE.putInt(headerAddress + TYPE_OFFSET, type);
+            UNSAFE.putInt(headerAddress + CAPACITY_OFFSET, Pow2.roundToPowerOfTwo(capacity));
+            UNSAFE.putInt(headerAddress + RECORD_SIZE_OFFSET, recordSize);
+            UNSAFE.putOrderedInt(null, headerAddress + MAGIC_OFFSET, MAGIC);
+        } else {
+            validateHeader(file, type);
+        }
+        final int actualCapacity = UNSAFE.getInt(headerAddress + CAPACITY_OFFSET);
+        this.recordSize = UNSAFE.getInt(headerAddress + RECORD_SIZE_OFFSET);
+        this.recordStride = recordStride(this.recordSize);
+        if (buffy.capacity() < getRequiredFileSize(actualCapacity, this.recordSize)) {
+            this.file.close();
+            throw new IOException("Queue file is shorter than its header declares: " + file);
+        }
+        this.producerIndexAddress = headerAddress + 2l * CACHE_LINE_SIZE;
+        this.producerLimitAddress = headerAddress + 4l * CACHE_LINE_SIZE;
+        this.consumerIndexAddress = headerAddress + 6l * CACHE_LINE_SIZE;
+        this.bufferAddress = headerAddress + HEADER_SIZE;
+        this.mask = actualCapacity - 1;
+        if (create) {
+            soProducerLimit(actualCapacity);
+        }
+    }
+
+    private void validateHeader(File f, int type) throws IOException {
+        final int magic = UNSAFE.getIntVolatile(null, headerAddress + MAGIC_OFFSET);
+        final String error;
+        if (magic != MAGIC) {
+            error = "Queue file is not initialized: " + f;
+        } else if (UNSAFE.getInt(headerAddress + VERSION_OFFSET) != VERSION) {
+            error = "Unsupported queue file version " + UNSAFE.getInt(headerAddress + VERSION_OFFSET) + ": " + f;
+        } else if (UNSAFE.getInt(headerAddress + TYPE_OFFSET) != type) {
+            error = "Queue file type " + UNSAFE.getInt(headerAddress + TYPE_OFFSET) + " does not match " + type
+                    + ": " + f;
+        } else {
+            final int capacity = UNSAFE.getInt(headerAddress + CAPACITY_OFFSET);
+            if (capacity < 1 || !Pow2.isPowerOfTwo(capacity) || UNSAFE.getInt(headerAddress + RECORD_SIZE_OFFSET) < 1) {
+                error = "Corrupt queue file header: " + f;
+            } else {
+                return;
+            }
+        }
+        this.file.close();
+        throw new IOException(error);
+    }
+
+    public final int capacity() {
+        return (int) (mask + 1);
+    }
+
+    public final int recordSize() {
+        return recordSize;
+    }
+
+    public final int size() {
+        long after = lvConsumerIndex();
+        long size;
+        while (true) {
+            final long before = after;
+            final long currentProducerIndex = lvProducerIndex();
+            after = lvConsumerIndex();
+            if (before == after) {
+                size = (currentProducerIndex - after);
+                break;
+            }
+        }
+        // producer index is claimed ahead of writing in MPSC, so this may include records not yet readable
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public final boolean isEmpty() {
+        return lvProducerIndex() == lvConsumerIndex();
+    }
+
+    /**
+     * @return the address of a record acquired for writing, or {@link #EOF} if the buffer is full. The record is
+     * {@link #recordSize()} bytes long and must be handed to {@link #writeRelease(long)} once written.
+     */
+    public abstract long writeAcquire();
+
+    /**
+     * @param address of a record returned from {@link #writeAcquire()} which is now fully written
+     */
+    public final void writeRelease(long address) {
+        UNSAFE.putOrderedInt(null, address - RECORD_HEADER_SIZE, RECORD_WRITTEN);
+    }
+
+    /**
+     * Must only be called from the single consumer, and records must be released before the next one is acquired.
+     *
+     * @return the address of the next record to be read, or {@link #EOF} if none is available
+     */
+    public final long readAcquire() {
+        final long address = recordAddress(lpConsumerIndex());
+        if (UNSAFE.getIntVolatile(null, address - RECORD_HEADER_SIZE) != RECORD_WRITTEN) {
+            return EOF;
+        }
+        return address;
+    }
+
+    /**
+     * @param address of a record returned from {@link #readAcquire()} which may now be overwritten
+     */
+    public final void readRelease(long address) {
+        UNSAFE.putOrderedInt(null, address - RECORD_HEADER_SIZE, RECORD_FREE);
+        soConsumerIndex(lpConsumerIndex() + 1); // StoreStore
+    }
+
+    /**
+     * Copy a record in from the given array. Bytes beyond {@code length} and up to {@link #recordSize()} are left as
+     * found in the slot.
+     *
+     * @return true if the record was written, false if the buffer is full
+     */
+    public final boolean offer(byte[] src, int srcOffset, int length) {
+        if (length < 0 || length > recordSize) {
+            throw new IllegalArgumentException("length is not in [0, " + recordSize + "]: " + length);
+        }
+        if (srcOffset < 0 || srcOffset + length > src.length) {
+            throw new IndexOutOfBoundsException("srcOffset=" + srcOffset + ", length=" + length
+                    + ", src.length=" + src.length);
+        }
+        final long address = writeAcquire();
+        if (address == EOF) {
+            return false;
+        }
+        UNSAFE.copyMemory(src, BYTE_ARRAY_BASE + srcOffset, null, address, length);
+        writeRelease(address);
+        return true;
+    }
+
+    /**
+     * Copy the next record, all {@link #recordSize()} bytes of it, into the given array.
+     *
+     * @return true if a record was read, false if the buffer is empty
+     */
+    public final boolean poll(byte[] dst, int dstOffset) {
+        if (dstOffset < 0 || dstOffset + recordSize > dst.length) {
+            throw new IndexOutOfBoundsException("dstOffset=" + dstOffset + ", recordSize=" + recordSize
+                    + ", dst.length=" + dst.length);
+        }
+        final long address = readAcquire();
+        if (address == EOF) {
+            return false;
+        }
+        UNSAFE.copyMemory(null, address, dst, BYTE_ARRAY_BASE + dstOffset, recordSize);
+        readRelease(address);
+        return true;
+    }
+
+    /**
+     * Closes the underlying file. The mapping itself is released when this instance is garbage collected, so the
+     * buffer must not be used after this call.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    protected final long recordAddress(long index) {
+        return bufferAddress + ((index & mask) * recordStride) + RECORD_HEADER_SIZE;
+    }
+
+    protected final long lpConsumerIndex() {
+        return UNSAFE.getLong(null, consumerIndexAddress);
+    }
+
+    protected final long lvConsumerIndex() {
+        return UNSAFE.getLongVolatile(null, consumerIndexAddress);
+    }
+
+    protected final void soConsumerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, consumerIndexAddress, value);
+    }
+
+    protected final long lpProducerIndex() {
+        return UNSAFE.getLong(null, producerIndexAddress);
+    }
+
+    protected final long lvProducerIndex() {
+        return UNSAFE.getLongVolatile(null, producerIndexAddress);
+    }
+
+    protected final void soProducerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, producerIndexAddress, value);
+    }
+
+    protected final boolean casProducerIndex(final long expected, final long update) {
+        return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
+    }
+
+    protected final long lvProducerLimit() {
+        return UNSAFE.getLongVolatile(null, producerLimitAddress);
+    }
+
+    protected final void soProducerLimit(final long value) {
+        UNSAFE.putOrderedLong(null, producerLimitAddress, value);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A multi producer, single consumer {@link MappedFixedSizeRingBuffer}. Producers may be in different processes,
+ * they claim slots with a CAS on the shared producer index. At most one thread, in any process, may read from a given
+ * file at any time.
+ */
+public final class MpscMappedFixedSizeRingBuffer extends MappedFixedSizeRingBuffer {
+
+    /**
+     * Create, or reset, a queue file.
+     *
+     * @param file to map, created if missing and truncated if present
+     * @param capacity in records, rounded up to the next power of 2
+     * @param recordSize in bytes
+     */
+    public static MpscMappedFixedSizeRingBuffer create(File file, int capacity, int recordSize) throws IOException {
+        return new MpscMappedFixedSizeRingBuffer(file, capacity, recordSize, true);
+    }
+
+    /**
+     * Attach to a queue file previously initialized by {@link #create(File, int, int)}, taking the capacity and record
+     * size from its header.
+     */
+    public static MpscMappedFixedSizeRingBuffer open(File file) throws IOException {
+        return new MpscMappedFixedSizeRingBuffer(file, 0, 0, false);
+    }
+
+    private MpscMappedFixedSizeRingBuffer(File file, int capacity, int recordSize, boolean create) throws IOException {
+        super(file, TYPE_MPSC, capacity, recordSize, create);
+    }
+
+    @Override
+    public long writeAcquire() {
+        // use a cached view on the consumer index (potentially updated by another producer)
+        long producerLimit = lvProducerLimit();
+        long producerIndex;
+        do {
+            producerIndex = lvProducerIndex(); // LoadLoad
+            if (producerIndex >= producerLimit) {
+                producerLimit = lvConsumerIndex() + capacity();
+                if (producerIndex >= producerLimit) {
+                    return EOF;
+                }
+                // racy, but a stale limit is only ever too low, in which case it gets reloaded as above
+                soProducerLimit(producerLimit);
+            }
+        } while (!casProducerIndex(producerIndex, producerIndex + 1));
+        // the consumer index is only advanced once a slot is read released, so this slot is ours
+        return recordAddress(producerIndex);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A single producer, single consumer {@link MappedFixedSizeRingBuffer}. At most one thread, in any process, may
+ * write to and one may read from a given file at any time.
+ */
+public final class SpscMappedFixedSizeRingBuffer extends MappedFixedSizeRingBuffer {
+
+    /**
+     * Create, or reset, a queue file.
+     *
+     * @param file to map, created if missing and truncated if present
+     * @param capacity in records, rounded up to the next power of 2
+     * @param recordSize in bytes
+     */
+    public static SpscMappedFixedSizeRingBuffer create(File file, int capacity, int recordSize) throws IOException {
+        return new SpscMappedFixedSizeRingBuffer(file, capacity, recordSize, true);
+    }
+
+    /**
+     * Attach to a queue file previously initialized by {@link #create(File, int, int)}, taking the capacity and record
+     * size from its header.
+     */
+    public static SpscMappedFixedSizeRingBuffer open(File file) throws IOException {
+        return new SpscMappedFixedSizeRingBuffer(file, 0, 0, false);
+    }
+
+    private SpscMappedFixedSizeRingBuffer(File file, int capacity, int recordSize, boolean create) throws IOException {
+        super(file, TYPE_SPSC, capacity, recordSize, create);
+    }
+
+    @Override
+    public long writeAcquire() {
+        final long producerIndex = lpProducerIndex();
+        if (producerIndex >= lvProducerLimit()) {
+            final long producerLimit = lvConsumerIndex() + capacity();
+            if (producerIndex >= producerLimit) {
+                return EOF;
+            }
+            soProducerLimit(producerLimit);
+        }
+        soProducerIndex(producerIndex + 1); // StoreStore
+        return recordAddress(producerIndex);
+    }
+}
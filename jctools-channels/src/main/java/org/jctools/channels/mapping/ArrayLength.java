@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a fixed length primitive array in a flyweight interface. The
+ * annotated getter takes the index of the element, the matching setter the
+ * index and the value:
+ *
+ * <pre>
+ * &#64;ArrayLength(4)
+ * long getPrice(int index);
+ *
+ * void setPrice(int index, long value);
+ * </pre>
+ *
+ * An index outside of the array throws an IndexOutOfBoundsException.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ArrayLength {
+    /**
+     * @return the number of elements in the array
+     */
+    int value();
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+public final class ArrayVariable {
+
+    public final String type;
+    public final String name;
+    public final int fieldOffset;
+    public final String unsafeMethodSuffix;
+    public final int length;
+    public final int elementSize;
+
+    public ArrayVariable(String type, String name, int fieldOffset, String unsafeMethodSuffix, int length, int elementSize) {
+        this.type = type;
+        this.name = name;
+        this.fieldOffset = fieldOffset;
+        this.unsafeMethodSuffix = unsafeMethodSuffix;
+        this.length = length;
+        this.elementSize = elementSize;
+    }
+
+}
@@ -15,7 +15,9 @@ package org.jctools.channels.mapping;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
 
@@ -24,7 +26,12 @@ public class ClassViewModel {
     private final Class<?> implementationParent;
     private final Class<?>[] constructorParams;
     private final Class<?> structInterface;
-    private final TypeInspector inspector;
+    private final StructViewModel flyweight;
+    /**
+     * The inspectors of all nested structs, by struct interface
+     */
+    private final Map<Class<?>, TypeInspector> structInspectors = new LinkedHashMap<Class<?>, TypeInspector>();
+    private final Map<Class<?>, String> viewClasses = new LinkedHashMap<Class<?>, String>();
 
     public ClassViewModel(
             Class<?> implementationParent, Class<?>[] constructorParams, Class<?> structInterface,
@@ -33,7 +40,24 @@ public class ClassViewModel {
         this.implementationParent = implementationParent;
         this.constructorParams = constructorParams;
         this.structInterface = structInterface;
-        this.inspector = inspector;
+        findStructs(inspector);
+        this.flyweight = new StructViewModel(className(), structInterface, inspector,
+                SpscOffHeapFixedSizeRingBuffer.MESSAGE_INDICATOR_SIZE, viewClasses);
+    }
+
+    private void findStructs(TypeInspector inspector) {
+        for (Map.Entry<Method, TypeInspector> struct : inspector.structs.entrySet()) {
+            Class<?> type = struct.getKey().getReturnType();
+            if (structInspectors.containsKey(type))
+                continue;
+
+            structInspectors.put(type, struct.getValue());
+            String viewClass = type.getSimpleName() + "Flyweight";
+            if (viewClasses.containsValue(viewClass))
+                viewClass += viewClasses.size();
+            viewClasses.put(type, viewClass);
+            findStructs(struct.getValue());
+        }
     }
 
     public String className() {
@@ -49,7 +73,7 @@ public class ClassViewModel {
     }
 
     // Account for anonymous inner classes
-    private String cleanClassName(Class<?> cls) {
+    static String cleanClassName(Class<?> cls) {
         return cls.getName().replace('$', '.');
     }
 
@@ -62,15 +86,32 @@ public class ClassViewModel {
     }
 
     public List<Variable> fields() {
-        int fieldOffset = SpscOffHeapFixedSizeRingBuffer.MESSAGE_INDICATOR_SIZE;
-        List<Variable> fields = new ArrayList<Variable>();
-        for (Method method : inspector.getters) {
-            Primitive type = Primitive.of(method.getReturnType());
-            String name = method.getName().substring(3);
-            fields.add(new Variable(type.javaEquivalent.getName(), name, fieldOffset, type.unsafeMethodSuffix()));
-            fieldOffset += type.sizeInBytes;
+        return flyweight.fields();
+    }
+
+    public List<Variable> enumFields() {
+        return flyweight.enumFields();
+    }
+
+    public List<ArrayVariable> arrayFields() {
+        return flyweight.arrayFields();
+    }
+
+    public List<StructVariable> structFields() {
+        return flyweight.structFields();
+    }
+
+    /**
+     * @return the nested structs, each to be implemented by a nested class
+     *         whose fields are relative to its own pointer
+     */
+    public List<StructViewModel> structs() {
+        List<StructViewModel> structs = new ArrayList<StructViewModel>(structInspectors.size());
+        for (Map.Entry<Class<?>, TypeInspector> struct : structInspectors.entrySet()) {
+            Class<?> type = struct.getKey();
+            structs.add(new StructViewModel(viewClasses.get(type), type, struct.getValue(), 0, viewClasses));
         }
-        return fields;
+        return structs;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,473 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import static java.lang.reflect.Modifier.isAbstract;
+import static java.lang.reflect.Modifier.isProtected;
+import static java.lang.reflect.Modifier.isPublic;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.jctools.util.UnsafeAccess;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import sun.misc.Unsafe;
+
+/**
+ * Generates the bytecode of a flyweight implementation, rather than rendering
+ * a template and compiling it with javac. The classes are equivalent to those
+ * of the channel templates:
+ * <ul>
+ * <li>a public constructor passing through to each public or protected
+ * constructor of the parent
+ * <li>the getters and setters of the flyweight interface, at the offsets laid
+ * out by {@link ClassViewModel}
+ * <li>a class for each nested struct, named as in {@link ClassViewModel#structs()}
+ * <li>the <code>currentElement()</code> of a producer and the
+ * <code>read()</code> of a consumer, if the parent leaves them abstract
+ * </ul>
+ * Any other abstract method of the parent needs a template.
+ */
+final class FlyweightGenerator implements Opcodes {
+
+    private static final String UNSAFE_ACCESS = Type.getInternalName(UnsafeAccess.class);
+    private static final String UNSAFE = Type.getInternalName(Unsafe.class);
+    private static final String UNSAFE_DESCRIPTOR = Type.getDescriptor(Unsafe.class);
+    private static final String RECEIVER = Type.getInternalName(ChannelReceiver.class);
+
+    private final Class<?> implementationParent;
+    private final Class<?> structInterface;
+    private final TypeInspector inspector;
+    private final String className;
+    /**
+     * The inspectors and class names of all nested structs, by struct interface
+     */
+    private final Map<Class<?>, TypeInspector> structInspectors = new LinkedHashMap<Class<?>, TypeInspector>();
+    private final Map<Class<?>, String> viewClasses = new LinkedHashMap<Class<?>, String>();
+
+    FlyweightGenerator(Class<?> implementationParent, Class<?> structInterface, TypeInspector inspector) {
+        this.implementationParent = implementationParent;
+        this.structInterface = structInterface;
+        this.inspector = inspector;
+        this.className = implementationParent.getSimpleName() + "_" + structInterface.getSimpleName();
+        findStructs(inspector);
+    }
+
+    private void findStructs(TypeInspector inspector) {
+        for (Map.Entry<Method, TypeInspector> struct : inspector.structs.entrySet()) {
+            Class<?> type = struct.getKey().getReturnType();
+            if (structInspectors.containsKey(type))
+                continue;
+
+            structInspectors.put(type, struct.getValue());
+            String viewClass = type.getSimpleName() + "Flyweight";
+            if (viewClasses.containsValue(className + "$" + viewClass))
+                viewClass += viewClasses.size();
+            viewClasses.put(type, className + "$" + viewClass);
+            findStructs(struct.getValue());
+        }
+    }
+
+    String className() {
+        return className;
+    }
+
+    /**
+     * @return the class files by class name, the flyweight first
+     * @throws IllegalArgumentException
+     *             if the parent has abstract methods which can't be generated
+     */
+    Map<String, byte[]> generate() {
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        classes.put(className, generateFlyweight());
+        for (Map.Entry<Class<?>, TypeInspector> struct : structInspectors.entrySet()) {
+            String viewClass = viewClasses.get(struct.getKey());
+            classes.put(viewClass, generateView(viewClass, struct.getKey(), struct.getValue()));
+        }
+        return classes;
+    }
+
+    private byte[] generateFlyweight() {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(V1_4, ACC_PUBLIC | ACC_SUPER, className, null,
+                Type.getInternalName(implementationParent),
+                new String[] { Type.getInternalName(structInterface) });
+
+        for (Constructor<?> constructor : implementationParent.getDeclaredConstructors()) {
+            if (isPublic(constructor.getModifiers()) || isProtected(constructor.getModifiers())) {
+                implementConstructor(classWriter, Type.getConstructorDescriptor(constructor));
+            }
+        }
+        implementParentMethods(classWriter);
+        implementStruct(classWriter, className, inspector, SpscOffHeapFixedSizeRingBuffer.MESSAGE_INDICATOR_SIZE);
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private byte[] generateView(String viewClass, Class<?> type, TypeInspector inspector) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(V1_4, ACC_FINAL | ACC_SUPER, viewClass, null, "java/lang/Object",
+                new String[] { Type.getInternalName(type) });
+        classWriter.visitField(0, "pointer", "J", null, null).visitEnd();
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(0, "<init>", "()V", null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        initViews(methodVisitor, viewClass, inspector);
+        methodVisitor.visitInsn(RETURN);
+        end(methodVisitor);
+
+        implementStruct(classWriter, viewClass, inspector, 0);
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private void implementConstructor(ClassWriter classWriter, String descriptor) {
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "<init>", descriptor, null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        int local = 1;
+        for (Type parameter : Type.getArgumentTypes(descriptor)) {
+            methodVisitor.visitVarInsn(parameter.getOpcode(ILOAD), local);
+            local += parameter.getSize();
+        }
+        methodVisitor.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(implementationParent), "<init>",
+                descriptor, false);
+        initViews(methodVisitor, className, inspector);
+        methodVisitor.visitInsn(RETURN);
+        end(methodVisitor);
+    }
+
+    private void initViews(MethodVisitor methodVisitor, String owner, TypeInspector inspector) {
+        for (Method getter : inspector.getters) {
+            if (!TypeInspector.isStruct(getter))
+                continue;
+
+            String viewClass = viewClasses.get(getter.getReturnType());
+            methodVisitor.visitVarInsn(ALOAD, 0);
+            methodVisitor.visitTypeInsn(NEW, viewClass);
+            methodVisitor.visitInsn(DUP);
+            methodVisitor.visitMethodInsn(INVOKESPECIAL, viewClass, "<init>", "()V", false);
+            methodVisitor.visitFieldInsn(PUTFIELD, owner, fieldName(getter) + "View", "L" + viewClass + ";");
+        }
+    }
+
+    private void implementParentMethods(ClassWriter classWriter) {
+        Set<String> implemented = new HashSet<String>();
+        for (Method method : implementationParent.getMethods()) {
+            String descriptor = Type.getMethodDescriptor(method);
+            if (!isAbstract(method.getModifiers()) || isImplemented(method)
+                    || !implemented.add(method.getName() + descriptor))
+                continue;
+
+            if ("currentElement".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                implementCurrentElement(classWriter, descriptor);
+            } else if ("read".equals(method.getName()) && method.getParameterTypes().length == 0
+                    && method.getReturnType() == Boolean.TYPE) {
+                implementRead(classWriter);
+            } else {
+                throw new IllegalArgumentException("Unable to generate " + method + ", use a template instead");
+            }
+        }
+    }
+
+    private boolean isImplemented(Method method) {
+        for (Class<?> type = implementationParent; type != null; type = type.getSuperclass()) {
+            try {
+                Method declared = type.getDeclaredMethod(method.getName(), method.getParameterTypes());
+                if (!isAbstract(declared.getModifiers()))
+                    return true;
+            } catch (NoSuchMethodException e) {
+                // declared further up
+            }
+        }
+        return false;
+    }
+
+    private void implementCurrentElement(ClassWriter classWriter, String descriptor) {
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "currentElement", descriptor, null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitInsn(ARETURN);
+        end(methodVisitor);
+    }
+
+    private void implementRead(ClassWriter classWriter) {
+        final long eof;
+        try {
+            eof = implementationParent.getField("EOF").getLong(null);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(implementationParent.getName() + " has no EOF", e);
+        }
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "read", "()Z", null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, className, "readAcquire", "()J", false);
+        methodVisitor.visitVarInsn(LSTORE, 1);
+
+        Label acquired = new Label();
+        methodVisitor.visitVarInsn(LLOAD, 1);
+        methodVisitor.visitLdcInsn(eof);
+        methodVisitor.visitInsn(LCMP);
+        methodVisitor.visitJumpInsn(IFNE, acquired);
+        methodVisitor.visitInsn(ICONST_0);
+        methodVisitor.visitInsn(IRETURN);
+
+        methodVisitor.visitLabel(acquired);
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitVarInsn(LLOAD, 1);
+        methodVisitor.visitFieldInsn(PUTFIELD, className, "pointer", "J");
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitFieldInsn(GETFIELD, className, "receiver", "L" + RECEIVER + ";");
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitMethodInsn(INVOKEINTERFACE, RECEIVER, "accept", "(Ljava/lang/Object;)V", true);
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitVarInsn(LLOAD, 1);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, className, "readRelease", "(J)V", false);
+        methodVisitor.visitInsn(ICONST_1);
+        methodVisitor.visitInsn(IRETURN);
+        end(methodVisitor);
+    }
+
+    private void implementStruct(ClassWriter classWriter, String owner, TypeInspector inspector, int baseOffset) {
+        MethodVisitor staticInit = null;
+        int fieldOffset = baseOffset;
+        for (Method getter : inspector.getters) {
+            if (TypeInspector.isStruct(getter)) {
+                implementStructField(classWriter, owner, getter, fieldOffset);
+            } else if (TypeInspector.isEnum(getter)) {
+                if (staticInit == null) {
+                    staticInit = classWriter.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+                    staticInit.visitCode();
+                }
+                implementEnumField(classWriter, staticInit, owner, getter, fieldOffset);
+            } else if (TypeInspector.isArray(getter)) {
+                implementArrayField(classWriter, owner, getter, fieldOffset);
+            } else {
+                implementField(classWriter, owner, getter, fieldOffset);
+            }
+            fieldOffset += inspector.getSizeInBytes(getter);
+        }
+
+        if (staticInit != null) {
+            staticInit.visitInsn(RETURN);
+            end(staticInit);
+        }
+    }
+
+    private void implementField(ClassWriter classWriter, String owner, Method getter, int fieldOffset) {
+        Primitive type = Primitive.of(getter.getReturnType());
+        String descriptor = Type.getDescriptor(getter.getReturnType());
+        String unsafeDescriptor = Type.getDescriptor(type.javaEquivalent);
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, getter.getName(), "()" + descriptor,
+                null, null);
+        methodVisitor.visitCode();
+        loadAddress(methodVisitor, owner, fieldOffset);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "get" + type.unsafeMethodSuffix(),
+                "(J)" + unsafeDescriptor, false);
+        methodVisitor.visitInsn(type.returnOpcode);
+        end(methodVisitor);
+
+        methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "set" + fieldName(getter), "(" + descriptor + ")V",
+                null, null);
+        methodVisitor.visitCode();
+        loadAddress(methodVisitor, owner, fieldOffset);
+        methodVisitor.visitVarInsn(type.loadOpcode, 1);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "put" + type.unsafeMethodSuffix(),
+                "(J" + unsafeDescriptor + ")V", false);
+        methodVisitor.visitInsn(RETURN);
+        end(methodVisitor);
+    }
+
+    private void implementEnumField(ClassWriter classWriter, MethodVisitor staticInit, String owner, Method getter,
+            int fieldOffset) {
+        String type = Type.getInternalName(getter.getReturnType());
+        String descriptor = Type.getDescriptor(getter.getReturnType());
+        String values = fieldName(getter) + "Values";
+
+        classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, values, "[" + descriptor, null, null).visitEnd();
+        staticInit.visitMethodInsn(INVOKESTATIC, type, "values", "()[" + descriptor, false);
+        staticInit.visitFieldInsn(PUTSTATIC, owner, values, "[" + descriptor);
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, getter.getName(), "()" + descriptor,
+                null, null);
+        methodVisitor.visitCode();
+        loadAddress(methodVisitor, owner, fieldOffset);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "getInt", "(J)I", false);
+        methodVisitor.visitVarInsn(ISTORE, 1);
+        Label present = new Label();
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitJumpInsn(IFGE, present);
+        methodVisitor.visitInsn(ACONST_NULL);
+        methodVisitor.visitInsn(ARETURN);
+        methodVisitor.visitLabel(present);
+        methodVisitor.visitFieldInsn(GETSTATIC, owner, values, "[" + descriptor);
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitInsn(AALOAD);
+        methodVisitor.visitInsn(ARETURN);
+        end(methodVisitor);
+
+        methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "set" + fieldName(getter), "(" + descriptor + ")V",
+                null, null);
+        methodVisitor.visitCode();
+        loadAddress(methodVisitor, owner, fieldOffset);
+        Label notNull = new Label();
+        Label put = new Label();
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        methodVisitor.visitJumpInsn(IFNONNULL, notNull);
+        methodVisitor.visitInsn(ICONST_M1);
+        methodVisitor.visitJumpInsn(GOTO, put);
+        methodVisitor.visitLabel(notNull);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, type, "ordinal", "()I", false);
+        methodVisitor.visitLabel(put);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "putInt", "(JI)V", false);
+        methodVisitor.visitInsn(RETURN);
+        end(methodVisitor);
+    }
+
+    private void implementArrayField(ClassWriter classWriter, String owner, Method getter, int fieldOffset) {
+        Primitive type = Primitive.of(getter.getReturnType());
+        String descriptor = Type.getDescriptor(getter.getReturnType());
+        String unsafeDescriptor = Type.getDescriptor(type.javaEquivalent);
+        int length = TypeInspector.arrayLength(getter);
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, getter.getName(), "(I)" + descriptor,
+                null, null);
+        methodVisitor.visitCode();
+        checkIndex(methodVisitor, length);
+        loadElementAddress(methodVisitor, owner, fieldOffset, type);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "get" + type.unsafeMethodSuffix(),
+                "(J)" + unsafeDescriptor, false);
+        methodVisitor.visitInsn(type.returnOpcode);
+        end(methodVisitor);
+
+        methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "set" + fieldName(getter), "(I" + descriptor + ")V",
+                null, null);
+        methodVisitor.visitCode();
+        checkIndex(methodVisitor, length);
+        loadElementAddress(methodVisitor, owner, fieldOffset, type);
+        methodVisitor.visitVarInsn(type.loadOpcode, 2);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "put" + type.unsafeMethodSuffix(),
+                "(J" + unsafeDescriptor + ")V", false);
+        methodVisitor.visitInsn(RETURN);
+        end(methodVisitor);
+    }
+
+    private void implementStructField(ClassWriter classWriter, String owner, Method getter, int fieldOffset) {
+        String viewClass = viewClasses.get(getter.getReturnType());
+        String view = fieldName(getter) + "View";
+        classWriter.visitField(ACC_PRIVATE | ACC_FINAL, view, "L" + viewClass + ";", null, null).visitEnd();
+
+        MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, getter.getName(),
+                Type.getMethodDescriptor(getter), null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitFieldInsn(GETFIELD, owner, view, "L" + viewClass + ";");
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitFieldInsn(GETFIELD, owner, "pointer", "J");
+        methodVisitor.visitLdcInsn((long) fieldOffset);
+        methodVisitor.visitInsn(LADD);
+        methodVisitor.visitFieldInsn(PUTFIELD, viewClass, "pointer", "J");
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitFieldInsn(GETFIELD, owner, view, "L" + viewClass + ";");
+        methodVisitor.visitInsn(ARETURN);
+        end(methodVisitor);
+    }
+
+    /**
+     * UNSAFE, pointer + fieldOffset
+     */
+    private static void loadAddress(MethodVisitor methodVisitor, String owner, int fieldOffset) {
+        methodVisitor.visitFieldInsn(GETSTATIC, UNSAFE_ACCESS, "UNSAFE", UNSAFE_DESCRIPTOR);
+        methodVisitor.visitVarInsn(ALOAD, 0);
+        methodVisitor.visitFieldInsn(GETFIELD, owner, "pointer", "J");
+        methodVisitor.visitLdcInsn((long) fieldOffset);
+        methodVisitor.visitInsn(LADD);
+    }
+
+    /**
+     * UNSAFE, pointer + fieldOffset + index * elementSize
+     */
+    private static void loadElementAddress(MethodVisitor methodVisitor, String owner, int fieldOffset,
+            Primitive type) {
+        loadAddress(methodVisitor, owner, fieldOffset);
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitInsn(I2L);
+        methodVisitor.visitLdcInsn((long) type.sizeInBytes);
+        methodVisitor.visitInsn(LMUL);
+        methodVisitor.visitInsn(LADD);
+    }
+
+    /**
+     * Throws an IndexOutOfBoundsException unless 0 <= index < length
+     */
+    private static void checkIndex(MethodVisitor methodVisitor, int length) {
+        Label outOfBounds = new Label();
+        Label inBounds = new Label();
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitJumpInsn(IFLT, outOfBounds);
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitLdcInsn(length);
+        methodVisitor.visitJumpInsn(IF_ICMPLT, inBounds);
+
+        methodVisitor.visitLabel(outOfBounds);
+        methodVisitor.visitTypeInsn(NEW, "java/lang/IndexOutOfBoundsException");
+        methodVisitor.visitInsn(DUP);
+        methodVisitor.visitTypeInsn(NEW, "java/lang/StringBuilder");
+        methodVisitor.visitInsn(DUP);
+        methodVisitor.visitLdcInsn("Index: ");
+        methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V",
+                false);
+        methodVisitor.visitVarInsn(ILOAD, 1);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                "(I)Ljava/lang/StringBuilder;", false);
+        methodVisitor.visitLdcInsn(", length: " + length);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;",
+                false);
+        methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/lang/IndexOutOfBoundsException", "<init>",
+                "(Ljava/lang/String;)V", false);
+        methodVisitor.visitInsn(ATHROW);
+
+        methodVisitor.visitLabel(inBounds);
+    }
+
+    private static void end(MethodVisitor methodVisitor) {
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+    }
+
+    private static String fieldName(Method getter) {
+        return getter.getName().substring(3);
+    }
+
+}
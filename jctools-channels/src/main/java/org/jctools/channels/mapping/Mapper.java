@@ -15,8 +15,12 @@ package org.jctools.channels.mapping;
 
 import static org.jctools.channels.mapping.Primitive.simplifyType;
 
+import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.tools.Diagnostic;
 
@@ -24,19 +28,22 @@ import org.jctools.util.CompilationResult;
 import org.jctools.util.SimpleCompiler;
 import org.jctools.util.StringWrappingJavaFile;
 import org.jctools.util.Template;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.util.TraceClassVisitor;
 
 public class Mapper<S> {
 
     private final boolean debugEnabled;
     private final TypeInspector inspector;
     private final Class<S> structInterface;
-    private final SimpleCompiler compiler;
+    private final ConcurrentMap<Class<?>, Class<?>> generatedImplementations =
+            new ConcurrentHashMap<Class<?>, Class<?>>();
+    private SimpleCompiler compiler;
 
     public Mapper(Class<S> structInterface, boolean debugEnabled) {
         this.debugEnabled = debugEnabled;
         this.structInterface = structInterface;
         inspector = new TypeInspector(structInterface);
-        compiler = new SimpleCompiler();
     }
 
     /**
@@ -57,11 +64,75 @@ public class Mapper<S> {
                 inspector);
         String source = template.render(model);
         debugLogSource(source);
-        CompilationResult result = compiler.compile(model.className(), source);
+        CompilationResult result = compiler().compile(model.className(), source);
         checkCompileFailures(templateFileName, result);
         return instantiateImplementation(constructorParameterTypes, model.className(), result, args);
     }
 
+    /**
+     * Implement the flyweight by generating its bytecode, rather than by
+     * compiling a template. This works on a JRE, takes milliseconds rather than
+     * the seconds javac needs to start up, and the classes are equivalent to
+     * those of the channel templates. They are generated once per parent and
+     * reused for each flyweight.
+     *
+     * @param implementationParent
+     *            the parent, whose only abstract methods may be
+     *            <code>currentElement()</code> and <code>read()</code>
+     * @param args
+     *            passed to the matching constructor of the parent
+     * @return a new flyweight
+     */
+    @SuppressWarnings("unchecked")
+    public <I> I generateFlyweight(Class<I> implementationParent, Object... args) {
+        Class<?> implementation = generatedImplementations.get(implementationParent);
+        if (implementation == null) {
+            implementation = generateImplementation(implementationParent);
+            Class<?> raced = generatedImplementations.putIfAbsent(implementationParent, implementation);
+            if (raced != null) {
+                implementation = raced;
+            }
+        }
+
+        try {
+            Constructor<I> constructor = (Constructor<I>) implementation.getConstructor(getTypes(args));
+            return constructor.newInstance(args);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Class<?> generateImplementation(Class<?> implementationParent) {
+        FlyweightGenerator generator = new FlyweightGenerator(implementationParent, structInterface, inspector);
+        Map<String, byte[]> classes = generator.generate();
+        debugLogClasses(classes);
+        try {
+            return new GeneratedClassLoader(structInterface, classes).loadClass(generator.className());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SimpleCompiler compiler() {
+        if (compiler == null) {
+            compiler = new SimpleCompiler();
+        }
+        return compiler;
+    }
+
+    private void debugLogClasses(Map<String, byte[]> classes) {
+        if (debugEnabled) {
+            PrintWriter out = new PrintWriter(System.err);
+            for (byte[] byteCode : classes.values()) {
+                out.println("---------------------------------------");
+                out.println("Bytecode: ");
+                new ClassReader(byteCode).accept(new TraceClassVisitor(out), 0);
+            }
+            out.println("---------------------------------------");
+            out.flush();
+        }
+    }
+
     private void debugLogSource(String source) {
         if (debugEnabled) {
             System.err.println("---------------------------------------");
@@ -114,4 +185,28 @@ public class Mapper<S> {
         return types;
     }
 
+    /**
+     * Defines generated classes, which see both the flyweight interface and
+     * JCTools whichever loaders these come from.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        GeneratedClassLoader(Class<?> structInterface, Map<String, byte[]> classes) {
+            super(structInterface.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] byteCode = classes.get(name);
+            if (byteCode == null) {
+                return Mapper.class.getClassLoader().loadClass(name);
+            }
+            return defineClass(name, byteCode, 0, byteCode.length);
+        }
+
+    }
+
 }
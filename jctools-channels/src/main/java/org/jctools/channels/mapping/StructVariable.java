@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+public final class StructVariable {
+
+    public final String type;
+    public final String name;
+    public final int fieldOffset;
+    /**
+     * The name of the nested class implementing the struct, see {@link ClassViewModel#structs()}
+     */
+    public final String viewClass;
+
+    public StructVariable(String type, String name, int fieldOffset, String viewClass) {
+        this.type = type;
+        this.name = name;
+        this.fieldOffset = fieldOffset;
+        this.viewClass = viewClass;
+    }
+
+}
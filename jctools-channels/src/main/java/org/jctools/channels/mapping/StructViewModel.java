@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The members of a flyweight interface, at their offsets from the pointer of
+ * the flyweight. Nested structs are implemented by nested classes which share
+ * the pointer of the enclosing flyweight, moved on by the offset of the
+ * struct.
+ */
+public class StructViewModel {
+
+    private final String name;
+    private final Class<?> structInterface;
+    private final TypeInspector inspector;
+    private final int baseOffset;
+    private final Map<Class<?>, String> viewClasses;
+
+    StructViewModel(String name, Class<?> structInterface, TypeInspector inspector, int baseOffset,
+            Map<Class<?>, String> viewClasses) {
+        this.name = name;
+        this.structInterface = structInterface;
+        this.inspector = inspector;
+        this.baseOffset = baseOffset;
+        this.viewClasses = viewClasses;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String flyweightInterface() {
+        return ClassViewModel.cleanClassName(structInterface);
+    }
+
+    public List<Variable> fields() {
+        List<Variable> fields = new ArrayList<Variable>();
+        int fieldOffset = baseOffset;
+        for (Method method : inspector.getters) {
+            if (isPrimitive(method)) {
+                Primitive type = Primitive.of(method.getReturnType());
+                fields.add(new Variable(type.javaEquivalent.getName(), fieldName(method), fieldOffset, type.unsafeMethodSuffix()));
+            }
+            fieldOffset += inspector.getSizeInBytes(method);
+        }
+        return fields;
+    }
+
+    public List<Variable> enumFields() {
+        List<Variable> fields = new ArrayList<Variable>();
+        int fieldOffset = baseOffset;
+        for (Method method : inspector.getters) {
+            if (TypeInspector.isEnum(method)) {
+                String type = ClassViewModel.cleanClassName(method.getReturnType());
+                fields.add(new Variable(type, fieldName(method), fieldOffset, Primitive.INT.unsafeMethodSuffix()));
+            }
+            fieldOffset += inspector.getSizeInBytes(method);
+        }
+        return fields;
+    }
+
+    public List<ArrayVariable> arrayFields() {
+        List<ArrayVariable> fields = new ArrayList<ArrayVariable>();
+        int fieldOffset = baseOffset;
+        for (Method method : inspector.getters) {
+            if (TypeInspector.isArray(method)) {
+                Primitive type = Primitive.of(method.getReturnType());
+                fields.add(new ArrayVariable(type.javaEquivalent.getName(), fieldName(method), fieldOffset,
+                        type.unsafeMethodSuffix(), TypeInspector.arrayLength(method), type.sizeInBytes));
+            }
+            fieldOffset += inspector.getSizeInBytes(method);
+        }
+        return fields;
+    }
+
+    public List<StructVariable> structFields() {
+        List<StructVariable> fields = new ArrayList<StructVariable>();
+        int fieldOffset = baseOffset;
+        for (Method method : inspector.getters) {
+            if (TypeInspector.isStruct(method)) {
+                Class<?> type = method.getReturnType();
+                fields.add(new StructVariable(ClassViewModel.cleanClassName(type), fieldName(method), fieldOffset,
+                        viewClasses.get(type)));
+            }
+            fieldOffset += inspector.getSizeInBytes(method);
+        }
+        return fields;
+    }
+
+    private static boolean isPrimitive(Method getter) {
+        return !TypeInspector.isArray(getter) && getter.getReturnType().isPrimitive();
+    }
+
+    private static String fieldName(Method getter) {
+        return getter.getName().substring(3);
+    }
+
+}
@@ -16,26 +16,46 @@ package org.jctools.channels.mapping;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.lang.reflect.Modifier.isAbstract;
 import static java.util.Arrays.asList;
 
+/**
+ * Checks a flyweight interface and works out its layout. A flyweight is made
+ * up of getter and setter pairs for:
+ * <ul>
+ * <li>primitives
+ * <li>enums, stored as their ordinal in an int
+ * <li>fixed length primitive arrays, see {@link ArrayLength}
+ * </ul>
+ * as well as getters only for nested flyweight interfaces, which are embedded
+ * in place.
+ */
 public class TypeInspector {
     
     private final Class<?> flyweightClass;
     
     final List<Method> getters;
     final Map<String, Method> setters;
+    final Map<Method, TypeInspector> structs;
     
     public TypeInspector(Class<?> flyweightClass) {
+        this(flyweightClass, new HashSet<Class<?>>());
+    }
+
+    private TypeInspector(Class<?> flyweightClass, Set<Class<?>> enclosingClasses) {
         this.flyweightClass = flyweightClass;
         if(!flyweightClass.isInterface())
         	throw new InvalidInterfaceException("Your flyweight class must be an interface");
         
         getters = findGetters();
         setters = findSetters();
+        structs = findStructs(enclosingClasses);
         checkRemainingMethods(flyweightClass);
     }
 
@@ -56,8 +76,11 @@ public class TypeInspector {
                 continue;
 
 			ensureAbstract(method);
-            returnsPrimitive(method);
-            hasNoParameters(method);
+            if (method.getParameterTypes().length == 0) {
+                returnsPrimitiveEnumOrStruct(method);
+            } else {
+                isArrayGetter(method);
+            }
             methods.add(method);
         }
         return methods;
@@ -68,14 +91,56 @@ public class TypeInspector {
 			throw new InvalidInterfaceException(method + " must be abstract, since its a getter or setter");
 	}
 
-	private void hasNoParameters(Method method) {
-        if (method.getParameterTypes().length != 0)
+    private void isArrayGetter(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        ArrayLength length = method.getAnnotation(ArrayLength.class);
+        if (length == null || parameters.length != 1 || parameters[0] != Integer.TYPE)
             throw new InvalidInterfaceException(method.getName() + " is a getter with one or more parameters");
-    }
 
-    private void returnsPrimitive(Method method) {
         if (!method.getReturnType().isPrimitive())
-        	throw new InvalidInterfaceException(method.getName() + " is a getter that doesn't return a primitive");
+            throw new InvalidInterfaceException(method.getName() + " is an array getter that doesn't return a primitive");
+
+        if (length.value() <= 0)
+            throw new InvalidInterfaceException(method.getName() + " is an array getter without elements");
+    }
+
+    private void returnsPrimitiveEnumOrStruct(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() && !type.isEnum() && !type.isInterface() || type == Void.TYPE)
+        	throw new InvalidInterfaceException(method.getName() + " is a getter that doesn't return a primitive, enum or flyweight interface");
+    }
+
+    private Map<Method, TypeInspector> findStructs(Set<Class<?>> enclosingClasses) {
+        Set<Class<?>> enclosing = new HashSet<Class<?>>(enclosingClasses);
+        enclosing.add(flyweightClass);
+        Map<Method, TypeInspector> structs = new LinkedHashMap<Method, TypeInspector>();
+        for (Method getter : getters) {
+            if (!isStruct(getter))
+                continue;
+
+            Class<?> structClass = getter.getReturnType();
+            if (enclosing.contains(structClass))
+                throw new InvalidInterfaceException(getter.getName() + " embeds " + structClass.getName() + " within itself");
+
+            structs.put(getter, new TypeInspector(structClass, enclosing));
+        }
+        return structs;
+    }
+
+    static boolean isArray(Method getter) {
+        return getter.getParameterTypes().length != 0;
+    }
+
+    static boolean isEnum(Method getter) {
+        return getter.getReturnType().isEnum();
+    }
+
+    static boolean isStruct(Method getter) {
+        return getter.getReturnType().isInterface();
+    }
+
+    static int arrayLength(Method getter) {
+        return getter.getAnnotation(ArrayLength.class).value();
     }
 
     Primitive getReturn(Method method) {
@@ -90,21 +155,31 @@ public class TypeInspector {
 
             ensureAbstract(method);
             returnsVoid(method);
-            hasOnePrimitiveParameter(method);
+            if (method.getParameterTypes().length == 2) {
+                hasIndexAndPrimitiveParameters(method);
+            } else {
+                hasOnePrimitiveOrEnumParameter(method);
+            }
             methods.put(method.getName(), method);
         }
         return methods;
 	}
 
-    private void hasOnePrimitiveParameter(Method method) {
+    private void hasOnePrimitiveOrEnumParameter(Method method) {
 		Class<?>[] parameters = method.getParameterTypes();
 		if (parameters.length != 1)
 			throw new InvalidInterfaceException(method.getName() + " is a setter with more than one parameter");
 		
-		if (!parameters[0].isPrimitive())
+		if (!parameters[0].isPrimitive() && !parameters[0].isEnum())
 			throw new InvalidInterfaceException(method.getName() + " is a setter with a non-primitive parameter");
 	}
 
+    private void hasIndexAndPrimitiveParameters(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (parameters[0] != Integer.TYPE || !parameters[1].isPrimitive())
+            throw new InvalidInterfaceException(method.getName() + " is an array setter without an int index and a primitive value");
+    }
+
 	private void returnsVoid(Method method) {
 		if (method.getReturnType() != Void.TYPE)
 			throw new InvalidInterfaceException(method.getName() + " is a setter that doesn't return void");
@@ -113,11 +188,24 @@ public class TypeInspector {
 	public int getSizeInBytes() {
         int total = 0;
         for (Method getter : getters) {
-            total += getReturn(getter).sizeInBytes;
+            total += getSizeInBytes(getter);
         }
         return total;
     }
 
+    int getSizeInBytes(Method getter) {
+        if (isStruct(getter))
+            return structs.get(getter).getSizeInBytes();
+
+        if (isEnum(getter))
+            return Primitive.INT.sizeInBytes;
+
+        if (isArray(getter))
+            return arrayLength(getter) * getReturn(getter).sizeInBytes;
+
+        return getReturn(getter).sizeInBytes;
+    }
+
 	public Method setterFor(Method getter) {
 		String name = getter.getName().replaceFirst("get", "set");
 		Method method = setters.get(name);
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mpmc;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeDirectByteBuffer.allocateAlignedByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.OffHeapFixedMessageSizeRingBuffer;
+import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.Pow2;
+
+/**
+ * Channel protocol:
+ * - Fixed message size
+ * - 'null' indicator in message preceding byte (potentially use same for type mapping in future)
+ * - Producers and consumers claim indices with a CAS, the indicator tells whether the message at a claimed index
+ *   was written yet (for consumers) or read yet (for producers)
+ * - Producers only claim an index once the previous lap's message at it was claimed by a consumer, and consumers
+ *   only claim an index a producer has claimed, so that the indicator is never mistaken for that of another lap
+ */
+public class MpmcOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingBuffer {
+    private final long producerLimitAddress;
+
+    public MpmcOffHeapFixedSizeRingBuffer(final int capacity, final int messageSize, int referenceMessageSize) {
+        this(allocateAlignedByteBuffer(getRequiredBufferSize(capacity, messageSize), PortableJvmInfo.CACHE_LINE_SIZE),
+                Pow2.roundToPowerOfTwo(capacity),
+                true,
+                true,
+                true,
+                messageSize,
+                createReferenceArray(capacity, referenceMessageSize),
+                referenceMessageSize);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity
+     */
+    protected MpmcOffHeapFixedSizeRingBuffer(final ByteBuffer buff,
+            final int capacity,
+            final boolean isProducer,
+            final boolean isConsumer,
+            final boolean initialize,
+            final int messageSize,
+            final Object[] references,
+            final int referenceMessageSize) {
+        super(buff, capacity, isProducer, isConsumer, initialize, messageSize, references, referenceMessageSize);
+        // Layout of the RingBuffer (assuming 64b cache line):
+        // consumerIndex(8b), pad(56b) |
+        // pad(64b) |
+        // producerIndex(8b), producerLimit(8b), pad(48b) |
+        // pad(64b) |
+        // buffer (capacity * messageSize)
+        this.producerLimitAddress = producerIndexAddress + 8;
+        if (isProducer && initialize) {
+            soProducerLimit(capacity());
+        }
+    }
+
+    @Override
+    protected final long writeAcquire() {
+        long producerLimit = lvProducerLimit();
+        for (;;) {
+            final long producerIndex = lvProducerIndex(); // LoadLoad
+            if (producerIndex >= producerLimit) {
+                // the messages of the previous lap up to the consumer index were acquired by consumers
+                producerLimit = lvConsumerIndex() + capacity();
+                if (producerIndex >= producerLimit) {
+                    return EOF;
+                }
+                soProducerLimit(producerLimit);
+            }
+            final long offset = offsetForIndex(producerIndex);
+            // The previous lap's message was acquired, but may still be read
+            if (!isReadReleased(offset)) {
+                // or another producer passed us and we are seeing its message
+                if (producerIndex != lvProducerIndex()) {
+                    continue;
+                }
+                return EOF;
+            }
+            if (casProducerIndex(producerIndex, producerIndex + 1)) {
+                return offset;
+            }
+        }
+    }
+
+    @Override
+    protected final void writeRelease(long offset) {
+        writeReleaseState(offset);
+    }
+
+    @Override
+    protected final void writeRelease(long offset, int callTypeId) {
+        assert callTypeId != 0;
+        UNSAFE.putOrderedInt(null, offset, callTypeId);
+    }
+
+    @Override
+    protected final long readAcquire() {
+        for (;;) {
+            final long consumerIndex = lvConsumerIndex(); // LoadLoad
+            if (consumerIndex >= lvProducerIndex()) {
+                return EOF;
+            }
+            final long offset = offsetForIndex(consumerIndex);
+            if (isReadReleased(offset)) {
+                // either another consumer passed us, or the producer is yet to write the message
+                if (consumerIndex != lvConsumerIndex()) {
+                    continue;
+                }
+                return EOF;
+            }
+            if (casConsumerIndex(consumerIndex, consumerIndex + 1)) {
+                return offset;
+            }
+        }
+    }
+
+    @Override
+    protected final void readRelease(long offset) {
+        readReleaseState(offset);
+    }
+
+    @Override
+    protected final long readBatchStart() {
+        return lvConsumerIndex();
+    }
+
+    @Override
+    protected final long readAcquireBatch(long start, int limit) {
+        // only look at messages producers have claimed, see writeAcquire
+        final long available = lvProducerIndex() - start;
+        final int count = countReadable(start, (int) Math.min(limit, available));
+        if (count == 0) {
+            return start == lvConsumerIndex() ? start : start - 1;
+        }
+        return casConsumerIndex(start, start + count) ? start + count : start - 1;
+    }
+
+    @Override
+    protected final long readOffset(long index) {
+        return offsetForIndex(index);
+    }
+
+    private boolean casProducerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
+    }
+
+    private boolean casConsumerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, consumerIndexAddress, expected, update);
+    }
+
+    private long lvProducerLimit() {
+        return UNSAFE.getLongVolatile(null, producerLimitAddress);
+    }
+
+    private void soProducerLimit(final long value) {
+        UNSAFE.putOrderedLong(null, producerLimitAddress, value);
+    }
+}
@@ -23,7 +23,6 @@ import org.jctools.channels.ChannelProducer;
 import org.jctools.channels.ChannelReceiver;
 import org.jctools.channels.mapping.Mapper;
 import org.jctools.util.Pow2;
-import org.jctools.util.Template;
 
 public final class MpscChannel<E> implements Channel<E> {
 
@@ -102,14 +101,12 @@ public final class MpscChannel<E> implements Channel<E> {
 
     @SuppressWarnings("unchecked")
     private MpscChannelProducer<E> newProducer(final Class<E> type, final Object... args) {
-        return mapper.newFlyweight(MpscChannelProducer.class, "ChannelProducerTemplate.java",
-                Template.fromFile(Channel.class, "ChannelProducerTemplate.java"), args);
+        return mapper.generateFlyweight(MpscChannelProducer.class, args);
     }
 
     @SuppressWarnings("unchecked")
     private MpscChannelConsumer<E> newConsumer(Object... args) {
-        return mapper.newFlyweight(MpscChannelConsumer.class, "ChannelConsumerTemplate.java",
-                Template.fromFile(Channel.class, "ChannelConsumerTemplate.java"), args);
+        return mapper.generateFlyweight(MpscChannelConsumer.class, args);
     }
 
 }
@@ -40,6 +40,14 @@ public abstract class MpscChannelProducer<E> extends MpscOffHeapFixedSizeRingBuf
         return pointer != EOF;
     }
 
+    public final boolean claim(int length) {
+        if (length < 0 || length > messageSize - MESSAGE_INDICATOR_SIZE) {
+            throw new IllegalArgumentException("length is not in [0, " + (messageSize - MESSAGE_INDICATOR_SIZE)
+                    + "]: " + length);
+        }
+        return claim();
+    }
+
     public final boolean commit() {
         if (pointer == EOF)
             return false;
@@ -108,6 +108,25 @@ public class MpscOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingB
         readReleaseState(offset);
     }
 
+    @Override
+    protected final long readBatchStart() {
+        return lpConsumerIndex();
+    }
+
+    @Override
+    protected final long readAcquireBatch(long start, int limit) {
+        final long end = start + countReadable(start, limit);
+        if (end != start) {
+            soConsumerIndex(end); // StoreStore
+        }
+        return end;
+    }
+
+    @Override
+    protected final long readOffset(long index) {
+        return offsetForIndex(index);
+    }
+
     private boolean casProducerIndex(final long expected, long update) {
         return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
     }
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mpsc;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.OffHeapVariableLengthRingBuffer;
+
+/**
+ * Multi producer {@link OffHeapVariableLengthRingBuffer}, producers claim the padding and record in one CAS on the
+ * producer index. The consumer index is only advanced once a record is released, so a claimed range is owned by the
+ * claiming producer outright.
+ */
+public class MpscOffHeapVariableLengthRingBuffer extends OffHeapVariableLengthRingBuffer {
+
+    public MpscOffHeapVariableLengthRingBuffer(final int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity in bytes
+     * @param initialize
+     */
+    public MpscOffHeapVariableLengthRingBuffer(final ByteBuffer buff, final int capacity, final boolean initialize) {
+        super(buff, capacity, initialize);
+    }
+
+    @Override
+    protected final long writeAcquire(int length) {
+        checkRecordLength(length);
+        final int recordSize = alignedRecordSize(length);
+        // use a cached view on the consumer index (potentially updated by another producer)
+        long producerLimit = lvProducerLimit();
+        long producerIndex;
+        int padding;
+        long nextProducerIndex;
+        do {
+            producerIndex = lvProducerIndex(); // LoadLoad
+            padding = paddingFor(producerIndex, recordSize);
+            nextProducerIndex = producerIndex + padding + recordSize;
+            if (nextProducerIndex > producerLimit) {
+                producerLimit = lvConsumerIndex() + capacity();
+                if (nextProducerIndex > producerLimit) {
+                    return EOF;
+                }
+                soProducerLimit(producerLimit);
+            }
+        } while (!casProducerIndex(producerIndex, nextProducerIndex));
+        return writeClaimed(producerIndex, padding, length);
+    }
+
+    private boolean casProducerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+
+/**
+ * Marks an interface for which proxy channel classes are generated at build
+ * time by {@link ProxyChannelProcessor}, so that {@link ProxyChannelFactory}
+ * finds them by name and generates nothing at runtime. This suits
+ * environments which cannot define classes at runtime, or would rather not
+ * pay for it at startup.
+ * <p>
+ * The processor is not registered as a service, enable it with
+ * <code>javac -processor org.jctools.channels.proxy.ProxyChannelProcessor</code>
+ * or the equivalent build tool setting.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateProxyChannel {
+    /**
+     * @return the back ends to generate a proxy channel class for
+     */
+    Class<? extends ProxyChannelRingBuffer>[] backends() default {
+            SpscOffHeapFixedSizeRingBuffer.class,
+            MpscOffHeapFixedSizeRingBuffer.class,
+            MpmcOffHeapFixedSizeRingBuffer.class };
+}
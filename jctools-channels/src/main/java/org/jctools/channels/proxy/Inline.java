@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a <code>byte[]</code>, <code>String</code>,
+ * <code>CharSequence</code> or <code>ByteBuffer</code> parameter of a proxy
+ * channel interface method to be copied into the off heap message frame,
+ * rather than being passed as a reference. Calling the proxy then neither
+ * allocates nor keeps the argument reachable, at the cost of a frame large
+ * enough for the longest argument.
+ * <p>
+ * The consumer is passed a copy: a new array, <code>String</code> or heap
+ * <code>ByteBuffer</code> holding the remaining bytes of the argument. A null
+ * argument is passed as null, a longer one than allowed is refused with an
+ * <code>IllegalArgumentException</code> before anything is written.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Inline {
+    /**
+     * @return the maximum length of the argument, in bytes for arrays and
+     *         buffers and in chars for character sequences
+     */
+    int maxLength();
+}
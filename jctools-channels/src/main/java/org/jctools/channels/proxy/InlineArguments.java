@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.util.UnsafeDirectByteBuffer;
+
+/**
+ * Copies {@link Inline} arguments in and out of message frames, for the byte
+ * code generated by the {@link ProxyChannelFactory}. An inline argument is
+ * stored as an int length, -1 for null, followed by the content.
+ */
+public final class InlineArguments {
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final long CHAR_ARRAY_BASE = UNSAFE.arrayBaseOffset(char[].class);
+    private static final int NULL_LENGTH = -1;
+    private static final int LENGTH_SIZE = 4;
+
+    private InlineArguments() {
+    }
+
+    public static int length(byte[] value, int maxLength) {
+        return value == null ? NULL_LENGTH : checkLength(value.length, maxLength);
+    }
+
+    public static int length(CharSequence value, int maxLength) {
+        return value == null ? NULL_LENGTH : checkLength(value.length(), maxLength);
+    }
+
+    public static int length(ByteBuffer value, int maxLength) {
+        return value == null ? NULL_LENGTH : checkLength(value.remaining(), maxLength);
+    }
+
+    private static int checkLength(int length, int maxLength) {
+        if (length > maxLength) {
+            throw new IllegalArgumentException("Argument of length " + length + " exceeds maximum of " + maxLength);
+        }
+        return length;
+    }
+
+    /**
+     * @param address where to write the argument
+     * @param value the argument
+     * @param length the length of the argument, as returned by {@link #length(byte[], int)}
+     */
+    public static void write(long address, byte[] value, int length) {
+        UNSAFE.putInt(address, length);
+        if (length > 0) {
+            UNSAFE.copyMemory(value, BYTE_ARRAY_BASE, null, address + LENGTH_SIZE, length);
+        }
+    }
+
+    /**
+     * @param address where to write the argument
+     * @param value the argument
+     * @param length the length of the argument, as returned by {@link #length(CharSequence, int)}
+     */
+    public static void write(long address, CharSequence value, int length) {
+        UNSAFE.putInt(address, length);
+        final long charsAddress = address + LENGTH_SIZE;
+        for (int i = 0; i < length; i++) {
+            UNSAFE.putChar(charsAddress + 2L * i, value.charAt(i));
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer, leaving its position as it is.
+     * 
+     * @param address where to write the argument
+     * @param value the argument
+     * @param length the length of the argument, as returned by {@link #length(ByteBuffer, int)}
+     */
+    public static void write(long address, ByteBuffer value, int length) {
+        UNSAFE.putInt(address, length);
+        if (length <= 0) {
+            return;
+        }
+        final long bytesAddress = address + LENGTH_SIZE;
+        final int position = value.position();
+        if (value.hasArray()) {
+            UNSAFE.copyMemory(value.array(), BYTE_ARRAY_BASE + value.arrayOffset() + position,
+                    null, bytesAddress, length);
+        } else if (value.isDirect()) {
+            UNSAFE.copyMemory(UnsafeDirectByteBuffer.getAddress(value) + position, bytesAddress, length);
+        } else {
+            // read only heap buffers do not expose their array
+            for (int i = 0; i < length; i++) {
+                UNSAFE.putByte(bytesAddress + i, value.get(position + i));
+            }
+        }
+    }
+
+    public static byte[] readBytes(long address) {
+        final int length = UNSAFE.getInt(address);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        UNSAFE.copyMemory(null, address + LENGTH_SIZE, value, BYTE_ARRAY_BASE, length);
+        return value;
+    }
+
+    public static String readString(long address) {
+        final int length = UNSAFE.getInt(address);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final char[] chars = new char[length];
+        UNSAFE.copyMemory(null, address + LENGTH_SIZE, chars, CHAR_ARRAY_BASE, 2L * length);
+        return new String(chars);
+    }
+
+    public static ByteBuffer readByteBuffer(long address) {
+        final byte[] value = readBytes(address);
+        return value == null ? null : ByteBuffer.wrap(value);
+    }
+}
@@ -16,7 +16,7 @@ public final class LocalsHelper {
     }
     
 
-    private int newLocal(Type type) {
+    public int newLocal(Type type) {
         final int myIndex = nextLocalIndex;
         nextLocalIndex += type.getSize();
         return myIndex;
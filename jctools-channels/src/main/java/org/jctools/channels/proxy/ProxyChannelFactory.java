@@ -1,14 +1,19 @@
 package org.jctools.channels.proxy;
 
 import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.jctools.channels.WaitStrategy;
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.jctools.util.Pow2;
 import org.jctools.util.UnsafeAccess;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -28,6 +33,11 @@ public class ProxyChannelFactory {
      * The index of the 'this' object in instance methods
      */
     private static final int LOCALS_INDEX_THIS = 0;
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final Type STRING_TYPE = Type.getType(String.class);
+    private static final Type CHAR_SEQUENCE_TYPE = Type.getType(CharSequence.class);
+    private static final Type BYTE_BUFFER_TYPE = Type.getType(ByteBuffer.class);
+    private static final Type BYTE_ARRAY_TYPE = Type.getType(byte[].class);
 
     private static final boolean DEBUG = Boolean.getBoolean("jctools.debug");
     
@@ -90,6 +100,29 @@ public class ProxyChannelFactory {
                 waitStrategy,
                 MpscOffHeapFixedSizeRingBuffer.class);
     }
+
+    /**
+     * Create a default multi producer multi consumer (MPMC) proxy channel, so
+     * that a pool of threads can process the calls made through one proxy.
+     * 
+     * @param capacity
+     *            The minimum capacity for unprocessed invocations the channel
+     *            should support
+     * @param iFace
+     *            Interface the proxy must implement
+     * @param waitStrategy
+     *            A wait strategy to be invoked when the backing data structure
+     *            is full
+     * @return A proxy channel instance
+     */
+    public static <E> ProxyChannel<E> createMpmcProxy(int capacity,
+            Class<E> iFace,
+            WaitStrategy waitStrategy) {
+        return createProxy(capacity,
+                iFace,
+                waitStrategy,
+                MpmcOffHeapFixedSizeRingBuffer.class);
+    }
     
     /**
      * Create a proxy channel using a user supplied back end.
@@ -105,20 +138,57 @@ public class ProxyChannelFactory {
      * @param backendType
      *            The back end type, the proxy will inherit from this channel
      *            type. The back end type must define a constructor with signature:
-     *            <code>(int capacity, int primitiveMessageSize, int referenceMessageSize)</code>
+     *            <code>(int capacity, int primitiveMessageSize, int referenceMessageSize)</code>.
+     *            If it overrides the batch read methods of
+     *            {@link ProxyChannelRingBuffer} then <code>process</code>
+     *            acquires messages in batches.
      * @return A proxy channel instance
      */
     public static <E> ProxyChannel<E> createProxy(int capacity, 
             Class<E> iFace, 
             WaitStrategy waitStrategy,
             Class<? extends ProxyChannelRingBuffer> backendType) {
+        return createProxy(capacity, iFace, waitStrategy, backendType, null);
+    }
+
+    /**
+     * Create a proxy channel using a user supplied back end, defining the
+     * generated class through the given lookup. On JDK 15+ the generated class
+     * is a hidden class, on JDK 9+ it is defined with
+     * <code>Lookup.defineClass</code>; before that the lookup only selects the
+     * class loader. Either way no class is generated if one was generated at
+     * build time, see {@link GenerateProxyChannel}.
+     * 
+     * @param capacity
+     *            The minimum capacity for unprocessed invocations the channel
+     *            should support
+     * @param iFace
+     *            Interface the proxy must implement
+     * @param waitStrategy
+     *            A wait strategy to be invoked when the backing data structure
+     *            is full
+     * @param backendType
+     *            The back end type, see
+     *            {@link #createProxy(int, Class, WaitStrategy, Class)}
+     * @param lookup
+     *            A lookup with private access on a class in the package of
+     *            the interface, e.g. <code>MethodHandles.lookup()</code>
+     *            called from there. May be null, in which case JCTools
+     *            defines the class itself, which on JDK 11+ requires the
+     *            package to be open to JCTools (as any package on the class
+     *            path is).
+     * @return A proxy channel instance
+     */
+    public static <E> ProxyChannel<E> createProxy(int capacity, 
+            Class<E> iFace, 
+            WaitStrategy waitStrategy,
+            Class<? extends ProxyChannelRingBuffer> backendType,
+            MethodHandles.Lookup lookup) {
         if (!iFace.isInterface()) {
             throw new IllegalArgumentException("Not an interface: " + iFace);
         }
-        
-        
 
-        String generatedName = Type.getInternalName(iFace) + "$JCTools$ProxyChannel$" + backendType.getSimpleName();
+        String generatedName = generatedName(Type.getInternalName(iFace), backendType.getSimpleName());
         Class<?> preExisting = findExisting(generatedName, iFace);
         if (preExisting != null) {
             return instantiate(preExisting, capacity, waitStrategy);
@@ -128,17 +198,83 @@ public class ProxyChannelFactory {
         if (relevantMethods.isEmpty()) {
             throw new IllegalArgumentException("Does not declare any abstract methods: " + iFace);
         }
+        List<MethodSignature> signatures = new ArrayList<MethodSignature>(relevantMethods.size());
+        for (Method method : relevantMethods) {
+            signatures.add(new MethodSignature(method));
+        }
+        byte[] byteCode = generate(generatedName,
+                Type.getInternalName(iFace),
+                Type.getInternalName(backendType),
+                signatures,
+                isBatchReadBackend(backendType));
+
+        synchronized (ProxyChannelFactory.class) {
+            preExisting = findExisting(generatedName, iFace);
+            if (preExisting != null) {
+                return instantiate(preExisting, capacity, waitStrategy);
+            }
+            printClassBytes(byteCode);
+            Class<?> definedClass = ProxyClassDefiner.define(iFace, generatedName, byteCode, lookup);
+            return instantiate(definedClass, capacity, waitStrategy);
+        }
+    }
+
+    /**
+     * The internal name of the class generated for an interface and back end,
+     * the same whether it is generated at runtime or at build time.
+     */
+    static String generatedName(String iFaceInternalName, String backendSimpleName) {
+        return iFaceInternalName + "$JCTools$ProxyChannel$" + backendSimpleName;
+    }
+
+    private static boolean isBatchReadBackend(Class<?> backendType) {
+        for (Class<?> type = backendType; type != ProxyChannelRingBuffer.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("readAcquireBatch", long.class, int.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // look further up
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate the byte code of a proxy channel class.
+     * 
+     * @param generatedName
+     *            internal name of the class to generate
+     * @param iFaceInternalName
+     *            internal name of the interface to implement
+     * @param backendInternalName
+     *            internal name of the back end to extend
+     * @param methods
+     *            the abstract methods of the interface
+     * @param batchRead
+     *            whether the back end overrides the batch read methods
+     * @return the class file
+     */
+    static byte[] generate(String generatedName,
+            String iFaceInternalName,
+            String backendInternalName,
+            List<MethodSignature> methods,
+            boolean batchRead) {
+        Type iFace = Type.getObjectType(iFaceInternalName);
 
         // max number of reference arguments of any method
         int referenceMessageSize = 0;
         // max bytes required to store the primitive args of a call frame of any method
         int primitiveMessageSize = 0;
         
-        for (Method method : relevantMethods) {
+        for (MethodSignature method : methods) {
             int primitiveMethodSize = 0;
             int referenceCount = 0;
-            for (Class<?> parameterType : method.getParameterTypes()) {
-                if (parameterType.isPrimitive()) {
+            Type[] parameterTypes = method.parameterTypes();
+            for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+                Type parameterType = parameterTypes[parameter];
+                if (method.isInline(parameter)) {
+                    primitiveMethodSize += inlineMemorySize(parameterType, method.maxLengths[parameter]);
+                } else if (isPrimitive(parameterType)) {
                     primitiveMethodSize += primitiveMemorySize(parameterType);
                 } else {
                     referenceCount++;
@@ -149,7 +285,7 @@ public class ProxyChannelFactory {
         }
         
         // We need to add an int to this for the 'type' value on the message frame
-        primitiveMessageSize += primitiveMemorySize(int.class);
+        primitiveMessageSize += primitiveMemorySize(Type.INT_TYPE);
         
         ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
 
@@ -157,34 +293,98 @@ public class ProxyChannelFactory {
                 Opcodes.ACC_SYNTHETIC | Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
                 generatedName,
                 null,
-                Type.getInternalName(backendType),
-                new String[]{Type.getInternalName(ProxyChannel.class), Type.getInternalName(iFace)});
+                backendInternalName,
+                new String[]{Type.getInternalName(ProxyChannel.class), iFaceInternalName});
         implementInstanceFields(classWriter);
-        implementConstructor(classWriter, backendType, generatedName, primitiveMessageSize, referenceMessageSize);
+        implementConstructor(classWriter, backendInternalName, generatedName, primitiveMessageSize, referenceMessageSize);
         implementProxyInstance(classWriter, iFace, generatedName);
         implementProxy(classWriter, iFace, generatedName);
 
-        implementUserMethods(classWriter, relevantMethods, generatedName, backendType);
-        implementProcess(classWriter, backendType, relevantMethods, iFace, generatedName);
+        implementUserMethods(classWriter, methods, generatedName, backendInternalName);
+        if (batchRead) {
+            implementBatchProcess(classWriter, backendInternalName, methods, iFace, generatedName);
+        } else {
+            implementProcess(classWriter, backendInternalName, methods, iFace, generatedName);
+        }
 
         classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
 
-        synchronized (ProxyChannelFactory.class) {
-            preExisting = findExisting(generatedName, iFace);
-            if (preExisting != null) {
-                return instantiate(preExisting, capacity, waitStrategy);
+    /**
+     * The parts of an interface method the generated code depends on, which
+     * can be had from reflection at runtime or from the compiler at build
+     * time.
+     */
+    static final class MethodSignature {
+        final String name;
+        final String descriptor;
+        final String[] exceptions;
+        /**
+         * The {@link Inline#maxLength()} of each parameter, 0 if not inline
+         */
+        final int[] maxLengths;
+
+        MethodSignature(String name, String descriptor, String[] exceptions, int[] maxLengths) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.exceptions = exceptions;
+            this.maxLengths = maxLengths;
+            for (int maxLength : maxLengths) {
+                if (maxLength < 0) {
+                    throw new IllegalArgumentException("Negative inline maxLength in method: " + this);
+                }
             }
-            byte[] byteCode = classWriter.toByteArray();
-            printClassBytes(byteCode);
-            // Caveat: The interface and JCTools must be on the same class loader. Maybe class loader should be an argument? Overload?
-            Class<?> definedClass = UnsafeAccess.UNSAFE.defineClass(generatedName, byteCode, 0, byteCode.length, iFace.getClassLoader(), null);
-            return instantiate(definedClass, capacity, waitStrategy);
+        }
+
+        MethodSignature(Method method) {
+            this(method.getName(),
+                    Type.getMethodDescriptor(method),
+                    internalNames(method.getExceptionTypes()),
+                    maxLengths(method.getParameterAnnotations()));
+        }
+
+        private static int[] maxLengths(Annotation[][] parameterAnnotations) {
+            int[] maxLengths = new int[parameterAnnotations.length];
+            for (int i = 0; i < maxLengths.length; i++) {
+                for (Annotation annotation : parameterAnnotations[i]) {
+                    if (annotation instanceof Inline) {
+                        maxLengths[i] = ((Inline) annotation).maxLength();
+                    }
+                }
+            }
+            return maxLengths;
+        }
+
+        boolean isInline(int parameter) {
+            return maxLengths[parameter] != 0;
+        }
+
+        private static String[] internalNames(Class<?>[] types) {
+            String[] names = new String[types.length];
+            for (int i = 0; i < types.length; i++) {
+                names[i] = Type.getInternalName(types[i]);
+            }
+            return names;
+        }
+
+        Type[] parameterTypes() {
+            return Type.getArgumentTypes(descriptor);
+        }
+
+        Type returnType() {
+            return Type.getReturnType(descriptor);
+        }
+
+        @Override
+        public String toString() {
+            return name + descriptor;
         }
     }
 
-    private static void implementUserMethods(ClassWriter classWriter, List<Method> relevantMethods, String generatedName, Class<?extends ProxyChannelRingBuffer> backendType) {
+    private static void implementUserMethods(ClassWriter classWriter, List<MethodSignature> relevantMethods, String generatedName, String backendType) {
         int type = START_TYPE_ID;
-        for (Method method : relevantMethods) {
+        for (MethodSignature method : relevantMethods) {
             implementUserMethod(method, classWriter, type++, generatedName, backendType);
         }
     }
@@ -205,7 +405,8 @@ public class ProxyChannelFactory {
             String className = generatedName.replace("/", ".");
             return Class.forName(className, true, iFace.getClassLoader());
         } catch (ClassNotFoundException e) {
-            return null;
+            // Hidden classes are not found by name
+            return ProxyClassDefiner.findHidden(iFace, generatedName);
         }
     }
 
@@ -219,24 +420,23 @@ public class ProxyChannelFactory {
     }
 
     private static void implementProcess(ClassVisitor classVisitor,
-            Class<? extends ProxyChannelRingBuffer> backendType, 
-            List<Method> methods, 
-            Class<?> iFace, 
+            String backendType, 
+            List<MethodSignature> methods, 
+            Type iFace, 
             String generatedName) {
         // public int process (E impl, int limit)
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
                 "process",
-                methodDescriptor(int.class, iFace, int.class),
+                Type.getMethodDescriptor(Type.INT_TYPE, iFace, Type.INT_TYPE),
                 null,
                 null);
         methodVisitor.visitCode();
         
         LocalsHelper locals = LocalsHelper.forInstanceMethod();
         int localIndexOfImpl = locals.newLocal(iFace);
-        int localIndexOfLimit = locals.newLocal(int.class);
-        int localIndexOfLoopIndex = locals.newLocal(int.class);
-        int localIndexOfROffset = locals.newLocal(long.class);
-        int localIndexOfTypeId = locals.newLocal(int.class);
+        int localIndexOfLimit = locals.newLocal(Type.INT_TYPE);
+        int localIndexOfLoopIndex = locals.newLocal(Type.INT_TYPE);
+        int localIndexOfROffset = locals.newLocal(Type.LONG_TYPE);
         
         // Label the start of scope for all locals
         Label localScopeStart = new Label();
@@ -258,13 +458,6 @@ public class ProxyChannelFactory {
         methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGE, loopEnd);
 
 
-        // prepare switch labels
-        Label endOfSwitch = new Label();
-        Label[] cases = new Label[methods.size()];
-        for (int index = 0; index < cases.length; index++) {
-            cases[index] = new Label();
-        }
-
         // long rOffset = this.readAcquire();
         readAcquire(methodVisitor, backendType);
         methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfROffset);
@@ -276,10 +469,237 @@ public class ProxyChannelFactory {
         methodVisitor.visitInsn(Opcodes.LCMP);
         methodVisitor.visitJumpInsn(Opcodes.IFEQ, loopEnd);
 
+        dispatch(methodVisitor, locals, backendType, methods, iFace, localIndexOfImpl, localIndexOfROffset);
+
+
+        // i++;
+        methodVisitor.visitIincInsn(localIndexOfLoopIndex, 1);
+
+        // goto <loopStart>;
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, loopStart);
+        methodVisitor.visitLabel(loopEnd);
+
+        // return i;
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLoopIndex);
+        methodVisitor.visitInsn(Opcodes.IRETURN);
+        
+
+        // Label the end of scope for all locals
+        Label localScopeEnd = new Label();
+        methodVisitor.visitLabel(localScopeEnd);
+
+        // Declare local variables to aid in debugging
+        methodVisitor.visitLocalVariable("this", "L" + generatedName + ";", null, localScopeStart, localScopeEnd, 0);
+        methodVisitor.visitLocalVariable("impl", iFace.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfImpl);
+        methodVisitor.visitLocalVariable("limit", Type.INT_TYPE.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLimit);
+        methodVisitor.visitLocalVariable("loopIndex", Type.INT_TYPE.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLoopIndex);
+        methodVisitor.visitLocalVariable("rOffset", Type.LONG_TYPE.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfROffset);
+        
+        // size requirement is computed by ASM; complete method.
+        methodVisitor.visitMaxs(-1, -1);
+        methodVisitor.visitEnd();
+
+        implementBridgeMethod(classVisitor, generatedName, "process", Type.INT_TYPE, iFace, Type.INT_TYPE);
+    }
+    
+    /**
+     * Generates a process method which acquires messages in batches:
+     * 
+     * <pre>
+     * public int process(E impl, int limit) {
+     *     int i = 0;
+     *     Throwable pending = null;
+     *     while (pending == null && i < limit) {
+     *         long index = this.readBatchStart();
+     *         long end = this.readAcquireBatch(index, limit - i);
+     *         if (end < index) continue;
+     *         if (end == index) break;
+     *         for (; index < end; index++, i++) {
+     *             long rOffset = this.readOffset(index);
+     *             try {
+     *                 // dispatch, as in process
+     *             } catch (Throwable t) {
+     *                 if (pending == null) pending = t;
+     *             }
+     *         }
+     *     }
+     *     if (pending != null) throw pending;
+     *     return i;
+     * }
+     * </pre>
+     * 
+     * Once acquired no other consumer can process the rest of the batch, so
+     * it is processed before the first exception thrown by impl is rethrown.
+     * No further batch is acquired after an exception, as in process.
+     */
+    private static void implementBatchProcess(ClassVisitor classVisitor,
+            String backendType,
+            List<MethodSignature> methods,
+            Type iFace,
+            String generatedName) {
+        // public int process (E impl, int limit)
+        MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
+                "process",
+                Type.getMethodDescriptor(Type.INT_TYPE, iFace, Type.INT_TYPE),
+                null,
+                null);
+        methodVisitor.visitCode();
+
+        LocalsHelper locals = LocalsHelper.forInstanceMethod();
+        int localIndexOfImpl = locals.newLocal(iFace);
+        int localIndexOfLimit = locals.newLocal(Type.INT_TYPE);
+        int localIndexOfLoopIndex = locals.newLocal(Type.INT_TYPE);
+        int localIndexOfPending = locals.newLocal(Type.getType(Throwable.class));
+        int localIndexOfIndex = locals.newLocal(Type.LONG_TYPE);
+        int localIndexOfEnd = locals.newLocal(Type.LONG_TYPE);
+        int localIndexOfROffset = locals.newLocal(Type.LONG_TYPE);
+
+        // Label the start of scope for all locals
+        Label localScopeStart = new Label();
+        methodVisitor.visitLabel(localScopeStart);
+
+        // int i = 0;
+        methodVisitor.visitInsn(Opcodes.ICONST_0);
+        methodVisitor.visitVarInsn(Opcodes.ISTORE, localIndexOfLoopIndex);
+        // Throwable pending = null;
+        methodVisitor.visitInsn(Opcodes.ACONST_NULL);
+        methodVisitor.visitVarInsn(Opcodes.ASTORE, localIndexOfPending);
+
+        // label <batchStart>;
+        Label batchStart = new Label(), loopEnd = new Label();
+        methodVisitor.visitLabel(batchStart);
+
+        // if (pending != null) goto <loopEnd>;
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfPending);
+        methodVisitor.visitJumpInsn(Opcodes.IFNONNULL, loopEnd);
+
+        // if (i >= limit) goto <loopEnd>;
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLoopIndex);
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLimit);
+        methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGE, loopEnd);
+
+        // long index = this.readBatchStart();
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "readBatchStart", "()J", false);
+        methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfIndex);
+
+        // long end = this.readAcquireBatch(index, limit - i);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLimit);
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLoopIndex);
+        methodVisitor.visitInsn(Opcodes.ISUB);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "readAcquireBatch", "(JI)J", false);
+        methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfEnd);
+
+        // if (end < index) goto <batchStart>;
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfEnd);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitInsn(Opcodes.LCMP);
+        methodVisitor.visitJumpInsn(Opcodes.IFLT, batchStart);
+
+        // if (end == index) goto <loopEnd>;
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfEnd);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitInsn(Opcodes.LCMP);
+        methodVisitor.visitJumpInsn(Opcodes.IFEQ, loopEnd);
+
+        // label <messageStart>;
+        Label messageStart = new Label();
+        methodVisitor.visitLabel(messageStart);
+
+        // long rOffset = this.readOffset(index);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "readOffset", "(J)J", false);
+        methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfROffset);
+
+        // try { <dispatch> } catch (Throwable t) { if (pending == null) pending = t; }
+        Label tryStart = new Label(), tryEnd = new Label(), handler = new Label(), messageEnd = new Label();
+        methodVisitor.visitTryCatchBlock(tryStart, tryEnd, handler, null);
+        methodVisitor.visitLabel(tryStart);
+        dispatch(methodVisitor, locals, backendType, methods, iFace, localIndexOfImpl, localIndexOfROffset);
+        methodVisitor.visitLabel(tryEnd);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, messageEnd);
+
+        Label dropThrown = new Label();
+        methodVisitor.visitLabel(handler);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfPending);
+        methodVisitor.visitJumpInsn(Opcodes.IFNONNULL, dropThrown);
+        methodVisitor.visitVarInsn(Opcodes.ASTORE, localIndexOfPending);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, messageEnd);
+        methodVisitor.visitLabel(dropThrown);
+        methodVisitor.visitInsn(Opcodes.POP);
+
+        // label <messageEnd>;
+        methodVisitor.visitLabel(messageEnd);
+
+        // i++; index++;
+        methodVisitor.visitIincInsn(localIndexOfLoopIndex, 1);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitInsn(Opcodes.LCONST_1);
+        methodVisitor.visitInsn(Opcodes.LADD);
+        methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfIndex);
+
+        // if (index < end) goto <messageStart>; else goto <batchStart>;
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfIndex);
+        methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfEnd);
+        methodVisitor.visitInsn(Opcodes.LCMP);
+        methodVisitor.visitJumpInsn(Opcodes.IFLT, messageStart);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, batchStart);
+
+        methodVisitor.visitLabel(loopEnd);
+
+        // if (pending != null) throw pending;
+        Label noPending = new Label();
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfPending);
+        methodVisitor.visitJumpInsn(Opcodes.IFNULL, noPending);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfPending);
+        methodVisitor.visitInsn(Opcodes.ATHROW);
+        methodVisitor.visitLabel(noPending);
+
+        // return i;
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLoopIndex);
+        methodVisitor.visitInsn(Opcodes.IRETURN);
+
+        // Label the end of scope for all locals
+        Label localScopeEnd = new Label();
+        methodVisitor.visitLabel(localScopeEnd);
+
+        // Declare local variables to aid in debugging
+        methodVisitor.visitLocalVariable("this", "L" + generatedName + ";", null, localScopeStart, localScopeEnd, 0);
+        methodVisitor.visitLocalVariable("impl", iFace.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfImpl);
+        methodVisitor.visitLocalVariable("limit", Type.INT_TYPE.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLimit);
+        methodVisitor.visitLocalVariable("loopIndex", Type.INT_TYPE.getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLoopIndex);
+        methodVisitor.visitLocalVariable("pending", Type.getDescriptor(Throwable.class), null, localScopeStart, localScopeEnd, localIndexOfPending);
+
+        // size requirement is computed by ASM; complete method.
+        methodVisitor.visitMaxs(-1, -1);
+        methodVisitor.visitEnd();
+
+        implementBridgeMethod(classVisitor, generatedName, "process", Type.INT_TYPE, iFace, Type.INT_TYPE);
+    }
+
+    /**
+     * Generates the switch on the type of the message at rOffset, which reads
+     * the arguments, releases the message and calls impl.
+     */
+    private static void dispatch(MethodVisitor methodVisitor,
+            LocalsHelper locals,
+            String backendType,
+            List<MethodSignature> methods,
+            Type iFace,
+            int localIndexOfImpl,
+            int localIndexOfROffset) {
+        // prepare switch labels
+        Label endOfSwitch = new Label();
+        Label[] cases = new Label[methods.size()];
+        for (int index = 0; index < cases.length; index++) {
+            cases[index] = new Label();
+        }
+
         // switch(UnsafeAccess.UNSAFE.getInt(rOffset)) // start with case 1, increment by 1; represents "type"
-        getUnsafe(methodVisitor, int.class, localIndexOfROffset, 0);
-        methodVisitor.visitVarInsn(Opcodes.ISTORE, localIndexOfTypeId);
-        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfTypeId);
+        getUnsafe(methodVisitor, Type.INT_TYPE, localIndexOfROffset, 0);
         
         int low = START_TYPE_ID;
         int high = low + (cases.length - 1);
@@ -290,18 +710,19 @@ public class ProxyChannelFactory {
 
             // case <index>:
             methodVisitor.visitLabel(cases[index]);
-            Method method = methods.get(index);
+            MethodSignature method = methods.get(index);
 
             // #PUSH: impl
             methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfImpl);
             
+            Type[] parameterTypes = method.parameterTypes();
             int localIndexOfArrayReferenceBaseIndex = Integer.MIN_VALUE;
-            for (Class<?> parameterType : method.getParameterTypes()) {
-                if (!parameterType.isPrimitive()) {
+            for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+                if (!isPrimitive(parameterTypes[parameter]) && !method.isInline(parameter)) {
                     // long referenceArrayIndex = this.consumerReferenceArrayIndex(rOffset);
                     consumerReferenceArrayIndex(methodVisitor, localIndexOfROffset, backendType);
                     // TODO: Should reuse local indices or when an iFace grows too big we might have problems here
-                    localIndexOfArrayReferenceBaseIndex = locals.newLocal(long.class);
+                    localIndexOfArrayReferenceBaseIndex = locals.newLocal(Type.LONG_TYPE);
                     methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfArrayReferenceBaseIndex);
                     break;
                 }
@@ -311,12 +732,17 @@ public class ProxyChannelFactory {
             // #FOREACH param in method
             int rOffsetDelta = 4;
             int arrayReferenceBaseIndexDelta = 0;
-            for (Class<?> parameterType : method.getParameterTypes()) {
-                if (parameterType.isPrimitive()) {
+            for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+                Type parameterType = parameterTypes[parameter];
+                if (isPrimitive(parameterType)) {
                     // #PUSH: UnsafeAccess.UNSAFE.get[param.type](rOffset + #R_OFFSET_DELTA);
                     // #R_OFFSET_DELTA += if param.type in {long, double} 8 else 4;
                     getUnsafe(methodVisitor, parameterType, localIndexOfROffset, rOffsetDelta);
                     rOffsetDelta += primitiveMemorySize(parameterType);
+                } else if (method.isInline(parameter)) {
+                    // #PUSH: InlineArguments.read[param.type](rOffset + #R_OFFSET_DELTA);
+                    getInline(methodVisitor, parameterType, localIndexOfROffset, rOffsetDelta);
+                    rOffsetDelta += inlineMemorySize(parameterType, method.maxLengths[parameter]);
                 } else {
                     getReference(methodVisitor,
                             parameterType,
@@ -333,9 +759,9 @@ public class ProxyChannelFactory {
 
             // method.invoke(impl, <args>);
             methodVisitor.visitMethodInsn(Opcodes.INVOKEINTERFACE,
-                    Type.getInternalName(iFace),
-                    method.getName(),
-                    Type.getMethodDescriptor(method),
+                    iFace.getInternalName(),
+                    method.name,
+                    method.descriptor,
                     true);
 
             // break;
@@ -344,38 +770,8 @@ public class ProxyChannelFactory {
 
         // label <endOfSwitch>;
         methodVisitor.visitLabel(endOfSwitch);
-
-        // i++;
-        methodVisitor.visitIincInsn(3, 1);
-
-        // goto <loopStart>;
-        methodVisitor.visitJumpInsn(Opcodes.GOTO, loopStart);
-        methodVisitor.visitLabel(loopEnd);
-
-        // return i;
-        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLoopIndex);
-        methodVisitor.visitInsn(Opcodes.IRETURN);
-        
-
-        // Label the end of scope for all locals
-        Label localScopeEnd = new Label();
-        methodVisitor.visitLabel(localScopeEnd);
-
-        // Declare local variables to aid in debugging
-        methodVisitor.visitLocalVariable("this", "L" + generatedName + ";", null, localScopeStart, localScopeEnd, 0);
-        methodVisitor.visitLocalVariable("impl", Type.getType(iFace).getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfImpl);
-        methodVisitor.visitLocalVariable("limit", Type.getType(int.class).getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLimit);
-        methodVisitor.visitLocalVariable("loopIndex", Type.getType(int.class).getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfLoopIndex);
-        methodVisitor.visitLocalVariable("rOffset", Type.getType(long.class).getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfROffset);
-        methodVisitor.visitLocalVariable("typeId", Type.getType(int.class).getDescriptor(), null, localScopeStart, localScopeEnd, localIndexOfTypeId);
-        
-        // size requirement is computed by ASM; complete method.
-        methodVisitor.visitMaxs(-1, -1);
-        methodVisitor.visitEnd();
-
-        implementBridgeMethod(classVisitor, generatedName, "process", int.class, iFace, int.class);
     }
-    
+
     private static void implementInstanceFields(ClassVisitor classVisitor) {
         classVisitor.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL,
                 "waitStrategy",
@@ -385,22 +781,22 @@ public class ProxyChannelFactory {
     }
     
     private static void implementConstructor(ClassVisitor classVisitor,
-            Class<? extends ProxyChannelRingBuffer> parentType,
+            String parentType,
             String generatedName,
             int primitiveMessageSize,
             int referenceMessageSize) {
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
                 "<init>",
-                methodDescriptor(void.class,
-                        int.class,
-                        WaitStrategy.class),
+                Type.getMethodDescriptor(Type.VOID_TYPE,
+                        Type.INT_TYPE,
+                        Type.getType(WaitStrategy.class)),
                 null,
                 null);
         methodVisitor.visitCode();
         
         LocalsHelper locals = LocalsHelper.forInstanceMethod();
-        int localIndexOfCapacity = locals.newLocal(int.class);
-        int localIndexOfWaitStrategy = locals.newLocal(WaitStrategy.class);
+        int localIndexOfCapacity = locals.newLocal(Type.INT_TYPE);
+        int localIndexOfWaitStrategy = locals.newLocal(Type.getType(WaitStrategy.class));
 
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfCapacity);
@@ -408,12 +804,12 @@ public class ProxyChannelFactory {
         methodVisitor.visitLdcInsn(referenceMessageSize);
         
         methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL,
-                Type.getInternalName(parentType),
+                parentType,
                 "<init>",
-                methodDescriptor(void.class,
-                        int.class,
-                        int.class,
-                        int.class),
+                Type.getMethodDescriptor(Type.VOID_TYPE,
+                        Type.INT_TYPE,
+                        Type.INT_TYPE,
+                        Type.INT_TYPE),
                 false);
         
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
@@ -426,10 +822,10 @@ public class ProxyChannelFactory {
         methodVisitor.visitEnd();
     }
 
-    private static void implementProxyInstance(ClassVisitor classVisitor, Class<?> iFace, String generatedName) {
+    private static void implementProxyInstance(ClassVisitor classVisitor, Type iFace, String generatedName) {
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
                 "proxyInstance",
-                methodDescriptor(iFace, iFace),
+                Type.getMethodDescriptor(iFace, iFace),
                 null,
                 null);
         methodVisitor.visitCode();
@@ -443,10 +839,10 @@ public class ProxyChannelFactory {
         implementBridgeMethod(classVisitor, generatedName, "proxyInstance", iFace, iFace);
     }
 
-    private static void implementProxy(ClassVisitor classVisitor, Class<?> iFace, String generatedName) {
+    private static void implementProxy(ClassVisitor classVisitor, Type iFace, String generatedName) {
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
                 "proxy",
-                methodDescriptor(iFace),
+                Type.getMethodDescriptor(iFace),
                 null,
                 null);
 
@@ -461,18 +857,18 @@ public class ProxyChannelFactory {
         implementBridgeMethod(classVisitor, generatedName, "proxy", iFace);
     }
     
-    private static void implementBridgeMethod(ClassVisitor classVisitor, String generatedName, String methodName, Class<?> returnType, Class<?>... parameterTypes) {
-        Class<?> bridgeMethodReturnType = returnType.isPrimitive() ? returnType : Object.class;
-        Class<?>[] bridgeMethodParameterTypes = new Class<?>[parameterTypes.length];
+    private static void implementBridgeMethod(ClassVisitor classVisitor, String generatedName, String methodName, Type returnType, Type... parameterTypes) {
+        Type bridgeMethodReturnType = isPrimitive(returnType) ? returnType : OBJECT_TYPE;
+        Type[] bridgeMethodParameterTypes = new Type[parameterTypes.length];
         int parameterIndex = 0;
         // Bridge methods use only Object's, so replace all non-Object types.
-        for (Class<?> parameterType : parameterTypes) {
-            bridgeMethodParameterTypes[parameterIndex++] = parameterType.isPrimitive() ? parameterType : Object.class;
+        for (Type parameterType : parameterTypes) {
+            bridgeMethodParameterTypes[parameterIndex++] = isPrimitive(parameterType) ? parameterType : OBJECT_TYPE;
         }
         
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_PUBLIC,
                 methodName,
-                methodDescriptor(bridgeMethodReturnType, bridgeMethodParameterTypes),
+                Type.getMethodDescriptor(bridgeMethodReturnType, bridgeMethodParameterTypes),
                 null,
                 null);
 
@@ -481,52 +877,48 @@ public class ProxyChannelFactory {
         LocalsHelper locals = LocalsHelper.forInstanceMethod();
 
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
-        for (Class<?> parameterType : parameterTypes) {
+        for (Type parameterType : parameterTypes) {
             int localIndexOfParameter = locals.newLocal(parameterType);
-            int loadOpCode = Type.getType(parameterType).getOpcode(Opcodes.ILOAD);
+            int loadOpCode = parameterType.getOpcode(Opcodes.ILOAD);
             methodVisitor.visitVarInsn(loadOpCode, localIndexOfParameter);
             
-            if (!parameterType.isPrimitive()) {
-                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+            if (!isPrimitive(parameterType)) {
+                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, parameterType.getInternalName());
             }
         }
         
         methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
                 generatedName,
                 methodName,
-                methodDescriptor(returnType, parameterTypes),
+                Type.getMethodDescriptor(returnType, parameterTypes),
                 false);
         
-        if (!returnType.isPrimitive()) {
-            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(returnType));
+        if (!isPrimitive(returnType)) {
+            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
         }
-        int returnOpcode = Type.getType(returnType).getOpcode(Opcodes.IRETURN);
+        int returnOpcode = returnType.getOpcode(Opcodes.IRETURN);
         methodVisitor.visitInsn(returnOpcode);
         
         methodVisitor.visitMaxs(-1, -1);
         methodVisitor.visitEnd();
     }
 
-    private static void implementUserMethod(Method method, 
+    private static void implementUserMethod(MethodSignature method, 
             ClassVisitor classVisitor, 
             int type, 
             String generatedName,
-            Class<? extends ProxyChannelRingBuffer> backendType) {
+            String backendType) {
 
-        if (method.getReturnType() != void.class) {
+        if (method.returnType() != Type.VOID_TYPE) {
             throw new IllegalArgumentException("Method does not return void: " + method);
         }
 
-        String[] exceptions = new String[method.getExceptionTypes().length];
-        int index = 0;
-        for (Class<?> exceptionType : method.getExceptionTypes()) {
-            exceptions[index++] = Type.getInternalName(exceptionType);
-        }
+        String[] exceptions = method.exceptions;
 
         // @Override public void <user interface method>
         MethodVisitor methodVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC,
-                method.getName(),
-                Type.getMethodDescriptor(method),
+                method.name,
+                method.descriptor,
                 null,
                 exceptions.length == 0 ? null : exceptions);
 
@@ -534,13 +926,36 @@ public class ProxyChannelFactory {
         
         LocalsHelper locals = LocalsHelper.forInstanceMethod();
         
+        Type[] parameterTypes = method.parameterTypes();
         boolean containsReferences = false;
-        for (Class<?> parameterType : method.getParameterTypes()) {
-            locals.newLocal(parameterType);
-            containsReferences |= !parameterType.isPrimitive();
+        for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+            locals.newLocal(parameterTypes[parameter]);
+            containsReferences |= !isPrimitive(parameterTypes[parameter]) && !method.isInline(parameter);
         }
-        
-        int localIndexOfWOffset = locals.newLocal(long.class);
+
+        // Check the length of inline arguments before acquiring, so a refused
+        // argument does not leave behind a message that is never released
+        // #FOREACH inline param in method
+        // int length<param> = InlineArguments.length(<param>, #MAX_LENGTH);
+        int[] localIndexOfInlineLength = new int[parameterTypes.length];
+        int varOffset = 1;
+        for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+            if (!isPrimitive(parameterTypes[parameter]) && method.isInline(parameter)) {
+                methodVisitor.visitVarInsn(Opcodes.ALOAD, varOffset);
+                methodVisitor.visitLdcInsn(method.maxLengths[parameter]);
+                methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        Type.getInternalName(InlineArguments.class),
+                        "length",
+                        "(" + inlineArgumentType(parameterTypes[parameter]).getDescriptor() + "I)I",
+                        false);
+                localIndexOfInlineLength[parameter] = locals.newLocal(Type.INT_TYPE);
+                methodVisitor.visitVarInsn(Opcodes.ISTORE, localIndexOfInlineLength[parameter]);
+            }
+            varOffset += parameterTypes[parameter].getSize();
+        }
+        // #END
+
+        int localIndexOfWOffset = locals.newLocal(Type.LONG_TYPE);
 
         // long wOffset = this.writeAcquireWithWaitStrategy();
         writeAcquireWithWaitStrategy(methodVisitor, generatedName, backendType);
@@ -551,16 +966,18 @@ public class ProxyChannelFactory {
         if (containsReferences) {
             // long arrayReferenceBaseIndex = this.producerReferenceArrayIndex(wOffset);
             producerReferenceArrayIndex(methodVisitor, localIndexOfWOffset, backendType);
-            localIndexOfArrayReferenceBaseIndex = locals.newLocal(long.class);
+            localIndexOfArrayReferenceBaseIndex = locals.newLocal(Type.LONG_TYPE);
             methodVisitor.visitVarInsn(Opcodes.LSTORE, localIndexOfArrayReferenceBaseIndex);
         }
 
         // #W_OFFSET_DELTA = 4
         // #ARGUMENT = 1 // not zero based (zero references "this")
         // #FOREACH param in method
-        int wOffsetDelta = 4, varOffset = 1;
+        int wOffsetDelta = 4;
+        varOffset = 1;
         int arrayReferenceBaseIndexDelta = 0;
-        for (Class<?> parameterType : method.getParameterTypes()) {
+        for (int parameter = 0; parameter < parameterTypes.length; parameter++) {
+            Type parameterType = parameterTypes[parameter];
             // UnsafeAccess.UNSAFE.put[param.type](wOffset + #W_OFFSET_DELTA, #ARGUMENT);
             // #W_OFFSET_DELTA += if param.type in {long, double} 8 else 4;
             
@@ -573,9 +990,19 @@ public class ProxyChannelFactory {
              * local variables to read from, i.e. the parameter index in locals
              */
 
-            if (parameterType.isPrimitive()) {
+            if (isPrimitive(parameterType)) {
                 varOffset += putUnsafe(methodVisitor, parameterType, localIndexOfWOffset, wOffsetDelta, varOffset);
                 wOffsetDelta += primitiveMemorySize(parameterType);
+            } else if (method.isInline(parameter)) {
+                // InlineArguments.write(wOffset + #W_OFFSET_DELTA, #ARGUMENT, length<param>);
+                putInline(methodVisitor,
+                        parameterType,
+                        localIndexOfWOffset,
+                        wOffsetDelta,
+                        varOffset,
+                        localIndexOfInlineLength[parameter]);
+                varOffset += parameterType.getSize();
+                wOffsetDelta += inlineMemorySize(parameterType, method.maxLengths[parameter]);
             } else {
                 putReference(methodVisitor,
                         parameterType,
@@ -583,7 +1010,7 @@ public class ProxyChannelFactory {
                         arrayReferenceBaseIndexDelta,
                         varOffset,
                         backendType);
-                varOffset += Type.getType(parameterType).getSize();
+                varOffset += parameterType.getSize();
                 arrayReferenceBaseIndexDelta++;
             }
         }
@@ -600,19 +1027,19 @@ public class ProxyChannelFactory {
         methodVisitor.visitEnd();
     }
 
-    private static void producerReferenceArrayIndex(MethodVisitor methodVisitor, int localIndexOfWOffset, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void producerReferenceArrayIndex(MethodVisitor methodVisitor, int localIndexOfWOffset, String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfWOffset);
-        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(backendType), "producerReferenceArrayIndex", "(J)J", false);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "producerReferenceArrayIndex", "(J)J", false);
     }
 
-    private static void consumerReferenceArrayIndex(MethodVisitor methodVisitor, int localIndexOfROffset, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void consumerReferenceArrayIndex(MethodVisitor methodVisitor, int localIndexOfROffset, String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfROffset);
-        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(backendType), "consumerReferenceArrayIndex", "(J)J", false);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "consumerReferenceArrayIndex", "(J)J", false);
     }
 
-    private static void writeAcquireWithWaitStrategy(MethodVisitor methodVisitor, String generatedName, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void writeAcquireWithWaitStrategy(MethodVisitor methodVisitor, String generatedName, String backendType) {
         // One of these is for the getfield bytecode, the other is as the first arg to the writeAcquireWithWaitStrategy
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
@@ -624,69 +1051,97 @@ public class ProxyChannelFactory {
                 false);
     }
 
-    private static void writeRelease(MethodVisitor methodVisitor, int wOffset, int type, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void writeRelease(MethodVisitor methodVisitor, int wOffset, int type, String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.LLOAD, wOffset);
         methodVisitor.visitLdcInsn(type);
-        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(backendType), "writeRelease", "(JI)V", false);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "writeRelease", "(JI)V", false);
     }
 
-    private static void readAcquire(MethodVisitor methodVisitor, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void readAcquire(MethodVisitor methodVisitor, String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
-        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(backendType), "readAcquire", "()J", false);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "readAcquire", "()J", false);
     }
 
-    private static void readRelease(MethodVisitor methodVisitor, int wOffset, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void readRelease(MethodVisitor methodVisitor, int wOffset, String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         methodVisitor.visitVarInsn(Opcodes.LLOAD, wOffset);
-        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(backendType), "readRelease", "(J)V", false);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, backendType, "readRelease", "(J)V", false);
     }
 
-    private static int getUnsafe(MethodVisitor methodVisitor, Class<?> parameterType, int localIndexOfROffset, int rOffsetDelta) {
+    private static int getUnsafe(MethodVisitor methodVisitor, Type parameterType, int localIndexOfROffset, int rOffsetDelta) {
         loadUnsafe(methodVisitor);
         loadWOffset(methodVisitor, parameterType, localIndexOfROffset, rOffsetDelta);
         return parameterTypeUnsafe(methodVisitor, parameterType, false);
     }
 
-    private static int putUnsafe(MethodVisitor methodVisitor, Class<?> parameterType, int wOffset, int wOffsetDelta, int varOffset) {
+    private static int putUnsafe(MethodVisitor methodVisitor, Type parameterType, int wOffset, int wOffsetDelta, int varOffset) {
         loadUnsafe(methodVisitor);
         loadWOffset(methodVisitor, parameterType, wOffset, wOffsetDelta);
-        methodVisitor.visitVarInsn(Type.getType(parameterType).getOpcode(Opcodes.ILOAD), varOffset);
+        methodVisitor.visitVarInsn(parameterType.getOpcode(Opcodes.ILOAD), varOffset);
         return parameterTypeUnsafe(methodVisitor, parameterType, true);
     }
 
     private static void getReference(MethodVisitor methodVisitor,
-            Class<?> parameterType,
+            Type parameterType,
             int localIndexOfArrayReferenceBaseIndex,
             int arrayReferenceBaseIndexDelta,
-            Class<? extends ProxyChannelRingBuffer> backendType) {
+            String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         loadLocalIndexAndApplyDelta(methodVisitor, localIndexOfArrayReferenceBaseIndex, arrayReferenceBaseIndexDelta);
         readReference(methodVisitor, backendType);
-        if (parameterType != Object.class) {
-            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+        if (!parameterType.equals(OBJECT_TYPE)) {
+            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, parameterType.getInternalName());
         }
     }
 
     private static void putReference(MethodVisitor methodVisitor,
-            Class<?> parameterType,
+            Type parameterType,
             int localIndexOfArrayReferenceBaseIndex,
             int arrayReferenceBaseIndexDelta,
             int varOffset,
-            Class<? extends ProxyChannelRingBuffer> backendType) {
+            String backendType) {
         methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
         loadLocalIndexAndApplyDelta(methodVisitor, localIndexOfArrayReferenceBaseIndex, arrayReferenceBaseIndexDelta);
-        methodVisitor.visitVarInsn(Type.getType(parameterType).getOpcode(Opcodes.ILOAD), varOffset);
+        methodVisitor.visitVarInsn(parameterType.getOpcode(Opcodes.ILOAD), varOffset);
         
         writeReference(methodVisitor, backendType);
     }
 
+    private static void getInline(MethodVisitor methodVisitor, Type parameterType, int localIndexOfROffset, int rOffsetDelta) {
+        Type argumentType = inlineArgumentType(parameterType);
+        String readMethod = argumentType.equals(BYTE_ARRAY_TYPE) ? "readBytes"
+                : argumentType.equals(BYTE_BUFFER_TYPE) ? "readByteBuffer" : "readString";
+        loadLocalIndexAndApplyDelta(methodVisitor, localIndexOfROffset, rOffsetDelta);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                Type.getInternalName(InlineArguments.class),
+                readMethod,
+                "(J)" + (argumentType.equals(CHAR_SEQUENCE_TYPE) ? STRING_TYPE : argumentType).getDescriptor(),
+                false);
+    }
+
+    private static void putInline(MethodVisitor methodVisitor,
+            Type parameterType,
+            int localIndexOfWOffset,
+            int wOffsetDelta,
+            int varOffset,
+            int localIndexOfLength) {
+        loadLocalIndexAndApplyDelta(methodVisitor, localIndexOfWOffset, wOffsetDelta);
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, varOffset);
+        methodVisitor.visitVarInsn(Opcodes.ILOAD, localIndexOfLength);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                Type.getInternalName(InlineArguments.class),
+                "write",
+                "(J" + inlineArgumentType(parameterType).getDescriptor() + "I)V",
+                false);
+    }
+
     private static void loadUnsafe(MethodVisitor methodVisitor) {
         methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(UnsafeAccess.class), "UNSAFE", "L" + Type.getInternalName(Unsafe.class) + ";");
     }
 
-    private static void loadWOffset(MethodVisitor methodVisitor, Class<?> parameterType, int baseOffset, long wOffsetDelta) {
-        if (parameterType == boolean.class) {
+    private static void loadWOffset(MethodVisitor methodVisitor, Type parameterType, int baseOffset, long wOffsetDelta) {
+        if (parameterType.getSort() == Type.BOOLEAN) {
             methodVisitor.visitInsn(Opcodes.ACONST_NULL);
         }
         loadLocalIndexAndApplyDelta(methodVisitor, baseOffset, wOffsetDelta);
@@ -700,10 +1155,9 @@ public class ProxyChannelFactory {
         }
     }
 
-    private static int parameterTypeUnsafe(MethodVisitor methodVisitor, Class<?> parameterType, boolean write) {
-        parameterType = parameterType.isPrimitive() ? parameterType : Object.class;
-        Type type = Type.getType(parameterType);
-        String boolDescriptor = parameterType == boolean.class ? "Ljava/lang/Object;" : "";
+    private static int parameterTypeUnsafe(MethodVisitor methodVisitor, Type parameterType, boolean write) {
+        Type type = isPrimitive(parameterType) ? parameterType : OBJECT_TYPE;
+        String boolDescriptor = type.getSort() == Type.BOOLEAN ? "Ljava/lang/Object;" : "";
         methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
                 Type.getInternalName(Unsafe.class),
                 (write ? "put" : "get") + Character.toUpperCase(type.getClassName().charAt(0)) + type.getClassName().substring(1),
@@ -712,27 +1166,52 @@ public class ProxyChannelFactory {
         return type.getSize();
     }
 
-    private static void writeReference(MethodVisitor methodVisitor, Class<? extends ProxyChannelRingBuffer> backendType) {
+    private static void writeReference(MethodVisitor methodVisitor, String backendType) {
         methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                Type.getInternalName(backendType),
+                backendType,
                 "writeReference",
                 ("(JLjava/lang/Object;)V"),
                 false);
     }
 
-    private static void readReference(MethodVisitor methodVisitor, Class<? extends ProxyChannelRingBuffer> backend) {
+    private static void readReference(MethodVisitor methodVisitor, String backend) {
         methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                Type.getInternalName(backend),
+                backend,
                 "readReference",
                 ("(J)Ljava/lang/Object;"),
                 false);
     }
 
-    private static int primitiveMemorySize(Class<?> type) {
-        if (!type.isPrimitive()) {
+    private static int primitiveMemorySize(Type type) {
+        if (!isPrimitive(type)) {
             throw new IllegalArgumentException("Cannot handle non-primtive parameter type: " + type);
         }
-        return type == long.class || type == double.class ? 8 : 4;
+        return type.getSort() == Type.LONG || type.getSort() == Type.DOUBLE ? 8 : 4;
+    }
+
+    /**
+     * @return the length, followed by the content aligned to the size of the length
+     */
+    private static int inlineMemorySize(Type type, int maxLength) {
+        int unitSize = inlineArgumentType(type).equals(CHAR_SEQUENCE_TYPE) ? 2 : 1;
+        return 4 + (int) Pow2.align((long) maxLength * unitSize, 4);
+    }
+
+    /**
+     * @return the parameter type of the {@link InlineArguments} methods handling this type
+     */
+    private static Type inlineArgumentType(Type type) {
+        if (type.equals(BYTE_ARRAY_TYPE) || type.equals(BYTE_BUFFER_TYPE) || type.equals(CHAR_SEQUENCE_TYPE)) {
+            return type;
+        }
+        if (type.equals(STRING_TYPE)) {
+            return CHAR_SEQUENCE_TYPE;
+        }
+        throw new IllegalArgumentException("Cannot inline parameter type: " + type.getClassName());
+    }
+
+    private static boolean isPrimitive(Type type) {
+        return type.getSort() != Type.OBJECT && type.getSort() != Type.ARRAY;
     }
     
     private static String methodDescriptor(Class<?> returnType, Class<?>... parameterTypes) {
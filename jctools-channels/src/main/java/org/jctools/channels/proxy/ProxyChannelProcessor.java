@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import org.jctools.channels.proxy.ProxyChannelFactory.MethodSignature;
+
+/**
+ * Generates the proxy channel classes of interfaces annotated with
+ * {@link GenerateProxyChannel}, writing the same byte code
+ * {@link ProxyChannelFactory} would define at runtime.
+ */
+@SupportedAnnotationTypes("org.jctools.channels.proxy.GenerateProxyChannel")
+public class ProxyChannelProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateProxyChannel.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@GenerateProxyChannel only applies to interfaces");
+                continue;
+            }
+            generate((TypeElement) element);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement iFace) {
+        List<MethodSignature> methods = new ArrayList<MethodSignature>();
+        for (Element member : processingEnv.getElementUtils().getAllMembers(iFace)) {
+            if (member.getKind() == ElementKind.METHOD && member.getModifiers().contains(Modifier.ABSTRACT)) {
+                try {
+                    methods.add(signature((ExecutableElement) member));
+                } catch (IllegalArgumentException e) {
+                    error(member, e.getMessage());
+                    return;
+                }
+            }
+        }
+        if (methods.isEmpty()) {
+            error(iFace, "Does not declare any abstract methods: " + iFace);
+            return;
+        }
+
+        String iFaceName = internalName(iFace);
+        for (TypeElement backend : backends(iFace)) {
+            String generatedName = ProxyChannelFactory.generatedName(iFaceName, backend.getSimpleName().toString());
+            try {
+                byte[] byteCode = ProxyChannelFactory.generate(generatedName,
+                        iFaceName,
+                        internalName(backend),
+                        methods,
+                        isBatchReadBackend(backend));
+                OutputStream out = processingEnv.getFiler()
+                        .createClassFile(generatedName.replace('/', '.'), iFace)
+                        .openOutputStream();
+                try {
+                    out.write(byteCode);
+                } finally {
+                    out.close();
+                }
+            } catch (IllegalArgumentException e) {
+                error(iFace, e.getMessage());
+                return;
+            } catch (IOException e) {
+                error(iFace, "Failed to write " + generatedName + ": " + e);
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TypeElement> backends(TypeElement iFace) {
+        List<TypeElement> backends = new ArrayList<TypeElement>();
+        for (AnnotationMirror annotation : iFace.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(GenerateProxyChannel.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("backends")) {
+                    for (AnnotationValue value : (List<? extends AnnotationValue>) entry.getValue().getValue()) {
+                        backends.add((TypeElement) ((DeclaredType) value.getValue()).asElement());
+                    }
+                }
+            }
+        }
+        return backends;
+    }
+
+    private boolean isBatchReadBackend(TypeElement backend) {
+        for (TypeElement type = backend;
+                !type.getQualifiedName().contentEquals(ProxyChannelRingBuffer.class.getName());
+                type = (TypeElement) ((DeclaredType) type.getSuperclass()).asElement()) {
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.METHOD
+                        && member.getSimpleName().contentEquals("readAcquireBatch")
+                        && ((ExecutableElement) member).getParameters().size() == 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private MethodSignature signature(ExecutableElement method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        List<? extends VariableElement> parameters = method.getParameters();
+        int[] maxLengths = new int[parameters.size()];
+        for (int i = 0; i < maxLengths.length; i++) {
+            Inline inline = parameters.get(i).getAnnotation(Inline.class);
+            if (inline != null) {
+                maxLengths[i] = inline.maxLength();
+            }
+            descriptor.append(descriptor(parameters.get(i).asType()));
+        }
+        descriptor.append(')').append(descriptor(method.getReturnType()));
+
+        List<? extends TypeMirror> thrownTypes = method.getThrownTypes();
+        String[] exceptions = new String[thrownTypes.size()];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = internalName(erasedElement(thrownTypes.get(i)));
+        }
+        return new MethodSignature(method.getSimpleName().toString(), descriptor.toString(), exceptions, maxLengths);
+    }
+
+    private String descriptor(TypeMirror type) {
+        type = processingEnv.getTypeUtils().erasure(type);
+        switch (type.getKind()) {
+        case BOOLEAN:
+            return "Z";
+        case BYTE:
+            return "B";
+        case SHORT:
+            return "S";
+        case CHAR:
+            return "C";
+        case INT:
+            return "I";
+        case LONG:
+            return "J";
+        case FLOAT:
+            return "F";
+        case DOUBLE:
+            return "D";
+        case VOID:
+            return "V";
+        case ARRAY:
+            return "[" + descriptor(((ArrayType) type).getComponentType());
+        case DECLARED:
+            return "L" + internalName((TypeElement) ((DeclaredType) type).asElement()) + ";";
+        default:
+            throw new IllegalArgumentException("Cannot handle type: " + type);
+        }
+    }
+
+    private TypeElement erasedElement(TypeMirror type) {
+        return (TypeElement) ((DeclaredType) processingEnv.getTypeUtils().erasure(type)).asElement();
+    }
+
+    private String internalName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString().replace('.', '/');
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -39,6 +39,45 @@ public abstract class ProxyChannelRingBuffer {
      */
     protected abstract void readRelease(long offset);
 
+    /**
+     * Start acquiring a batch of messages to read, see
+     * {@link #readAcquireBatch(long, int)}. Back ends which do not override
+     * the batch methods are read one message at a time.
+     * 
+     * @return the index of the next message to read
+     */
+    protected long readBatchStart() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Acquire up to limit consecutive messages to read, starting at an index
+     * returned from {@link #readBatchStart()}. The consumer index is moved
+     * once for the whole batch, each message is still released with
+     * {@link #readRelease(long)}.
+     * 
+     * @param start
+     *            the index of the first message to acquire
+     * @param limit
+     *            the maximum number of messages to acquire, at least 1
+     * @return the index after the last message acquired, start if none is
+     *         available, or less than start if another consumer acquired
+     *         start first and the caller should start over
+     */
+    protected long readAcquireBatch(long start, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param index
+     *            the index of a message acquired with
+     *            {@link #readAcquireBatch(long, int)}
+     * @return the offset of the message to read from
+     */
+    protected long readOffset(long index) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Get the position index of the consumer in the reference array
      * 
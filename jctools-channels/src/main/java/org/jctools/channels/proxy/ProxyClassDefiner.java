@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jctools.util.UnsafeAccess;
+
+import sun.misc.Unsafe;
+
+/**
+ * Defines generated proxy classes with whatever the running JDK offers:
+ * <ul>
+ * <li>JDK 15+ with a lookup: a hidden class, which is not visible by name and
+ * is unloaded with the interface's class loader.
+ * <li>JDK 9+ with a lookup: <code>Lookup.defineClass</code>.
+ * <li>Otherwise: <code>Unsafe.defineClass</code>, which was removed in JDK 11.
+ * Where it is missing JCTools' own lookup is widened to the interface with
+ * <code>MethodHandles.privateLookupIn</code> instead.
+ * </ul>
+ * All of these are looked up reflectively, and the hidden class cache is only
+ * loaded where hidden classes are defined, so this class still loads on the
+ * Java 6 runtimes JCTools is compiled for. A lookup can only be passed on
+ * Java 7+, where <code>MethodHandles.Lookup</code> exists.
+ */
+final class ProxyClassDefiner {
+    private static final Method UNSAFE_DEFINE_CLASS = method(Unsafe.class, "defineClass",
+            String.class, byte[].class, int.class, int.class, ClassLoader.class, ProtectionDomain.class);
+    // Not class literals, java.lang.invoke is missing before Java 7
+    private static final Class<?> METHOD_HANDLES = type("java.lang.invoke.MethodHandles");
+    private static final Class<?> LOOKUP = type("java.lang.invoke.MethodHandles$Lookup");
+    private static final Method PRIVATE_LOOKUP_IN = method(METHOD_HANDLES, "privateLookupIn",
+            Class.class, LOOKUP);
+    private static final Method LOOKUP_DEFINE_CLASS = method(LOOKUP, "defineClass", byte[].class);
+    private static final Class<?> CLASS_OPTION = type("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+    private static final Method LOOKUP_DEFINE_HIDDEN_CLASS = CLASS_OPTION == null ? null :
+            method(LOOKUP, "defineHiddenClass",
+                    byte[].class, boolean.class, Array.newInstance(CLASS_OPTION, 0).getClass());
+
+    /**
+     * Hidden classes defined per interface, by generated name. Only loaded
+     * where hidden classes are, as <code>ClassValue</code> is Java 7+.
+     */
+    private static final class HiddenClasses {
+        static final ClassValue<ConcurrentMap<String, Class<?>>> BY_INTERFACE =
+                new ClassValue<ConcurrentMap<String, Class<?>>>() {
+                    @Override
+                    protected ConcurrentMap<String, Class<?>> computeValue(Class<?> type) {
+                        return new ConcurrentHashMap<String, Class<?>>();
+                    }
+                };
+    }
+
+    private ProxyClassDefiner() {
+    }
+
+    /**
+     * @return the hidden class previously defined for this interface and name, or null
+     */
+    static Class<?> findHidden(Class<?> iFace, String generatedName) {
+        if (LOOKUP_DEFINE_HIDDEN_CLASS == null) {
+            return null;
+        }
+        return HiddenClasses.BY_INTERFACE.get(iFace).get(generatedName);
+    }
+
+    /**
+     * Define a generated class in the package of the interface it implements.
+     *
+     * @param iFace
+     *            the implemented interface
+     * @param generatedName
+     *            internal name of the generated class
+     * @param byteCode
+     *            the class file
+     * @param lookup
+     *            a lookup on a class in the package of the interface, or null
+     * @return the defined class
+     * @throws IllegalArgumentException
+     *             if the lookup is for another package or lacks private access
+     */
+    static Class<?> define(Class<?> iFace, String generatedName, byte[] byteCode, MethodHandles.Lookup lookup) {
+        if (lookup == null) {
+            if (UNSAFE_DEFINE_CLASS != null) {
+                return (Class<?>) invoke(UNSAFE_DEFINE_CLASS, UnsafeAccess.UNSAFE,
+                        generatedName, byteCode, 0, byteCode.length, iFace.getClassLoader(), null);
+            }
+            if (PRIVATE_LOOKUP_IN == null) {
+                throw new IllegalStateException("No way to define a class on this JVM");
+            }
+            lookup = (MethodHandles.Lookup) invoke(PRIVATE_LOOKUP_IN, null, iFace, MethodHandles.lookup());
+        }
+
+        Class<?> lookupClass = lookup.lookupClass();
+        if (!packageName(lookupClass).equals(packageName(iFace))
+                || lookupClass.getClassLoader() != iFace.getClassLoader()) {
+            throw new IllegalArgumentException("Lookup on " + lookupClass + " cannot define classes for " + iFace);
+        }
+        if ((lookup.lookupModes() & MethodHandles.Lookup.PRIVATE) == 0) {
+            throw new IllegalArgumentException("Lookup on " + lookupClass + " lacks private access");
+        }
+
+        if (LOOKUP_DEFINE_HIDDEN_CLASS != null) {
+            MethodHandles.Lookup hidden = (MethodHandles.Lookup) invoke(LOOKUP_DEFINE_HIDDEN_CLASS, lookup,
+                    byteCode, true, Array.newInstance(CLASS_OPTION, 0));
+            Class<?> hiddenClass = hidden.lookupClass();
+            Class<?> raced = HiddenClasses.BY_INTERFACE.get(iFace).putIfAbsent(generatedName, hiddenClass);
+            return raced == null ? hiddenClass : raced;
+        }
+        if (LOOKUP_DEFINE_CLASS != null) {
+            return (Class<?>) invoke(LOOKUP_DEFINE_CLASS, lookup, byteCode);
+        }
+        return (Class<?>) invoke(UNSAFE_DEFINE_CLASS, UnsafeAccess.UNSAFE,
+                generatedName, byteCode, 0, byteCode.length, lookupClass.getClassLoader(), null);
+    }
+
+    private static String packageName(Class<?> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? "" : name.substring(0, lastDot);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalAccessException) {
+                throw new IllegalArgumentException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
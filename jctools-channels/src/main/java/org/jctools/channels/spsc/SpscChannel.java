@@ -19,7 +19,6 @@ import org.jctools.channels.ChannelProducer;
 import org.jctools.channels.ChannelReceiver;
 import org.jctools.channels.mapping.Mapper;
 import org.jctools.util.Pow2;
-import org.jctools.util.Template;
 
 import java.nio.ByteBuffer;
 
@@ -103,14 +102,12 @@ public final class SpscChannel<E> implements Channel<E> {
 
     @SuppressWarnings("unchecked")
     private SpscChannelProducer<E> newProducer(final Class<E> type, final Object... args) {
-        return mapper.newFlyweight(SpscChannelProducer.class, "ChannelProducerTemplate.java",
-                Template.fromFile(Channel.class, "ChannelProducerTemplate.java"), args);
+        return mapper.generateFlyweight(SpscChannelProducer.class, args);
     }
 
     @SuppressWarnings("unchecked")
     private SpscChannelConsumer<E> newConsumer(Object... args) {
-        return mapper.newFlyweight(SpscChannelConsumer.class, "ChannelConsumerTemplate.java",
-                Template.fromFile(Channel.class, "ChannelConsumerTemplate.java"),  args);
+        return mapper.generateFlyweight(SpscChannelConsumer.class, args);
     }
 
 }
@@ -144,6 +144,25 @@ public class SpscOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingB
 
     }
 
+    @Override
+    protected final long readBatchStart() {
+        return lpConsumerIndex();
+    }
+
+    @Override
+    protected final long readAcquireBatch(long start, int limit) {
+        final long end = start + countReadable(start, limit);
+        if (end != start) {
+            soConsumerIndex(end); // StoreStore
+        }
+        return end;
+    }
+
+    @Override
+    protected final long readOffset(long index) {
+        return offsetForIndex(index);
+    }
+
     private long lpLookAheadCache() {
         return UNSAFE.getLong(null, producerLookAheadCacheAddress);
     }
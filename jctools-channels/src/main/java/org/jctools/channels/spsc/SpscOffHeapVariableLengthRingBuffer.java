@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.spsc;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.OffHeapVariableLengthRingBuffer;
+
+/**
+ * Single producer {@link OffHeapVariableLengthRingBuffer}, the producer index is published on claim and the record
+ * becomes visible to the consumer on release.
+ */
+public class SpscOffHeapVariableLengthRingBuffer extends OffHeapVariableLengthRingBuffer {
+
+    public SpscOffHeapVariableLengthRingBuffer(final int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity in bytes
+     * @param initialize
+     */
+    public SpscOffHeapVariableLengthRingBuffer(final ByteBuffer buff, final int capacity, final boolean initialize) {
+        super(buff, capacity, initialize);
+    }
+
+    @Override
+    protected final long writeAcquire(int length) {
+        checkRecordLength(length);
+        final int recordSize = alignedRecordSize(length);
+        final long producerIndex = lpProducerIndex();
+        final int padding = paddingFor(producerIndex, recordSize);
+        final long nextProducerIndex = producerIndex + padding + recordSize;
+        if (nextProducerIndex > lvProducerLimit()) {
+            final long producerLimit = lvConsumerIndex() + capacity();
+            if (nextProducerIndex > producerLimit) {
+                return EOF;
+            }
+            soProducerLimit(producerLimit);
+        }
+        soProducerIndex(nextProducerIndex); // StoreStore
+        return writeClaimed(producerIndex, padding, length);
+    }
+}
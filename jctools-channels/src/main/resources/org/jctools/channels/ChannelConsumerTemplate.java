@@ -38,4 +38,96 @@ public class {{className}}
         }
     {{/fields}}
 
+    {{#enumFields}}
+        private static final {{type}}[] {{name}}Values = {{type}}.values();
+
+        public {{type}} get{{name}}() {
+            final int ordinal = UNSAFE.getInt(pointer + {{fieldOffset}}L);
+            return ordinal < 0 ? null : {{name}}Values[ordinal];
+        }
+
+        public void set{{name}}({{type}} value) {
+            UNSAFE.putInt(pointer + {{fieldOffset}}L, value == null ? -1 : value.ordinal());
+        }
+    {{/enumFields}}
+
+    {{#arrayFields}}
+        public {{type}} get{{name}}(int index) {
+            if (index < 0 || index >= {{length}}) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: {{length}}");
+            }
+            return UNSAFE.get{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L + index * {{elementSize}}L);
+        }
+
+        public void set{{name}}(int index, {{type}} value) {
+            if (index < 0 || index >= {{length}}) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: {{length}}");
+            }
+            UNSAFE.put{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L + index * {{elementSize}}L, value);
+        }
+    {{/arrayFields}}
+
+    {{#structFields}}
+        private final {{viewClass}} {{name}}View = new {{viewClass}}();
+
+        public {{type}} get{{name}}() {
+            {{name}}View.pointer = pointer + {{fieldOffset}}L;
+            return {{name}}View;
+        }
+    {{/structFields}}
+
+    {{#structs}}
+    static final class {{name}} implements {{flyweightInterface}} {
+        long pointer;
+
+    {{#fields}}
+        public {{type}} get{{name}}() {
+            return UNSAFE.get{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L);
+        }
+
+        public void set{{name}}({{type}} value) {
+            UNSAFE.put{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L, value);
+        }
+    {{/fields}}
+
+    {{#enumFields}}
+        private static final {{type}}[] {{name}}Values = {{type}}.values();
+
+        public {{type}} get{{name}}() {
+            final int ordinal = UNSAFE.getInt(pointer + {{fieldOffset}}L);
+            return ordinal < 0 ? null : {{name}}Values[ordinal];
+        }
+
+        public void set{{name}}({{type}} value) {
+            UNSAFE.putInt(pointer + {{fieldOffset}}L, value == null ? -1 : value.ordinal());
+        }
+    {{/enumFields}}
+
+    {{#arrayFields}}
+        public {{type}} get{{name}}(int index) {
+            if (index < 0 || index >= {{length}}) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: {{length}}");
+            }
+            return UNSAFE.get{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L + index * {{elementSize}}L);
+        }
+
+        public void set{{name}}(int index, {{type}} value) {
+            if (index < 0 || index >= {{length}}) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: {{length}}");
+            }
+            UNSAFE.put{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L + index * {{elementSize}}L, value);
+        }
+    {{/arrayFields}}
+
+    {{#structFields}}
+        private final {{viewClass}} {{name}}View = new {{viewClass}}();
+
+        public {{type}} get{{name}}() {
+            {{name}}View.pointer = pointer + {{fieldOffset}}L;
+            return {{name}}View;
+        }
+    {{/structFields}}
+    }
+    {{/structs}}
+
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class VariableLengthChannelTest {
+
+    private static final int CAPACITY = 1024;
+
+    @Test
+    public void shouldKnowItsCapacity() {
+        VariableLengthChannel channel = new VariableLengthChannel(1000, false);
+        assertEquals(1000, channel.requestedCapacity());
+        assertEquals(CAPACITY, channel.maximumCapacity());
+        assertEquals(CAPACITY / 8 - OffHeapVariableLengthRingBuffer.RECORD_HEADER_SIZE, channel.maximumRecordLength());
+        assertTrue(channel.isEmpty());
+    }
+
+    @Test
+    public void shouldWrapAroundWithVaryingLengthsSpsc() {
+        shouldWrapAroundWithVaryingLengths(new VariableLengthChannel(CAPACITY, false));
+    }
+
+    @Test
+    public void shouldWrapAroundWithVaryingLengthsMpsc() {
+        shouldWrapAroundWithVaryingLengths(new VariableLengthChannel(CAPACITY, true));
+    }
+
+    @Test
+    public void shouldWorkOnAProvidedBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OffHeapVariableLengthRingBuffer.getRequiredBufferSize(CAPACITY)
+                + 64);
+        shouldWrapAroundWithVaryingLengths(new VariableLengthChannel(buffer, CAPACITY, true, true));
+    }
+
+    private void shouldWrapAroundWithVaryingLengths(VariableLengthChannel channel) {
+        ChannelProducer<RecordRegion> producer = channel.producer();
+        final int[] expected = new int[1];
+        ChannelConsumer consumer = channel.consumer(new ChannelReceiver<RecordRegion>() {
+            public void accept(RecordRegion element) {
+                int length = expected[0] % (channel.maximumRecordLength() + 1);
+                assertEquals(length, element.length());
+                for (int i = 0; i < length; i++) {
+                    assertEquals((byte) (expected[0] + i), element.getByte(i));
+                }
+                expected[0]++;
+            }
+        });
+        int written = 0;
+        // the odd lengths force records to straddle the end of the buffer, requiring padding
+        for (int lap = 0; lap < 1000; lap++) {
+            while (true) {
+                int length = written % (channel.maximumRecordLength() + 1);
+                if (!producer.claim(length)) {
+                    break;
+                }
+                RecordRegion region = producer.currentElement();
+                assertEquals(length, region.length());
+                for (int i = 0; i < length; i++) {
+                    region.putByte(i, (byte) (written + i));
+                }
+                assertTrue(producer.commit());
+                written++;
+            }
+            assertFalse(channel.isEmpty());
+            while (consumer.read()) {
+            }
+            assertEquals(written, expected[0]);
+            assertTrue(channel.isEmpty());
+            assertEquals(0, channel.size());
+        }
+    }
+
+    @Test
+    public void shouldNotReadUncommittedRecords() {
+        VariableLengthChannel channel = new VariableLengthChannel(CAPACITY, false);
+        ChannelProducer<RecordRegion> producer = channel.producer();
+        ChannelConsumer consumer = channel.consumer(new ChannelReceiver<RecordRegion>() {
+            public void accept(RecordRegion element) {
+                assertEquals(42L, element.getLong(0));
+            }
+        });
+        assertTrue(producer.claim(8));
+        producer.currentElement().putLong(0, 42L);
+        assertFalse(consumer.read());
+        assertTrue(producer.commit());
+        assertFalse(producer.commit());
+        assertTrue(consumer.read());
+        assertFalse(consumer.read());
+    }
+
+    @Test
+    public void shouldUseSpaceProportionalToRecordLength() {
+        VariableLengthChannel channel = new VariableLengthChannel(CAPACITY, false);
+        ChannelProducer<RecordRegion> producer = channel.producer();
+        int records = 0;
+        while (producer.claim(1)) {
+            producer.commit();
+            records++;
+        }
+        assertEquals(CAPACITY / OffHeapVariableLengthRingBuffer.RECORD_ALIGNMENT / 2, records);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRecordLongerThanMaximum() {
+        VariableLengthChannel channel = new VariableLengthChannel(CAPACITY, false);
+        channel.producer().claim(channel.maximumRecordLength() + 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldRequireLengthToClaim() {
+        new VariableLengthChannel(CAPACITY, false).producer().claim();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldBoundsCheckRegion() {
+        VariableLengthChannel channel = new VariableLengthChannel(CAPACITY, false);
+        ChannelProducer<RecordRegion> producer = channel.producer();
+        assertTrue(producer.claim(6));
+        producer.currentElement().putLong(0, 1L);
+    }
+
+    @Test(timeout = 30000)
+    public void shouldSupportConcurrentProducers() throws Exception {
+        final VariableLengthChannel channel = new VariableLengthChannel(4096, true);
+        final int producers = 4;
+        final int perProducer = 100000;
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        ChannelProducer<RecordRegion> producer = channel.newProducer();
+                        for (int i = 0; i < perProducer; i++) {
+                            // 9 to 72 bytes, the last byte is past the header ints
+                            int length = 9 + (i & 63);
+                            while (!producer.claim(length)) {
+                                Thread.yield();
+                            }
+                            RecordRegion region = producer.currentElement();
+                            region.putInt(0, id);
+                            region.putInt(4, i);
+                            region.putByte(length - 1, (byte) i);
+                            producer.commit();
+                        }
+                    } catch (Throwable t) {
+                        error.set(t);
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        final int[] expected = new int[producers];
+        ChannelConsumer consumer = channel.consumer(new ChannelReceiver<RecordRegion>() {
+            public void accept(RecordRegion element) {
+                int id = element.getInt(0);
+                int i = element.getInt(4);
+                assertEquals(expected[id]++, i);
+                assertEquals(9 + (i & 63), element.length());
+                assertEquals((byte) i, element.getByte(element.length() - 1));
+            }
+        });
+        for (int received = 0; received < producers * perProducer && error.get() == null; ) {
+            if (consumer.read()) {
+                received++;
+            } else {
+                Thread.yield();
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(error.get());
+        assertTrue(channel.isEmpty());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapped;
+
+import static org.jctools.channels.mapped.MappedFixedSizeRingBuffer.EOF;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFixedSizeRingBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSpscProducerAndConsumerSharingAFile() throws IOException {
+        File f = folder.newFile();
+        MappedFixedSizeRingBuffer producer = SpscMappedFixedSizeRingBuffer.create(f, 7, 12);
+        MappedFixedSizeRingBuffer consumer = SpscMappedFixedSizeRingBuffer.open(f);
+        try {
+            assertEquals(8, consumer.capacity());
+            assertEquals(12, consumer.recordSize());
+            assertTrue(consumer.isEmpty());
+            assertEquals(EOF, consumer.readAcquire());
+            // go around a few times
+            for (int i = 0; i < 50; i++) {
+                long writeAddress = producer.writeAcquire();
+                assertNotEquals(EOF, writeAddress);
+                UNSAFE.putInt(writeAddress, i);
+                UNSAFE.putLong(writeAddress + 4, -i);
+                producer.writeRelease(writeAddress);
+                assertEquals(1, consumer.size());
+
+                long readAddress = consumer.readAcquire();
+                assertNotEquals(EOF, readAddress);
+                assertEquals(i, UNSAFE.getInt(readAddress));
+                assertEquals(-i, UNSAFE.getLong(readAddress + 4));
+                consumer.readRelease(readAddress);
+                assertTrue(producer.isEmpty());
+                assertEquals(EOF, consumer.readAcquire());
+            }
+        } finally {
+            producer.close();
+            consumer.close();
+        }
+    }
+
+    @Test
+    public void testFullAndReopen() throws IOException {
+        File f = folder.newFile();
+        MappedFixedSizeRingBuffer rb = MpscMappedFixedSizeRingBuffer.create(f, 4, 3);
+        byte[] record = new byte[3];
+        for (byte i = 0; i < 4; i++) {
+            record[0] = i;
+            assertTrue(rb.offer(record, 0, 1));
+        }
+        assertFalse(rb.offer(record, 0, 1));
+        assertEquals(4, rb.size());
+        rb.close();
+
+        // records and indices survive in the file
+        rb = MpscMappedFixedSizeRingBuffer.open(f);
+        try {
+            assertEquals(4, rb.size());
+            for (byte i = 0; i < 4; i++) {
+                assertTrue(rb.poll(record, 0));
+                assertEquals(i, record[0]);
+            }
+            assertFalse(rb.poll(record, 0));
+            assertTrue(rb.offer(record, 0, 3));
+        } finally {
+            rb.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenWrongType() throws IOException {
+        File f = folder.newFile();
+        SpscMappedFixedSizeRingBuffer.create(f, 4, 8).close();
+        MpscMappedFixedSizeRingBuffer.open(f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenUninitialized() throws IOException {
+        File f = folder.newFile();
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        raf.setLength(MappedFixedSizeRingBuffer.getRequiredFileSize(4, 8));
+        raf.close();
+        SpscMappedFixedSizeRingBuffer.open(f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenUnsupportedVersion() throws IOException {
+        File f = folder.newFile();
+        SpscMappedFixedSizeRingBuffer.create(f, 4, 8).close();
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        raf.seek(4);
+        raf.writeInt(Integer.reverseBytes(MappedFixedSizeRingBuffer.VERSION + 1));
+        raf.close();
+        SpscMappedFixedSizeRingBuffer.open(f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfferTooLong() throws IOException {
+        MappedFixedSizeRingBuffer rb = SpscMappedFixedSizeRingBuffer.create(folder.newFile(), 4, 8);
+        try {
+            rb.offer(new byte[9], 0, 9);
+        } finally {
+            rb.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testMpscConcurrentProducers() throws Exception {
+        final File f = folder.newFile();
+        final int producers = 4;
+        final int perProducer = 100000;
+        MappedFixedSizeRingBuffer consumer = MpscMappedFixedSizeRingBuffer.create(f, 64, 12);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        MappedFixedSizeRingBuffer producer = MpscMappedFixedSizeRingBuffer.open(f);
+                        try {
+                            for (int i = 0; i < perProducer; i++) {
+                                long address;
+                                while ((address = producer.writeAcquire()) == EOF) {
+                                    Thread.yield();
+                                }
+                                UNSAFE.putInt(address, id);
+                                UNSAFE.putLong(address + 4, i);
+                                producer.writeRelease(address);
+                            }
+                        } finally {
+                            producer.close();
+                        }
+                    } catch (Throwable t) {
+                        error.set(t);
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        long[] expected = new long[producers];
+        try {
+            for (int received = 0; received < producers * perProducer; ) {
+                long address = consumer.readAcquire();
+                if (address == EOF) {
+                    if (error.get() != null) {
+                        break;
+                    }
+                    Thread.yield();
+                    continue;
+                }
+                int id = UNSAFE.getInt(address);
+                assertEquals(expected[id]++, UNSAFE.getLong(address + 4));
+                consumer.readRelease(address);
+                received++;
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            if (error.get() != null) {
+                fail(error.get().toString());
+            }
+            assertTrue(consumer.isEmpty());
+        } finally {
+            consumer.close();
+        }
+    }
+}
@@ -27,7 +27,8 @@ public class InvalidInterfaceTest {
 	@Parameters
 	public static Collection<Object[]> data() {
 		return Arrays.asList(new Object[][] { { NoGettersOrSetters.class }, { InvalidReturnGetter.class }, { ParameterGetter.class },
-				{ InvalidReturnSetter.class }, { NoParameterSetter.class }, });
+				{ InvalidReturnSetter.class }, { NoParameterSetter.class }, { ArrayGetterWithoutLength.class },
+				{ ArrayGetterWithoutIndex.class }, { ObjectArraySetter.class }, { RecursiveStruct.class }, });
 	}
 
 	private Class<?> representingKlass;
@@ -63,4 +64,21 @@ public class InvalidInterfaceTest {
 		void setFoo();
 	}
 
+	public interface ArrayGetterWithoutLength {
+		int getFoo(int index);
+	}
+
+	public interface ArrayGetterWithoutIndex {
+		@ArrayLength(2)
+		int getFoo(long index);
+	}
+
+	public interface ObjectArraySetter {
+		void setFoo(int index, Object value);
+	}
+
+	public interface RecursiveStruct {
+		RecursiveStruct getFoo();
+	}
+
 }
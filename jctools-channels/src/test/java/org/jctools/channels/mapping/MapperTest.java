@@ -76,6 +76,89 @@ public class MapperTest {
         assertEquals(6L, reader.getBar());
     }
 
+    @Test
+    public void shouldMapArraysEnumsAndNestedStructs() {
+        Mapper<Order> orderMapper = new Mapper<Order>(Order.class, false);
+        // type indicator, id, 2 * (price, quantity), side, 3 * fee
+        assertEquals(4 + 8 + 2 * (8 + 4) + 4 + 3 * 8, orderMapper.getSizeInBytes());
+
+        long address = UnsafeAccess.UNSAFE.allocateMemory(orderMapper.getSizeInBytes());
+        try {
+            UnsafeAccess.UNSAFE.setMemory(address, orderMapper.getSizeInBytes(), (byte) 0);
+            Order writer = (Order) orderMapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", address);
+            Order reader = (Order) orderMapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", address);
+            assertReadsOrders(writer, reader);
+        } finally {
+            UnsafeAccess.UNSAFE.freeMemory(address);
+        }
+    }
+
+    @Test
+    public void shouldGenerateFlyweights() {
+        Example writer = (Example) mapper.generateFlyweight(StubFlyweight.class, startAddress);
+        Example reader = (Example) mapper.generateFlyweight(StubFlyweight.class, startAddress);
+        assertSame(writer.getClass(), reader.getClass());
+
+        ((StubFlyweight) writer).moveTo(startAddress + EXAMPLE_SIZE_IN_BYTES);
+        ((StubFlyweight) reader).moveTo(startAddress + EXAMPLE_SIZE_IN_BYTES);
+
+        writer.setFoo(5);
+        assertEquals(5, reader.getFoo());
+
+        writer.setBar(6L);
+        assertEquals(6L, reader.getBar());
+    }
+
+    @Test
+    public void generatedFlyweightsShouldMatchCompiledOnes() {
+        Mapper<Order> orderMapper = new Mapper<Order>(Order.class, false);
+        long address = UnsafeAccess.UNSAFE.allocateMemory(orderMapper.getSizeInBytes());
+        try {
+            UnsafeAccess.UNSAFE.setMemory(address, orderMapper.getSizeInBytes(), (byte) 0);
+            Order compiled = (Order) orderMapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", address);
+            Order generated = (Order) orderMapper.generateFlyweight(StubFlyweight.class, address);
+
+            assertReadsOrders(compiled, generated);
+            assertReadsOrders(generated, compiled);
+        } finally {
+            UnsafeAccess.UNSAFE.freeMemory(address);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotGenerateOtherAbstractMethods() {
+        mapper.generateFlyweight(AbstractStubFlyweight.class, startAddress);
+    }
+
+    private static void assertReadsOrders(Order writer, Order reader) {
+        writer.setId(7L);
+        writer.getBid().setPrice(99L);
+        writer.getBid().setQuantity(3);
+        writer.getAsk().setPrice(101L);
+        writer.getAsk().setQuantity(4);
+        writer.setSide(Side.SELL);
+        writer.setFee(2, 1.5);
+
+        assertEquals(7L, reader.getId());
+        assertEquals(99L, reader.getBid().getPrice());
+        assertEquals(3, reader.getBid().getQuantity());
+        assertEquals(101L, reader.getAsk().getPrice());
+        assertEquals(4, reader.getAsk().getQuantity());
+        assertSame(reader.getBid(), reader.getBid());
+        assertEquals(Side.SELL, reader.getSide());
+        assertEquals(0.0, reader.getFee(0), 0.0);
+        assertEquals(1.5, reader.getFee(2), 0.0);
+
+        writer.setSide(null);
+        assertNull(reader.getSide());
+
+        try {
+            reader.getFee(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
     private StubFlyweight newFlyweight() {
         return mapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", startAddress);
     }
@@ -94,4 +177,51 @@ public class MapperTest {
 
     }
 
+    public static abstract class AbstractStubFlyweight extends StubFlyweight {
+
+        public AbstractStubFlyweight(final long pointer) {
+            super(pointer);
+        }
+
+        public abstract void clear();
+
+    }
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    public interface Quote {
+
+        long getPrice();
+
+        void setPrice(long value);
+
+        int getQuantity();
+
+        void setQuantity(int value);
+
+    }
+
+    public interface Order {
+
+        long getId();
+
+        void setId(long value);
+
+        Quote getBid();
+
+        Quote getAsk();
+
+        Side getSide();
+
+        void setSide(Side value);
+
+        @ArrayLength(3)
+        double getFee(int index);
+
+        void setFee(int index, double value);
+
+    }
+
 }
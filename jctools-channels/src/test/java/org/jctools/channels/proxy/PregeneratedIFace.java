@@ -0,0 +1,13 @@
+package org.jctools.channels.proxy;
+
+import java.io.IOException;
+
+@GenerateProxyChannel
+public interface PregeneratedIFace<T extends CharSequence> {
+
+    void call1(long x, boolean y);
+
+    void call2(T x, int[] y) throws IOException;
+
+    void call3(@Inline(maxLength = 8) T x, @Inline(maxLength = 4) byte[] y);
+}
@@ -3,7 +3,17 @@ package org.jctools.channels.proxy;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import org.jctools.channels.WaitStrategy;
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.proxy.DemoIFace.CustomType;
 import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
@@ -23,6 +33,23 @@ public class ProxyCreationTest {
 
     }
 
+    interface LookupIFace {
+        void call(int x, Object y);
+    }
+
+    interface InlineIFace {
+        void call(@Inline(maxLength = 8) byte[] bytes,
+                int x,
+                @Inline(maxLength = 5) String string,
+                @Inline(maxLength = 6) ByteBuffer buffer,
+                @Inline(maxLength = 3) CharSequence chars,
+                Object reference);
+    }
+
+    interface InvalidInlineIFace {
+        void call(@Inline(maxLength = 8) int x);
+    }
+
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
@@ -48,6 +75,11 @@ public class ProxyCreationTest {
         util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(MpscOffHeapFixedSizeRingBuffer.class);
     }
 
+    @Test
+    public void givenGeneratedProxyUsingMpmcReferenceChannel_whenCallMethods_expectAllCallsAreProxied() throws Exception {
+        util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(MpmcOffHeapFixedSizeRingBuffer.class);
+    }
+
     private static void util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(
             Class<? extends ProxyChannelRingBuffer> backend) {
         ProxyChannel<DemoIFace> proxyChannel =
@@ -216,4 +248,221 @@ public class ProxyCreationTest {
         proxyChannel.process(implAssertions, 1);
         proxyChannel.process(implAssertions, 1);
     }
+
+    @Test
+    public void givenPregeneratedProxy_whenCreateProxy_expectPregeneratedClassIsUsed() throws Exception {
+        Class<?> pregenerated = Class.forName(PregeneratedIFace.class.getName() + "$JCTools$ProxyChannel$SpscOffHeapFixedSizeRingBuffer");
+        Class.forName(PregeneratedIFace.class.getName() + "$JCTools$ProxyChannel$MpscOffHeapFixedSizeRingBuffer");
+        Class.forName(PregeneratedIFace.class.getName() + "$JCTools$ProxyChannel$MpmcOffHeapFixedSizeRingBuffer");
+
+        @SuppressWarnings("unchecked")
+        ProxyChannel<PregeneratedIFace<String>> proxyChannel =
+                (ProxyChannel) ProxyChannelFactory.createSpscProxy(10, PregeneratedIFace.class, (idleCounter) -> 0);
+        Assert.assertSame(pregenerated, proxyChannel.getClass());
+
+        int[] array = { 1 };
+        PregeneratedIFace<String> proxy = proxyChannel.proxy();
+        proxy.call1(7L, true);
+        proxy.call2("x", array);
+        proxy.call3("inline", new byte[] { 1, 2 });
+        PregeneratedIFace<String> implAssertions = new PregeneratedIFace<String>() {
+            @Override
+            public void call1(long x, boolean y) {
+                Assert.assertEquals(7L, x);
+                Assert.assertTrue(y);
+            }
+
+            @Override
+            public void call2(String x, int[] y) throws IOException {
+                Assert.assertEquals("x", x);
+                Assert.assertSame(array, y);
+            }
+
+            @Override
+            public void call3(String x, byte[] y) {
+                Assert.assertEquals("inline", x);
+                Assert.assertArrayEquals(new byte[] { 1, 2 }, y);
+            }
+        };
+        Assert.assertEquals(3, proxyChannel.process(implAssertions, 10));
+    }
+
+    @Test
+    public void givenLookup_whenCreateProxy_expectCallsAreProxied() throws Exception {
+        ProxyChannel<LookupIFace> proxyChannel = ProxyChannelFactory.createProxy(10,
+                LookupIFace.class,
+                (idleCounter) -> 0,
+                SpscOffHeapFixedSizeRingBuffer.class,
+                MethodHandles.lookup());
+        Object obj = new Object();
+        proxyChannel.proxy().call(3, obj);
+        Assert.assertEquals(1, proxyChannel.process((x, y) -> {
+            Assert.assertEquals(3, x);
+            Assert.assertSame(obj, y);
+        }, 10));
+
+        // a second channel reuses the class defined for the first
+        ProxyChannel<LookupIFace> other = ProxyChannelFactory.createProxy(10,
+                LookupIFace.class,
+                (idleCounter) -> 0,
+                SpscOffHeapFixedSizeRingBuffer.class,
+                MethodHandles.lookup());
+        Assert.assertSame(proxyChannel.getClass(), other.getClass());
+    }
+
+    @Test
+    public void givenLookupInOtherPackage_whenCreateProxy_expectIllegalArgumentException() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ProxyChannelFactory.createProxy(10,
+                LookupIFace.class,
+                (idleCounter) -> 0,
+                MpscOffHeapFixedSizeRingBuffer.class,
+                MethodHandles.lookup().in(Object.class));
+    }
+
+    @Test
+    public void givenBatchWithThrowingCall_whenProcess_expectRestOfBatchProcessedThenException() throws Exception {
+        ProxyChannel<LookupIFace> proxyChannel = ProxyChannelFactory.createMpscProxy(10, LookupIFace.class, (idleCounter) -> 0);
+        for (int i = 0; i < 5; i++) {
+            proxyChannel.proxy().call(i, null);
+        }
+        List<Integer> processed = new ArrayList<>();
+        try {
+            proxyChannel.process((x, y) -> {
+                processed.add(x);
+                if (x == 1 || x == 2) {
+                    throw new IllegalStateException("call " + x);
+                }
+            }, 4);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("call 1", e.getMessage());
+        }
+        Assert.assertEquals(4, processed.size());
+        Assert.assertEquals(1, proxyChannel.size());
+        Assert.assertEquals(1, proxyChannel.process((x, y) -> processed.add(x), 10));
+        Assert.assertEquals(0, proxyChannel.process((x, y) -> processed.add(x), 10));
+        Assert.assertEquals("[0, 1, 2, 3, 4]", processed.toString());
+
+        // calls published while the failing batch is processed make up a second batch within the limit
+        processed.clear();
+        for (int i = 10; i < 13; i++) {
+            proxyChannel.proxy().call(i, null);
+        }
+        try {
+            proxyChannel.process((x, y) -> {
+                processed.add(x);
+                if (x == 10) {
+                    proxyChannel.proxy().call(20, null);
+                    proxyChannel.proxy().call(21, null);
+                }
+                if (x == 11) {
+                    throw new IllegalStateException("call " + x);
+                }
+            }, 10);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("call 11", e.getMessage());
+        }
+        Assert.assertEquals("[10, 11, 12]", processed.toString());
+        Assert.assertEquals(2, proxyChannel.size());
+        Assert.assertEquals(2, proxyChannel.process((x, y) -> processed.add(x), 10));
+        Assert.assertEquals("[10, 11, 12, 20, 21]", processed.toString());
+    }
+
+    @Test
+    public void givenMpmcProxy_whenConsumerPoolProcesses_expectEachCallProcessedOnce() throws Exception {
+        final int producers = 2, consumers = 3, calls = 100000;
+        ProxyChannel<LookupIFace> proxyChannel = ProxyChannelFactory.createMpmcProxy(64, LookupIFace.class, (idleCounter) -> {
+            Thread.yield();
+            return idleCounter + 1;
+        });
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * calls);
+        AtomicInteger remaining = new AtomicInteger(producers * calls);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * calls;
+            threads.add(new Thread(() -> {
+                LookupIFace proxy = proxyChannel.proxy();
+                for (int i = 0; i < calls; i++) {
+                    proxy.call(first + i, proxy);
+                }
+            }));
+        }
+        // counted rather than asserted, an assertion error would only end its consumer
+        LookupIFace impl = (x, y) -> {
+            seen.addAndGet(x, y == proxyChannel ? 1 : 2);
+            remaining.decrementAndGet();
+        };
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                while (remaining.get() > 0) {
+                    if (proxyChannel.process(impl, 16) == 0) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            Assert.assertEquals("call " + i, 1, seen.get(i));
+        }
+        Assert.assertTrue(proxyChannel.isEmpty());
+    }
+
+    @Test
+    public void givenInlineArguments_whenCallMethods_expectCopiesAreProxied() throws Exception {
+        ProxyChannel<InlineIFace> proxyChannel = ProxyChannelFactory.createSpscProxy(10, InlineIFace.class, (idleCounter) -> 0);
+        byte[] bytes = { 1, 2, 3, 4, 5, 6, 7, 8 };
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put(new byte[] { 9, 8, 7, 6 }).flip().position(1);
+        Object obj = new Object();
+        proxyChannel.proxy().call(bytes, 42, "hello", direct, new StringBuilder("abc"), obj);
+        proxyChannel.proxy().call(null, 43, null, ByteBuffer.wrap(new byte[] { 5, 4, 3 }, 1, 2).asReadOnlyBuffer(), null, null);
+        proxyChannel.proxy().call(new byte[0], 44, "", null, "", null);
+        Assert.assertEquals(1, direct.position());
+
+        List<String> calls = new ArrayList<>();
+        Assert.assertEquals(3, proxyChannel.process((b, x, string, buffer, chars, reference) -> {
+            Assert.assertNotSame(bytes, b);
+            byte[] bufferBytes = null;
+            if (buffer != null) {
+                bufferBytes = new byte[buffer.remaining()];
+                buffer.get(bufferBytes);
+            }
+            calls.add(Arrays.toString(b) + " " + x + " " + string + " "
+                    + Arrays.toString(bufferBytes) + " " + chars + " " + (reference == obj));
+        }, 10));
+        Assert.assertEquals("[[1, 2, 3, 4, 5, 6, 7, 8] 42 hello [8, 7, 6] abc true, "
+                + "null 43 null [4, 3] null false, "
+                + "[] 44  null  false]", calls.toString());
+    }
+
+    @Test
+    public void givenTooLongInlineArgument_whenCall_expectIllegalArgumentExceptionAndNothingWritten() throws Exception {
+        ProxyChannel<InlineIFace> proxyChannel = ProxyChannelFactory.createMpmcProxy(10, InlineIFace.class, (idleCounter) -> 0);
+        try {
+            proxyChannel.proxy().call(null, 1, null, null, "long", null);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Happy
+        }
+        Assert.assertTrue(proxyChannel.isEmpty());
+        proxyChannel.proxy().call(null, 2, null, null, "ok", null);
+        Assert.assertEquals(1, proxyChannel.process((b, x, string, buffer, chars, reference) -> {
+            Assert.assertEquals(2, x);
+            Assert.assertEquals("ok", chars);
+        }, 10));
+    }
+
+    @Test
+    public void givenInlinePrimitive_whenCreateProxy_expectIllegalArgumentException() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        ProxyChannelFactory.createSpscProxy(10, InvalidInlineIFace.class, (idleCounter) -> 0);
+    }
 }
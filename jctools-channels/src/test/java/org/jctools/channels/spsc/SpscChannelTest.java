@@ -16,9 +16,11 @@ package org.jctools.channels.spsc;
 import org.jctools.channels.ChannelConsumer;
 import org.jctools.channels.ChannelProducer;
 import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.mapping.ArrayLength;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -54,6 +56,18 @@ public class SpscChannelTest {
         assertSize(1);
     }
 
+    @Test
+    public void shouldClaimWithLengthWithinElementSize() {
+        assertTrue(producer.claim(12));
+        assertTrue(producer.commit());
+        assertSize(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectClaimLongerThanElementSize() {
+        producer.claim(64);
+    }
+
     @Test
     public void shouldReadAnObject() {
         ChannelConsumer consumer = newConsumer();
@@ -102,6 +116,31 @@ public class SpscChannelTest {
         assertTrue(channel.size() <= MAXIMUM_CAPACITY);
     }
 
+    @Test
+    public void shouldReadArraysEnumsAndNestedStructs() {
+        SpscChannel<Trade> trades = new SpscChannel<Trade>(ByteBuffer.allocateDirect(128 * 1024), REQUESTED_CAPACITY, Trade.class);
+        ChannelProducer<Trade> tradeProducer = trades.producer();
+        assertTrue(tradeProducer.claim());
+        Trade writer = tradeProducer.currentElement();
+        writer.getInstrument().setId(42);
+        writer.setLeg(1, 5L);
+        writer.setTimeUnit(TimeUnit.MICROSECONDS);
+        assertTrue(tradeProducer.commit());
+
+        final Trade[] read = new Trade[1];
+        ChannelConsumer consumer = trades.consumer(new ChannelReceiver<Trade>() {
+            public void accept(Trade element) {
+                assertEquals(42, element.getInstrument().getId());
+                assertEquals(5L, element.getLeg(1));
+                assertEquals(TimeUnit.MICROSECONDS, element.getTimeUnit());
+                read[0] = element;
+            }
+        });
+        assertTrue(consumer.read());
+        assertNotNull(read[0]);
+        assertTrue(trades.isEmpty());
+    }
+
     private void assertSize(int expectedSize) {
         assertEquals(expectedSize, channel.size());
     }
@@ -132,4 +171,27 @@ public class SpscChannelTest {
         void setBar(long value);
 
     }
+
+    public interface Instrument {
+
+        int getId();
+
+        void setId(int value);
+
+    }
+
+    public interface Trade {
+
+        Instrument getInstrument();
+
+        @ArrayLength(2)
+        long getLeg(int index);
+
+        void setLeg(int index, long value);
+
+        TimeUnit getTimeUnit();
+
+        void setTimeUnit(TimeUnit value);
+
+    }
 }
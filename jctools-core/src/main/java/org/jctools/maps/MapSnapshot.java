@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A clean (no table-copy-in-progress) view of one of the non-blocking maps
+ * tables, addressed by slot index.  Keys live in the snapshot table, values
+ * are always read with an official 'get' so that a visited mapping is as
+ * current as the iterators make it.  Slot ranges are independent of each
+ * other, which is what the {@link Spliterator}s and the parallel bulk
+ * operations split on.
+ */
+abstract class MapSnapshot<K,V> {
+  /** @return the number of slots in the snapshot table */
+  abstract int length();
+  /** @return the live key in slot {@code idx}, or null for an empty or deleted slot */
+  abstract K key( int idx );
+  /** @return the current value for {@code key}, or null if it was removed */
+  abstract V value( K key );
+  /** @return a write-through entry for the mapping */
+  abstract Map.Entry<K,V> entry( K key, V val );
+  /** @return the (racy) number of mappings in the map */
+  abstract long estimatedSize();
+
+  // --- Spliterator ---------------------------------------------------------
+  static final int KEYS = 0;
+  static final int VALUES = 1;
+  static final int ENTRIES = 2;
+
+  /** A spliterator over a slot range of the snapshot, splitting the range in halves. */
+  static final class SnapshotSpliterator<K,V,E> implements Spliterator<E> {
+    private final MapSnapshot<K,V> _ss;
+    private final int _kind;    // KEYS, VALUES or ENTRIES
+    private int _idx;           // Next slot to visit
+    private final int _fence;   // One past the last slot to visit
+    private long _est;          // Size estimate for the range
+    SnapshotSpliterator( final MapSnapshot<K,V> ss, final int kind ) {
+      this(ss, kind, 0, ss.length(), ss.estimatedSize());
+    }
+    private SnapshotSpliterator( final MapSnapshot<K,V> ss, final int kind, final int idx, final int fence, final long est ) {
+      _ss = ss; _kind = kind; _idx = idx; _fence = fence; _est = est;
+    }
+    @SuppressWarnings("unchecked")
+    private E emit( final K k, final V v ) {
+      switch( _kind ) {
+      case KEYS:   return (E)k;
+      case VALUES: return (E)v;
+      default:     return (E)_ss.entry(k,v);
+      }
+    }
+    public boolean tryAdvance( final Consumer<? super E> action ) {
+      if( action == null ) throw new NullPointerException();
+      while( _idx < _fence ) {
+        final K k = _ss.key(_idx++);
+        final V v;
+        if( k != null && (v=_ss.value(k)) != null ) {
+          action.accept(emit(k,v));
+          return true;
+        }
+      }
+      return false;
+    }
+    public void forEachRemaining( final Consumer<? super E> action ) {
+      if( action == null ) throw new NullPointerException();
+      final int fence = _fence;
+      int idx = _idx;
+      _idx = fence;
+      for( ; idx < fence; idx++ ) {
+        final K k = _ss.key(idx);
+        final V v;
+        if( k != null && (v=_ss.value(k)) != null )
+          action.accept(emit(k,v));
+      }
+    }
+    public Spliterator<E> trySplit() {
+      final int lo = _idx, mid = (lo + _fence) >>> 1;
+      if( mid <= lo ) return null;
+      _idx = mid;
+      return new SnapshotSpliterator<K,V,E>(_ss, _kind, lo, mid, _est >>>= 1);
+    }
+    public long estimateSize() { return _est; }
+    public int characteristics() {
+      return Spliterator.CONCURRENT | Spliterator.NONNULL |
+        (_kind == VALUES ? 0 : Spliterator.DISTINCT);
+    }
+    public long getExactSizeIfKnown() { return -1; }
+    public boolean hasCharacteristics( final int characteristics ) {
+      return (characteristics() & characteristics) == characteristics;
+    }
+    public java.util.Comparator<? super E> getComparator() { throw new IllegalStateException(); }
+  }
+
+  // --- Bulk operations -----------------------------------------------------
+  // In the style of ConcurrentHashMap: a parallelismThreshold of
+  // Long.MAX_VALUE runs in the caller, 1 uses the most parallelism.
+  // Otherwise the slot range is split into at most 4x the common pool
+  // parallelism leaf tasks, and only if the map holds more than the
+  // threshold number of mappings.
+  private int batchFor( final long threshold ) {
+    long n;
+    if( threshold == Long.MAX_VALUE || (n = estimatedSize()) <= 1L || n < threshold )
+      return 0;
+    final int sp = ForkJoinPool.getCommonPoolParallelism() << 2;
+    return (threshold <= 0L || (n /= threshold) >= sp) ? sp : (int)n;
+  }
+
+  final void forEach( final long threshold, final BiConsumer<? super K,? super V> action ) {
+    if( action == null ) throw new NullPointerException();
+    final ForEachTask<K,V> task = new ForEachTask<K,V>(this, batchFor(threshold), 0, length(), action);
+    if( task._batch == 0 ) task.compute();
+    else task.invoke();
+  }
+
+  final V reduceValues( final long threshold, final BiFunction<? super V,? super V,? extends V> reducer ) {
+    if( reducer == null ) throw new NullPointerException();
+    final ReduceValuesTask<K,V> task = new ReduceValuesTask<K,V>(this, batchFor(threshold), 0, length(), reducer);
+    return task._batch == 0 ? task.compute() : task.invoke();
+  }
+
+  final <U> U search( final long threshold, final BiFunction<? super K,? super V,? extends U> fcn ) {
+    if( fcn == null ) throw new NullPointerException();
+    final SearchTask<K,V,U> task = new SearchTask<K,V,U>(this, batchFor(threshold), 0, length(), fcn, new AtomicReference<U>());
+    if( task._batch == 0 ) task.compute();
+    else task.invoke();
+    return task._result.get();
+  }
+
+  private static final class ForEachTask<K,V> extends RecursiveAction {
+    final MapSnapshot<K,V> _ss;
+    final int _batch, _lo, _hi;
+    final BiConsumer<? super K,? super V> _action;
+    ForEachTask( MapSnapshot<K,V> ss, int batch, int lo, int hi, BiConsumer<? super K,? super V> action ) {
+      _ss = ss; _batch = batch; _lo = lo; _hi = hi; _action = action;
+    }
+    protected void compute() {
+      final int mid = (_lo + _hi) >>> 1;
+      if( _batch > 0 && mid > _lo ) {
+        final int b = _batch >>> 1;
+        invokeAll(new ForEachTask<K,V>(_ss, b, _lo, mid, _action),
+                  new ForEachTask<K,V>(_ss, b, mid, _hi, _action));
+        return;
+      }
+      for( int idx = _lo; idx < _hi; idx++ ) {
+        final K k = _ss.key(idx);
+        final V v;
+        if( k != null && (v=_ss.value(k)) != null )
+          _action.accept(k,v);
+      }
+    }
+  }
+
+  private static final class ReduceValuesTask<K,V> extends RecursiveTask<V> {
+    final MapSnapshot<K,V> _ss;
+    final int _batch, _lo, _hi;
+    final BiFunction<? super V,? super V,? extends V> _reducer;
+    ReduceValuesTask( MapSnapshot<K,V> ss, int batch, int lo, int hi, BiFunction<? super V,? super V,? extends V> reducer ) {
+      _ss = ss; _batch = batch; _lo = lo; _hi = hi; _reducer = reducer;
+    }
+    protected V compute() {
+      final int mid = (_lo + _hi) >>> 1;
+      if( _batch > 0 && mid > _lo ) {
+        final int b = _batch >>> 1;
+        final ReduceValuesTask<K,V> right = new ReduceValuesTask<K,V>(_ss, b, mid, _hi, _reducer);
+        right.fork();
+        final V l = new ReduceValuesTask<K,V>(_ss, b, _lo, mid, _reducer).compute();
+        final V r = right.join();
+        return l == null ? r : r == null ? l : _reducer.apply(l,r);
+      }
+      V r = null;
+      for( int idx = _lo; idx < _hi; idx++ ) {
+        final K k = _ss.key(idx);
+        final V v;
+        if( k != null && (v=_ss.value(k)) != null )
+          r = r == null ? v : _reducer.apply(r,v);
+      }
+      return r;
+    }
+  }
+
+  private static final class SearchTask<K,V,U> extends RecursiveAction {
+    final MapSnapshot<K,V> _ss;
+    final int _batch, _lo, _hi;
+    final BiFunction<? super K,? super V,? extends U> _fcn;
+    final AtomicReference<U> _result; // First non-null result found by any task
+    SearchTask( MapSnapshot<K,V> ss, int batch, int lo, int hi, BiFunction<? super K,? super V,? extends U> fcn, AtomicReference<U> result ) {
+      _ss = ss; _batch = batch; _lo = lo; _hi = hi; _fcn = fcn; _result = result;
+    }
+    protected void compute() {
+      final int mid = (_lo + _hi) >>> 1;
+      if( _batch > 0 && mid > _lo ) {
+        final int b = _batch >>> 1;
+        invokeAll(new SearchTask<K,V,U>(_ss, b, _lo, mid, _fcn, _result),
+                  new SearchTask<K,V,U>(_ss, b, mid, _hi, _fcn, _result));
+        return;
+      }
+      for( int idx = _lo; idx < _hi && _result.get() == null; idx++ ) {
+        final K k = _ss.key(idx);
+        final V v;
+        final U u;
+        if( k != null && (v=_ss.value(k)) != null && (u=_fcn.apply(k,v)) != null ) {
+          _result.compareAndSet(null,u);
+          return;
+        }
+      }
+    }
+  }
+}
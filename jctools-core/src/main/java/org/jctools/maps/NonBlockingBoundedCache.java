@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscArrayQueue;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A concurrent cache bounded by entry count or total weight, using a {@link
+ * NonBlockingHashMap} for lookups and a CLOCK policy for eviction.
+ *
+ * <p>Lookups and updates never block: a read is a plain {@link
+ * NonBlockingHashMap#get} followed by recording the access in one of a set
+ * of striped {@link MpscArrayQueue} read buffers, picked by thread.  A full
+ * buffer simply drops the access.  The buffers are drained and the CLOCK
+ * reference bits set by the single thread which wins a CAS on the maintenance
+ * flag, and that same thread runs the CLOCK hand over the table until the
+ * cache is back under its bound.  Threads which lose the race carry on
+ * without waiting, so the bound may be briefly exceeded under heavy write
+ * load.
+ *
+ * <p>The CLOCK hand is a weakly consistent key iterator over the backing
+ * map: an entry seen with its reference bit set gets a second chance, an
+ * entry seen without it is evicted.
+ *
+ * <p>Like {@link NonBlockingHashMap}, neither keys nor values can be null.
+ *
+ * @param <TypeK> the type of keys maintained by this cache
+ * @param <TypeV> the type of cached values
+ */
+public class NonBlockingBoundedCache<TypeK,TypeV> {
+
+  /** Computes the weight of a cache entry, which must be zero or more. */
+  public interface Weigher<K,V> {
+    /** @return the weight of the entry, never negative */
+    int weigh( K key, V value );
+  }
+
+  private static final Weigher<Object,Object> SINGLETON = new Weigher<Object,Object>() {
+    public int weigh( Object key, Object value ) { return 1; }
+  };
+
+  // Slots in each read buffer; a full buffer drops accesses and triggers a drain
+  private static final int READ_BUFFER_SIZE = 64;
+
+  // An immutable value and its weight, plus the CLOCK reference bit which is
+  // only read and written by the maintenance thread.
+  private static final class Node<V> {
+    final V _val;
+    final int _weight;
+    boolean _referenced;
+    Node( final V val, final int weight ) { _val = val; _weight = weight; }
+  }
+
+  private final NonBlockingHashMap<TypeK,Node<TypeV>> _map;
+  private final Weigher<? super TypeK,? super TypeV> _weigher;
+  private final long _max_weight;
+  // Total weight of the cached entries, striped to keep writes cheap
+  private final ConcurrentAutoTable _weight = new ConcurrentAutoTable();
+  private final ConcurrentAutoTable _evictions = new ConcurrentAutoTable();
+
+  private final MpscArrayQueue<Node<TypeV>>[] _read_buffers;
+  private final int _read_buffers_mask;
+  private final MessagePassingQueue.Consumer<Node<TypeV>> _mark_referenced =
+    new MessagePassingQueue.Consumer<Node<TypeV>>() {
+      public void accept( final Node<TypeV> node ) { node._referenced = true; }
+    };
+
+  // Maintenance is done by whichever thread wins this flag, everything below
+  // is only touched while holding it.
+  private volatile int _maintaining;
+  private static final AtomicIntegerFieldUpdater<NonBlockingBoundedCache> _maintainingUpdater =
+    AtomicIntegerFieldUpdater.newUpdater(NonBlockingBoundedCache.class, "_maintaining");
+  private Iterator<TypeK> _hand;
+
+  /** Create a cache holding at most {@code max_size} entries.
+   *  @param max_size the maximum number of entries */
+  @SuppressWarnings("unchecked")
+  public NonBlockingBoundedCache( final long max_size ) {
+    this(max_size, (Weigher<? super TypeK,? super TypeV>)(Weigher)SINGLETON);
+  }
+
+  /** Create a cache holding entries of at most {@code max_weight} total
+   *  weight, as computed by the weigher when an entry is written.
+   *  @param max_weight the maximum total weight of the entries
+   *  @param weigher computes the weight of each entry */
+  @SuppressWarnings("unchecked")
+  public NonBlockingBoundedCache( final long max_weight, final Weigher<? super TypeK,? super TypeV> weigher ) {
+    RangeUtil.checkPositive(max_weight, "max_weight");
+    if( weigher == null ) throw new NullPointerException();
+    _max_weight = max_weight;
+    _weigher = weigher;
+    _map = new NonBlockingHashMap<TypeK,Node<TypeV>>();
+    final int stripes = Pow2.roundToPowerOfTwo(Runtime.getRuntime().availableProcessors());
+    _read_buffers = new MpscArrayQueue[stripes];
+    for( int i=0; i<stripes; i++ )
+      _read_buffers[i] = new MpscArrayQueue<Node<TypeV>>(READ_BUFFER_SIZE);
+    _read_buffers_mask = stripes-1;
+  }
+
+  // --- reads ---------------------------------------------------------------
+
+  /** Returns the cached value for the key, or null if it is not cached.
+   *  @throws NullPointerException if the key is null */
+  public TypeV get( final Object key ) {
+    final Node<TypeV> node = _map.get(key);
+    if( node == null ) return null;
+    if( !_read_buffers[(int)Thread.currentThread().getId() & _read_buffers_mask].relaxedOffer(node) )
+      maintenance();            // Buffer full: drain it, if nobody else is
+    return node._val;
+  }
+
+  /** @return true if the key is cached */
+  public boolean containsKey( final Object key ) { return _map.containsKey(key); }
+
+  // --- writes --------------------------------------------------------------
+
+  /** Caches the value for the key, evicting other entries if needed.
+   *  @return the previously cached value, or null
+   *  @throws NullPointerException if the key or value is null
+   *  @throws IllegalArgumentException if the weigher returns a negative weight */
+  public TypeV put( final TypeK key, final TypeV val ) {
+    final Node<TypeV> node = node(key, val);
+    return written(_map.put(key, node), node);
+  }
+
+  /** Caches the value for the key if it is not cached yet.
+   *  @return the currently cached value, or null if the value was cached
+   *  @throws NullPointerException if the key or value is null
+   *  @throws IllegalArgumentException if the weigher returns a negative weight */
+  public TypeV putIfAbsent( final TypeK key, final TypeV val ) {
+    final Node<TypeV> node = node(key, val);
+    final Node<TypeV> old = _map.putIfAbsent(key, node);
+    if( old != null ) return old._val;
+    return written(null, node);
+  }
+
+  /** Removes the key from the cache.
+   *  @return the previously cached value, or null */
+  public TypeV remove( final Object key ) {
+    final Node<TypeV> old = _map.remove(key);
+    if( old == null ) return null;
+    _weight.add(-old._weight);
+    return old._val;
+  }
+
+  /** Removes all entries from the cache.  Concurrent writes may survive. */
+  public void clear() {
+    for( TypeK key : _map.keySet() )
+      remove(key);
+  }
+
+  private Node<TypeV> node( final TypeK key, final TypeV val ) {
+    if( val == null ) throw new NullPointerException();
+    final int weight = _weigher.weigh(key, val);
+    RangeUtil.checkPositiveOrZero(weight, "weight");
+    return new Node<TypeV>(val, weight);
+  }
+
+  // Account for the written node, then see if we went over the bound
+  private TypeV written( final Node<TypeV> old, final Node<TypeV> node ) {
+    _weight.add(old == null ? node._weight : node._weight - old._weight);
+    // Cheap (racy) check first; the maintenance thread sums the stripes
+    if( _weight.estimate_get() > _max_weight )
+      maintenance();
+    return old == null ? null : old._val;
+  }
+
+  // --- stats ---------------------------------------------------------------
+
+  /** @return the number of cached entries */
+  public int size() { return _map.size(); }
+  /** @return the total weight of the cached entries */
+  public long weightedSize() { return Math.max(0, _weight.get()); }
+  /** @return the bound on the total weight of the cached entries */
+  public long maximumWeight() { return _max_weight; }
+  /** @return the number of entries evicted so far */
+  public long evictionCount() { return _evictions.get(); }
+
+  // --- maintenance ---------------------------------------------------------
+
+  /** Drains the read buffers and evicts entries until the cache is within
+   *  its bound, unless another thread is already doing so. */
+  public void cleanUp() { maintenance(); }
+
+  private void maintenance() {
+    if( _maintaining != 0 || !_maintainingUpdater.compareAndSet(this, 0, 1) )
+      return;                   // Somebody else is on it
+    try {
+      for( MpscArrayQueue<Node<TypeV>> buffer : _read_buffers )
+        buffer.drain(_mark_referenced);
+      evict();
+    } finally {
+      _maintaining = 0;
+    }
+  }
+
+  // Run the CLOCK hand until we are under the bound.  Two full turns clear
+  // every reference bit, so that bounds the scan.
+  private void evict() {
+    long weight = _weight.get();
+    long budget = 2L * _map.size() + 2;
+    while( weight > _max_weight && budget-- > 0 ) {
+      if( _hand == null || !_hand.hasNext() ) {
+        _hand = _map.keySet().iterator();
+        if( !_hand.hasNext() ) return;
+      }
+      final TypeK key = _hand.next();
+      final Node<TypeV> node = _map.get(key);
+      if( node == null ) continue;
+      if( node._referenced ) {
+        node._referenced = false; // Second chance
+      } else if( _map.remove(key, node) ) {
+        _weight.add(-node._weight);
+        _evictions.increment();
+        weight -= node._weight;
+      }
+    }
+  }
+}
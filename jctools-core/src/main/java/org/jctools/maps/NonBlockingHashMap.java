@@ -17,8 +17,13 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.jctools.util.RangeUtil;
 
@@ -87,6 +92,7 @@ public class NonBlockingHashMap<TypeK, TypeV>
   private static final long serialVersionUID = 1234123412341234123L;
 
   private static final int REPROBE_LIMIT=10; // Too many reprobes then force a table-resize
+  private static final int COMPACT_RATIO=4;  // Fewer than 1 in 4 key slots live?  Resize to compact
 
   // --- Bits to allow Unsafe access to arrays
   private static final int _Obase  = UNSAFE.arrayBaseOffset(Object[].class);
@@ -147,6 +153,15 @@ public class NonBlockingHashMap<TypeK, TypeV>
   // Time since last resize
   private transient long _last_resize_milli;
 
+  // --- Incremental resize ----------------
+  // Most old-table slots any one map operation copies while helping a resize
+  // along.  Zero is the classic mode: 1024 slots per chunk, and a thread
+  // which has "panicked" keeps copying until the whole table is done.
+  private transient int _copy_work;
+  // If not null, every resize is also handed to this executor which finishes
+  // the copy in the background.
+  private transient Executor _copier;
+
   // --- Minimum table size ----------------
   // Pick size 8 K/V pairs, which turns into (8*2+2)*4+12 = 84 bytes on a
   // standard 32-bit HotSpot, and (8*2+2)*8+12 = 156 bytes on 64-bit Azul.
@@ -235,11 +250,164 @@ public class NonBlockingHashMap<TypeK, TypeV>
   private transient ConcurrentAutoTable _reprobes = new ConcurrentAutoTable();
   /** Get and clear the current count of reprobes.  Reprobes happen on key
    *  collisions, and a high reprobe rate may indicate a poor hash function or
-   *  weaknesses in the table resizing function.
+   *  weaknesses in the table resizing function.  Reprobes are only counted
+   *  once {@link #stats} has been called, so the common case pays nothing.
    *  @return the count of reprobes since the last call to {@link #reprobes}
-   *  or since the table was created.   */
+   *  or since the stats were turned on.   */
   public long reprobes() { long r = _reprobes.get(); _reprobes = new ConcurrentAutoTable(); return r; }
 
+  // --- Instrumentation ---------------------
+  // The counters behind stats(), allocated by the first call to stats().
+  // Until then they are null, and the rare paths which feed them (reprobing
+  // puts, copy work and resizes) pay a single null check.
+  private transient volatile Counters _counters;
+  private static final long _counters_offset = fieldOffset(NonBlockingHashMap.class, "_counters");
+
+  private static final int REPROBE_HISTO_LEN=8;
+  private static final class Counters {
+    // Histogram of put-side probe sequences that needed reprobing: bucket 'i'
+    // counts key claims which took [2^i,2^(i+1)) reprobes, the last bucket is
+    // open ended.  Claims on the first probe are not counted.
+    final ConcurrentAutoTable[] _reprobe_histo = new ConcurrentAutoTable[REPROBE_HISTO_LEN];
+    // Completed resizes, their summed and latest durations in nanos, and the
+    // number of help_copy calls which claimed copy work.
+    final ConcurrentAutoTable _resizes = new ConcurrentAutoTable();
+    final ConcurrentAutoTable _resize_nanos = new ConcurrentAutoTable();
+    volatile long _last_resize_nanos;
+    final ConcurrentAutoTable _copy_helps = new ConcurrentAutoTable();
+    volatile long _last_copy_helps;
+
+    Counters() {
+      for( int i=0; i<REPROBE_HISTO_LEN; i++ )
+        _reprobe_histo[i] = new ConcurrentAutoTable();
+    }
+  }
+
+  private final Counters counters() {
+    final Counters counters = _counters;
+    if( counters != null ) return counters;
+    UNSAFE.compareAndSwapObject(this, _counters_offset, null, new Counters());
+    return _counters;           // Ours, or the one which beat us
+  }
+
+  private final void record_reprobes( int reprobe_cnt ) {
+    final Counters counters = _counters;
+    if( counters == null ) return; // Stats are off
+    _reprobes.add(reprobe_cnt);
+    counters._reprobe_histo[Math.min(31-Integer.numberOfLeadingZeros(reprobe_cnt),REPROBE_HISTO_LEN-1)].increment();
+  }
+
+  private final long copy_helps() {
+    final Counters counters = _counters;
+    return counters == null ? 0 : counters._copy_helps.get();
+  }
+
+  private final void record_copy_help() {
+    final Counters counters = _counters;
+    if( counters != null ) counters._copy_helps.increment();
+  }
+
+  // Called by the one thread which promoted 'newchm' to the top-level table
+  private final void record_resize( CHM newchm ) {
+    final Counters counters = _counters;
+    if( counters == null ) return;
+    long nanos = System.nanoTime()-newchm._resize_start_nanos;
+    long helps = counters._copy_helps.get()-newchm._resize_start_helps;
+    counters._resizes.increment();
+    counters._resize_nanos.add(nanos);
+    counters._last_resize_nanos = nanos;
+    counters._last_copy_helps = helps;
+  }
+
+  /** A point-in-time view of the table and resize statistics of a map,
+   *  see {@link NonBlockingHashMap#stats}.  Counters are read one at a time
+   *  while the map keeps changing, so related values need not add up
+   *  exactly. */
+  public static final class Stats {
+    private final int _table_length;
+    private final long _slots, _size;
+    private final boolean _resizing;
+    private final long _resizes, _resize_nanos, _last_resize_nanos;
+    private final long _copy_helps, _last_copy_helps;
+    private final long[] _reprobe_histo;
+
+    private Stats( int table_length, long slots, long size, boolean resizing,
+                   long resizes, long resize_nanos, long last_resize_nanos,
+                   long copy_helps, long last_copy_helps, long[] reprobe_histo ) {
+      _table_length = table_length;
+      _slots = slots;
+      _size = size;
+      _resizing = resizing;
+      _resizes = resizes;
+      _resize_nanos = resize_nanos;
+      _last_resize_nanos = last_resize_nanos;
+      _copy_helps = copy_helps;
+      _last_copy_helps = last_copy_helps;
+      _reprobe_histo = reprobe_histo;
+    }
+
+    /** @return the number of key/value slots in the top-level table */
+    public int tableLength() { return _table_length; }
+    /** @return the number of slots holding a key, live or deleted */
+    public long slots() { return _slots; }
+    /** @return the number of live mappings */
+    public long size() { return _size; }
+    /** @return the number of slots holding a deleted key; they are only
+     *  reclaimed by a resize */
+    public long tombstones() { return Math.max(0,_slots-_size); }
+    /** @return true if a resize of the top-level table was in progress */
+    public boolean resizing() { return _resizing; }
+    /** @return the number of completed resizes */
+    public long resizes() { return _resizes; }
+    /** @return the summed duration of all completed resizes, in nanoseconds,
+     *  from the new table being installed to its promotion */
+    public long resizeNanos() { return _resize_nanos; }
+    /** @return the duration of the latest completed resize in nanoseconds */
+    public long lastResizeNanos() { return _last_resize_nanos; }
+    /** @return the number of times a thread claimed copy work, over all
+     *  resizes */
+    public long copyHelps() { return _copy_helps; }
+    /** @return the number of times a thread claimed copy work during the
+     *  latest completed resize */
+    public long lastCopyHelps() { return _last_copy_helps; }
+    /** @return the average number of copy claims per completed resize */
+    public double copyHelpsPerResize() { return _resizes == 0 ? 0 : (double)_copy_helps/_resizes; }
+    /** Entry 'i' counts the key claims by put-like operations which took
+     *  between 2^i and 2^(i+1)-1 reprobes, the last entry also counts all
+     *  longer probe sequences.  Claims without a reprobe are not counted.
+     *  @return a copy of the reprobe histogram */
+    public long[] reprobeHistogram() { return _reprobe_histo.clone(); }
+
+    @Override
+    public String toString() {
+      return "Stats{tableLength="+_table_length+", slots="+_slots+", size="+_size+
+        ", tombstones="+tombstones()+", resizing="+_resizing+", resizes="+_resizes+
+        ", resizeNanos="+_resize_nanos+", lastResizeNanos="+_last_resize_nanos+
+        ", copyHelps="+_copy_helps+", lastCopyHelps="+_last_copy_helps+
+        ", reprobeHistogram="+Arrays.toString(_reprobe_histo)+"}";
+    }
+  }
+
+  /** Take a snapshot of the table and resize statistics of this map.  The
+   *  first call turns the counters on: until then they are not allocated
+   *  and nothing is counted, so the resize, copy and reprobe figures cover
+   *  the time since the first call.  They are updated on the rare paths
+   *  only (reprobing puts, copy work and resizes), and reading them does
+   *  not reset them.  Useful to decide whether a map should be pre-sized or
+   *  rebuilt.
+   *  @return the current statistics */
+  public Stats stats() {
+    final Counters counters = counters();
+    final Object[] kvs = _kvs;
+    final CHM chm = chm(kvs);
+    final long[] histo = new long[REPROBE_HISTO_LEN];
+    for( int i=0; i<REPROBE_HISTO_LEN; i++ )
+      histo[i] = counters._reprobe_histo[i].get();
+    return new Stats(len(kvs), chm._slots.get(), chm._size.get(), chm._newkvs != null,
+                     counters._resizes.get(), counters._resize_nanos.get(), counters._last_resize_nanos,
+                     counters._copy_helps.get(), counters._last_copy_helps, histo);
+  }
+
 
   // --- reprobe_limit -----------------------------------------------------
   // Heuristic to decide if we have reprobed toooo many times.  Running over
@@ -263,6 +431,25 @@ public class NonBlockingHashMap<TypeK, TypeV>
    *  elements will sacrifice space for a small amount of time gained.  The
    *  initial size will be rounded up internally to the next larger power of 2. */
   public NonBlockingHashMap( final int initial_sz ) { initialize(initial_sz); }
+
+  /** Create a new NonBlockingHashMap which resizes incrementally.  Every map
+   *  operation which finds a resize in progress copies at most
+   *  <tt>max_copy_work</tt> slots of the old table before getting on with its
+   *  own work, so no single caller pays for copying a large table.  If
+   *  <tt>copier</tt> is not null each resize is also submitted to it, and the
+   *  task finishes the copy in the background; a rejected submission simply
+   *  leaves the copy to the map operations.  Iterators and other operations
+   *  that need a stable table still finish any copy in progress.  The resize
+   *  settings are not serialized.
+   *  @param initial_sz initial room for this many elements, as in {@link #NonBlockingHashMap(int)}
+   *  @param max_copy_work most old-table slots copied per map operation
+   *  @param copier executor finishing resizes in the background, or null */
+  public NonBlockingHashMap( final int initial_sz, final int max_copy_work, final Executor copier ) {
+    RangeUtil.checkPositive(max_copy_work, "max_copy_work");
+    _copy_work = max_copy_work;
+    _copier = copier;
+    initialize(initial_sz);
+  }
   private final void initialize( int initial_sz ) {
     RangeUtil.checkPositiveOrZero(initial_sz, "initial_sz");
     int i;                      // Convert to next largest power-of-2
@@ -385,6 +572,72 @@ public class NonBlockingHashMap<TypeK, TypeV>
     return res == TOMBSTONE ? null : (TypeV)res;
   }
 
+  /** Atomically compute a mapping for the key if it is not mapped, installing
+   *  the result with a CAS directly on the key's value slot.  The mapping
+   *  function is not called if the key is mapped, but may be called more than
+   *  once if other threads race to insert the key; only one result wins.
+   *  @return the current (existing or computed) value, or <tt>null</tt> if the
+   *          computed value is null
+   *  @throws NullPointerException if the specified key or mappingFunction is null */
+  @Override
+  public TypeV computeIfAbsent( final TypeK key, final Function<? super TypeK, ? extends TypeV> mappingFunction ) {
+    if( mappingFunction == null ) throw new NullPointerException();
+    return (TypeV)compute0(this, _kvs, key, new Remapper(true) {
+      @Override Object remap( Object k, Object oldVal ) {
+        return oldVal != null ? oldVal : mappingFunction.apply((TypeK)k);
+      }
+    });
+  }
+
+  /** Atomically compute a new mapping for the key if it is mapped, installing
+   *  the result with a CAS on the key's value slot.  A null result removes the
+   *  mapping.  The function is called again on the fresh value if the CAS
+   *  loses to a racing update.
+   *  @return the new value, or <tt>null</tt> if none
+   *  @throws NullPointerException if the specified key or remappingFunction is null */
+  @Override
+  public TypeV computeIfPresent( final TypeK key, final BiFunction<? super TypeK, ? super TypeV, ? extends TypeV> remappingFunction ) {
+    if( remappingFunction == null ) throw new NullPointerException();
+    return (TypeV)compute0(this, _kvs, key, new Remapper(false) {
+      @Override Object remap( Object k, Object oldVal ) {
+        return oldVal == null ? null : remappingFunction.apply((TypeK)k, (TypeV)oldVal);
+      }
+    });
+  }
+
+  /** Atomically compute a new mapping for the key from its current mapping (or
+   *  null), installing the result with a CAS on the key's value slot.  A null
+   *  result removes the mapping.  The function is called again on the fresh
+   *  value if the CAS loses to a racing update.
+   *  @return the new value, or <tt>null</tt> if none
+   *  @throws NullPointerException if the specified key or remappingFunction is null */
+  @Override
+  public TypeV compute( final TypeK key, final BiFunction<? super TypeK, ? super TypeV, ? extends TypeV> remappingFunction ) {
+    if( remappingFunction == null ) throw new NullPointerException();
+    return (TypeV)compute0(this, _kvs, key, new Remapper(true) {
+      @Override Object remap( Object k, Object oldVal ) {
+        return remappingFunction.apply((TypeK)k, (TypeV)oldVal);
+      }
+    });
+  }
+
+  /** Atomically map the key to the given value if it is not mapped, or else
+   *  to the result of the remapping function applied to the current value and
+   *  the given value, installing the result with a CAS on the key's value
+   *  slot.  A null result removes the mapping.  The function is called again
+   *  on the fresh value if the CAS loses to a racing update.
+   *  @return the new value, or <tt>null</tt> if none
+   *  @throws NullPointerException if the specified key, value or remappingFunction is null */
+  @Override
+  public TypeV merge( final TypeK key, final TypeV value, final BiFunction<? super TypeV, ? super TypeV, ? extends TypeV> remappingFunction ) {
+    if( value == null || remappingFunction == null ) throw new NullPointerException();
+    return (TypeV)compute0(this, _kvs, key, new Remapper(true) {
+      @Override Object remap( Object k, Object oldVal ) {
+        return oldVal == null ? value : remappingFunction.apply((TypeV)oldVal, value);
+      }
+    });
+  }
+
 
   /** Copies all of the mappings from the specified map to this one, replacing
    *  any existing mappings.
@@ -403,6 +656,22 @@ public class NonBlockingHashMap<TypeK, TypeV>
       ;
   }
 
+  /** Rebuild the table for the current live mappings, dropping the slots
+   *  still held by removed keys and shrinking the table if it is mostly
+   *  empty.  Tables which are mostly removed keys are also compacted
+   *  automatically when they next fill up; this method is for maps which
+   *  have gone quiet after heavy removal.  Nothing is done unless most
+   *  claimed slots hold removed keys or the table is at least twice the size
+   *  the live mappings need.  The calling thread finishes any resize in
+   *  progress and does the whole copy, concurrent operations proceed as
+   *  during any other resize. */
+  public void compact() {
+    final Object[] kvs = snapshot_kvs(); // Finish any resize in progress
+    if( !chm(kvs).worth_compacting(len(kvs)) ) return;
+    chm(kvs).resize(this,kvs,true);      // Start the compacting copy
+    snapshot_kvs();                      // And copy it all over
+  }
+
   /** Returns <tt>true</tt> if this Map maps one or more keys to the specified
    *  value.  <em>Note</em>: This method requires a full internal traversal of the
    *  hash table and is much slower than {@link #containsKey}.
@@ -443,6 +712,8 @@ public class NonBlockingHashMap<TypeK, TypeV>
       //
       // Wipe out the cloned array (it was shallow anyways).
       t.clear();
+      t._counters = null;       // Do not share counters with the original
+      t._reprobes = new ConcurrentAutoTable();
       // Now copy sanely
       for( TypeK K : keySet() ) {
         final TypeV V = get(K);  // Do an official 'get'
@@ -725,6 +996,7 @@ public class NonBlockingHashMap<TypeK, TypeV>
 
       idx = (idx+1)&(len-1); // Reprobe!
     } // End of spinning till we get a Key slot
+    if( reprobe_cnt > 0 ) topmap.record_reprobes(reprobe_cnt);
 
     while ( true ) {              // Spin till we insert a value
       // ---
@@ -810,6 +1082,103 @@ public class NonBlockingHashMap<TypeK, TypeV>
     return (V==null && expVal!=null) ? TOMBSTONE : V;
   }
 
+  // --- compute0 ----------------------------------------------------------
+  // A value update computed from the current value.  Keeps the java.util.function
+  // types out of the table state machine below.
+  private static abstract class Remapper {
+    // If false an absent key is left absent without claiming a key slot
+    final boolean insertsOnAbsent;
+    Remapper( boolean insertsOnAbsent ) { this.insertsOnAbsent = insertsOnAbsent; }
+    // oldVal is null if the key is not mapped.  Returns the new value, null to
+    // remove the mapping, or oldVal itself to leave the mapping unchanged.
+    abstract Object remap( Object key, Object oldVal );
+  }
+
+  /**
+   * Compute, ComputeIfAbsent, ComputeIfPresent and Merge.  Same Key-Claim stanza
+   * as {@link #putIfMatch0}, but instead of matching an expected value the new
+   * value is computed from the value read out of the slot, and the CAS is retried
+   * against the freshly read value on failure.  No re-hash or re-probe happens
+   * between attempts, and the match is an identity compare on the slot.
+   *
+   * @return the value mapped once the update is done, null if none
+   */
+  private static final Object compute0(
+      final NonBlockingHashMap topmap,
+      final Object[] kvs,
+      final Object key,
+      final Remapper fn)
+  {
+    final int fullhash = hash  (key); // throws NullPointerException if key null
+    final int len      = len   (kvs); // Count of key/value pairs, reads kvs.length
+    final CHM chm      = chm   (kvs); // Reads kvs[0]
+    final int[] hashes = hashes(kvs); // Reads kvs[1], read before kvs[0]
+    int idx = fullhash & (len-1);
+
+    // ---
+    // Key-Claim stanza: spin till we can claim a Key (or force a resizing).
+    int reprobe_cnt=0;
+    Object K=null, V=null;
+    Object[] newkvs=null;
+    while( true ) {             // Spin till we get a Key slot
+      V = val(kvs,idx);         // Get old value (before volatile read below!)
+      K = key(kvs,idx);         // Get current key
+      if( K == null ) {         // Slot is free?
+        // Never been in this table, and nothing to add?
+        if( !fn.insertsOnAbsent ) return null;
+        if( CAS_key(kvs,idx, null, key ) ) { // Claim slot for Key
+          chm._slots.add(1);      // Raise key-slots-used count
+          hashes[idx] = fullhash; // Memoize fullhash
+          break;                  // Got it!
+        }
+        int dummy = DUMMY_VOLATILE;
+        continue;
+      }
+      newkvs = chm._newkvs;     // VOLATILE READ before key compare
+      if( keyeq(K,key,hashes,idx,fullhash) )
+        break;                  // Got it!
+      if( ++reprobe_cnt >= reprobe_limit(len) || // too many probes or
+          K == TOMBSTONE ) { // found a TOMBSTONE key, means no more keys
+        newkvs = chm.resize(topmap,kvs);
+        topmap.help_copy(newkvs); // help along an existing copy
+        return compute0(topmap, newkvs, key, fn);
+      }
+      idx = (idx+1)&(len-1); // Reprobe!
+    } // End of spinning till we get a Key slot
+    if( reprobe_cnt > 0 ) topmap.record_reprobes(reprobe_cnt);
+
+    while ( true ) {              // Spin till we insert a value
+      // See putIfMatch0: a fresh key-insert or a Prime forces the new table
+      if( newkvs == null &&
+          ((V == null && chm.tableFull(reprobe_cnt,len)) || V instanceof Prime) )
+        newkvs = chm.resize(topmap,kvs); // Force the new table copy to start
+      // Moving to a new table? Copy our slot and retry in the new table
+      if( newkvs != null )
+        return compute0(topmap, chm.copy_slot_and_check(topmap, kvs, idx, fn), key, fn);
+
+      assert !(V instanceof Prime);
+      final Object oldVal = (V == null || V == TOMBSTONE) ? null : V;
+      final Object newVal = fn.remap(key, oldVal);
+      if( newVal == oldVal ) return newVal; // No change, nothing to CAS
+      final Object putval = newVal == null ? TOMBSTONE : newVal;
+
+      // Actually change the Value in the Key,Value pair
+      if( CAS_val(kvs, idx, V, putval ) ) {
+        // Adjust sizes - a striped counter
+        if( oldVal == null ) chm._size.add( 1);
+        else if( newVal == null ) chm._size.add(-1);
+        return newVal;
+      }
+      // CAS failed, retry against the value that beat us
+      V = val(kvs,idx);
+      if( V instanceof Prime )
+        return compute0(topmap, chm.copy_slot_and_check(topmap, kvs, idx, fn), key, fn);
+      // NOTE: need the fence, since otherwise 'val(kvs,idx)' load could be hoisted
+      // out of loop.
+      int dummy = DUMMY_VOLATILE;
+    }
+  }
+
   // --- help_copy ---------------------------------------------------------
   // Help along an existing resize operation.  This is just a fast cut-out
   // wrapper, to encourage inlining for the fast no-copy-in-progress case.  We
@@ -855,6 +1224,11 @@ public class NonBlockingHashMap<TypeK, TypeV>
     // to get the required memory orderings.  It monotonically transits from
     // null to set (once).
     volatile Object[] _newkvs;
+
+    // When this table was allocated as the target of a resize, and the
+    // map's copy-help count at that time.  Zero for a map's first table.
+    long _resize_start_nanos;
+    long _resize_start_helps;
     private static final AtomicReferenceFieldUpdater<CHM,Object[]> _newkvsUpdater =
       AtomicReferenceFieldUpdater.newUpdater(CHM.class,Object[].class, "_newkvs");
     // Set the _next field if we can.
@@ -906,53 +1280,71 @@ public class NonBlockingHashMap<TypeK, TypeV>
          _slots.estimate_get() >= (len>>1));
     }
 
+    // --- worth_compacting ---------------------------------------------------
+    // Mostly deleted keys, or a table twice the size a compacting resize
+    // would pick for the live keys?
+    private final boolean worth_compacting( int len ) {
+      final long sz = _size.get();
+      return sz*COMPACT_RATIO < _slots.get() || (len > MIN_SIZE && (sz<<3) <= len);
+    }
+
     // --- resize ------------------------------------------------------------
     // Resizing after too many probes.  "How Big???" heuristics are here.
     // Callers will (not this routine) will 'help_copy' any in-progress copy.
     // Since this routine has a fast cutout for copy-already-started, callers
     // MUST 'help_copy' lest we have a path which forever runs through
     // 'resize' only to discover a copy-in-progress which never progresses.
-    private final Object[] resize( NonBlockingHashMap topmap, Object[] kvs) {
+    private final Object[] resize( NonBlockingHashMap topmap, Object[] kvs) { return resize(topmap,kvs,false); }
+    private final Object[] resize( NonBlockingHashMap topmap, Object[] kvs, boolean compact ) {
       assert chm(kvs) == this;
 
       // Check for resize already in progress, probably triggered by another thread
       Object[] newkvs = _newkvs; // VOLATILE READ
       if( newkvs != null )       // See if resize is already in progress
-        return newkvs;           // Use the new table already
+        return skip_copied(newkvs); // Use the new table already
 
       // No copy in-progress, so start one.  First up: compute new table size.
       int oldlen = len(kvs);    // Old count of K,V pairs allowed
       int sz = size();          // Get current table count of active K,V pairs
       int newsz = sz;           // First size estimate
 
-      // Heuristic to determine new size.  We expect plenty of dead-slots-with-keys
-      // and we need some decent padding to avoid endless reprobing.
-      if( sz >= (oldlen>>2) ) { // If we are >25% full of keys then...
-        newsz = oldlen<<1;      // Double size, so new table will be between 12.5% and 25% full
-        // For tables less than 1M entries, if >50% full of keys then...
-        // For tables more than 1M entries, if >75% full of keys then...
-        if( 4L*sz >= ((oldlen>>20)!=0?3L:2L)*oldlen )
-          newsz = oldlen<<2;    // Double double size, so new table will be between %12.5 (18.75%) and 25% (25%)
+      // Explicit compaction: size the new table for the live keys alone, at
+      // most 25% full, and allow it to shrink.  The copy drops deleted keys.
+      if( compact ) {
+        newsz = (int)Math.min((long)sz<<2,oldlen); // Never grow
+      } else {
+        // Heuristic to determine new size.  We expect plenty of dead-slots-with-keys
+        // and we need some decent padding to avoid endless reprobing.
+        if( sz >= (oldlen>>2) ) { // If we are >25% full of keys then...
+          newsz = oldlen<<1;      // Double size, so new table will be between 12.5% and 25% full
+          // For tables less than 1M entries, if >50% full of keys then...
+          // For tables more than 1M entries, if >75% full of keys then...
+          if( 4L*sz >= ((oldlen>>20)!=0?3L:2L)*oldlen )
+            newsz = oldlen<<2;    // Double double size, so new table will be between %12.5 (18.75%) and 25% (25%)
+        }
+        // This heuristic in the next 2 lines leads to a much denser table
+        // with a higher reprobe rate
+        //if( sz >= (oldlen>>1) ) // If we are >50% full of keys then...
+        //  newsz = oldlen<<1;    // Double size
+
+        // Last (re)size operation was very recent?  Then double again
+        // despite having few live keys; slows down resize operations
+        // for tables subject to a high key churn rate - but do not
+        // forever grow the table.  If there is a high key churn rate
+        // the table needs a steady state of rare same-size resize
+        // operations to clean out the dead keys.
+        long tm = System.currentTimeMillis();
+        if( newsz <= oldlen && // New table would shrink or hold steady?
+            tm <= topmap._last_resize_milli+10000 &&  // Recent resize (less than 10 sec ago)
+            // But a table mostly full of deleted keys is cleaned out by a
+            // same-size copy, rather than grown for keys which are gone
+            (long)sz*COMPACT_RATIO >= _slots.estimate_get() )
+          newsz = oldlen<<1;      // Double the existing size
+
+        // Do not shrink, ever.  If we hit this size once, assume we
+        // will again.
+        if( newsz < oldlen ) newsz = oldlen;
       }
-      // This heuristic in the next 2 lines leads to a much denser table
-      // with a higher reprobe rate
-      //if( sz >= (oldlen>>1) ) // If we are >50% full of keys then...
-      //  newsz = oldlen<<1;    // Double size
-
-      // Last (re)size operation was very recent?  Then double again
-      // despite having few live keys; slows down resize operations
-      // for tables subject to a high key churn rate - but do not
-      // forever grow the table.  If there is a high key churn rate
-      // the table needs a steady state of rare same-size resize
-      // operations to clean out the dead keys.
-      long tm = System.currentTimeMillis();
-      if( newsz <= oldlen && // New table would shrink or hold steady?
-          tm <= topmap._last_resize_milli+10000)  // Recent resize (less than 10 sec ago)
-        newsz = oldlen<<1;      // Double the existing size
-
-      // Do not shrink, ever.  If we hit this size once, assume we
-      // will again.
-      if( newsz < oldlen ) newsz = oldlen;
 
       // Convert to power-of-2
       int log2;
@@ -997,6 +1389,9 @@ public class NonBlockingHashMap<TypeK, TypeV>
       newkvs = new Object[(int)len]; // This can get expensive for big arrays
       newkvs[0] = new CHM(_size); // CHM in slot 0
       newkvs[1] = new int[1<<log2]; // hashes in slot 1
+      // Published by the CAS below, read back on promotion
+      chm(newkvs)._resize_start_nanos = System.nanoTime();
+      chm(newkvs)._resize_start_helps = topmap.copy_helps();
 
       // Another check after the slow allocation
       if( _newkvs != null )     // See if resize is already in progress
@@ -1010,12 +1405,25 @@ public class NonBlockingHashMap<TypeK, TypeV>
         //System.out.println(" "+nano+" Resize from "+oldlen+" to "+(1<<log2)+" and had "+(_resizers-1)+" extras" );
         //if( System.out != null ) System.out.print("["+log2);
         topmap.rehash();        // Call for Hashtable's benefit
+        if( topmap._copier != null ) background_copy(topmap,kvs);
       } else                    // CAS failed?
         newkvs = _newkvs;       // Reread new table
       return newkvs;
     }
 
 
+    // Hand the copy of 'oldkvs' to the map's copier.  The task helps like any
+    // other thread, so a copier that is slow, or never runs at all, costs
+    // nothing but the extra incremental work of the map operations.
+    private final void background_copy( final NonBlockingHashMap topmap, final Object[] oldkvs ) {
+      try {
+        topmap._copier.execute(new Runnable() {
+            public void run() { help_copy_impl(topmap,oldkvs,true); }
+          });
+      } catch( RejectedExecutionException e ) { }
+    }
+
+
     // The next part of the table to copy.  It monotonically transits from zero
     // to _kvs.length.  Visitors to the table can claim 'work chunks' by
     // CAS'ing this field up, then copying the indicated indices from the old
@@ -1042,11 +1450,13 @@ public class NonBlockingHashMap<TypeK, TypeV>
       Object[] newkvs = _newkvs;
       assert newkvs != null;    // Already checked by caller
       int oldlen = len(oldkvs); // Total amount to copy
-      final int MIN_COPY_WORK = Math.min(oldlen,1024); // Limit per-thread work
+      final int copy_work = topmap._copy_work; // Zero unless resizing incrementally
+      final int MIN_COPY_WORK = Math.min(oldlen,copy_work == 0 ? 1024 : copy_work); // Limit per-thread work
 
       // ---
       int panic_start = -1;
       int copyidx=-9999;            // Fool javac to think it's initialized
+      if( _copyDone < oldlen ) topmap.record_copy_help(); // For stats
       while( _copyDone < oldlen ) { // Still needing to copy?
         // Carve out a chunk of work.  The counter wraps around so every
         // thread eventually tries to copy every slot repeatedly.
@@ -1082,6 +1492,11 @@ public class NonBlockingHashMap<TypeK, TypeV>
         // Otherwise this thread continues to copy until it is all done.
         if( !copy_all && panic_start == -1 ) // No panic?
           return;       // Then done copying after doing MIN_COPY_WORK
+        // Incremental mode never panics into copying the whole table on
+        // behalf of a map operation: the counter keeps wrapping, so repeated
+        // bounded chunks still copy every slot.
+        if( !copy_all && copy_work != 0 )
+          return;
       }
       // Extra promotion check, in case another thread finished all copying
       // then got stalled before promoting.
@@ -1109,7 +1524,19 @@ public class NonBlockingHashMap<TypeK, TypeV>
       if( copy_slot(topmap,idx,oldkvs,_newkvs) )   // Copy the desired slot
         copy_check_and_promote(topmap, oldkvs, 1); // Record the slot copied
       // Generically help along any copy (except if called recursively from a helper)
-      return (should_help == null) ? newkvs : topmap.help_copy(newkvs);
+      return skip_copied((should_help == null) ? newkvs : topmap.help_copy(newkvs));
+    }
+
+    // --- skip_copied -------------------------------------------------------
+    // A table whose copy is complete holds nothing its new table does not.
+    // Same-size compacting resizes can follow each other quickly, so a
+    // thread which stalled on an old table skips the completed copies here
+    // instead of retrying one table (and one nested call) at a time.
+    private static final Object[] skip_copied( Object[] kvs ) {
+      CHM chm;
+      while( (chm = chm(kvs))._newkvs != null && chm._copyDone == len(kvs) )
+        kvs = chm._newkvs;
+      return kvs;
     }
 
     // --- copy_check_and_promote --------------------------------------------
@@ -1134,6 +1561,7 @@ public class NonBlockingHashMap<TypeK, TypeV>
           // Attempt to promote
           topmap.CAS_kvs(oldkvs,_newkvs) ) {
         topmap._last_resize_milli = System.currentTimeMillis(); // Record resize time for next check
+        topmap.record_resize(chm(_newkvs));
       }
     }
 
@@ -1206,23 +1634,24 @@ public class NonBlockingHashMap<TypeK, TypeV>
   // --- Snapshot ------------------------------------------------------------
   // The main class for iterating over the NBHM.  It "snapshots" a clean
   // view of the K/V array.
+  private Object[] snapshot_kvs() {
+    while( true ) {             // Verify no table-copy-in-progress
+      Object[] topkvs = _kvs;
+      CHM topchm = chm(topkvs);
+      if( topchm._newkvs == null ) // No table-copy-in-progress
+        // The "linearization point" for the iteration.  Every key in this
+        // table will be visited, but keys added later might be skipped or
+        // even be added to a following table (also not iterated over).
+        return topkvs;
+      // Table copy in-progress - so we cannot get a clean iteration.  We
+      // must help finish the table copy before we can start iterating.
+      topchm.help_copy_impl(this,topkvs,true);
+    }
+  }
   private class SnapshotV implements Iterator<TypeV>, Enumeration<TypeV> {
     final Object[] _sskvs;
     public SnapshotV() {
-      while( true ) {           // Verify no table-copy-in-progress
-        Object[] topkvs = _kvs;
-        CHM topchm = chm(topkvs);
-        if( topchm._newkvs == null ) { // No table-copy-in-progress
-          // The "linearization point" for the iteration.  Every key in this
-          // table will be visited, but keys added later might be skipped or
-          // even be added to a following table (also not iterated over).
-          _sskvs = topkvs;
-          break;
-        }
-        // Table copy in-progress - so we cannot get a clean iteration.  We
-        // must help finish the table copy before we can start iterating.
-        topchm.help_copy_impl(NonBlockingHashMap.this,topkvs,true);
-      }
+      _sskvs = snapshot_kvs();
       // Warm-up the iterator
       next();
     }
@@ -1290,6 +1719,7 @@ public class NonBlockingHashMap<TypeK, TypeV>
       @Override public int     size    (          ) { return NonBlockingHashMap.this.size         ( ); }
       @Override public boolean contains( Object v ) { return NonBlockingHashMap.this.containsValue(v); }
       @Override public Iterator<TypeV> iterator()   { return new SnapshotV(); }
+      public Spliterator<TypeV> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,TypeV>(new NBHMSnapshot(), MapSnapshot.VALUES); }
     };
   }
 
@@ -1330,6 +1760,7 @@ public class NonBlockingHashMap<TypeK, TypeV>
       @Override public boolean contains( Object k ) { return NonBlockingHashMap.this.containsKey(k); }
       @Override public boolean remove  ( Object k ) { return NonBlockingHashMap.this.remove  (k) != null; }
       @Override public Iterator<TypeK> iterator()   { return new SnapshotK(); }
+      public Spliterator<TypeK> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,TypeK>(new NBHMSnapshot(), MapSnapshot.KEYS); }
       // This is an efficient implementation of toArray instead of the standard
       // one.  In particular it uses a smart iteration over the NBHM.
       @Override public <T> T[] toArray(T[] a) {
@@ -1420,9 +1851,63 @@ public class NonBlockingHashMap<TypeK, TypeV>
         return v != null && v.equals(e.getValue());
       }
       @Override public Iterator<Map.Entry<TypeK,TypeV>> iterator() { return new SnapshotE(); }
+      public Spliterator<Map.Entry<TypeK,TypeV>> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,Map.Entry<TypeK,TypeV>>(new NBHMSnapshot(), MapSnapshot.ENTRIES); }
     };
   }
 
+  // --- Spliterators and bulk operations ----------------------------------
+  // A snapshot of the clean table, visited by slot index ranges.
+  private class NBHMSnapshot extends MapSnapshot<TypeK,TypeV> {
+    final Object[] _sskvs = snapshot_kvs();
+    int length() { return len(_sskvs); }
+    TypeK key( final int idx ) {
+      final Object K = NonBlockingHashMap.key(_sskvs,idx);
+      return K == null || K == TOMBSTONE ? null : (TypeK)K;
+    }
+    TypeV value( final TypeK key ) { return get(key); }
+    Map.Entry<TypeK,TypeV> entry( final TypeK key, final TypeV val ) { return new NBHMEntry(key,val); }
+    long estimatedSize() { return size(); }
+  }
+
+  /** Performs the given action for each (key, value), splitting the table
+   *  into index ranges that are processed in parallel in the common
+   *  {@link java.util.concurrent.ForkJoinPool}.  Like the iterators, this
+   *  visits a snapshot of the table taken at the start of the call.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel; use
+   *         {@link Long#MAX_VALUE} to run sequentially in the caller
+   *  @param action the action
+   *  @throws NullPointerException if the action is null */
+  public void forEach( final long parallelismThreshold, final BiConsumer<? super TypeK,? super TypeV> action ) {
+    new NBHMSnapshot().forEach(parallelismThreshold, action);
+  }
+
+  /** Returns the result of accumulating all values using the given reducer
+   *  to combine values, or null if none.  The reducer must be associative.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param reducer a commutative associative combining function
+   *  @return the result of accumulating all values
+   *  @throws NullPointerException if the reducer is null */
+  public TypeV reduceValues( final long parallelismThreshold, final BiFunction<? super TypeV,? super TypeV,? extends TypeV> reducer ) {
+    return new NBHMSnapshot().reduceValues(parallelismThreshold, reducer);
+  }
+
+  /** Returns a non-null result from applying the given search function on
+   *  each (key, value), or null if none.  Upon success, further element
+   *  processing is suppressed and the results of any other parallel
+   *  invocations of the search function are ignored.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param searchFunction a function returning a non-null result on
+   *         success, else null
+   *  @return a non-null result from applying the given search function on
+   *          each (key, value), or null if none
+   *  @throws NullPointerException if the search function is null */
+  public <U> U search( final long parallelismThreshold, final BiFunction<? super TypeK,? super TypeV,? extends U> searchFunction ) {
+    return new NBHMSnapshot().search(parallelismThreshold, searchFunction);
+  }
+
   // --- writeObject -------------------------------------------------------
   // Write a NBHM to a stream
   private void writeObject(java.io.ObjectOutputStream s) throws IOException  {
@@ -0,0 +1,753 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+
+/**
+ * A lock-free hash table with <strong>primitive int keys and primitive int
+ * values</strong>, the {@code int -> int} sibling of {@link
+ * NonBlockingHashMapLongLong}.  Keys and values live in {@code int[]}
+ * tables, halving the footprint for counters and indices which fit in an
+ * int.
+ *
+ * <p>The values {@link #NO_VALUE} ({@code Integer.MIN_VALUE}) to {@code
+ * Integer.MIN_VALUE+6} are reserved for the resize state machine and cannot
+ * be stored; {@link #NO_VALUE} is returned by the accessors to signal a
+ * missing mapping.  Key {@code 0} is held outside of the table.
+ *
+ * @see NonBlockingHashMapLongLong
+ */
+public class NonBlockingHashMapIntInt {
+
+  private static final int REPROBE_LIMIT=10; // Too many reprobes then force a table-resize
+
+  // --- Bits to allow Unsafe access to arrays
+  private static final int _Ibase  = UNSAFE.arrayBaseOffset(int[].class);
+  private static final int _Iscale = UNSAFE.arrayIndexScale(int[].class);
+  private static long rawIndex(final int[] ary, final int idx) {
+    assert idx >= 0 && idx < ary.length;
+    // Note the long-math requirement, to handle arrays of more than 2^31 bytes
+    return _Ibase + ((long)idx * _Iscale);
+  }
+
+  // --- Bits to allow Unsafe CAS'ing of the CHM field
+  private static final long _chm_offset = fieldOffset(NonBlockingHashMapIntInt.class, "_chm");
+  private static final long _val_1_offset = fieldOffset(NonBlockingHashMapIntInt.class, "_val_1");
+
+  private final boolean CAS( final long offset, final Object old, final Object nnn ) {
+    return UNSAFE.compareAndSwapObject(this, offset, old, nnn );
+  }
+  private final boolean CAS( final long offset, final int old, final int nnn ) {
+    return UNSAFE.compareAndSwapInt(this, offset, old, nnn );
+  }
+
+  // --- The Hash Table --------------------
+  private transient CHM _chm;
+  // This next field holds the (raw) value for Key 0 - the special key value
+  // which is the initial array value, and also means: no-key-inserted-yet.
+  private transient volatile int _val_1; // Value for Key: NO_KEY
+
+  // Time since last resize
+  private transient long _last_resize_milli;
+
+  // --- Minimum table size ----------------
+  private static final int MIN_SIZE_LOG=4;             //
+  private static final int MIN_SIZE=(1<<MIN_SIZE_LOG); // Must be power of 2
+
+  // --- Raw value encoding ----------------
+  // User values are stored XOR'd with Integer.MIN_VALUE, so that the zero the
+  // Java hands out fresh arrays with stands for 'never set' and the reserved
+  // raw patterns below all sit in the range [0,RESERVED].
+  /** Returned by the accessors when there is no mapping for a key.  This and
+   *  the next 6 values ({@code Integer.MIN_VALUE} to {@code Integer.MIN_VALUE+6})
+   *  are reserved and cannot be stored in the map. */
+  public static final int NO_VALUE = Integer.MIN_VALUE;
+
+  // --- Sentinels -------------------------
+  // A value slot which was never set.  Plays the part of 'null'.
+  private static final int EMPTY     = 0;
+  // This K/V pair has been deleted (but the Key slot is forever claimed).
+  // The same Key can be reinserted with a new value later.
+  private static final int TOMBSTONE = 1;
+  // Prime'd version of TOMBSTONE.  This K/V pair was deleted (or the value
+  // moved into the new table), then a table resize started.  The K/V pair
+  // has been marked so that no new updates can happen to the old table.
+  private static final int TOMBPRIME = 2;
+  // A copier won the race to freeze a live value, and is about to store it
+  // into the new table's _primed side array.  Transient.
+  private static final int FREEZING  = 3;
+  // The live value has been frozen, it can be read from the new table's
+  // _primed side array.  This is the 'Prime' of a live value.
+  private static final int PRIMED    = 4;
+  // No-Match-Old - putIfMatch does updates only if it matches the old value,
+  // and NO_MATCH_OLD basically counts as a wildcard match.
+  private static final int NO_MATCH_OLD = 5;
+  // Match-Any-not-null - putIfMatch does updates only if it find a real old
+  // value.
+  private static final int MATCH_ANY = 6;
+  private static final int RESERVED  = MATCH_ANY;
+
+  private static boolean is_prime( final int V ) { return V >= TOMBPRIME && V <= PRIMED; }
+  private static int encode( final int val ) {
+    final int raw = val ^ Integer.MIN_VALUE;
+    if( raw >= 0 && raw <= RESERVED )
+      throw new IllegalArgumentException("value " + val + " is reserved, must not be in [" + Integer.MIN_VALUE + ", " + (Integer.MIN_VALUE+RESERVED) + "]");
+    return raw;
+  }
+  private static int decode( final int raw ) {
+    assert raw == TOMBSTONE || raw > RESERVED || raw < 0;
+    return raw == TOMBSTONE ? NO_VALUE : raw ^ Integer.MIN_VALUE;
+  }
+
+  // I exclude 1 int from the 2^32 possibilities, and test for it before
+  // entering the main array.  The NO_KEY value must be zero, the initial
+  // value set by Java before it hands me the array.
+  private static final int NO_KEY = 0;
+
+  // --- reprobe_limit -----------------------------------------------------
+  // Heuristic to decide if we have reprobed toooo many times.  Running over
+  // the reprobe limit on a 'get' call acts as a 'miss'; on a 'put' call it
+  // can trigger a table resize.  Several places must have exact agreement on
+  // what the reprobe_limit is, so we share it here.
+  private static int reprobe_limit( int len ) {
+    return REPROBE_LIMIT + (len>>4);
+  }
+
+  // --- NonBlockingHashMapIntInt ------------------------------------------
+  // Constructors
+
+  /** Create a new NonBlockingHashMapIntInt with default minimum size. */
+  public NonBlockingHashMapIntInt( ) { this(MIN_SIZE); }
+
+  /** Create a new NonBlockingHashMapIntInt with initial room for the given
+   *  number of elements, thus avoiding internal resizing operations to reach
+   *  an appropriate size.  The initial size will be rounded up internally to
+   *  the next larger power of 2. */
+  public NonBlockingHashMapIntInt( final int initial_sz ) {
+    RangeUtil.checkPositiveOrZero(initial_sz, "initial_sz");
+    int i;                      // Convert to next largest power-of-2
+    for( i=MIN_SIZE_LOG; (1<<i) < initial_sz; i++ ) {/*empty*/}
+    _chm = new CHM(this,new ConcurrentAutoTable(),i,0);
+    _val_1 = TOMBSTONE;         // Always as-if deleted
+    _last_resize_milli = System.currentTimeMillis();
+  }
+
+  // --- wrappers ------------------------------------------------------------
+
+  /** Returns the number of key-value mappings in this map.
+   *  @return the number of key-value mappings in this map */
+  public int     size       ( )          { return (_val_1==TOMBSTONE?0:1) + _chm.size(); }
+  /** Returns <tt>size() == 0</tt>.
+   *  @return <tt>size() == 0</tt> */
+  public boolean isEmpty    ( )          { return size() == 0; }
+  /** Tests if the key in the table.
+   * @return <tt>true</tt> if the key is in the table */
+  public boolean containsKey( int key ) { return get(key) != NO_VALUE; }
+
+  /** Returns the value to which the specified key is mapped, or {@link
+   *  #NO_VALUE} if this map contains no mapping for the key. */
+  public int    get        ( int key ) { return decode(get_raw(key)); }
+
+  /** Returns the value to which the specified key is mapped, or
+   *  {@code defaultValue} if this map contains no mapping for the key. */
+  public int    getOrDefault( int key, int defaultValue ) {
+    final int raw = get_raw(key);
+    return raw == TOMBSTONE ? defaultValue : decode(raw);
+  }
+
+  /** Maps the specified key to the specified value in the table.
+   *  @return the previous value associated with <tt>key</tt>, or
+   *          {@link #NO_VALUE} if there was no mapping for <tt>key</tt>
+   *  @throws IllegalArgumentException if the value is reserved */
+  public int    put        ( int key, int val ) { return decode(putIfMatch( key,encode(val),NO_MATCH_OLD)); }
+
+  /** Atomically, do a {@link #put} if-and-only-if the key is not mapped.
+   *  @return the previous value associated with the specified key,
+   *         or {@link #NO_VALUE} if there was no mapping for the key
+   *  @throws IllegalArgumentException if the value is reserved */
+  public int    putIfAbsent( int key, int val ) { return decode(putIfMatch( key,encode(val),TOMBSTONE   )); }
+
+  /** Removes the key (and its corresponding value) from this map.
+   *  This method does nothing if the key is not in the map.
+   *  @return the previous value associated with <tt>key</tt>, or
+   *          {@link #NO_VALUE} if there was no mapping for <tt>key</tt>*/
+  public int    remove     ( int key )           { return decode(putIfMatch( key,TOMBSTONE,NO_MATCH_OLD)); }
+
+  /** Atomically do a {@link #remove(int)} if-and-only-if the key is mapped
+   *  to the given value. */
+  public boolean remove     ( int key, int val ) {
+    final int raw = encode(val);
+    return putIfMatch( key,TOMBSTONE,raw ) == raw;
+  }
+
+  /** Atomically do a <code>put(key,val)</code> if-and-only-if the key is
+   *  mapped to some value already.
+   *  @return the previous value associated with the specified key,
+   *         or {@link #NO_VALUE} if there was no mapping for the key
+   *  @throws IllegalArgumentException if the value is reserved */
+  public int    replace    ( int key, int val ) { return decode(putIfMatch( key,encode(val),MATCH_ANY   )); }
+
+  /** Atomically do a <code>put(key,newValue)</code> if-and-only-if the key is
+   *  mapped to <code>oldValue</code>.
+   *  @throws IllegalArgumentException if either value is reserved */
+  public boolean replace    ( int key, int oldValue, int newValue ) {
+    final int raw = encode(oldValue);
+    return putIfMatch( key, encode(newValue), raw ) == raw;
+  }
+
+  /** Atomically adds the given delta to the value mapped to the key, mapping
+   *  the key to {@code delta} if it was not mapped.
+   *  @return the updated value
+   *  @throws IllegalArgumentException if the updated value is reserved */
+  public int    addAndGet  ( int key, int delta ) {
+    while( true ) {
+      final int raw = get_raw(key);
+      if( raw == TOMBSTONE ) {
+        if( putIfMatch( key, encode(delta), TOMBSTONE ) == TOMBSTONE )
+          return delta;
+      } else {
+        final int nval = encode(decode(raw) + delta);
+        if( putIfMatch( key, nval, raw ) == raw )
+          return decode(nval);
+      }
+    }
+  }
+
+  private int putIfMatch( int key, int newVal, int oldVal ) {
+    if( key == NO_KEY ) {
+      int curVal = _val_1;
+      if( oldVal == NO_MATCH_OLD || // Do we care about expected-Value at all?
+          curVal == oldVal ||       // Instant match?
+          (oldVal == MATCH_ANY && curVal != TOMBSTONE) ) {
+        if( !CAS(_val_1_offset,curVal,newVal) ) // One shot CAS update attempt
+          curVal = _val_1;                      // Failed; get failing witness
+      }
+      return curVal;            // Return the last value present
+    }
+    final int res = _chm.putIfMatch( key, newVal, oldVal );
+    assert !is_prime(res) && res != EMPTY;
+    return res;
+  }
+
+  // Never returns a Prime nor EMPTY; a missing mapping is TOMBSTONE.
+  private int get_raw( int key ) {
+    if( key == NO_KEY ) return _val_1;
+    final int V = _chm.get_impl(key);
+    assert !is_prime(V) && V != EMPTY;
+    return V;
+  }
+
+  /** Removes all of the mappings from this map. */
+  public void clear() {         // Smack a new empty table down
+    CHM newchm = new CHM(this,new ConcurrentAutoTable(),MIN_SIZE_LOG,0);
+    while( !CAS(_chm_offset,_chm,newchm) ) { /*Spin until the clear works*/}
+    CAS(_val_1_offset,_val_1,TOMBSTONE);
+  }
+
+  /** Keys as an int array.  Array may be zero-padded if keys are concurrently
+   *  deleted, or miss keys concurrently inserted. */
+  public int[] keySetInt() {
+    int[] dom = new int[size()];
+    int j=0;
+    if( j < dom.length && _val_1 != TOMBSTONE )
+      dom[j++] = NO_KEY;
+    final CHM chm = snapshot_chm();
+    for( int i=0; j < dom.length && i<chm._keys.length; i++ ) {
+      final int K = chm._keys[i];
+      if( K != NO_KEY && get_raw(K) != TOMBSTONE )
+        dom[j++] = K;
+    }
+    return dom;
+  }
+
+  /** Returns a string representation of this map, in the format of {@link
+   *  java.util.AbstractMap#toString}. */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder().append('{');
+    final int[] keys = keySetInt();
+    for( int i=0; i<keys.length; i++ ) {
+      final int V = get(keys[i]);
+      if( V == NO_VALUE ) continue;
+      if( sb.length() > 1 ) sb.append(", ");
+      sb.append(keys[i]).append('=').append(V);
+    }
+    return sb.append('}').toString();
+  }
+
+  // --- help_copy -----------------------------------------------------------
+  // Help along an existing resize operation.  This is just a fast cut-out
+  // wrapper, to encourage inlining for the fast no-copy-in-progress case.  We
+  // always help the top-most table copy, even if there are nested table
+  // copies in progress.
+  private void help_copy( ) {
+    CHM topchm = _chm;
+    if( topchm._newchm == null ) return; // No copy in-progress
+    topchm.help_copy_impl(false);
+  }
+
+  // Help finish any table copy in progress, and return a clean table
+  private CHM snapshot_chm() {
+    CHM topchm;
+    while( (topchm = _chm)._newchm != null ) // Table copy in-progress?
+      topchm.help_copy_impl(true);
+    return topchm;
+  }
+
+
+  // --- CHM -----------------------------------------------------------------
+  // The control structure for the NonBlockingHashMapIntInt
+  private static final class CHM {
+    // Back-pointer to top-level structure
+    final NonBlockingHashMapIntInt _nbhml;
+
+    // Size in active K,V pairs
+    private final ConcurrentAutoTable _size;
+    public int size () { return (int)_size.get(); }
+
+    // Count of used slots, to tell when table is full of dead unusable slots
+    private final ConcurrentAutoTable _slots;
+    public int slots() { return (int)_slots.get(); }
+
+    // ---
+    // New mappings, used during resizing.
+    // The 'next' CHM - created during a resize operation.  This represents
+    // the new table being copied from the old one.  It's the volatile
+    // variable that is read as we cross from one table to the next, to get
+    // the required memory orderings.  It monotonically transits from null to
+    // set (once).
+    volatile CHM _newchm;
+    private static final AtomicReferenceFieldUpdater<CHM,CHM> _newchmUpdater =
+      AtomicReferenceFieldUpdater.newUpdater(CHM.class,CHM.class, "_newchm");
+    // Set the _newchm field if we can.  AtomicUpdaters do not fail spuriously.
+    boolean CAS_newchm( CHM newchm ) {
+      return _newchmUpdater.compareAndSet(this,null,newchm);
+    }
+    // Throttle the number of threads allocating a large new table, see
+    // NonBlockingHashMapLong.
+    volatile long _resizers;    // count of threads attempting an initial resize
+    private static final AtomicLongFieldUpdater<CHM> _resizerUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_resizers");
+
+    // --- key,val -------------------------------------------------------------
+    // Access K,V for a given idx
+    private boolean CAS_key( int idx, int old, int key ) {
+      return UNSAFE.compareAndSwapInt( _keys, rawIndex(_keys, idx), old, key );
+    }
+    private boolean CAS_val( int idx, int old, int val ) {
+      return UNSAFE.compareAndSwapInt( _vals, rawIndex(_vals, idx), old, val );
+    }
+    private int vol_val( int idx ) {
+      return UNSAFE.getIntVolatile( _vals, rawIndex(_vals, idx) );
+    }
+
+    final int [] _keys;
+    final int [] _vals;
+    // Raw live values frozen in the previous table while being copied into
+    // this one, indexed by the previous table slot.  Only written by the
+    // copier which froze the slot, before it publishes PRIMED.
+    final int [] _primed;
+
+    // Simple constructor
+    CHM( final NonBlockingHashMapIntInt nbhml, ConcurrentAutoTable size, final int logsize, final int oldlen ) {
+      _nbhml = nbhml;
+      _size = size;
+      _slots= new ConcurrentAutoTable();
+      _keys = new int[1<<logsize];
+      _vals = new int[1<<logsize];
+      _primed = oldlen == 0 ? null : new int[oldlen];
+    }
+
+    // --- get_impl ----------------------------------------------------------
+    // Never returns a Prime nor EMPTY; a miss is TOMBSTONE.
+    private int get_impl ( final int key ) {
+      final int len     = _keys.length;
+      int idx = key & (len-1); // First key hash
+
+      // Main spin/reprobe loop, looking for a Key hit
+      int reprobe_cnt=0;
+      while( true ) {
+        final int K = _keys[idx]; // Get key   before volatile read, could be NO_KEY
+        final int V = _vals[idx]; // Get value before volatile read, could be EMPTY or Tombstone or Prime
+        if( K == NO_KEY ) return TOMBSTONE; // A clear miss
+
+        // Key-compare
+        if( key == K ) {
+          // Key hit!  Check for no table-copy-in-progress
+          if( !is_prime(V) )    // No copy?
+            return V == EMPTY ? TOMBSTONE : V;
+          // Key hit - but slot is (possibly partially) copied to the new table.
+          // Finish the copy & retry in the new table.
+          return copy_slot_and_check(idx,key).get_impl(key); // Retry in the new table
+        }
+        // get and put must have the same key lookup logic!  But only 'put'
+        // needs to force a table-resize for a too-int key-reprobe sequence.
+        // Check for too-many-reprobes on get.
+        if( ++reprobe_cnt >= reprobe_limit(len) ) // too many probes
+          return _newchm == null // Table copy in progress?
+            ? TOMBSTONE          // Nope!  A clear miss
+            : copy_slot_and_check(idx,key).get_impl(key); // Retry in the new table
+
+        idx = (idx+1)&(len-1);    // Reprobe by 1!  (could now prefetch)
+      }
+    }
+
+    // --- putIfMatch ---------------------------------------------------------
+    // Put, Remove, PutIfAbsent, etc.  Return the old raw value.  If the
+    // returned value is equal to expVal (or expVal is NO_MATCH_OLD) then the
+    // put can be assumed to work (although might have been immediately
+    // overwritten).  Only the path through copy_slot passes in an expected
+    // value of EMPTY, and putIfMatch only returns EMPTY if passed in an
+    // expected EMPTY.
+    private int putIfMatch( final int key, final int putval, final int expVal ) {
+      assert putval != EMPTY && !is_prime(putval);
+      assert !is_prime(expVal);
+      final int len      = _keys.length;
+      int idx = key & (len-1); // The first key
+
+      // ---
+      // Key-Claim stanza: spin till we can claim a Key (or force a resizing).
+      int reprobe_cnt=0;
+      int K;
+      int V;
+      while( true ) {           // Spin till we get a Key slot
+        V = _vals[idx];         // Get old value
+        K = _keys[idx];         // Get current key
+        if( K == NO_KEY ) {     // Slot is free?
+          // Found an empty Key slot - which means this Key has never been in
+          // this table.  No need to put a Tombstone - the Key is not here!
+          if( putval == TOMBSTONE ) return TOMBSTONE; // Not-now & never-been in this table
+          if( expVal == MATCH_ANY ) return TOMBSTONE; // Will not match, even after K inserts
+          // Claim the zero key-slot
+          if( CAS_key(idx, NO_KEY, key) ) { // Claim slot for Key
+            _slots.add(1);      // Raise key-slots-used count
+            break;              // Got it!
+          }
+          // CAS to claim the key-slot failed.  Keys never change once set, so
+          // the re-read is the witness.
+          K = _keys[idx];       // CAS failed, get updated value
+          assert K != NO_KEY ;  // If keys[idx] is NO_KEY, CAS shoulda worked
+        }
+        // Key slot was not null, there exists a Key here
+        if( K == key )
+          break;                // Got it!
+
+        // get and put must have the same key lookup logic!  Lest 'get' give
+        // up looking too soon.
+        if( ++reprobe_cnt >= reprobe_limit(len) ) {
+          // We simply must have a new table to do a 'put'.  At this point a
+          // 'get' will also go to the new table (if any).  We do not need
+          // to claim a key slot (indeed, we cannot find a free one to claim!).
+          final CHM newchm = resize();
+          if( expVal != EMPTY ) _nbhml.help_copy(); // help along an existing copy
+          return newchm.putIfMatch(key,putval,expVal);
+        }
+
+        idx = (idx+1)&(len-1); // Reprobe!
+      } // End of spinning till we get a Key slot
+
+      // ---
+      // Found the proper Key slot, now update the matching Value slot.  We
+      // never put EMPTY, so Value slots monotonically move from EMPTY to
+      // set (deleted Values use Tombstone).
+      if( putval == V ) return V; // Fast cutout for no-change
+
+      // See if we want to move to a new table (to avoid high average re-probe
+      // counts).  We only check on the initial set of a Value from EMPTY to
+      // set (i.e., once per key-insert).
+      if( (V == EMPTY && tableFull(reprobe_cnt,len)) ||
+          // Or we found a Prime: resize is already in progress.  The resize
+          // call below will do a CAS on _newchm forcing the read.
+          is_prime(V) ) {
+        resize();               // Force the new table copy to start
+        return copy_slot_and_check(idx,expVal).putIfMatch(key,putval,expVal);
+      }
+
+      // ---
+      // We are finally prepared to update the existing table.  Must match
+      // old, and we do not?  Then bail out now.  Note that either V or expVal
+      // might be TOMBSTONE.  Also V can be EMPTY, if we've never inserted a
+      // value before.  expVal can be EMPTY if we are called from copy_slot.
+      if( expVal != NO_MATCH_OLD && // Do we care about expected-Value at all?
+          V != expVal &&            // No instant match already?
+          (expVal != MATCH_ANY || V == TOMBSTONE || V == EMPTY) &&
+          !(V==EMPTY && expVal == TOMBSTONE) ) // Match on EMPTY/TOMBSTONE combo
+        return (V==EMPTY) ? TOMBSTONE : V;     // Do not update!
+
+      // Actually change the Value in the Key,Value pair
+      if( CAS_val(idx, V, putval ) ) {
+        // CAS succeeded - we did the update!
+        // Both normal put's and table-copy calls putIfMatch, but table-copy
+        // does not (effectively) increase the number of live k/v pairs.
+        if( expVal != EMPTY ) {
+          // Adjust sizes - a striped counter
+          if(  (V == EMPTY || V == TOMBSTONE) && putval != TOMBSTONE ) _size.add( 1);
+          if( !(V == EMPTY || V == TOMBSTONE) && putval == TOMBSTONE ) _size.add(-1);
+        }
+      } else {                  // Else CAS failed
+        V = _vals[idx];         // Get new value
+        // If a Prime'd value got installed, we need to re-run the put on the
+        // new table.  Otherwise we lost the CAS to another racing put.
+        if( is_prime(V) )
+          return copy_slot_and_check(idx,expVal).putIfMatch(key,putval,expVal);
+      }
+      // Win or lose the CAS, we are done.  If we won then we know the update
+      // happened as expected.  If we lost, it means "we won but another thread
+      // immediately stomped our update with no chance of a reader reading".
+      return (V==EMPTY && expVal!=EMPTY) ? TOMBSTONE : V;
+    }
+
+    // --- tableFull ---------------------------------------------------------
+    // Heuristic to decide if this table is too full, and we should start a
+    // new table.  See NonBlockingHashMapLong for the invariant.
+    private final boolean tableFull( int reprobe_cnt, int len ) {
+      return
+        // Do the cheap check first: we allow some number of reprobes always
+        reprobe_cnt >= REPROBE_LIMIT &&
+        (reprobe_cnt >= reprobe_limit(len) ||
+         // More expensive check: see if the table is > 1/2 full.
+         _slots.estimate_get() >= (len>>1));
+    }
+
+    // --- resize ------------------------------------------------------------
+    // Resizing after too many probes.  "How Big???" heuristics are here, they
+    // are those of NonBlockingHashMapLong optimized for space.  Callers MUST
+    // 'help_copy' lest we have a path which forever runs through 'resize'
+    // only to discover a copy-in-progress which never progresses.
+    private final CHM resize() {
+      // Check for resize already in progress, probably triggered by another thread
+      CHM newchm = _newchm;     // VOLATILE READ
+      if( newchm != null )      // See if resize is already in progress
+        return newchm;          // Use the new table already
+
+      // No copy in-progress, so start one.  First up: compute new table size.
+      int oldlen = _keys.length; // Old count of K,V pairs allowed
+      int sz = size();          // Get current table count of active K,V pairs
+      int newsz = sz;           // First size estimate
+      if( sz >= (oldlen>>1) )   // If we are >50% full of keys then...
+        newsz = oldlen<<1;      // Double size
+
+      // Last (re)size operation was very recent?  Then double again
+      // despite having few live keys, to slow down the churn.
+      long tm = System.currentTimeMillis();
+      if( newsz <= oldlen && // New table would shrink or hold steady?
+          tm <= _nbhml._last_resize_milli+10000)  // Recent resize (less than 10 sec ago)
+        newsz = oldlen<<1;      // Double the existing size
+
+      // Do not shrink, ever.
+      if( newsz < oldlen ) newsz = oldlen;
+
+      // Convert to power-of-2
+      int log2;
+      for( log2=MIN_SIZE_LOG; (1<<log2) < newsz; log2++ ) ; // Compute log2 of size
+      long len = ((1L << log2) << 1) + 2;
+      // prevent integer overflow - limit of 2^31 elements in a Java array
+      if ((int)len!=len) {
+        log2 = 30;
+        len = (1L << log2) + 2;
+        if (sz > ((len >> 2) + (len >> 1))) throw new RuntimeException("Table is full.");
+      }
+
+      // Now limit the number of threads actually allocating memory to a
+      // handful - lest we have 750 threads all trying to allocate a giant
+      // resized array.
+      long r = _resizers;
+      while( !_resizerUpdater.compareAndSet(this,r,r+1) )
+        r = _resizers;
+      // Size calculation: 2 ints (K+V) per table entry, plus the frozen
+      // values of the old table.
+      long megs = ((((1L<<log2)<<1)+oldlen+8)<<2/*int to bytes*/)>>20/*megs*/;
+      if( r >= 2 && megs > 0 ) { // Already 2 guys trying; wait and see
+        newchm = _newchm;        // Between dorking around, another thread did it
+        if( newchm != null )     // See if resize is already in progress
+          return newchm;         // Use the new table already
+        try { Thread.sleep(megs); } catch( Exception e ) { /*empty*/}
+      }
+      // Last check, since the 'new' below is expensive
+      newchm = _newchm;
+      if( newchm != null )      // See if resize is already in progress
+        return newchm;          // Use the new table already
+
+      // New CHM - actually allocate the big arrays
+      newchm = new CHM(_nbhml,_size,log2,oldlen);
+
+      // Another check after the slow allocation
+      if( _newchm != null )     // See if resize is already in progress
+        return _newchm;         // Use the new table already
+
+      // The new table must be CAS'd in so only 1 winner amongst duplicate
+      // racing resizing threads.  Extra CHM's will be GC'd.
+      if( !CAS_newchm( newchm ) ) // NOW a resize-is-in-progress!
+        newchm = _newchm;       // CAS failed?  Reread new table
+      return newchm;
+    }
+
+
+    // The next part of the table to copy.  It monotonically transits from zero
+    // to _keys.length.  Visitors to the table can claim 'work chunks' by
+    // CAS'ing this field up, then copying the indicated indices from the old
+    // table to the new table.
+    volatile long _copyIdx = 0;
+    static private final AtomicLongFieldUpdater<CHM> _copyIdxUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_copyIdx");
+
+    // Work-done reporting.  Used to efficiently signal when we can move to
+    // the new table.  From 0 to len(oldkvs) refers to copying from the old
+    // table to the new.
+    volatile long _copyDone= 0;
+    static private final AtomicLongFieldUpdater<CHM> _copyDoneUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_copyDone");
+
+    // --- help_copy_impl ----------------------------------------------------
+    // Help along an existing resize operation.  We hope its the top-level
+    // copy (it was when we started) but this CHM might have been promoted out
+    // of the top position.
+    private final void help_copy_impl( final boolean copy_all ) {
+      final CHM newchm = _newchm;
+      assert newchm != null;    // Already checked by caller
+      int oldlen = _keys.length; // Total amount to copy
+      final int MIN_COPY_WORK = Math.min(oldlen,1024); // Limit per-thread work
+
+      // ---
+      int panic_start = -1;
+      int copyidx=-9999;            // Fool javac to think it's initialized
+      while( _copyDone < oldlen ) { // Still needing to copy?
+        // Carve out a chunk of work.  The counter wraps around so every
+        // thread eventually tries to copy every slot repeatedly.  We "panic"
+        // if we have tried TWICE to copy every slot, and copy it all ourselves.
+        if( panic_start == -1 ) { // No panic?
+          copyidx = (int)_copyIdx;
+          while( !_copyIdxUpdater.compareAndSet(this,copyidx,copyidx+MIN_COPY_WORK) )
+            copyidx = (int)_copyIdx;     // Re-read
+          if( !(copyidx < (oldlen<<1)) ) // Panic!
+            panic_start = copyidx;       // Record where we started to panic-copy
+        }
+
+        // We now know what to copy.  Try to copy.
+        int workdone = 0;
+        for( int i=0; i<MIN_COPY_WORK; i++ )
+          if( copy_slot((copyidx+i)&(oldlen-1)) ) // Made an oldtable slot go dead?
+            workdone++;         // Yes!
+        if( workdone > 0 )      // Report work-done occasionally
+          copy_check_and_promote( workdone );// See if we can promote
+
+        copyidx += MIN_COPY_WORK;
+        if( !copy_all && panic_start == -1 ) // No panic?
+          return;               // Then done copying after doing MIN_COPY_WORK
+      }
+      // Extra promotion check, in case another thread finished all copying
+      // then got stalled before promoting.
+      copy_check_and_promote( 0 ); // See if we can promote
+    }
+
+
+    // --- copy_slot_and_check -----------------------------------------------
+    // Copy slot 'idx' from the old table to the new table.  If this thread
+    // confirmed the copy, update the counters and check for promotion.
+    // Returns the result of reading the volatile _newchm, mostly as a
+    // convenience to callers.
+    private CHM copy_slot_and_check( int idx, int should_help ) {
+      // We're only here because the caller saw a Prime, which implies a
+      // table-copy is in progress.
+      assert _newchm != null;
+      if( copy_slot(idx) )      // Copy the desired slot
+        copy_check_and_promote(1); // Record the slot copied
+      // Generically help along any copy (except if called recursively from a helper)
+      if( should_help != EMPTY ) _nbhml.help_copy();
+      return _newchm;
+    }
+
+    // --- copy_check_and_promote --------------------------------------------
+    private final void copy_check_and_promote( int workdone ) {
+      int oldlen = _keys.length;
+      // We made a slot unusable and so did some of the needed copy work
+      long copyDone = _copyDone;
+      assert (copyDone+workdone) <= oldlen;
+      if( workdone > 0 ) {
+        while( !_copyDoneUpdater.compareAndSet(this,copyDone,copyDone+workdone) ) {
+          copyDone = _copyDone; // Reload, retry
+          assert (copyDone+workdone) <= oldlen;
+        }
+      }
+
+      // Check for copy being ALL done, and promote.  We only promote
+      // top-level copies.
+      if( copyDone+workdone == oldlen && // Ready to promote this table?
+          _nbhml._chm == this &&         // Looking at the top-level table?
+          // Attempt to promote
+          _nbhml.CAS(_chm_offset,this,_newchm) ) {
+        _nbhml._last_resize_milli = System.currentTimeMillis();  // Record resize time for next check
+      }
+    }
+
+    // --- copy_slot ---------------------------------------------------------
+    // Copy one K/V pair from the old table to the new one.  Returns true if
+    // we can confirm that we set an old-table slot to TOMBPRIME, and only
+    // returns after updating the new table.
+    //
+    // A live value cannot be boxed in place, so it is first CAS'd to
+    // FREEZING, which stops any further update.  The winning thread then
+    // parks the value in the new table's _primed array and publishes PRIMED;
+    // from then on every thread can complete the copy.  A thread finding
+    // FREEZING has to wait for that single store.
+    private boolean copy_slot( int idx ) {
+      // Blindly set the key slot from NO_KEY to some key which hashes here,
+      // to eagerly stop fresh put's from inserting new values in the old
+      // table when the old table is mid-resize.
+      int key;
+      while( (key=_keys[idx]) == NO_KEY )
+        CAS_key(idx, NO_KEY, (idx+_keys.length)/*a non-zero key which hashes here*/);
+
+      // ---
+      // Prevent new values from appearing in the old table.
+      final CHM newchm = _newchm;
+      int oldval = vol_val(idx); // Read OLD table
+      while( oldval != PRIMED ) {
+        if( oldval == TOMBPRIME ) return false; // Copy already complete here!
+        if( oldval == EMPTY || oldval == TOMBSTONE ) {
+          // If we made the Value slot hold a TOMBPRIME, then we both
+          // prevented further updates here but also the (absent) oldval is
+          // vaccuously available in the new table.
+          if( CAS_val(idx,oldval,TOMBPRIME) )
+            return true;
+        } else if( oldval != FREEZING && CAS_val(idx,oldval,FREEZING) ) {
+          newchm._primed[idx] = oldval;
+          UNSAFE.putOrderedInt(_vals, rawIndex(_vals, idx), PRIMED);
+          break;
+        }
+        oldval = vol_val(idx);  // Else try, try again
+      }
+
+      // ---
+      // Copy the value into the new table, but only if we overwrite an EMPTY.
+      // If another value is already in the new table, then somebody else
+      // wrote something there and that write is happens-after any value that
+      // appears in the old table.
+      newchm.putIfMatch(key, newchm._primed[idx], EMPTY);
+
+      // ---
+      // Finally, now that the old value is exposed in the new table, we can
+      // forever hide the old-table value by slapping a TOMBPRIME down.
+      return CAS_val(idx,PRIMED,TOMBPRIME); // True if we slammed the TOMBPRIME down
+    } // end copy_slot
+  } // End of CHM
+}
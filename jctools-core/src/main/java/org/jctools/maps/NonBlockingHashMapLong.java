@@ -21,6 +21,8 @@ import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import static org.jctools.util.UnsafeAccess.UNSAFE;
 import static org.jctools.util.UnsafeAccess.fieldOffset;
@@ -95,6 +97,7 @@ public class NonBlockingHashMapLong<TypeV>
   private static final long serialVersionUID = 1234123412341234124L;
 
   private static final int REPROBE_LIMIT=10; // Too many reprobes then force a table-resize
+  private static final int COMPACT_RATIO=4;  // Fewer than 1 in 4 key slots live?  Resize to compact
 
   // --- Bits to allow Unsafe access to arrays
   private static final int _Obase  = UNSAFE.arrayBaseOffset(Object[].class);
@@ -326,6 +329,22 @@ public class NonBlockingHashMapLong<TypeV>
     CAS(_val_1_offset,_val_1,TOMBSTONE);
   }
 
+  /** Rebuild the table for the current live mappings, dropping the slots
+   *  still held by removed keys and shrinking the table if it is mostly
+   *  empty.  Tables which are mostly removed keys are also compacted
+   *  automatically when they next fill up; this method is for maps which
+   *  have gone quiet after heavy removal.  Nothing is done unless most
+   *  claimed slots hold removed keys or the table is at least twice the size
+   *  the live mappings need.  The calling thread finishes any resize in
+   *  progress and does the whole copy, concurrent operations proceed as
+   *  during any other resize. */
+  public void compact() {
+    final CHM chm = snapshot_chm(); // Finish any resize in progress
+    if( !chm.worth_compacting(chm._keys.length) ) return;
+    chm.resize(true);               // Start the compacting copy
+    snapshot_chm();                 // And copy it all over
+  }
+
   /** Returns <tt>true</tt> if this Map maps one or more keys to the specified
    *  value.  <em>Note</em>: This method requires a full internal traversal of the
    *  hash table and is much slower than {@link #containsKey}.
@@ -679,51 +698,69 @@ public class NonBlockingHashMapLong<TypeV>
          _slots.estimate_get() >= (len>>1));
     }
 
+    // --- worth_compacting ---------------------------------------------------
+    // Mostly deleted keys, or a table twice the size a compacting resize
+    // would pick for the live keys?
+    private final boolean worth_compacting( int len ) {
+      final long sz = _size.get();
+      return sz*COMPACT_RATIO < _slots.get() || (len > MIN_SIZE && (sz<<3) <= len);
+    }
+
     // --- resize ------------------------------------------------------------
     // Resizing after too many probes.  "How Big???" heuristics are here.
     // Callers will (not this routine) will 'help_copy' any in-progress copy.
     // Since this routine has a fast cutout for copy-already-started, callers
     // MUST 'help_copy' lest we have a path which forever runs through
     // 'resize' only to discover a copy-in-progress which never progresses.
-    private final CHM resize() {
+    private final CHM resize() { return resize(false); }
+    private final CHM resize( boolean compact ) {
       // Check for resize already in progress, probably triggered by another thread
       CHM newchm = _newchm;     // VOLATILE READ
       if( newchm != null )      // See if resize is already in progress
-        return newchm;          // Use the new table already
+        return newchm.skip_copied(); // Use the new table already
 
       // No copy in-progress, so start one.  First up: compute new table size.
       int oldlen = _keys.length; // Old count of K,V pairs allowed
       int sz = size();          // Get current table count of active K,V pairs
       int newsz = sz;           // First size estimate
 
-      // Heuristic to determine new size.  We expect plenty of dead-slots-with-keys
-      // and we need some decent padding to avoid endless reprobing.
-      if( _nbhml._opt_for_space ) {
-        // This heuristic leads to a much denser table with a higher reprobe rate
-        if( sz >= (oldlen>>1) ) // If we are >50% full of keys then...
-          newsz = oldlen<<1;    // Double size
+      // Explicit compaction: size the new table for the live keys alone, at
+      // most 25% full, and allow it to shrink.  The copy drops deleted keys.
+      if( compact ) {
+        newsz = (int)Math.min((long)sz<<2,oldlen); // Never grow
       } else {
-        if( sz >= (oldlen>>2) ) { // If we are >25% full of keys then...
-          newsz = oldlen<<1;      // Double size
+        // Heuristic to determine new size.  We expect plenty of dead-slots-with-keys
+        // and we need some decent padding to avoid endless reprobing.
+        if( _nbhml._opt_for_space ) {
+          // This heuristic leads to a much denser table with a higher reprobe rate
           if( sz >= (oldlen>>1) ) // If we are >50% full of keys then...
-            newsz = oldlen<<2;    // Double double size
+            newsz = oldlen<<1;    // Double size
+        } else {
+          if( sz >= (oldlen>>2) ) { // If we are >25% full of keys then...
+            newsz = oldlen<<1;      // Double size
+            if( sz >= (oldlen>>1) ) // If we are >50% full of keys then...
+              newsz = oldlen<<2;    // Double double size
+          }
         }
-      }
 
-      // Last (re)size operation was very recent?  Then double again
-      // despite having few live keys; slows down resize operations
-      // for tables subject to a high key churn rate - but do not
-      // forever grow the table.  If there is a high key churn rate
-      // the table needs a steady state of rare same-size resize
-      // operations to clean out the dead keys.
-      long tm = System.currentTimeMillis();
-      if( newsz <= oldlen && // New table would shrink or hold steady?
-          tm <= _nbhml._last_resize_milli+10000)  // Recent resize (less than 10 sec ago)
-        newsz = oldlen<<1;      // Double the existing size
-
-      // Do not shrink, ever.  If we hit this size once, assume we
-      // will again.
-      if( newsz < oldlen ) newsz = oldlen;
+        // Last (re)size operation was very recent?  Then double again
+        // despite having few live keys; slows down resize operations
+        // for tables subject to a high key churn rate - but do not
+        // forever grow the table.  If there is a high key churn rate
+        // the table needs a steady state of rare same-size resize
+        // operations to clean out the dead keys.
+        long tm = System.currentTimeMillis();
+        if( newsz <= oldlen && // New table would shrink or hold steady?
+            tm <= _nbhml._last_resize_milli+10000 &&  // Recent resize (less than 10 sec ago)
+            // But a table mostly full of deleted keys is cleaned out by a
+            // same-size copy, rather than grown for keys which are gone
+            (long)sz*COMPACT_RATIO >= _slots.estimate_get() )
+          newsz = oldlen<<1;      // Double the existing size
+
+        // Do not shrink, ever.  If we hit this size once, assume we
+        // will again.
+        if( newsz < oldlen ) newsz = oldlen;
+      }
 
       // Convert to power-of-2
       int log2;
@@ -875,7 +912,19 @@ public class NonBlockingHashMapLong<TypeV>
         copy_check_and_promote(1); // Record the slot copied
       // Generically help along any copy (except if called recursively from a helper)
       if( should_help != null ) _nbhml.help_copy();
-      return _newchm;
+      return _newchm.skip_copied();
+    }
+
+    // --- skip_copied -------------------------------------------------------
+    // A table whose copy is complete holds nothing its new table does not.
+    // Same-size compacting resizes can follow each other quickly, so a
+    // thread which stalled on an old table skips the completed copies here
+    // instead of retrying one table (and one nested call) at a time.
+    private CHM skip_copied() {
+      CHM chm = this;
+      while( chm._newchm != null && chm._copyDone == chm._keys.length )
+        chm = chm._newchm;
+      return chm;
     }
 
     // --- copy_check_and_promote --------------------------------------------
@@ -970,22 +1019,25 @@ public class NonBlockingHashMapLong<TypeV>
   // --- Snapshot ------------------------------------------------------------
   // The main class for iterating over the NBHM.  It "snapshots" a clean
   // view of the K/V array.
+  private CHM snapshot_chm() {
+    CHM topchm;
+    while( true ) {             // Verify no table-copy-in-progress
+      topchm = _chm;
+      if( topchm._newchm == null ) // No table-copy-in-progress
+        break;
+      // Table copy in-progress - so we cannot get a clean iteration.  We
+      // must help finish the table copy before we can start iterating.
+      topchm.help_copy_impl(true);
+    }
+    // The "linearization point" for the iteration.  Every key in this table
+    // will be visited, but keys added later might be skipped or even be
+    // added to a following table (also not iterated over).
+    return topchm;
+  }
   private class SnapshotV implements Iterator<TypeV>, Enumeration<TypeV> {
     final CHM _sschm;
     public SnapshotV() {
-      CHM topchm;
-      while( true ) {           // Verify no table-copy-in-progress
-        topchm = _chm;
-        if( topchm._newchm == null ) // No table-copy-in-progress
-          break;
-        // Table copy in-progress - so we cannot get a clean iteration.  We
-        // must help finish the table copy before we can start iterating.
-        topchm.help_copy_impl(true);
-      }
-      // The "linearization point" for the iteration.  Every key in this table
-      // will be visited, but keys added later might be skipped or even be
-      // added to a following table (also not iterated over).
-      _sschm = topchm;
+      _sschm = snapshot_chm();
       // Warm-up the iterator
       _idx = -1;
       next();
@@ -1055,6 +1107,7 @@ public class NonBlockingHashMapLong<TypeV>
       public int     size    (          ) { return NonBlockingHashMapLong.this.size    ( ); }
       public boolean contains( Object v ) { return NonBlockingHashMapLong.this.containsValue(v); }
       public Iterator<TypeV> iterator()   { return new SnapshotV(); }
+      public Spliterator<TypeV> spliterator() { return new MapSnapshot.SnapshotSpliterator<Long,TypeV,TypeV>(new NBHMLSnapshot(), MapSnapshot.VALUES); }
     };
   }
 
@@ -1106,6 +1159,7 @@ public class NonBlockingHashMapLong<TypeV>
       public boolean contains( Object k ) { return NonBlockingHashMapLong.this.containsKey(k); }
       public boolean remove  ( Object k ) { return NonBlockingHashMapLong.this.remove  (k) != null; }
       public IteratorLong iterator()    { return new IteratorLong(); }
+      public Spliterator<Long> spliterator() { return new MapSnapshot.SnapshotSpliterator<Long,TypeV,Long>(new NBHMLSnapshot(), MapSnapshot.KEYS); }
     };
   }
 
@@ -1176,9 +1230,68 @@ public class NonBlockingHashMapLong<TypeV>
         return v != null && v.equals(e.getValue());
       }
       public Iterator<Map.Entry<Long,TypeV>> iterator() { return new SnapshotE(); }
+      public Spliterator<Map.Entry<Long,TypeV>> spliterator() { return new MapSnapshot.SnapshotSpliterator<Long,TypeV,Map.Entry<Long,TypeV>>(new NBHMLSnapshot(), MapSnapshot.ENTRIES); }
     };
   }
 
+  // --- Spliterators and bulk operations ----------------------------------
+  // A snapshot of the clean table, visited by slot index ranges.  Slot 0
+  // stands for the out-of-table NO_KEY mapping, slot i+1 for _keys[i].
+  // Keys are auto-boxed.
+  private class NBHMLSnapshot extends MapSnapshot<Long,TypeV> {
+    final CHM _sschm = snapshot_chm();
+    int length() { return _sschm._keys.length+1; }
+    Long key( final int idx ) {
+      if( idx == 0 ) return _val_1 == TOMBSTONE ? null : Long.valueOf(NO_KEY);
+      final long K = _sschm._keys[idx-1];
+      return K == NO_KEY ? null : Long.valueOf(K);
+    }
+    TypeV value( final Long key ) { return get(key.longValue()); }
+    Map.Entry<Long,TypeV> entry( final Long key, final TypeV val ) { return new NBHMLEntry(key,val); }
+    long estimatedSize() { return size(); }
+  }
+
+  /** Performs the given action for each (key, value), splitting the table
+   *  into index ranges that are processed in parallel in the common
+   *  {@link java.util.concurrent.ForkJoinPool}.  Like the iterators, this
+   *  visits a snapshot of the table taken at the start of the call.
+   *  <strong>Warning:</strong> this version will auto-box all keys.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel; use
+   *         {@link Long#MAX_VALUE} to run sequentially in the caller
+   *  @param action the action
+   *  @throws NullPointerException if the action is null */
+  public void forEach( final long parallelismThreshold, final BiConsumer<? super Long,? super TypeV> action ) {
+    new NBHMLSnapshot().forEach(parallelismThreshold, action);
+  }
+
+  /** Returns the result of accumulating all values using the given reducer
+   *  to combine values, or null if none.  The reducer must be associative.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param reducer a commutative associative combining function
+   *  @return the result of accumulating all values
+   *  @throws NullPointerException if the reducer is null */
+  public TypeV reduceValues( final long parallelismThreshold, final BiFunction<? super TypeV,? super TypeV,? extends TypeV> reducer ) {
+    return new NBHMLSnapshot().reduceValues(parallelismThreshold, reducer);
+  }
+
+  /** Returns a non-null result from applying the given search function on
+   *  each (key, value), or null if none.  Upon success, further element
+   *  processing is suppressed and the results of any other parallel
+   *  invocations of the search function are ignored.
+   *  <strong>Warning:</strong> this version will auto-box all keys.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param searchFunction a function returning a non-null result on
+   *         success, else null
+   *  @return a non-null result from applying the given search function on
+   *          each (key, value), or null if none
+   *  @throws NullPointerException if the search function is null */
+  public <U> U search( final long parallelismThreshold, final BiFunction<? super Long,? super TypeV,? extends U> searchFunction ) {
+    return new NBHMLSnapshot().search(parallelismThreshold, searchFunction);
+  }
+
   // --- writeObject -------------------------------------------------------
   // Write a NBHML to a stream
   private void writeObject(java.io.ObjectOutputStream s) throws IOException  {
@@ -0,0 +1,938 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps;
+
+import org.jctools.util.RangeUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+
+/**
+ * A lock-free hash table with primitive long keys and values, whose table
+ * lives <strong>off the Java heap</strong>.  This is {@link
+ * NonBlockingHashMapLongLong} with the key and value arrays replaced by raw
+ * memory, so that a table of hundreds of millions of entries costs the
+ * garbage collector nothing to mark or move.  The lock-free insert, CAS and
+ * resize protocol, the reserved values and the API are those of {@link
+ * NonBlockingHashMapLongLong}.
+ *
+ * <p>The memory is not managed by the collector, so the map must be {@link
+ * #close() closed} once no thread uses it any more; using it after that
+ * throws {@link IllegalStateException}.  A lagging reader may still be
+ * probing a table which was just resized away or cleared, so replaced tables
+ * are only freed by {@link #close()} as well.  Since tables double on each
+ * resize, that is at most about as much memory again as the live table,
+ * unless {@link #clear()} is called repeatedly.
+ *
+ * <p>With {@link #NonBlockingHashMapLongLongOffHeap(File, int)} the tables
+ * are mapped from a file instead, and the contents survive a {@link #close()}
+ * and reopen.  A file which was not closed (e.g. after a crash) may be
+ * mid-resize and is refused.  Each table is appended to the file as it is
+ * allocated, so a map which resizes leaves the replaced tables as dead space
+ * in the file; size the map up front to avoid it.  Mapped chunks are
+ * unmapped when the collector reclaims them after {@link #close()}.
+ *
+ * @see NonBlockingHashMapLongLong
+ */
+public class NonBlockingHashMapLongLongOffHeap implements Closeable {
+
+  private static final int REPROBE_LIMIT=10; // Too many reprobes then force a table-resize
+
+  // --- Bits to allow Unsafe CAS'ing of the CHM field
+  private static final long _chm_offset = fieldOffset(NonBlockingHashMapLongLongOffHeap.class, "_chm");
+  private static final long _val_1_offset = fieldOffset(NonBlockingHashMapLongLongOffHeap.class, "_val_1");
+  // The native address of a direct (mapped) buffer
+  private static final long _address_offset = fieldOffset(Buffer.class, "address");
+
+  private final boolean CAS( final long offset, final Object old, final Object nnn ) {
+    return UNSAFE.compareAndSwapObject(this, offset, old, nnn );
+  }
+  private final boolean CAS( final long offset, final long old, final long nnn ) {
+    return UNSAFE.compareAndSwapLong(this, offset, old, nnn );
+  }
+
+  // --- The Hash Table --------------------
+  private transient CHM _chm;
+  // This next field holds the (raw) value for Key 0 - the special key value
+  // which is the initial memory value, and also means: no-key-inserted-yet.
+  private transient volatile long _val_1; // Value for Key: NO_KEY
+
+  // Time since last resize
+  private transient long _last_resize_milli;
+
+  // Every table ever published, freed together by close().  Tables which
+  // lose the race to be published are freed straight away.
+  private final ConcurrentLinkedQueue<CHM> _tables = new ConcurrentLinkedQueue<CHM>();
+
+  // --- Minimum table size ----------------
+  private static final int MIN_SIZE_LOG=4;             //
+  private static final int MIN_SIZE=(1<<MIN_SIZE_LOG); // Must be power of 2
+
+  // --- Table memory ----------------------
+  // A slot is 16 bytes: the key, then the value.  A table is split into
+  // chunks of 2^CHUNK_LOG slots (1GB) so each chunk fits in a single file
+  // mapping; malloc'd tables are chunked the same way for simplicity.
+  private static final int  CHUNK_LOG  = 26;
+  private static final int  CHUNK_MASK = (1<<CHUNK_LOG)-1;
+  private static final long CHUNK_BYTES= 1L<<(CHUNK_LOG+4);
+
+  // --- File layout -----------------------
+  // A header page, then the tables appended as they are allocated.  The
+  // header names the current table, and is only brought up to date by
+  // close(); while the map is open it is flagged dirty.
+  private static final long MAGIC = 0x4e42484d4c4c4f48L; // "NBHMLLOH"
+  private static final int  HEADER_BYTES = 4096;
+  private static final int  H_MAGIC  = 0;  // MAGIC
+  private static final int  H_DIRTY  = 8;  // Non-zero while the map is open
+  private static final int  H_OFFSET = 16; // File offset of the current table
+  private static final int  H_LOG    = 24; // Log2 of the current table's slots
+  private static final int  H_VAL_1  = 32; // Raw value for Key: NO_KEY
+
+  private final RandomAccessFile _raf;      // Null unless mapped from a file
+  private final FileChannel _file;
+  private final MappedByteBuffer _header_map;
+  private final long _header;               // Address of the header page
+  private final AtomicLong _file_end;       // Where the next table goes
+
+  // --- Raw value encoding ----------------
+  // As in NonBlockingHashMapLongLong: user values are stored XOR'd with
+  // Long.MIN_VALUE, so that zeroed memory stands for 'never set' and the
+  // reserved raw patterns below all sit in the range [0,RESERVED].
+  /** Returned by the accessors when there is no mapping for a key.  This and
+   *  the next 6 values ({@code Long.MIN_VALUE} to {@code Long.MIN_VALUE+6})
+   *  are reserved and cannot be stored in the map. */
+  public static final long NO_VALUE = Long.MIN_VALUE;
+
+  // --- Sentinels -------------------------
+  // See NonBlockingHashMapLongLong for the meaning of each
+  private static final long EMPTY     = 0;
+  private static final long TOMBSTONE = 1;
+  private static final long TOMBPRIME = 2;
+  private static final long FREEZING  = 3;
+  private static final long PRIMED    = 4;
+  private static final long NO_MATCH_OLD = 5;
+  private static final long MATCH_ANY = 6;
+  private static final long RESERVED  = MATCH_ANY;
+
+  private static boolean is_prime( final long V ) { return V >= TOMBPRIME && V <= PRIMED; }
+  private static long encode( final long val ) {
+    final long raw = val ^ Long.MIN_VALUE;
+    if( raw >= 0 && raw <= RESERVED )
+      throw new IllegalArgumentException("value " + val + " is reserved, must not be in [" + Long.MIN_VALUE + ", " + (Long.MIN_VALUE+RESERVED) + "]");
+    return raw;
+  }
+  private static long decode( final long raw ) {
+    assert raw == TOMBSTONE || raw > RESERVED || raw < 0;
+    return raw == TOMBSTONE ? NO_VALUE : raw ^ Long.MIN_VALUE;
+  }
+
+  // I exclude 1 long from the 2^64 possibilities, and test for it before
+  // entering the main table.  The NO_KEY value must be zero, the value of
+  // freshly zeroed memory.
+  private static final long NO_KEY = 0L;
+
+  // --- reprobe_limit -----------------------------------------------------
+  // Heuristic to decide if we have reprobed toooo many times.  Several
+  // places must have exact agreement on what the reprobe_limit is.
+  private static int reprobe_limit( int len ) {
+    return REPROBE_LIMIT + (len>>4);
+  }
+
+  // --- NonBlockingHashMapLongLongOffHeap -----------------------------------
+  // Constructors
+
+  /** Create a new NonBlockingHashMapLongLongOffHeap with default minimum size. */
+  public NonBlockingHashMapLongLongOffHeap( ) { this(MIN_SIZE); }
+
+  /** Create a new NonBlockingHashMapLongLongOffHeap with initial room for
+   *  the given number of elements, thus avoiding internal resizing
+   *  operations to reach an appropriate size.  The initial size will be
+   *  rounded up internally to the next larger power of 2. */
+  public NonBlockingHashMapLongLongOffHeap( final int initial_sz ) {
+    _raf = null;
+    _file = null;
+    _header_map = null;
+    _header = 0;
+    _file_end = null;
+    publish(new CHM(this,new ConcurrentAutoTable(),log2(initial_sz),0,-1));
+    _val_1 = TOMBSTONE;         // Always as-if deleted
+  }
+
+  /** Open a NonBlockingHashMapLongLongOffHeap whose tables are mapped from
+   *  {@code file}.  An empty or missing file is initialized with room for
+   *  {@code initial_sz} elements, as for {@link
+   *  #NonBlockingHashMapLongLongOffHeap(int)}; otherwise the map left by the
+   *  last {@link #close()} of the file is reopened, and initial_sz ignored.
+   *  @throws IOException if the file cannot be mapped, is not such a map, or
+   *          was not closed */
+  public NonBlockingHashMapLongLongOffHeap( final File file, final int initial_sz ) throws IOException {
+    final int log2 = log2(initial_sz);
+    _raf = new RandomAccessFile(file, "rw");
+    boolean ok = false;
+    try {
+      _file = _raf.getChannel();
+      final long len = _file.size();
+      _header_map = _file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+      _header = address(_header_map);
+      if( len == 0 ) {          // A new file
+        _file_end = new AtomicLong(HEADER_BYTES);
+        publish(new CHM(this,new ConcurrentAutoTable(),log2,0,-1));
+        _val_1 = TOMBSTONE;
+      } else {                  // Reopen the table left by close()
+        if( len < HEADER_BYTES || UNSAFE.getLong(_header+H_MAGIC) != MAGIC )
+          throw new IOException(file + " does not hold a " + getClass().getSimpleName());
+        if( UNSAFE.getLong(_header+H_DIRTY) != 0 )
+          throw new IOException(file + " was not closed, the table may be mid-resize");
+        _file_end = new AtomicLong(align(len));
+        final CHM chm = new CHM(this,new ConcurrentAutoTable(),(int)UNSAFE.getLong(_header+H_LOG),0,UNSAFE.getLong(_header+H_OFFSET));
+        chm.recount();
+        publish(chm);
+        _val_1 = UNSAFE.getLong(_header+H_VAL_1);
+      }
+      write_header(_chm, 1);
+      ok = true;
+    } finally {
+      if( !ok ) _raf.close();
+    }
+  }
+
+  private void publish( final CHM chm ) {
+    _tables.add(chm);
+    _chm = chm;
+    _last_resize_milli = System.currentTimeMillis();
+  }
+
+  private static int log2( final int initial_sz ) {
+    RangeUtil.checkPositiveOrZero(initial_sz, "initial_sz");
+    int i;                      // Convert to next largest power-of-2
+    for( i=MIN_SIZE_LOG; (1<<i) < initial_sz; i++ ) {/*empty*/}
+    return i;
+  }
+  private static long align( final long off ) { return (off+HEADER_BYTES-1) & -HEADER_BYTES; }
+  private static long address( final Buffer buf ) { return UNSAFE.getLong(buf, _address_offset); }
+
+  private void write_header( final CHM chm, final long dirty ) throws IOException {
+    UNSAFE.putLong(_header+H_OFFSET, chm._offset);
+    UNSAFE.putLong(_header+H_LOG, Integer.numberOfTrailingZeros(chm._len));
+    UNSAFE.putLong(_header+H_VAL_1, _val_1);
+    UNSAFE.putLong(_header+H_MAGIC, MAGIC);
+    UNSAFE.putLongVolatile(null, _header+H_DIRTY, dirty);
+    _header_map.force();
+  }
+
+  // The current table; the map must not be used after close()
+  private CHM chm() {
+    final CHM chm = _chm;
+    if( chm == null ) throw new IllegalStateException("closed");
+    return chm;
+  }
+
+  // --- close ---------------------------------------------------------------
+  /** Free the memory of all tables, or write back and release the file.  The
+   *  map must no longer be used by any thread; further calls fail with
+   *  {@link IllegalStateException}.  Closing twice does nothing. */
+  public void close() throws IOException {
+    if( _chm == null ) return;
+    final CHM chm = snapshot_chm(); // Finish any copy, for the file's sake
+    _chm = null;
+    try {
+      if( _file != null ) {
+        chm.force();
+        write_header(chm, 0);
+      }
+    } finally {
+      CHM t;
+      while( (t = _tables.poll()) != null )
+        t.free();
+      if( _raf != null ) _raf.close();
+    }
+  }
+
+  // --- wrappers ------------------------------------------------------------
+
+  /** Returns the number of key-value mappings in this map.
+   *  @return the number of key-value mappings in this map */
+  public int     size       ( )          { return (_val_1==TOMBSTONE?0:1) + chm().size(); }
+  /** Returns <tt>size() == 0</tt>.
+   *  @return <tt>size() == 0</tt> */
+  public boolean isEmpty    ( )          { return size() == 0; }
+  /** Tests if the key in the table.
+   * @return <tt>true</tt> if the key is in the table */
+  public boolean containsKey( long key ) { return get(key) != NO_VALUE; }
+
+  /** Returns the value to which the specified key is mapped, or {@link
+   *  #NO_VALUE} if this map contains no mapping for the key. */
+  public long    get        ( long key ) { return decode(get_raw(key)); }
+
+  /** Returns the value to which the specified key is mapped, or
+   *  {@code defaultValue} if this map contains no mapping for the key. */
+  public long    getOrDefault( long key, long defaultValue ) {
+    final long raw = get_raw(key);
+    return raw == TOMBSTONE ? defaultValue : decode(raw);
+  }
+
+  /** Maps the specified key to the specified value in the table.
+   *  @return the previous value associated with <tt>key</tt>, or
+   *          {@link #NO_VALUE} if there was no mapping for <tt>key</tt>
+   *  @throws IllegalArgumentException if the value is reserved */
+  public long    put        ( long key, long val ) { return decode(putIfMatch( key,encode(val),NO_MATCH_OLD)); }
+
+  /** Atomically, do a {@link #put} if-and-only-if the key is not mapped.
+   *  @return the previous value associated with the specified key,
+   *         or {@link #NO_VALUE} if there was no mapping for the key
+   *  @throws IllegalArgumentException if the value is reserved */
+  public long    putIfAbsent( long key, long val ) { return decode(putIfMatch( key,encode(val),TOMBSTONE   )); }
+
+  /** Removes the key (and its corresponding value) from this map.
+   *  This method does nothing if the key is not in the map.
+   *  @return the previous value associated with <tt>key</tt>, or
+   *          {@link #NO_VALUE} if there was no mapping for <tt>key</tt>*/
+  public long    remove     ( long key )           { return decode(putIfMatch( key,TOMBSTONE,NO_MATCH_OLD)); }
+
+  /** Atomically do a {@link #remove(long)} if-and-only-if the key is mapped
+   *  to the given value. */
+  public boolean remove     ( long key, long val ) {
+    final long raw = encode(val);
+    return putIfMatch( key,TOMBSTONE,raw ) == raw;
+  }
+
+  /** Atomically do a <code>put(key,val)</code> if-and-only-if the key is
+   *  mapped to some value already.
+   *  @return the previous value associated with the specified key,
+   *         or {@link #NO_VALUE} if there was no mapping for the key
+   *  @throws IllegalArgumentException if the value is reserved */
+  public long    replace    ( long key, long val ) { return decode(putIfMatch( key,encode(val),MATCH_ANY   )); }
+
+  /** Atomically do a <code>put(key,newValue)</code> if-and-only-if the key is
+   *  mapped to <code>oldValue</code>.
+   *  @throws IllegalArgumentException if either value is reserved */
+  public boolean replace    ( long key, long oldValue, long newValue ) {
+    final long raw = encode(oldValue);
+    return putIfMatch( key, encode(newValue), raw ) == raw;
+  }
+
+  /** Atomically adds the given delta to the value mapped to the key, mapping
+   *  the key to {@code delta} if it was not mapped.
+   *  @return the updated value
+   *  @throws IllegalArgumentException if the updated value is reserved */
+  public long    addAndGet  ( long key, long delta ) {
+    while( true ) {
+      final long raw = get_raw(key);
+      if( raw == TOMBSTONE ) {
+        if( putIfMatch( key, encode(delta), TOMBSTONE ) == TOMBSTONE )
+          return delta;
+      } else {
+        final long nval = encode(decode(raw) + delta);
+        if( putIfMatch( key, nval, raw ) == raw )
+          return decode(nval);
+      }
+    }
+  }
+
+  private long putIfMatch( long key, long newVal, long oldVal ) {
+    final CHM chm = chm();
+    if( key == NO_KEY ) {
+      long curVal = _val_1;
+      if( oldVal == NO_MATCH_OLD || // Do we care about expected-Value at all?
+          curVal == oldVal ||       // Instant match?
+          (oldVal == MATCH_ANY && curVal != TOMBSTONE) ) {
+        if( !CAS(_val_1_offset,curVal,newVal) ) // One shot CAS update attempt
+          curVal = _val_1;                      // Failed; get failing witness
+      }
+      return curVal;            // Return the last value present
+    }
+    final long res = chm.putIfMatch( key, newVal, oldVal );
+    assert !is_prime(res) && res != EMPTY;
+    return res;
+  }
+
+  // Never returns a Prime nor EMPTY; a missing mapping is TOMBSTONE.
+  private long get_raw( long key ) {
+    final CHM chm = chm();
+    if( key == NO_KEY ) return _val_1;
+    final long V = chm.get_impl(key);
+    assert !is_prime(V) && V != EMPTY;
+    return V;
+  }
+
+  /** Removes all of the mappings from this map.  The replaced table is only
+   *  freed by {@link #close()}. */
+  public void clear() {         // Smack a new empty table down
+    CHM newchm = new CHM(this,new ConcurrentAutoTable(),MIN_SIZE_LOG,0,-1);
+    _tables.add(newchm);
+    while( !CAS(_chm_offset,chm(),newchm) ) { /*Spin until the clear works*/}
+    CAS(_val_1_offset,_val_1,TOMBSTONE);
+  }
+
+  /** Keys as a long array.  Array may be zero-padded if keys are concurrently
+   *  deleted, or miss keys concurrently inserted. */
+  public long[] keySetLong() {
+    long[] dom = new long[size()];
+    int j=0;
+    if( j < dom.length && _val_1 != TOMBSTONE )
+      dom[j++] = NO_KEY;
+    final CHM chm = snapshot_chm();
+    for( int i=0; j < dom.length && i<chm._len; i++ ) {
+      final long K = chm.key(i);
+      if( K != NO_KEY && get_raw(K) != TOMBSTONE )
+        dom[j++] = K;
+    }
+    return dom;
+  }
+
+  /** Returns a string representation of this map, in the format of {@link
+   *  java.util.AbstractMap#toString}. */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder().append('{');
+    final long[] keys = keySetLong();
+    for( int i=0; i<keys.length; i++ ) {
+      final long V = get(keys[i]);
+      if( V == NO_VALUE ) continue;
+      if( sb.length() > 1 ) sb.append(", ");
+      sb.append(keys[i]).append('=').append(V);
+    }
+    return sb.append('}').toString();
+  }
+
+  // --- help_copy -----------------------------------------------------------
+  // Help along an existing resize operation.  This is just a fast cut-out
+  // wrapper, to encourage inlining for the fast no-copy-in-progress case.  We
+  // always help the top-most table copy, even if there are nested table
+  // copies in progress.
+  private void help_copy( ) {
+    CHM topchm = _chm;
+    if( topchm._newchm == null ) return; // No copy in-progress
+    topchm.help_copy_impl(false);
+  }
+
+  // Help finish any table copy in progress, and return a clean table
+  private CHM snapshot_chm() {
+    CHM topchm;
+    while( (topchm = chm())._newchm != null ) // Table copy in-progress?
+      topchm.help_copy_impl(true);
+    return topchm;
+  }
+
+
+  // --- CHM -----------------------------------------------------------------
+  // The control structure for the NonBlockingHashMapLongLongOffHeap
+  private static final class CHM {
+    // Back-pointer to top-level structure
+    final NonBlockingHashMapLongLongOffHeap _nbhml;
+
+    // Size in active K,V pairs
+    private final ConcurrentAutoTable _size;
+    public int size () { return (int)_size.get(); }
+
+    // Count of used slots, to tell when table is full of dead unusable slots
+    private final ConcurrentAutoTable _slots;
+    public int slots() { return (int)_slots.get(); }
+
+    // ---
+    // New mappings, used during resizing.
+    // The 'next' CHM - created during a resize operation.  This represents
+    // the new table being copied from the old one.  It's the volatile
+    // variable that is read as we cross from one table to the next, to get
+    // the required memory orderings.  It monotonically transits from null to
+    // set (once).
+    volatile CHM _newchm;
+    private static final AtomicReferenceFieldUpdater<CHM,CHM> _newchmUpdater =
+      AtomicReferenceFieldUpdater.newUpdater(CHM.class,CHM.class, "_newchm");
+    // Set the _newchm field if we can.  AtomicUpdaters do not fail spuriously.
+    boolean CAS_newchm( CHM newchm ) {
+      return _newchmUpdater.compareAndSet(this,null,newchm);
+    }
+    // Throttle the number of threads allocating a large new table, see
+    // NonBlockingHashMapLong.
+    volatile long _resizers;    // count of threads attempting an initial resize
+    private static final AtomicLongFieldUpdater<CHM> _resizerUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_resizers");
+
+    // --- key,val -------------------------------------------------------------
+    // Access K,V for a given idx
+    private long slot( int idx ) {
+      assert idx >= 0 && idx < _len;
+      return _base[idx>>>CHUNK_LOG] + ((long)(idx&CHUNK_MASK)<<4);
+    }
+    private long key( int idx ) { return UNSAFE.getLong(slot(idx)); }
+    private long val( int idx ) { return UNSAFE.getLong(slot(idx)+8); }
+    private boolean CAS_key( int idx, long old, long key ) {
+      return UNSAFE.compareAndSwapLong( null, slot(idx), old, key );
+    }
+    private boolean CAS_val( int idx, long old, long val ) {
+      return UNSAFE.compareAndSwapLong( null, slot(idx)+8, old, val );
+    }
+    private long vol_val( int idx ) {
+      return UNSAFE.getLongVolatile( null, slot(idx)+8 );
+    }
+
+    final int _len;             // Count of K,V slots, a power of 2
+    final long[] _base;         // Address of each chunk of slots
+    // Raw live values frozen in the previous table while being copied into
+    // this one, indexed by the previous table slot.  Only written by the
+    // copier which froze the slot, before it publishes PRIMED.  Always
+    // malloc'd; zero when there is no previous table.
+    final long _primed;
+    // The file mapping of each chunk and where the table starts in the file,
+    // or null and -1 when the table is malloc'd
+    final MappedByteBuffer[] _maps;
+    final long _offset;
+
+    // Simple constructor.  A mapped table is appended to the file, unless
+    // 'offset' names an existing table to reopen.
+    CHM( final NonBlockingHashMapLongLongOffHeap nbhml, ConcurrentAutoTable size, final int logsize, final int oldlen, final long offset ) {
+      _nbhml = nbhml;
+      _size = size;
+      _slots= new ConcurrentAutoTable();
+      _len  = 1<<logsize;
+      _base = new long[((_len-1)>>>CHUNK_LOG)+1];
+      final long bytes = (long)_len<<4;
+      if( nbhml._file == null ) {
+        _maps = null;
+        _offset = -1;
+        for( int c=0; c<_base.length; c++ )
+          _base[c] = allocate(Math.min(CHUNK_BYTES, bytes-c*CHUNK_BYTES));
+      } else {
+        _maps = new MappedByteBuffer[_base.length];
+        _offset = offset >= 0 ? offset : nbhml._file_end.getAndAdd(align(bytes));
+        try {
+          for( int c=0; c<_base.length; c++ ) {
+            // Mapping past the end of the file grows it with zeros
+            _maps[c] = nbhml._file.map(FileChannel.MapMode.READ_WRITE, _offset+c*CHUNK_BYTES, Math.min(CHUNK_BYTES, bytes-c*CHUNK_BYTES));
+            _base[c] = address(_maps[c]);
+          }
+        } catch( IOException e ) {
+          throw new RuntimeException("Cannot map table", e);
+        }
+      }
+      _primed = oldlen == 0 ? 0 : allocate((long)oldlen<<3);
+    }
+
+    private static long allocate( final long bytes ) {
+      final long addr = UNSAFE.allocateMemory(bytes);
+      UNSAFE.setMemory(addr, bytes, (byte)0);
+      return addr;
+    }
+
+    // Release the memory; mapped chunks go when the buffers are collected
+    void free() {
+      if( _maps == null )
+        for( long base : _base )
+          UNSAFE.freeMemory(base);
+      if( _primed != 0 )
+        UNSAFE.freeMemory(_primed);
+    }
+
+    // Write a mapped table back to the file
+    void force() {
+      for( MappedByteBuffer map : _maps )
+        map.force();
+    }
+
+    // Rebuild the counters of a reopened table
+    void recount() {
+      long slots = 0, size = 0;
+      for( int i=0; i<_len; i++ ) {
+        if( key(i) == NO_KEY ) continue;
+        slots++;
+        final long V = val(i);
+        if( V != EMPTY && V != TOMBSTONE ) size++;
+      }
+      _slots.add(slots);
+      _size.add(size);
+    }
+
+    // --- get_impl ----------------------------------------------------------
+    // Never returns a Prime nor EMPTY; a miss is TOMBSTONE.
+    private long get_impl ( final long key ) {
+      final int len     = _len;
+      int idx = (int)(key & (len-1)); // First key hash
+
+      // Main spin/reprobe loop, looking for a Key hit
+      int reprobe_cnt=0;
+      while( true ) {
+        final long K = key(idx); // Get key   before volatile read, could be NO_KEY
+        final long V = val(idx); // Get value before volatile read, could be EMPTY or Tombstone or Prime
+        if( K == NO_KEY ) return TOMBSTONE; // A clear miss
+
+        // Key-compare
+        if( key == K ) {
+          // Key hit!  Check for no table-copy-in-progress
+          if( !is_prime(V) )    // No copy?
+            return V == EMPTY ? TOMBSTONE : V;
+          // Key hit - but slot is (possibly partially) copied to the new table.
+          // Finish the copy & retry in the new table.
+          return copy_slot_and_check(idx,key).get_impl(key); // Retry in the new table
+        }
+        // get and put must have the same key lookup logic!  But only 'put'
+        // needs to force a table-resize for a too-long key-reprobe sequence.
+        // Check for too-many-reprobes on get.
+        if( ++reprobe_cnt >= reprobe_limit(len) ) // too many probes
+          return _newchm == null // Table copy in progress?
+            ? TOMBSTONE          // Nope!  A clear miss
+            : copy_slot_and_check(idx,key).get_impl(key); // Retry in the new table
+
+        idx = (idx+1)&(len-1);    // Reprobe by 1!  (could now prefetch)
+      }
+    }
+
+    // --- putIfMatch ---------------------------------------------------------
+    // Put, Remove, PutIfAbsent, etc.  Return the old raw value.  If the
+    // returned value is equal to expVal (or expVal is NO_MATCH_OLD) then the
+    // put can be assumed to work (although might have been immediately
+    // overwritten).  Only the path through copy_slot passes in an expected
+    // value of EMPTY, and putIfMatch only returns EMPTY if passed in an
+    // expected EMPTY.
+    private long putIfMatch( final long key, final long putval, final long expVal ) {
+      assert putval != EMPTY && !is_prime(putval);
+      assert !is_prime(expVal);
+      final int len      = _len;
+      int idx = (int)(key & (len-1)); // The first key
+
+      // ---
+      // Key-Claim stanza: spin till we can claim a Key (or force a resizing).
+      int reprobe_cnt=0;
+      long K;
+      long V;
+      while( true ) {           // Spin till we get a Key slot
+        V = val(idx);           // Get old value
+        K = key(idx);           // Get current key
+        if( K == NO_KEY ) {     // Slot is free?
+          // Found an empty Key slot - which means this Key has never been in
+          // this table.  No need to put a Tombstone - the Key is not here!
+          if( putval == TOMBSTONE ) return TOMBSTONE; // Not-now & never-been in this table
+          if( expVal == MATCH_ANY ) return TOMBSTONE; // Will not match, even after K inserts
+          // Claim the zero key-slot
+          if( CAS_key(idx, NO_KEY, key) ) { // Claim slot for Key
+            _slots.add(1);      // Raise key-slots-used count
+            break;              // Got it!
+          }
+          // CAS to claim the key-slot failed.  Keys never change once set, so
+          // the re-read is the witness.
+          K = key(idx);         // CAS failed, get updated value
+          assert K != NO_KEY ;  // If key(idx) is NO_KEY, CAS shoulda worked
+        }
+        // Key slot was not null, there exists a Key here
+        if( K == key )
+          break;                // Got it!
+
+        // get and put must have the same key lookup logic!  Lest 'get' give
+        // up looking too soon.
+        if( ++reprobe_cnt >= reprobe_limit(len) ) {
+          // We simply must have a new table to do a 'put'.  At this point a
+          // 'get' will also go to the new table (if any).  We do not need
+          // to claim a key slot (indeed, we cannot find a free one to claim!).
+          final CHM newchm = resize();
+          if( expVal != EMPTY ) _nbhml.help_copy(); // help along an existing copy
+          return newchm.putIfMatch(key,putval,expVal);
+        }
+
+        idx = (idx+1)&(len-1); // Reprobe!
+      } // End of spinning till we get a Key slot
+
+      // ---
+      // Found the proper Key slot, now update the matching Value slot.  We
+      // never put EMPTY, so Value slots monotonically move from EMPTY to
+      // set (deleted Values use Tombstone).
+      if( putval == V ) return V; // Fast cutout for no-change
+
+      // See if we want to move to a new table (to avoid high average re-probe
+      // counts).  We only check on the initial set of a Value from EMPTY to
+      // set (i.e., once per key-insert).
+      if( (V == EMPTY && tableFull(reprobe_cnt,len)) ||
+          // Or we found a Prime: resize is already in progress.  The resize
+          // call below will do a CAS on _newchm forcing the read.
+          is_prime(V) ) {
+        resize();               // Force the new table copy to start
+        return copy_slot_and_check(idx,expVal).putIfMatch(key,putval,expVal);
+      }
+
+      // ---
+      // We are finally prepared to update the existing table.  Must match
+      // old, and we do not?  Then bail out now.  Note that either V or expVal
+      // might be TOMBSTONE.  Also V can be EMPTY, if we've never inserted a
+      // value before.  expVal can be EMPTY if we are called from copy_slot.
+      if( expVal != NO_MATCH_OLD && // Do we care about expected-Value at all?
+          V != expVal &&            // No instant match already?
+          (expVal != MATCH_ANY || V == TOMBSTONE || V == EMPTY) &&
+          !(V==EMPTY && expVal == TOMBSTONE) ) // Match on EMPTY/TOMBSTONE combo
+        return (V==EMPTY) ? TOMBSTONE : V;     // Do not update!
+
+      // Actually change the Value in the Key,Value pair
+      if( CAS_val(idx, V, putval ) ) {
+        // CAS succeeded - we did the update!
+        // Both normal put's and table-copy calls putIfMatch, but table-copy
+        // does not (effectively) increase the number of live k/v pairs.
+        if( expVal != EMPTY ) {
+          // Adjust sizes - a striped counter
+          if(  (V == EMPTY || V == TOMBSTONE) && putval != TOMBSTONE ) _size.add( 1);
+          if( !(V == EMPTY || V == TOMBSTONE) && putval == TOMBSTONE ) _size.add(-1);
+        }
+      } else {                  // Else CAS failed
+        V = val(idx);           // Get new value
+        // If a Prime'd value got installed, we need to re-run the put on the
+        // new table.  Otherwise we lost the CAS to another racing put.
+        if( is_prime(V) )
+          return copy_slot_and_check(idx,expVal).putIfMatch(key,putval,expVal);
+      }
+      // Win or lose the CAS, we are done.  If we won then we know the update
+      // happened as expected.  If we lost, it means "we won but another thread
+      // immediately stomped our update with no chance of a reader reading".
+      return (V==EMPTY && expVal!=EMPTY) ? TOMBSTONE : V;
+    }
+
+    // --- tableFull ---------------------------------------------------------
+    // Heuristic to decide if this table is too full, and we should start a
+    // new table.  See NonBlockingHashMapLong for the invariant.
+    private final boolean tableFull( int reprobe_cnt, int len ) {
+      return
+        // Do the cheap check first: we allow some number of reprobes always
+        reprobe_cnt >= REPROBE_LIMIT &&
+        (reprobe_cnt >= reprobe_limit(len) ||
+         // More expensive check: see if the table is > 1/2 full.
+         _slots.estimate_get() >= (len>>1));
+    }
+
+    // --- resize ------------------------------------------------------------
+    // Resizing after too many probes.  "How Big???" heuristics are those of
+    // NonBlockingHashMapLongLong.  Callers MUST 'help_copy' lest we have a
+    // path which forever runs through 'resize' only to discover a
+    // copy-in-progress which never progresses.
+    private final CHM resize() {
+      // Check for resize already in progress, probably triggered by another thread
+      CHM newchm = _newchm;     // VOLATILE READ
+      if( newchm != null )      // See if resize is already in progress
+        return newchm;          // Use the new table already
+
+      // No copy in-progress, so start one.  First up: compute new table size.
+      int oldlen = _len;        // Old count of K,V pairs allowed
+      int sz = size();          // Get current table count of active K,V pairs
+      int newsz = sz;           // First size estimate
+      if( sz >= (oldlen>>1) )   // If we are >50% full of keys then...
+        newsz = oldlen<<1;      // Double size
+
+      // Last (re)size operation was very recent?  Then double again
+      // despite having few live keys, to slow down the churn.
+      long tm = System.currentTimeMillis();
+      if( newsz <= oldlen && // New table would shrink or hold steady?
+          tm <= _nbhml._last_resize_milli+10000)  // Recent resize (less than 10 sec ago)
+        newsz = oldlen<<1;      // Double the existing size
+
+      // Do not shrink, ever.
+      if( newsz < oldlen ) newsz = oldlen;
+
+      // Convert to power-of-2
+      int log2;
+      for( log2=MIN_SIZE_LOG; (1<<log2) < newsz; log2++ ) ; // Compute log2 of size
+      // Slots are indexed by int; same limit as the on-heap maps
+      if( log2 > 30 ) {
+        log2 = 30;
+        if( sz > (3<<28) ) throw new RuntimeException("Table is full.");
+      }
+
+      // Now limit the number of threads actually allocating memory to a
+      // handful - lest we have 750 threads all trying to allocate a giant
+      // resized table.
+      long r = _resizers;
+      while( !_resizerUpdater.compareAndSet(this,r,r+1) )
+        r = _resizers;
+      // Size calculation: 2 words (K+V) per table entry, plus the frozen
+      // values of the old table.
+      long megs = ((((1L<<log2)<<1)+oldlen+8)<<3/*word to bytes*/)>>20/*megs*/;
+      if( r >= 2 && megs > 0 ) { // Already 2 guys trying; wait and see
+        newchm = _newchm;        // Between dorking around, another thread did it
+        if( newchm != null )     // See if resize is already in progress
+          return newchm;         // Use the new table already
+        try { Thread.sleep(megs); } catch( Exception e ) { /*empty*/}
+      }
+      // Last check, since the allocation below is expensive
+      newchm = _newchm;
+      if( newchm != null )      // See if resize is already in progress
+        return newchm;          // Use the new table already
+
+      // New CHM - actually allocate the big table
+      newchm = new CHM(_nbhml,_size,log2,oldlen,-1);
+
+      // The new table must be CAS'd in so only 1 winner amongst duplicate
+      // racing resizing threads.  No reader ever saw a losing table, so it
+      // can be freed at once (a losing mapped table is dead file space).
+      if( _newchm == null && CAS_newchm( newchm ) ) { // NOW a resize-is-in-progress!
+        _nbhml._tables.add(newchm);
+        return newchm;
+      }
+      newchm.free();
+      return _newchm;           // CAS failed?  Reread new table
+    }
+
+
+    // The next part of the table to copy.  It monotonically transits from zero
+    // to _len.  Visitors to the table can claim 'work chunks' by CAS'ing this
+    // field up, then copying the indicated indices from the old table to the
+    // new table.
+    volatile long _copyIdx = 0;
+    static private final AtomicLongFieldUpdater<CHM> _copyIdxUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_copyIdx");
+
+    // Work-done reporting.  Used to efficiently signal when we can move to
+    // the new table.  From 0 to len(oldkvs) refers to copying from the old
+    // table to the new.
+    volatile long _copyDone= 0;
+    static private final AtomicLongFieldUpdater<CHM> _copyDoneUpdater =
+      AtomicLongFieldUpdater.newUpdater(CHM.class, "_copyDone");
+
+    // --- help_copy_impl ----------------------------------------------------
+    // Help along an existing resize operation.  We hope its the top-level
+    // copy (it was when we started) but this CHM might have been promoted out
+    // of the top position.
+    private final void help_copy_impl( final boolean copy_all ) {
+      final CHM newchm = _newchm;
+      assert newchm != null;    // Already checked by caller
+      int oldlen = _len;        // Total amount to copy
+      final int MIN_COPY_WORK = Math.min(oldlen,1024); // Limit per-thread work
+
+      // ---
+      int panic_start = -1;
+      int copyidx=-9999;            // Fool javac to think it's initialized
+      while( _copyDone < oldlen ) { // Still needing to copy?
+        // Carve out a chunk of work.  The counter wraps around so every
+        // thread eventually tries to copy every slot repeatedly.  We "panic"
+        // if we have tried TWICE to copy every slot, and copy it all ourselves.
+        if( panic_start == -1 ) { // No panic?
+          copyidx = (int)_copyIdx;
+          while( !_copyIdxUpdater.compareAndSet(this,copyidx,copyidx+MIN_COPY_WORK) )
+            copyidx = (int)_copyIdx;     // Re-read
+          if( !(copyidx < (oldlen<<1)) ) // Panic!
+            panic_start = copyidx;       // Record where we started to panic-copy
+        }
+
+        // We now know what to copy.  Try to copy.
+        int workdone = 0;
+        for( int i=0; i<MIN_COPY_WORK; i++ )
+          if( copy_slot((copyidx+i)&(oldlen-1)) ) // Made an oldtable slot go dead?
+            workdone++;         // Yes!
+        if( workdone > 0 )      // Report work-done occasionally
+          copy_check_and_promote( workdone );// See if we can promote
+
+        copyidx += MIN_COPY_WORK;
+        if( !copy_all && panic_start == -1 ) // No panic?
+          return;               // Then done copying after doing MIN_COPY_WORK
+      }
+      // Extra promotion check, in case another thread finished all copying
+      // then got stalled before promoting.
+      copy_check_and_promote( 0 ); // See if we can promote
+    }
+
+
+    // --- copy_slot_and_check -----------------------------------------------
+    // Copy slot 'idx' from the old table to the new table.  If this thread
+    // confirmed the copy, update the counters and check for promotion.
+    // Returns the result of reading the volatile _newchm, mostly as a
+    // convenience to callers.
+    private CHM copy_slot_and_check( int idx, long should_help ) {
+      // We're only here because the caller saw a Prime, which implies a
+      // table-copy is in progress.
+      assert _newchm != null;
+      if( copy_slot(idx) )      // Copy the desired slot
+        copy_check_and_promote(1); // Record the slot copied
+      // Generically help along any copy (except if called recursively from a helper)
+      if( should_help != EMPTY ) _nbhml.help_copy();
+      return _newchm;
+    }
+
+    // --- copy_check_and_promote --------------------------------------------
+    private final void copy_check_and_promote( int workdone ) {
+      int oldlen = _len;
+      // We made a slot unusable and so did some of the needed copy work
+      long copyDone = _copyDone;
+      assert (copyDone+workdone) <= oldlen;
+      if( workdone > 0 ) {
+        while( !_copyDoneUpdater.compareAndSet(this,copyDone,copyDone+workdone) ) {
+          copyDone = _copyDone; // Reload, retry
+          assert (copyDone+workdone) <= oldlen;
+        }
+      }
+
+      // Check for copy being ALL done, and promote.  We only promote
+      // top-level copies.
+      if( copyDone+workdone == oldlen && // Ready to promote this table?
+          _nbhml._chm == this &&         // Looking at the top-level table?
+          // Attempt to promote
+          _nbhml.CAS(_chm_offset,this,_newchm) ) {
+        _nbhml._last_resize_milli = System.currentTimeMillis();  // Record resize time for next check
+      }
+    }
+
+    // --- copy_slot ---------------------------------------------------------
+    // Copy one K/V pair from the old table to the new one.  Returns true if
+    // we can confirm that we set an old-table slot to TOMBPRIME, and only
+    // returns after updating the new table.  A live value is frozen and
+    // parked in the new table's _primed memory first, exactly as in
+    // NonBlockingHashMapLongLong.
+    private boolean copy_slot( int idx ) {
+      // Blindly set the key slot from NO_KEY to some key which hashes here,
+      // to eagerly stop fresh put's from inserting new values in the old
+      // table when the old table is mid-resize.
+      long key;
+      while( (key=key(idx)) == NO_KEY )
+        CAS_key(idx, NO_KEY, (idx+_len)/*a non-zero key which hashes here*/);
+
+      // ---
+      // Prevent new values from appearing in the old table.
+      final CHM newchm = _newchm;
+      final long primed = newchm._primed+((long)idx<<3);
+      long oldval = vol_val(idx); // Read OLD table
+      while( oldval != PRIMED ) {
+        if( oldval == TOMBPRIME ) return false; // Copy already complete here!
+        if( oldval == EMPTY || oldval == TOMBSTONE ) {
+          // If we made the Value slot hold a TOMBPRIME, then we both
+          // prevented further updates here but also the (absent) oldval is
+          // vaccuously available in the new table.
+          if( CAS_val(idx,oldval,TOMBPRIME) )
+            return true;
+        } else if( oldval != FREEZING && CAS_val(idx,oldval,FREEZING) ) {
+          UNSAFE.putLong(primed, oldval);
+          UNSAFE.putOrderedLong(null, slot(idx)+8, PRIMED);
+          break;
+        }
+        oldval = vol_val(idx);  // Else try, try again
+      }
+
+      // ---
+      // Copy the value into the new table, but only if we overwrite an EMPTY.
+      // If another value is already in the new table, then somebody else
+      // wrote something there and that write is happens-after any value that
+      // appears in the old table.
+      newchm.putIfMatch(key, UNSAFE.getLong(primed), EMPTY);
+
+      // ---
+      // Finally, now that the old value is exposed in the new table, we can
+      // forever hide the old-table value by slapping a TOMBPRIME down.
+      return CAS_val(idx,PRIMED,TOMBPRIME); // True if we slammed the TOMBPRIME down
+    } // end copy_slot
+  } // End of CHM
+}
@@ -21,6 +21,8 @@ import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import static org.jctools.util.UnsafeAccess.UNSAFE;
 import static org.jctools.util.UnsafeAccess.fieldOffset;
@@ -101,7 +103,7 @@ public class NonBlockingIdentityHashMap<TypeK, TypeV>
   }
 
   // --- Setup to use Unsafe
-  private static final long _kvs_offset = fieldOffset(NonBlockingHashMap.class, "_kvs");
+  private static final long _kvs_offset = fieldOffset(NonBlockingIdentityHashMap.class, "_kvs");
 
   private final boolean CAS_kvs( final Object[] oldkvs, final Object[] newkvs ) {
     return UNSAFE.compareAndSwapObject(this, _kvs_offset, oldkvs, newkvs );
@@ -1055,23 +1057,24 @@ public class NonBlockingIdentityHashMap<TypeK, TypeV>
   // --- Snapshot ------------------------------------------------------------
   // The main class for iterating over the NBHM.  It "snapshots" a clean
   // view of the K/V array.
+  private Object[] snapshot_kvs() {
+    while( true ) {             // Verify no table-copy-in-progress
+      Object[] topkvs = _kvs;
+      CHM topchm = chm(topkvs);
+      if( topchm._newkvs == null ) // No table-copy-in-progress
+        // The "linearization point" for the iteration.  Every key in this
+        // table will be visited, but keys added later might be skipped or
+        // even be added to a following table (also not iterated over).
+        return topkvs;
+      // Table copy in-progress - so we cannot get a clean iteration.  We
+      // must help finish the table copy before we can start iterating.
+      topchm.help_copy_impl(this,topkvs,true);
+    }
+  }
   private class SnapshotV implements Iterator<TypeV>, Enumeration<TypeV> {
     final Object[] _sskvs;
     public SnapshotV() {
-      while( true ) {           // Verify no table-copy-in-progress
-        Object[] topkvs = _kvs;
-        CHM topchm = chm(topkvs);
-        if( topchm._newkvs == null ) { // No table-copy-in-progress
-          // The "linearization point" for the iteration.  Every key in this
-          // table will be visited, but keys added later might be skipped or
-          // even be added to a following table (also not iterated over).
-          _sskvs = topkvs;
-          break;
-        }
-        // Table copy in-progress - so we cannot get a clean iteration.  We
-        // must help finish the table copy before we can start iterating.
-        topchm.help_copy_impl(NonBlockingIdentityHashMap.this,topkvs,true);
-      }
+      _sskvs = snapshot_kvs();
       // Warm-up the iterator
       next();
     }
@@ -1138,6 +1141,7 @@ public class NonBlockingIdentityHashMap<TypeK, TypeV>
       @Override public int     size    (          ) { return NonBlockingIdentityHashMap.this.size         ( ); }
       @Override public boolean contains( Object v ) { return NonBlockingIdentityHashMap.this.containsValue(v); }
       @Override public Iterator<TypeV> iterator()   { return new SnapshotV(); }
+      public Spliterator<TypeV> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,TypeV>(new NBHMSnapshot(), MapSnapshot.VALUES); }
     };
   }
 
@@ -1178,6 +1182,7 @@ public class NonBlockingIdentityHashMap<TypeK, TypeV>
       @Override public boolean contains( Object k ) { return NonBlockingIdentityHashMap.this.containsKey(k); }
       @Override public boolean remove  ( Object k ) { return NonBlockingIdentityHashMap.this.remove  (k) != null; }
       @Override public Iterator<TypeK> iterator()   { return new SnapshotK(); }
+      public Spliterator<TypeK> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,TypeK>(new NBHMSnapshot(), MapSnapshot.KEYS); }
     };
   }
 
@@ -1239,9 +1244,63 @@ public class NonBlockingIdentityHashMap<TypeK, TypeV>
         return v.equals(e.getValue());
       }
       @Override public Iterator<Map.Entry<TypeK,TypeV>> iterator() { return new SnapshotE(); }
+      public Spliterator<Map.Entry<TypeK,TypeV>> spliterator() { return new MapSnapshot.SnapshotSpliterator<TypeK,TypeV,Map.Entry<TypeK,TypeV>>(new NBHMSnapshot(), MapSnapshot.ENTRIES); }
     };
   }
 
+  // --- Spliterators and bulk operations ----------------------------------
+  // A snapshot of the clean table, visited by slot index ranges.
+  private class NBHMSnapshot extends MapSnapshot<TypeK,TypeV> {
+    final Object[] _sskvs = snapshot_kvs();
+    int length() { return len(_sskvs); }
+    TypeK key( final int idx ) {
+      final Object K = NonBlockingIdentityHashMap.key(_sskvs,idx);
+      return K == null || K == TOMBSTONE ? null : (TypeK)K;
+    }
+    TypeV value( final TypeK key ) { return get(key); }
+    Map.Entry<TypeK,TypeV> entry( final TypeK key, final TypeV val ) { return new NBHMEntry(key,val); }
+    long estimatedSize() { return size(); }
+  }
+
+  /** Performs the given action for each (key, value), splitting the table
+   *  into index ranges that are processed in parallel in the common
+   *  {@link java.util.concurrent.ForkJoinPool}.  Like the iterators, this
+   *  visits a snapshot of the table taken at the start of the call.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel; use
+   *         {@link Long#MAX_VALUE} to run sequentially in the caller
+   *  @param action the action
+   *  @throws NullPointerException if the action is null */
+  public void forEach( final long parallelismThreshold, final BiConsumer<? super TypeK,? super TypeV> action ) {
+    new NBHMSnapshot().forEach(parallelismThreshold, action);
+  }
+
+  /** Returns the result of accumulating all values using the given reducer
+   *  to combine values, or null if none.  The reducer must be associative.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param reducer a commutative associative combining function
+   *  @return the result of accumulating all values
+   *  @throws NullPointerException if the reducer is null */
+  public TypeV reduceValues( final long parallelismThreshold, final BiFunction<? super TypeV,? super TypeV,? extends TypeV> reducer ) {
+    return new NBHMSnapshot().reduceValues(parallelismThreshold, reducer);
+  }
+
+  /** Returns a non-null result from applying the given search function on
+   *  each (key, value), or null if none.  Upon success, further element
+   *  processing is suppressed and the results of any other parallel
+   *  invocations of the search function are ignored.
+   *  @param parallelismThreshold the (estimated) number of mappings needed
+   *         for this operation to be executed in parallel
+   *  @param searchFunction a function returning a non-null result on
+   *         success, else null
+   *  @return a non-null result from applying the given search function on
+   *          each (key, value), or null if none
+   *  @throws NullPointerException if the search function is null */
+  public <U> U search( final long parallelismThreshold, final BiFunction<? super TypeK,? super TypeV,? extends U> searchFunction ) {
+    return new NBHMSnapshot().search(parallelismThreshold, searchFunction);
+  }
+
   // --- writeObject -------------------------------------------------------
   // Write a NBHM to a stream
   private void writeObject(java.io.ObjectOutputStream s) throws IOException  {
@@ -36,7 +36,10 @@ import org.jctools.util.RangeUtil;
  * with silent autoboxing - which can be very expensive if many calls are
  * being made.  Since autoboxing is silent you may not be aware that this is
  * going on.  The built-in API takes lower-case {@code ints} and is much more
- * efficient.
+ * efficient.  The bulk operations ({@link #cardinality()},
+ * {@link #nextSetBit(int)}, {@link #forEach(IntConsumer)},
+ * {@link #containsAll(int,int)}, {@link #orInto} and {@link #andInto}) are
+ * unboxed as well, and work a word of 64 elements at a time.
  *
  * <p>Space: space is used in proportion to the largest element, as opposed to
  * the number of elements (as is the case with hash-table based Set
@@ -141,6 +144,124 @@ public class NonBlockingSetInt extends AbstractSet<Integer> implements Serializa
   /** Verbose printout of internal structure for debugging. */
   public void print() { _nbsi.print(0); }
 
+  // --- Bulk operations ---------------------------------------------------
+  // These walk the bit-vector a word (64 elements) at a time, instead of an
+  // element at a time, and never autobox.  Like the iterator they are
+  // weakly consistent: elements present for the whole call are seen,
+  // elements racing in or out may or may not be.
+
+  /** Receives elements from {@link #forEach(IntConsumer)}, unboxed. */
+  public interface IntConsumer {
+    void accept( int i );
+  }
+
+  /**
+   * Exact count of elements, by a population count over every word.  Unlike
+   * {@link #size()} no racy counter is involved, but the cost is
+   * proportional to {@link #length()} rather than constant.
+   * @return count of elements.
+   */
+  public int cardinality() {
+    int cnt = 0;
+    NBSI nbsi = _nbsi;
+    for( int w=0; (nbsi = NBSI.scan(nbsi, w)) != null; w++ )
+      cnt += Long.bitCount(nbsi.word(w));
+    return cnt;
+  }
+
+  /**
+   * Smallest element at or above {@code from}, skipping empty words whole.
+   * @throws IllegalArgumentException if from is negative.
+   * @return the next element, or -1 if there is none.
+   */
+  public int nextSetBit( final int from ) {
+    RangeUtil.checkPositiveOrZero(from, "from");
+    NBSI nbsi = _nbsi;
+    long mask = -1L<<(from&63); // Skip elements below 'from' in the first word
+    for( int w=from>>6; (nbsi = NBSI.scan(nbsi, w)) != null; w++ ) {
+      final long bits = nbsi.word(w) & mask;
+      if( bits != 0 ) return (w<<6)+Long.numberOfTrailingZeros(bits);
+      mask = -1L;
+    }
+    return -1;
+  }
+
+  /**
+   * Pass every element to {@code c}, in ascending order.  The primitive
+   * alternative to iterating, which boxes each element.  Callers using a
+   * lambda may need to declare its parameter as {@code int} to choose this
+   * over {@link Iterable#forEach}.
+   */
+  public void forEach( final IntConsumer c ) {
+    NBSI nbsi = _nbsi;
+    for( int w=0; (nbsi = NBSI.scan(nbsi, w)) != null; w++ ) {
+      long bits = nbsi.word(w);
+      while( bits != 0 ) {
+        c.accept((w<<6)+Long.numberOfTrailingZeros(bits));
+        bits &= bits-1;         // Clear the lowest set bit
+      }
+    }
+  }
+
+  /**
+   * Test if every element of the range [{@code from}, {@code to}) is in the
+   * set.  An empty range is trivially contained.
+   * @throws IllegalArgumentException if from is negative or to is less than from.
+   * @return <tt>true</tt> if all of the range is in the set.
+   */
+  public boolean containsAll( final int from, final int to ) {
+    RangeUtil.checkPositiveOrZero(from, "from");
+    RangeUtil.checkGreaterThanOrEqual(to, from, "to");
+    if( from == to ) return true;
+    final int lo = from>>6, hi = (to-1)>>6;
+    NBSI nbsi = _nbsi;
+    for( int w=lo; w<=hi; w++ ) {
+      if( (nbsi = NBSI.scan(nbsi, w)) == null ) return false;
+      long mask = -1L;
+      if( w == lo ) mask &= -1L<<(from&63);
+      if( w == hi ) mask &= -1L>>>(63-((to-1)&63));
+      if( (nbsi.word(w) & mask) != mask ) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Add every element of this set to {@code dst} (a union, stored into
+   * {@code dst}), OR'ing whole words at a time.  {@code dst} grows as needed.
+   * @return <tt>true</tt> if dst changed.
+   */
+  public boolean orInto( final NonBlockingSetInt dst ) {
+    boolean changed = false;
+    NBSI nbsi = _nbsi;
+    for( int w=0; (nbsi = NBSI.scan(nbsi, w)) != null; w++ ) {
+      final long bits = nbsi.word(w);
+      if( bits == 0 ) continue;
+      if( dst._nbsi.or_word(w, bits) ) changed = true;
+      // Every 64th element lives in the nested array; move it singly
+      if( bits < 0 && dst.add((w<<6)+63) ) changed = true;
+    }
+    return changed;
+  }
+
+  /**
+   * Remove from {@code dst} every element not in this set (an intersection,
+   * stored into {@code dst}), AND'ing whole words at a time.
+   * @return <tt>true</tt> if dst changed.
+   */
+  public boolean andInto( final NonBlockingSetInt dst ) {
+    boolean changed = false;
+    NBSI nbsi = _nbsi;
+    NBSI dnbsi = dst._nbsi;
+    for( int w=0; (dnbsi = NBSI.scan(dnbsi, w)) != null; w++ ) {
+      if( nbsi != null ) nbsi = NBSI.scan(nbsi, w);
+      final long bits = nbsi == null ? 0 : nbsi.word(w);
+      if( dnbsi.and_word(w, bits) ) changed = true;
+      // Every 64th element lives in the nested array; clear it singly
+      if( bits >= 0 && dst.remove((w<<6)+63) ) changed = true;
+    }
+    return changed;
+  }
+
   /**
    * Standard Java {@link Iterator}.  Not very efficient because it
    * auto-boxes the returned values.
@@ -339,6 +460,69 @@ public class NonBlockingSetInt extends AbstractSet<Integer> implements Serializa
 
     public int size() { return (int)_size.get(); }
 
+    // --- Word-at-a-time access, for the bulk operations
+    // The table to read word w from while scanning: step past tables whose
+    // copy is complete, or which end before w.  Null if there is no word w.
+    private static NBSI scan( NBSI nbsi, final int w ) {
+      while( nbsi._new != null &&
+             (w >= nbsi._bits.length || nbsi._copyDone.get() == nbsi._sum_bits_length) )
+        nbsi = nbsi._new;
+      return w < nbsi._bits.length ? nbsi : null;
+    }
+
+    // Elements [w<<6, (w<<6)+63] as one long: the low 63 bits straight from
+    // _bits[w], the top bit re-assembled from the nested-by-64 arrays.  A
+    // word caught mid-copy is finished off and read from the new table.
+    private long word( final int w ) {
+      final long bits = _bits[w];
+      NBSI nbsi = _nbsi64;      // Element (w<<6)+63 is bit w of _nbsi64...
+      int j = w;
+      while( (j&63) == 63 ) {   // ...unless that is a 64th bit as well
+        nbsi = nbsi._nbsi64;
+        j = j>>6;
+      }
+      final long top = nbsi._bits[j>>6];
+      if( bits < 0 || top < 0 ) // Not mutable?
+        return help_copy_impl(w<<6).help_copy_impl((w<<6)+63)._new.word(w);
+      return (bits & ~mask(63)) | ((top & mask(j)) == 0 ? 0 : mask(63));
+    }
+
+    // OR the low 63 bits of 'bits' into word w, growing to fit.  The top bit
+    // belongs to the nested-by-64 array and is left to the caller.
+    private boolean or_word( final int w, long bits ) {
+      if( w >= _bits.length )
+        return install_larger_new_bits(w<<6).help_copy().or_word(w, bits);
+      bits &= ~mask(63);        // Never set the immutable bit
+      long old;
+      do {
+        old = _bits[w];         // Read old bits
+        if( old < 0 )           // Not mutable?
+          // Not mutable: finish copy of word, and retry on copied word
+          return help_copy_impl(w<<6).help_copy().or_word(w, bits);
+        if( (old | bits) == old ) return false; // All bits already set?
+      } while( !CAS( w, old, old | bits ) );
+      _size.add(Long.bitCount(bits & ~old));
+      return true;
+    }
+
+    // AND the low 63 bits of 'bits' into word w; as above the top bit is
+    // left to the caller.  A mutable word has a clear sign bit, so AND'ing
+    // can never make it immutable.
+    private boolean and_word( final int w, final long bits ) {
+      if( w >= _bits.length )   // Out of bounds?  Nothing here to clear
+        return _new != null && help_copy().and_word(w, bits);
+      long old;
+      do {
+        old = _bits[w];         // Read old bits
+        if( old < 0 )           // Not mutable?
+          // Not mutable: finish copy of word, and retry on copied word
+          return help_copy_impl(w<<6).help_copy().and_word(w, bits);
+        if( (old & bits) == old ) return false; // All bits already clear?
+      } while( !CAS( w, old, old & bits ) );
+      _size.add(-Long.bitCount(old & ~bits));
+      return true;
+    }
+
     // Must grow the current array to hold an element of size i
     private NBSI install_larger_new_bits( final int i ) {
       if( _new == null ) {
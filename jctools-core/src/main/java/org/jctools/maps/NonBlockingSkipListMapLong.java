@@ -0,0 +1,481 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+/**
+ * A lock-free concurrent sorted map with primitive <tt>long</tt> keys,
+ * supporting floor/ceiling lookups and ascending range scans.
+ *
+ * <p>The base level is the lock-free linked list of {@link
+ * java.util.concurrent.ConcurrentSkipListMap}: a removal first CASes the
+ * value to null, then appends a marker node and unlinks the node.  Instead of
+ * an index object per level each node above the base level carries a single
+ * tower array of forward links, and keys are never boxed.  Tower heights are
+ * derived from a hash of the key, one in four nodes reaching each next level,
+ * so three quarters of the nodes have no tower at all.  Index links are only
+ * a search accelerator: a link lost to a racing removal costs some extra
+ * steps, never correctness.
+ *
+ * <p>The map keeps a hint to the most recently inserted largest key.  A search
+ * for a key above the hint starts from the hint rather than from the head,
+ * making appends near the tail (time series, order books) and lookups of
+ * recent keys close to constant time.
+ *
+ * <p>Values cannot be null.  {@link #size} is a striped counter, not a list
+ * traversal.  Iterators are weakly consistent, as for the other maps of this
+ * package.
+ *
+ * @param <TypeV> the type of mapped values
+ */
+public class NonBlockingSkipListMapLong<TypeV> {
+
+  // Most levels of any node, the base level included.  One in four nodes
+  // reaches each next level, so this is plenty for 4^15 keys.
+  private static final int MAX_LEVEL = 16;
+
+  // --- Bits to allow Unsafe access to arrays
+  private static final int _Obase  = UNSAFE.arrayBaseOffset(Object[].class);
+  private static final int _Oscale = UNSAFE.arrayIndexScale(Object[].class);
+  private static final int _Olog   = _Oscale==4?2:(_Oscale==8?3:9999);
+  private static long rawIndex(final Object[] ary, final int idx) {
+    assert idx >= 0 && idx < ary.length;
+    return _Obase + ((long)idx << _Olog);
+  }
+
+  // --- Node ----------------------------------------------------------------
+  // A base level node.  _val is null once the node is deleted, and a marker
+  // node has itself as value.  _tower[i] is the link at level i+1.
+  private static final class Node<V> {
+    final long _key;
+    volatile Object _val;
+    volatile Node<V> _next;
+    final Node<V>[] _tower;
+
+    Node( final long key, final Object val, final Node<V> next, final Node<V>[] tower ) {
+      _key = key; _val = val; _next = next; _tower = tower;
+    }
+    // A marker, appended to a deleted node so no insert can follow it
+    Node( final Node<V> next ) {
+      _key = 0; _val = this; _next = next; _tower = null;
+    }
+
+    private static final long _val_offset  = fieldOffset(Node.class, "_val");
+    private static final long _next_offset = fieldOffset(Node.class, "_next");
+    boolean CAS_val ( Object old, Object val ) { return UNSAFE.compareAndSwapObject(this, _val_offset, old, val); }
+    boolean CAS_next( Node<V> old, Node<V> nxt ) { return UNSAFE.compareAndSwapObject(this, _next_offset, old, nxt); }
+
+    // Levels above the base level this node is linked into
+    int height() { return _tower == null ? 0 : _tower.length; }
+    Node<V> up( int lvl ) { return (Node<V>)UNSAFE.getObjectVolatile(_tower, rawIndex(_tower,lvl-1)); }
+    boolean CAS_up( int lvl, Node<V> old, Node<V> nxt ) {
+      return UNSAFE.compareAndSwapObject(_tower, rawIndex(_tower,lvl-1), old, nxt);
+    }
+
+    // Help a removal along: mark this deleted node, or unlink it from 'b'
+    void help_delete( Node<V> b, Node<V> f ) {
+      if( f == _next && this == b._next ) {
+        if( f == null || f._val != f ) // Not marked yet
+          CAS_next(f, new Node<V>(f));
+        else
+          b.CAS_next(this, f._next);
+      }
+    }
+    // The value, or null if this node is deleted or a marker
+    V live_val() {
+      final Object v = _val;
+      return v == this ? null : (V)v;
+    }
+  }
+
+  /** An immutable snapshot of a mapping, as returned by the navigation
+   *  methods. */
+  public static final class Entry<V> {
+    private final long _key;
+    private final V _val;
+    Entry( final long key, final V val ) { _key = key; _val = val; }
+    /** @return the key */
+    public long getKey() { return _key; }
+    /** @return the value the key mapped to when this entry was taken */
+    public V getValue() { return _val; }
+    @Override public String toString() { return _key+"="+_val; }
+  }
+
+  // Value of the head node, which is never deleted
+  private static final Object BASE_HEADER = new Object();
+
+  private final Node<TypeV> _head = new Node<TypeV>(0, BASE_HEADER, null, new Node[MAX_LEVEL-1]);
+  // Levels in use above the base level; searches start at the top one
+  private volatile int _levels;
+  private static final long _levels_offset = fieldOffset(NonBlockingSkipListMapLong.class, "_levels");
+  // The last inserted node with the largest key, see findPredecessor
+  private volatile Node<TypeV> _tail_hint;
+  private final ConcurrentAutoTable _size = new ConcurrentAutoTable();
+  private final long _salt = System.nanoTime();
+
+  /** Create a new, empty map. */
+  public NonBlockingSkipListMapLong() { }
+
+  // --- height --------------------------------------------------------------
+  // Levels above the base level for a new node: every pair of set low bits
+  // of the mixed key adds one, so no shared random state is written.
+  private int height( final long key ) {
+    long h = key ^ _salt;
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    int height = 0;
+    while( (h & 3) == 3 && height < MAX_LEVEL-1 ) { height++; h >>>= 2; }
+    return height;
+  }
+
+  // --- findPredecessor -----------------------------------------------------
+  // Walk the index levels down to 'stop', unlinking deleted nodes on the way,
+  // and return a node with a key below 'key' (or the head) from which to walk
+  // level 'stop'.  The tail hint, when below 'key' and alive, replaces any
+  // smaller predecessor on the levels it is linked into.
+  private Node<TypeV> findPredecessor( final long key, final int stop ) {
+    outer:
+    while( true ) {
+      final Node<TypeV> hint = _tail_hint;
+      final boolean use_hint = hint != null && hint._key < key && hint._val != null;
+      Node<TypeV> b = _head;
+      for( int lvl = _levels; lvl > stop; lvl-- ) {
+        if( use_hint && lvl <= hint.height() && (b == _head || b._key < hint._key) )
+          b = hint;
+        Node<TypeV> r = b.up(lvl);
+        while( r != null ) {
+          if( r._val == null ) {  // Deleted: unlink at this level
+            if( !b.CAS_up(lvl, r, r.up(lvl)) ) continue outer;
+            r = b.up(lvl);
+            continue;
+          }
+          if( r._key >= key ) break;
+          b = r;
+          r = r.up(lvl);
+        }
+      }
+      if( use_hint && stop <= hint.height() && (b == _head || b._key < hint._key) )
+        b = hint;
+      return b;
+    }
+  }
+
+  // --- findNear ------------------------------------------------------------
+  // The base level walk shared by all searches, after ConcurrentSkipListMap.
+  private static final int EQ = 1, LT = 2, GT = 0;
+  // Return the first node with a key equal to (EQ), below (LT) or above (GT)
+  // the given key, or null.  The node may since have been deleted.
+  private Node<TypeV> findNear( final long key, final int rel ) {
+    while( true ) {
+      for( Node<TypeV> b = findPredecessor(key,0), n = b._next; ; ) {
+        if( n == null )
+          return ((rel & LT) == 0 || b == _head) ? null : b;
+        final Node<TypeV> f = n._next;
+        if( n != b._next ) break;                       // Inconsistent read
+        final Object v = n._val;
+        if( v == null ) { n.help_delete(b, f); break; } // n is deleted
+        if( b._val == null || v == n ) break;           // b is deleted
+        final long k = n._key;
+        if( (k == key && (rel & EQ) != 0) || (key < k && (rel & LT) == 0) )
+          return n;
+        if( k >= key && (rel & LT) != 0 )
+          return b == _head ? null : b;
+        b = n;
+        n = f;
+      }
+    }
+  }
+
+  private Entry<TypeV> entryNear( final long key, final int rel ) {
+    while( true ) {
+      final Node<TypeV> n = findNear(key, rel);
+      if( n == null ) return null;
+      final TypeV v = n.live_val();
+      if( v != null ) return new Entry<TypeV>(n._key, v);
+    }
+  }
+
+  // --- Lookups -------------------------------------------------------------
+
+  /** @param key the key to look up
+   *  @return the value mapped to the key, or null if there is none */
+  public TypeV get( final long key ) {
+    while( true ) {
+      final Node<TypeV> n = findNear(key, EQ);
+      if( n == null || n._key != key ) return null;
+      final TypeV v = n.live_val();
+      if( v != null ) return v;
+    }
+  }
+
+  /** @param key the key to look up
+   *  @return true if the key is mapped */
+  public boolean containsKey( final long key ) { return get(key) != null; }
+
+  /** @return the number of mappings, from a striped counter */
+  public int size() { return (int)_size.get(); }
+
+  /** @return true if there are no mappings */
+  public boolean isEmpty() { return firstEntry() == null; }
+
+  /** @return the mapping with the least key, or null if the map is empty */
+  public Entry<TypeV> firstEntry() { return entryNear(Long.MIN_VALUE, GT|EQ); }
+  /** @return the mapping with the greatest key, or null if the map is empty */
+  public Entry<TypeV> lastEntry() { return entryNear(Long.MAX_VALUE, LT|EQ); }
+  /** @return the mapping with the greatest key less than or equal to the
+   *  given key, or null if there is none */
+  public Entry<TypeV> floorEntry( final long key ) { return entryNear(key, LT|EQ); }
+  /** @return the mapping with the least key greater than or equal to the
+   *  given key, or null if there is none */
+  public Entry<TypeV> ceilingEntry( final long key ) { return entryNear(key, GT|EQ); }
+  /** @return the mapping with the greatest key strictly less than the given
+   *  key, or null if there is none */
+  public Entry<TypeV> lowerEntry( final long key ) { return entryNear(key, LT); }
+  /** @return the mapping with the least key strictly greater than the given
+   *  key, or null if there is none */
+  public Entry<TypeV> higherEntry( final long key ) { return entryNear(key, GT); }
+
+  // --- Updates -------------------------------------------------------------
+
+  /** Map the key to the value, replacing any previous mapping.
+   *  @return the previous value, or null if there was none
+   *  @throws NullPointerException if the value is null */
+  public TypeV put( final long key, final TypeV val ) { return doPut(key, val, false); }
+
+  /** Map the key to the value unless it is already mapped.
+   *  @return the current value, or null if the key was absent and is now mapped
+   *  @throws NullPointerException if the value is null */
+  public TypeV putIfAbsent( final long key, final TypeV val ) { return doPut(key, val, true); }
+
+  /** Replace the value of a mapped key.
+   *  @return the previous value, or null if the key was not mapped
+   *  @throws NullPointerException if the value is null */
+  public TypeV replace( final long key, final TypeV val ) {
+    if( val == null ) throw new NullPointerException();
+    while( true ) {
+      final Node<TypeV> n = findNear(key, EQ);
+      if( n == null || n._key != key ) return null;
+      final Object v = n._val;
+      if( v != null && v != n && n.CAS_val(v, val) ) return (TypeV)v;
+    }
+  }
+
+  /** Remove the mapping of the key.
+   *  @return the removed value, or null if the key was not mapped */
+  public TypeV remove( final long key ) { return doRemove(key, null); }
+
+  /** Remove the mapping of the key if it maps to a value equal to the given one.
+   *  @return true if the mapping was removed */
+  public boolean remove( final long key, final Object val ) {
+    return val != null && doRemove(key, val) != null;
+  }
+
+  /** Remove and return the mapping with the least key.
+   *  @return the removed mapping, or null if the map is empty */
+  public Entry<TypeV> pollFirstEntry() {
+    while( true ) {
+      final Node<TypeV> n = findNear(Long.MIN_VALUE, GT|EQ);
+      if( n == null ) return null;
+      final TypeV v = n.live_val();
+      if( v != null && remove_node(n, v) ) return new Entry<TypeV>(n._key, v);
+    }
+  }
+
+  /** Remove all mappings.  Concurrent inserts may survive. */
+  public void clear() {
+    while( pollFirstEntry() != null ) ;
+  }
+
+  private TypeV doPut( final long key, final TypeV val, final boolean only_if_absent ) {
+    if( val == null ) throw new NullPointerException();
+    Node<TypeV> z;
+    outer:
+    while( true ) {
+      for( Node<TypeV> b = findPredecessor(key,0), n = b._next; ; ) {
+        if( n != null ) {
+          final Node<TypeV> f = n._next;
+          if( n != b._next ) break;                       // Inconsistent read
+          final Object v = n._val;
+          if( v == null ) { n.help_delete(b, f); break; } // n is deleted
+          if( b._val == null || v == n ) break;           // b is deleted
+          if( key > n._key ) { b = n; n = f; continue; }
+          if( key == n._key ) {
+            if( only_if_absent || n.CAS_val(v, val) ) return (TypeV)v;
+            break;              // Lost a race to replace the value, retry
+          }
+        }
+        final int height = height(key);
+        z = new Node<TypeV>(key, val, n, height == 0 ? null : new Node[height]);
+        if( !b.CAS_next(n, z) ) break; // Lost a race to insert, retry
+        break outer;
+      }
+    }
+    _size.add(1);
+    final Node<TypeV> hint = _tail_hint;
+    if( hint == null || hint._key < key || hint._val == null )
+      _tail_hint = z;
+    link_tower(z);
+    return null;
+  }
+
+  // Link a freshly inserted node into its index levels, bottom up.  Gives up
+  // if the node gets deleted meanwhile.
+  private void link_tower( final Node<TypeV> z ) {
+    final int height = z.height();
+    int levels;
+    while( (levels = _levels) < height &&
+           !UNSAFE.compareAndSwapInt(this, _levels_offset, levels, height) ) ;
+    for( int lvl = 1; lvl <= height; lvl++ ) {
+      while( true ) {
+        if( z._val == null ) return;  // Deleted already, stop linking
+        Node<TypeV> b = findPredecessor(z._key, lvl);
+        Node<TypeV> r = b.up(lvl);
+        // Nodes linked since the search may now sit between b and z
+        while( r != null && r != z && r._key < z._key ) {
+          b = r;
+          r = r.up(lvl);
+        }
+        if( r == z ) break;           // Already linked
+        UNSAFE.putOrderedObject(z._tower, rawIndex(z._tower,lvl-1), r);
+        if( b.CAS_up(lvl, r, z) ) break;
+      }
+    }
+  }
+
+  private TypeV doRemove( final long key, final Object expected ) {
+    outer:
+    while( true ) {
+      for( Node<TypeV> b = findPredecessor(key,0), n = b._next; ; ) {
+        if( n == null ) break outer;
+        final Node<TypeV> f = n._next;
+        if( n != b._next ) break;                       // Inconsistent read
+        final Object v = n._val;
+        if( v == null ) { n.help_delete(b, f); break; } // n is deleted
+        if( b._val == null || v == n ) break;           // b is deleted
+        if( key < n._key ) break outer;
+        if( key > n._key ) { b = n; n = f; continue; }
+        if( expected != null && !expected.equals(v) ) break outer;
+        if( !n.CAS_val(v, null) ) break;
+        unlink(b, n, f);
+        return (TypeV)v;
+      }
+    }
+    return null;
+  }
+
+  // Delete a node found by a search, if it still holds 'v'
+  private boolean remove_node( final Node<TypeV> n, final Object v ) {
+    if( !n.CAS_val(v, null) ) return false;
+    unlink(null, n, n._next);
+    return true;
+  }
+
+  // Mark and unlink a node whose value this thread has CAS'd to null, or
+  // leave the cleanup to a search
+  private void unlink( final Node<TypeV> b, final Node<TypeV> n, final Node<TypeV> f ) {
+    _size.add(-1);
+    if( b == null || !n.CAS_next(f, new Node<TypeV>(f)) || !b.CAS_next(n, f) )
+      findNear(n._key, EQ);           // Clean up via a search
+    else if( n._tower != null )
+      findPredecessor(n._key, 0);     // Unlink the index levels
+  }
+
+  // --- Iteration -----------------------------------------------------------
+
+  /** @return an iterator over all values in ascending key order */
+  public RangeIterator iterator() { return range(Long.MIN_VALUE, Long.MAX_VALUE); }
+
+  /** An iterator over the values with keys from <tt>from</tt> to <tt>to</tt>,
+   *  both inclusive, in ascending key order.  It is weakly consistent:
+   *  mappings added or removed during the iteration may or may not be seen.
+   *  @return the iterator */
+  public RangeIterator range( final long from, final long to ) { return new RangeIterator(from, to); }
+
+  /** A weakly consistent ascending iterator over the values of a key range;
+   *  {@link #key} gives the primitive key of the last returned value. */
+  public final class RangeIterator implements Iterator<TypeV> {
+    private final long _to;
+    private Node<TypeV> _next;
+    private TypeV _next_val;
+    private long _key;
+    private boolean _has_last;
+
+    RangeIterator( final long from, final long to ) {
+      _to = to;
+      if( from <= to ) {
+        final Node<TypeV> n = findNear(from, GT|EQ);
+        advance_from(n);
+      }
+    }
+
+    // Position on the first live node at or after n within the range
+    private void advance_from( Node<TypeV> n ) {
+      for( ; n != null; n = n._next ) {
+        final Object v = n._val;
+        if( v == null || v == n ) continue; // Deleted or a marker
+        if( n._key > _to ) break;
+        _next = n;
+        _next_val = (TypeV)v;
+        return;
+      }
+      _next = null;
+      _next_val = null;
+    }
+
+    public boolean hasNext() { return _next != null; }
+
+    public TypeV next() {
+      final Node<TypeV> n = _next;
+      if( n == null ) throw new NoSuchElementException();
+      final TypeV v = _next_val;
+      _key = n._key;
+      _has_last = true;
+      advance_from(n._next);
+      return v;
+    }
+
+    /** @return the key of the value last returned by {@link #next}
+     *  @throws IllegalStateException if next was not called yet */
+    public long key() {
+      if( !_has_last ) throw new IllegalStateException();
+      return _key;
+    }
+
+    /** Remove the mapping of the key last returned. */
+    public void remove() {
+      if( !_has_last ) throw new IllegalStateException();
+      _has_last = false;
+      doRemove(_key, null);
+    }
+  }
+
+  /** @return the mappings in ascending key order, as in {@link java.util.AbstractMap#toString} */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder().append('{');
+    final RangeIterator it = iterator();
+    while( it.hasNext() ) {
+      final TypeV v = it.next();
+      sb.append(it.key()).append('=').append(v);
+      if( it.hasNext() ) sb.append(", ");
+    }
+    return sb.append('}').toString();
+  }
+}
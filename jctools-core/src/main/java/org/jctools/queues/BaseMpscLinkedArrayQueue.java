@@ -139,14 +139,31 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
     private static final int QUEUE_FULL = 2;
     private static final int QUEUE_RESIZE = 3;
 
+    /**
+     * Consumed buffers handed back from the consumer to the resizing producer, null if pooling is disabled.
+     */
+    private final SpscArrayQueue<Object> freeChunksPool;
 
     /**
      * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
      *                        Must be 2 or more.
      */
     public BaseMpscLinkedArrayQueue(final int initialCapacity)
+    {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                        Must be 2 or more.
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse by producers, 0 disables pooling.
+     *                        Only chunks of the size the producer is about to allocate are reused.
+     */
+    public BaseMpscLinkedArrayQueue(final int initialCapacity, final int maxPooledChunks)
     {
         RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+        RangeUtil.checkGreaterThanOrEqual(maxPooledChunks, 0, "maxPooledChunks");
+        freeChunksPool = maxPooledChunks == 0 ? null : new SpscArrayQueue<Object>(maxPooledChunks);
 
         int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
         // leave lower bit of mask clear
@@ -305,7 +322,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
 
         if (e == JUMP)
         {
-            final E[] nextBuffer = nextBuffer(buffer, mask);
+            final E[] nextBuffer = nextBuffer(buffer, mask, offset);
             return newBufferPoll(nextBuffer, index);
         }
 
@@ -341,7 +358,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         }
         if (e == JUMP)
         {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            return newBufferPeek(nextBuffer(buffer, mask, offset), index);
         }
         return (E) e;
     }
@@ -392,16 +409,41 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
     protected abstract long availableInQueue(long pIndex, long cIndex);
 
     @SuppressWarnings("unchecked")
-    private E[] nextBuffer(final E[] buffer, final long mask)
+    private E[] nextBuffer(final E[] buffer, final long mask, final long offset)
     {
-        final long offset = nextArrayOffset(mask);
-        final E[] nextBuffer = (E[]) lvRefElement(buffer, offset);
+        final E[] nextBuffer = (E[]) lvRefElement(buffer, nextArrayOffset(mask));
         consumerBuffer = nextBuffer;
         consumerMask = (length(nextBuffer) - 2) << 1;
-        soRefElement(buffer, offset, BUFFER_CONSUMED);
+        if (freeChunksPool == null)
+        {
+            soRefElement(buffer, nextArrayOffset(mask), BUFFER_CONSUMED);
+        }
+        else
+        {
+            // All elements are consumed and producers never revisit a linked buffer, clear the JUMP and the link and
+            // hand it back. The pool offer is a release, so the clearing is visible to the producer which reuses it.
+            soRefElement(buffer, offset, null);
+            soRefElement(buffer, nextArrayOffset(mask), null);
+            freeChunksPool.relaxedOffer(buffer);
+        }
         return nextBuffer;
     }
 
+    @SuppressWarnings("unchecked")
+    private E[] allocateOrReuseBuffer(int length)
+    {
+        if (freeChunksPool != null)
+        {
+            // only the resizing producer polls the pool, resizing is exclusive
+            final E[] pooled = (E[]) freeChunksPool.relaxedPoll();
+            if (pooled != null && length(pooled) == length)
+            {
+                return pooled;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
     private static long nextArrayOffset(long mask)
     {
         return modifiedCalcCircularRefElementOffset(mask + 2, Long.MAX_VALUE);
@@ -468,7 +510,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         }
         if (e == JUMP)
         {
-            final E[] nextBuffer = nextBuffer(buffer, mask);
+            final E[] nextBuffer = nextBuffer(buffer, mask, offset);
             return newBufferPoll(nextBuffer, index);
         }
         soRefElement(buffer, offset, null);
@@ -488,7 +530,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         Object e = lvRefElement(buffer, offset);
         if (e == JUMP)
         {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            return newBufferPeek(nextBuffer(buffer, mask, offset), index);
         }
         return (E) e;
     }
@@ -584,6 +626,18 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
     {
         MessagePassingQueueUtil.fill(this, s, wait, exit);
     }
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -609,6 +663,8 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
      * The returned iterator is not guaranteed to return elements in queue order,
      * and races with the consumer thread may cause gaps in the sequence of returned elements.
      * Like {link #relaxedPoll}, the iterator may not immediately return newly inserted elements.
+     * If chunk pooling is enabled the iterator stops early on reaching a chunk which was recycled, and may return
+     * elements from a recycled chunk which are out of order with respect to the rest.
      *
      * @return The iterator.
      */
@@ -716,7 +772,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         final E[] newBuffer;
         try
         {
-            newBuffer = allocateRefArray(newBufferLength);
+            newBuffer = allocateOrReuseBuffer(newBufferLength);
         }
         catch (OutOfMemoryError oom)
         {
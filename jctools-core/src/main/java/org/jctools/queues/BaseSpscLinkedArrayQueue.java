@@ -15,6 +15,7 @@ package org.jctools.queues;
 
 import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
 import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.RangeUtil;
 
 import java.util.AbstractQueue;
 import java.util.Iterator;
@@ -108,6 +109,26 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
 
     private static final Object JUMP = new Object();
 
+    /**
+     * Consumed buffers handed back from the consumer to the producer, null if pooling is disabled.
+     */
+    private final SpscArrayQueue<Object> freeChunksPool;
+
+    BaseSpscLinkedArrayQueue()
+    {
+        this(0);
+    }
+
+    /**
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse by the producer, 0 disables pooling.
+     *                        Only chunks of the size the producer is about to allocate are reused.
+     */
+    BaseSpscLinkedArrayQueue(int maxPooledChunks)
+    {
+        RangeUtil.checkGreaterThanOrEqual(maxPooledChunks, 0, "maxPooledChunks");
+        freeChunksPool = maxPooledChunks == 0 ? null : new SpscArrayQueue<Object>(maxPooledChunks);
+    }
+
     @Override
     public final Iterator<E> iterator()
     {
@@ -178,6 +199,18 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
         return peek();
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -354,6 +387,34 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
         soProducerIndex(currIndex + 1);// this ensures atomic write of long on 32bit platforms
     }
 
+    @SuppressWarnings("unchecked")
+    final E[] allocateOrReuseBuffer(int length)
+    {
+        if (freeChunksPool != null)
+        {
+            final E[] pooled = (E[]) freeChunksPool.relaxedPoll();
+            if (pooled != null && length(pooled) == length)
+            {
+                return pooled;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
+    /**
+     * Hand a fully consumed buffer back to the producer, must be called before the consumer mask is updated.
+     */
+    private void recycleBuffer(final E[] buffer, final long index)
+    {
+        if (freeChunksPool != null)
+        {
+            // The link is already cleared, clear the JUMP. The pool offer is a release, so the clearing is visible to
+            // the producer when it reuses the buffer.
+            soRefElement(buffer, calcCircularRefElementOffset(index, consumerMask), null);
+            freeChunksPool.relaxedOffer(buffer);
+        }
+    }
+
     final void writeToQueue(final E[] buffer, final E e, final long index, final long offset)
     {
         soRefElement(buffer, offset, e);
@@ -363,6 +424,7 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
     private E newBufferPeek(final E[] buffer, final long index)
     {
         E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, index);
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -373,6 +435,7 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
     private E newBufferPoll(final E[] buffer, final long index)
     {
         E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, index);
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+/**
+ * A {@code int} specialisation of the {@link MessagePassingQueue} API, for passing primitive values between threads
+ * without boxing. Implementations store elements in a {@code int[]} and track availability through indices or
+ * sequences rather than through a reserved element value, so any {@code int} may be offered.
+ * <p>
+ * As no element value is reserved, {@link #poll()} and {@link #peek()} cannot signal an empty queue in band. They
+ * return the queue's {@link #emptyValue()} when there is nothing to take, which callers should pick to be a value
+ * they never offer. Consumers which must tell an empty queue apart from any offered value should use the
+ * {@link IntConsumer} based methods instead.
+ */
+public interface MessagePassingIntQueue
+{
+    int UNBOUNDED_CAPACITY = MessagePassingQueue.UNBOUNDED_CAPACITY;
+
+    interface IntConsumer
+    {
+        /**
+         * This method will process an element already removed from the queue. This method is expected to
+         * never throw an exception.
+         * <p>
+         * <b>WARNING</b>: this method is assumed to never throw. Breaking this assumption can lead to a broken queue.
+         *
+         * @param e the element
+         */
+        void accept(int e);
+    }
+
+    /**
+     * Called from a producer thread subject to the restrictions appropriate to the implementation.
+     *
+     * @param e any value, including {@link #emptyValue()}
+     * @return true if element was inserted into the queue, false iff full
+     */
+    boolean offer(int e);
+
+    /**
+     * Called from the consumer thread subject to the restrictions appropriate to the implementation.
+     *
+     * @return an element from the queue if one is available, {@link #emptyValue()} iff empty
+     */
+    int poll();
+
+    /**
+     * Called from the consumer thread subject to the restrictions appropriate to the implementation.
+     *
+     * @return an element from the queue if one is available, {@link #emptyValue()} iff empty
+     */
+    int peek();
+
+    /**
+     * Called from the consumer thread subject to the restrictions appropriate to the implementation. Unlike
+     * {@link #poll()} the polled element is handed to the consumer, so there is no ambiguity with the empty value.
+     *
+     * @return true if an element was polled and handed to c, false iff empty
+     * @throws IllegalArgumentException c is {@code null}
+     */
+    boolean poll(IntConsumer c);
+
+    /**
+     * @return the value returned by {@link #poll()} and {@link #peek()} when the queue is empty
+     */
+    int emptyValue();
+
+    /**
+     * This method's accuracy is subject to concurrent modifications happening as the size is estimated and as
+     * such is a best effort rather than absolute value.
+     *
+     * @return number of messages in the queue, between 0 and {@link Integer#MAX_VALUE} but less or equals to
+     * capacity (if bounded).
+     */
+    int size();
+
+    /**
+     * Removes all items from the queue. Called from the consumer thread subject to the restrictions
+     * appropriate to the implementation.
+     */
+    void clear();
+
+    /**
+     * This method's accuracy is subject to concurrent modifications happening as the observation is carried
+     * out.
+     *
+     * @return true if empty, false otherwise
+     */
+    boolean isEmpty();
+
+    /**
+     * @return the capacity of this queue or {@link #UNBOUNDED_CAPACITY} if not bounded
+     */
+    int capacity();
+
+    /**
+     * Remove up to <i>limit</i> elements from the queue and hand to consume. Semantically similar to
+     * {@link MessagePassingQueue#drain(MessagePassingQueue.Consumer, int)}. Called from a consumer thread subject
+     * to the restrictions appropriate to the implementation.
+     *
+     * @return the number of polled elements
+     * @throws IllegalArgumentException c is {@code null}
+     * @throws IllegalArgumentException if limit is negative
+     */
+    int drain(IntConsumer c, int limit);
+
+    /**
+     * Remove all available item from the queue and hand to consume. Semantically similar to
+     * {@link MessagePassingQueue#drain(MessagePassingQueue.Consumer)}. Called from a consumer thread subject to
+     * the restrictions appropriate to the implementation.
+     *
+     * @return the number of polled elements
+     * @throws IllegalArgumentException c is {@code null}
+     */
+    int drain(IntConsumer c);
+}
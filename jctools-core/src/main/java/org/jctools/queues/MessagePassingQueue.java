@@ -181,6 +181,58 @@ public interface MessagePassingQueue<T>
      */
     T relaxedPeek();
 
+    /**
+     * Offer up to <i>length</i> elements from <i>src</i>, starting at <i>srcOffset</i> and in array order. This
+     * should be semantically similar to:
+     * <p>
+     * <pre>{@code
+     *   int i = 0;
+     *   for(;i < length && relaxedOffer(src[srcOffset + i]); i++);
+     *   return i;
+     * }</pre>
+     * <p>
+     * Implementations may claim the slots for the whole batch at once rather than one element at a time. There's no
+     * strong commitment to the queue being full when fewer than <i>length</i> elements are offered. Called from a
+     * producer thread subject to the restrictions appropriate to the implementation.
+     *
+     * @param src the elements to offer, none of the elements in the offered range may be {@code null}
+     * @param srcOffset index of the first element in src to offer
+     * @param length maximum number of elements to offer
+     * @return the number of offered elements, these are always the first elements of the range
+     * @throws IllegalArgumentException src is {@code null}
+     * @throws IllegalArgumentException if length is negative
+     * @throws IndexOutOfBoundsException if the range is not within the bounds of src
+     * @throws NullPointerException if an element in the range is {@code null}, no element is offered
+     */
+    int offer(T[] src, int srcOffset, int length);
+
+    /**
+     * Remove up to <i>length</i> elements from the queue into <i>dst</i>, starting at <i>dstOffset</i> and in
+     * queue order. This should be semantically similar to:
+     * <p>
+     * <pre>{@code
+     *   M m;
+     *   int i = 0;
+     *   for(;i < length && (m = relaxedPoll()) != null; i++){
+     *     dst[dstOffset + i] = m;
+     *   }
+     *   return i;
+     * }</pre>
+     * <p>
+     * Implementations may claim and release the slots for the whole batch at once rather than one element at a
+     * time. There's no strong commitment to the queue being empty when fewer than <i>length</i> elements are polled.
+     * Called from a consumer thread subject to the restrictions appropriate to the implementation.
+     *
+     * @param dst the array to copy polled elements into, elements past the returned count are left untouched
+     * @param dstOffset index in dst of the first polled element
+     * @param length maximum number of elements to poll
+     * @return the number of polled elements
+     * @throws IllegalArgumentException dst is {@code null}
+     * @throws IllegalArgumentException if length is negative
+     * @throws IndexOutOfBoundsException if the range is not within the bounds of dst
+     */
+    int poll(T[] dst, int dstOffset, int length);
+
     /**
      * Remove up to <i>limit</i> elements from the queue and hand to consume. This should be semantically
      * similar to:
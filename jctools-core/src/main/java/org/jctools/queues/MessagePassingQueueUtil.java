@@ -61,6 +61,59 @@ public final class MessagePassingQueueUtil
         return i;
     }
 
+    public static <E> int offer(MessagePassingQueue<E> queue, E[] src, int srcOffset, int length)
+    {
+        checkOfferRange(src, srcOffset, length);
+        int i = 0;
+        for (; i < length && queue.relaxedOffer(src[srcOffset + i]); i++)
+        {
+            // keep offering while there's room
+        }
+        return i;
+    }
+
+    public static <E> int poll(MessagePassingQueue<E> queue, E[] dst, int dstOffset, int length)
+    {
+        checkPollRange(dst, dstOffset, length);
+        E e;
+        int i = 0;
+        for (; i < length && (e = queue.relaxedPoll()) != null; i++)
+        {
+            dst[dstOffset + i] = e;
+        }
+        return i;
+    }
+
+    /**
+     * Validate the arguments to a batch offer. The elements are all checked up front so that a {@code null} in
+     * the range fails the call before any slots are claimed.
+     */
+    public static void checkOfferRange(Object[] src, int srcOffset, int length)
+    {
+        checkRange(src, srcOffset, length, "src");
+        for (int i = srcOffset, end = srcOffset + length; i < end; i++)
+        {
+            if (null == src[i])
+                throw new NullPointerException("src[" + i + "] is null");
+        }
+    }
+
+    public static void checkPollRange(Object[] dst, int dstOffset, int length)
+    {
+        checkRange(dst, dstOffset, length, "dst");
+    }
+
+    private static void checkRange(Object[] array, int offset, int length, String name)
+    {
+        if (null == array)
+            throw new IllegalArgumentException(name + " is null");
+        if (length < 0)
+            throw new IllegalArgumentException("length is negative: " + length);
+        if (offset < 0 || offset > array.length - length)
+            throw new IndexOutOfBoundsException(
+                name + " range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + array.length);
+    }
+
     public static <E> void drain(MessagePassingQueue<E> queue, Consumer<E> c, WaitStrategy wait, ExitCondition exit)
     {
         if (null == c)
@@ -361,6 +361,18 @@ abstract class MpUnboundedXaddArrayQueue<R extends MpUnboundedXaddChunk<R,E>, E>
         return offer(e);
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -502,6 +502,191 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E>
         return limit;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * Slots are claimed in look ahead sized ranges using a single CAS per range, reverting to claiming them one by
+     * one when the look ahead slot is not yet available.
+     */
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        MessagePassingQueueUtil.checkOfferRange(src, srcOffset, length);
+        if (length == 0)
+            return 0;
+
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+        final E[] buffer = this.buffer;
+        final int maxLookAheadStep = Math.min(this.lookAheadStep, length);
+        int produced = 0;
+
+        while (produced < length)
+        {
+            final int remaining = length - produced;
+            final int lookAheadStep = Math.min(remaining, maxLookAheadStep);
+            final long pIndex = lvProducerIndex();
+            final long lookAheadIndex = pIndex + lookAheadStep - 1;
+            final long lookAheadSeqOffset = calcCircularLongElementOffset(lookAheadIndex, mask);
+            final long lookAheadSeq = lvLongElement(sBuffer, lookAheadSeqOffset);
+            final long expectedLookAheadSeq = lookAheadIndex;
+            if (lookAheadSeq == expectedLookAheadSeq && casProducerIndex(pIndex, expectedLookAheadSeq + 1))
+            {
+                for (int i = 0; i < lookAheadStep; i++)
+                {
+                    final long index = pIndex + i;
+                    final long seqOffset = calcCircularLongElementOffset(index, mask);
+                    final long offset = calcCircularRefElementOffset(index, mask);
+                    while (lvLongElement(sBuffer, seqOffset) != index)
+                    {
+
+                    }
+                    soRefElement(buffer, offset, src[srcOffset + produced + i]);
+                    soLongElement(sBuffer, seqOffset, index + 1);
+                }
+                produced += lookAheadStep;
+            }
+            else
+            {
+                if (lookAheadSeq < expectedLookAheadSeq)
+                {
+                    if (notAvailable(pIndex, mask, sBuffer, pIndex))
+                    {
+                        return produced;
+                    }
+                }
+                return produced + offerOneByOne(src, srcOffset + produced, remaining);
+            }
+        }
+        return length;
+    }
+
+    private int offerOneByOne(E[] src, int srcOffset, int length)
+    {
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+        final E[] buffer = this.buffer;
+
+        long pIndex;
+        long seqOffset;
+        long seq;
+        for (int i = 0; i < length; i++)
+        {
+            do
+            {
+                pIndex = lvProducerIndex();
+                seqOffset = calcCircularLongElementOffset(pIndex, mask);
+                seq = lvLongElement(sBuffer, seqOffset);
+                if (seq < pIndex)
+                { // slot not cleared by consumer yet
+                    return i;
+                }
+            }
+            while (seq > pIndex || // another producer has moved the sequence
+                !casProducerIndex(pIndex, pIndex + 1)); // failed to increment
+            soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), src[srcOffset + i]);
+            soLongElement(sBuffer, seqOffset, pIndex + 1);
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * Elements are claimed in look ahead sized ranges using a single CAS per range, reverting to claiming them one
+     * by one when the look ahead element is not yet available.
+     */
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        MessagePassingQueueUtil.checkPollRange(dst, dstOffset, length);
+        if (length == 0)
+            return 0;
+
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+        final E[] buffer = this.buffer;
+        final int maxLookAheadStep = Math.min(this.lookAheadStep, length);
+        int consumed = 0;
+
+        while (consumed < length)
+        {
+            final int remaining = length - consumed;
+            final int lookAheadStep = Math.min(remaining, maxLookAheadStep);
+            final long cIndex = lvConsumerIndex();
+            final long lookAheadIndex = cIndex + lookAheadStep - 1;
+            final long lookAheadSeqOffset = calcCircularLongElementOffset(lookAheadIndex, mask);
+            final long lookAheadSeq = lvLongElement(sBuffer, lookAheadSeqOffset);
+            final long expectedLookAheadSeq = lookAheadIndex + 1;
+            if (lookAheadSeq == expectedLookAheadSeq && casConsumerIndex(cIndex, expectedLookAheadSeq))
+            {
+                for (int i = 0; i < lookAheadStep; i++)
+                {
+                    final long index = cIndex + i;
+                    final long seqOffset = calcCircularLongElementOffset(index, mask);
+                    final long offset = calcCircularRefElementOffset(index, mask);
+                    final long expectedSeq = index + 1;
+                    while (lvLongElement(sBuffer, seqOffset) != expectedSeq)
+                    {
+
+                    }
+                    dst[dstOffset + consumed + i] = lpRefElement(buffer, offset);
+                    soRefElement(buffer, offset, null);
+                    soLongElement(sBuffer, seqOffset, index + mask + 1);
+                }
+                consumed += lookAheadStep;
+            }
+            else
+            {
+                if (lookAheadSeq < expectedLookAheadSeq)
+                {
+                    if (notAvailable(cIndex, mask, sBuffer, cIndex + 1))
+                    {
+                        return consumed;
+                    }
+                }
+                return consumed + pollOneByOne(dst, dstOffset + consumed, remaining);
+            }
+        }
+        return length;
+    }
+
+    private int pollOneByOne(E[] dst, int dstOffset, int length)
+    {
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+        final E[] buffer = this.buffer;
+
+        long cIndex;
+        long seqOffset;
+        long seq;
+        long expectedSeq;
+        for (int i = 0; i < length; i++)
+        {
+            do
+            {
+                cIndex = lvConsumerIndex();
+                seqOffset = calcCircularLongElementOffset(cIndex, mask);
+                seq = lvLongElement(sBuffer, seqOffset);
+                expectedSeq = cIndex + 1;
+                if (seq < expectedSeq)
+                {
+                    return i;
+                }
+            }
+            while (seq > expectedSeq || // another consumer beat us to it
+                !casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
+
+            final long offset = calcCircularRefElementOffset(cIndex, mask);
+            dst[dstOffset + i] = lpRefElement(buffer, offset);
+            soRefElement(buffer, offset, null);
+            soLongElement(sBuffer, seqOffset, cIndex + mask + 1);
+        }
+        return length;
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import static org.jctools.util.PortableJvmInfo.CPUs;
+import static org.jctools.util.Pow2.isPowerOfTwo;
+import static org.jctools.util.Pow2.roundToPowerOfTwo;
+
+/**
+ * Use a set number of parallel MPMC queues (lanes) to diffuse the contention on both head and tail.
+ */
+abstract class MpmcCompoundQueueL0Pad<E> extends AbstractQueue<E> implements MessagePassingQueue<E>
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpmcCompoundQueueColdFields<E> extends MpmcCompoundQueueL0Pad<E>
+{
+    // must be power of 2
+    protected final int parallelQueues;
+    protected final int parallelQueuesMask;
+    protected final MpmcArrayQueue<E>[] queues;
+
+    @SuppressWarnings("unchecked")
+    MpmcCompoundQueueColdFields(int capacity, int queueParallelism)
+    {
+        parallelQueues = isPowerOfTwo(queueParallelism) ? queueParallelism
+            : roundToPowerOfTwo(queueParallelism) / 2;
+        parallelQueuesMask = parallelQueues - 1;
+        queues = new MpmcArrayQueue[parallelQueues];
+        int fullCapacity = roundToPowerOfTwo(capacity);
+        // MpmcArrayQueue requires a capacity of at least 2
+        RangeUtil.checkGreaterThanOrEqual(fullCapacity, parallelQueues * 2, "fullCapacity");
+        for (int i = 0; i < parallelQueues; i++)
+        {
+            queues[i] = new MpmcArrayQueue<E>(fullCapacity / parallelQueues);
+        }
+    }
+}
+
+/**
+ * An MPMC analogue of {@link MpscCompoundQueue}. The queue is split into a power of 2 number of {@link MpmcArrayQueue}
+ * lanes, and the capacity is split evenly between them so the total number of elements is bounded by
+ * {@link #capacity()}. Each thread has a home lane, picked by thread id: producers offer to their home lane and only
+ * move on to other lanes when it is full, consumers poll from their home lane and steal from other lanes when it is
+ * empty. Producers and consumers on different lanes do not contend on the same indices.
+ * <p>
+ * Ordering is FIFO per lane only, there is no ordering between elements offered to different lanes.
+ */
+public class MpmcCompoundQueue<E> extends MpmcCompoundQueueColdFields<E>
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    public MpmcCompoundQueue(int capacity)
+    {
+        this(capacity, CPUs);
+    }
+
+    public MpmcCompoundQueue(int capacity, int queueParallelism)
+    {
+        super(capacity, queueParallelism);
+    }
+
+    private int homeLane()
+    {
+        return (int) (Thread.currentThread().getId() & parallelQueuesMask);
+    }
+
+    @Override
+    public boolean offer(final E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        if (queues[start].offer(e))
+        {
+            return true;
+        }
+        // home lane is full, try the rest
+        for (int i = start + 1; i < start + parallelQueuesMask + 1; i++)
+        {
+            if (queues[i & parallelQueuesMask].offer(e))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public E poll()
+    {
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        E e = queues[start].poll();
+        if (e != null)
+        {
+            return e;
+        }
+        // home lane is empty, steal from the rest
+        for (int i = start + 1; i < start + parallelQueuesMask + 1; i++)
+        {
+            e = queues[i & parallelQueuesMask].poll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek()
+    {
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        for (int i = start; i < start + parallelQueuesMask + 1; i++)
+        {
+            final E e = queues[i & parallelQueuesMask].peek();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size()
+    {
+        int size = 0;
+        for (MpmcArrayQueue<E> lane : queues)
+        {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for (MpmcArrayQueue<E> lane : queues)
+        {
+            if (!lane.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        for (int i = start; i < start + parallelQueuesMask + 1; i++)
+        {
+            if (queues[i & parallelQueuesMask].relaxedOffer(e))
+            {
+                return true;
+            }
+        }
+        // this is a relaxed offer, we can fail for any reason we like
+        return false;
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        for (int i = start; i < start + parallelQueuesMask + 1; i++)
+        {
+            final E e = queues[i & parallelQueuesMask].relaxedPoll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        for (int i = start; i < start + parallelQueuesMask + 1; i++)
+        {
+            final E e = queues[i & parallelQueuesMask].relaxedPeek();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return queues.length * queues[0].capacity();
+    }
+
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        final int limit = capacity();
+        return drain(c, limit);
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        return MessagePassingQueueUtil.fillBounded(this, s);
+    }
+
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        // drain the home lane first, then steal from the rest
+        int drained = 0;
+        for (int i = start; i < start + parallelQueuesMask + 1 && drained < limit; i++)
+        {
+            drained += queues[i & parallelQueuesMask].drain(c, limit - drained);
+        }
+        return drained;
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        final int parallelQueuesMask = this.parallelQueuesMask;
+        final int start = homeLane();
+        final MpmcArrayQueue<E>[] queues = this.queues;
+        // fill the home lane first, then spill over to the rest
+        int filled = 0;
+        for (int i = start; i < start + parallelQueuesMask + 1 && filled < limit; i++)
+        {
+            filled += queues[i & parallelQueuesMask].fill(s, limit - filled);
+        }
+        return filled;
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+}
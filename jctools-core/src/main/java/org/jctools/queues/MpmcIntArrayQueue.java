@@ -0,0 +1,388 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeIntArrayAccess.*;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+
+abstract class MpmcIntArrayQueueL0Pad
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpmcIntArrayQueueColdFields extends MpmcIntArrayQueueL0Pad
+{
+    protected final long mask;
+    protected final int[] buffer;
+    protected final long[] sequenceBuffer;
+    protected final int emptyValue;
+
+    MpmcIntArrayQueueColdFields(int capacity, int emptyValue)
+    {
+        int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        mask = actualCapacity - 1;
+        buffer = allocateIntArray(actualCapacity);
+        sequenceBuffer = allocateLongArray(actualCapacity);
+        for (long i = 0; i < actualCapacity; i++)
+        {
+            soLongElement(sequenceBuffer, calcCircularLongElementOffset(i, mask), i);
+        }
+        this.emptyValue = emptyValue;
+    }
+}
+
+abstract class MpmcIntArrayQueueL1Pad extends MpmcIntArrayQueueColdFields
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpmcIntArrayQueueL1Pad(int capacity, int emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class MpmcIntArrayQueueProducerIndexField extends MpmcIntArrayQueueL1Pad
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(MpmcIntArrayQueueProducerIndexField.class, "producerIndex");
+
+    private volatile long producerIndex;
+
+    MpmcIntArrayQueueProducerIndexField(int capacity, int emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcIntArrayQueueL2Pad extends MpmcIntArrayQueueProducerIndexField
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpmcIntArrayQueueL2Pad(int capacity, int emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class MpmcIntArrayQueueConsumerIndexField extends MpmcIntArrayQueueL2Pad
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(MpmcIntArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    MpmcIntArrayQueueConsumerIndexField(int capacity, int emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final boolean casConsumerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, C_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcIntArrayQueueL3Pad extends MpmcIntArrayQueueConsumerIndexField
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpmcIntArrayQueueL3Pad(int capacity, int emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+/**
+ * A Multi-Producer-Multi-Consumer queue of primitive {@code int} values backed by a pre-allocated {@code int[]}.
+ * <p>
+ * This is the D. Vyukov algorithm used by {@link MpmcArrayQueue}, with the elements array replaced by an
+ * {@code int[]}. Slot ownership is entirely tracked by the sequence buffer, so there is no reserved element value
+ * and any {@code int} may be offered.
+ */
+public class MpmcIntArrayQueue extends MpmcIntArrayQueueL3Pad
+    implements MessagePassingIntQueue, IndexedQueue, QueueProgressIndicators
+{
+    public MpmcIntArrayQueue(final int capacity)
+    {
+        this(capacity, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param capacity   rounded up to the next power of 2
+     * @param emptyValue returned by {@link #poll()} and {@link #peek()} when the queue is empty
+     */
+    public MpmcIntArrayQueue(final int capacity, final int emptyValue)
+    {
+        super(RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity"), emptyValue);
+    }
+
+    @Override
+    public boolean offer(final int e)
+    {
+        final long mask = this.mask;
+        final long capacity = mask + 1;
+        final long[] sBuffer = sequenceBuffer;
+
+        long pIndex;
+        long seqOffset;
+        long seq;
+        long cIndex = Long.MIN_VALUE;// start with bogus value, hope we don't need it
+        do
+        {
+            pIndex = lvProducerIndex();
+            seqOffset = calcCircularLongElementOffset(pIndex, mask);
+            seq = lvLongElement(sBuffer, seqOffset);
+            // consumer has not moved this seq forward, it's as last producer left
+            if (seq < pIndex)
+            {
+                // Extra check required to ensure [Queue.offer == false iff queue is full]
+                if (pIndex - capacity >= cIndex && // test against cached cIndex
+                    pIndex - capacity >= (cIndex = lvConsumerIndex()))
+                { // test against latest cIndex
+                    return false;
+                }
+                else
+                {
+                    seq = pIndex + 1; // (+) hack to make it go around again without CAS
+                }
+            }
+        }
+        while (seq > pIndex || // another producer has moved the sequence(or +)
+            !casProducerIndex(pIndex, pIndex + 1)); // failed to increment
+
+        spIntElement(buffer, calcCircularIntElementOffset(pIndex, mask), e);
+        // seq++;
+        soLongElement(sBuffer, seqOffset, pIndex + 1);
+        return true;
+    }
+
+    @Override
+    public int poll()
+    {
+        final long cIndex = claimConsumerIndex();
+        if (cIndex < 0)
+        {
+            return emptyValue;
+        }
+        return removeElement(cIndex);
+    }
+
+    @Override
+    public boolean poll(final IntConsumer c)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        final long cIndex = claimConsumerIndex();
+        if (cIndex < 0)
+        {
+            return false;
+        }
+        c.accept(removeElement(cIndex));
+        return true;
+    }
+
+    /**
+     * Because an empty poll cannot be signalled in band we must test the producer index when the next element is
+     * not visible, as per {@link MpmcArrayQueue#poll()}.
+     *
+     * @return the claimed consumer index, or -1 iff the queue is empty
+     */
+    private long claimConsumerIndex()
+    {
+        // local load of field to avoid repeated loads after volatile reads
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+
+        long cIndex;
+        long seq;
+        long seqOffset;
+        long expectedSeq;
+        long pIndex = -1; // start with bogus value, hope we don't need it
+        do
+        {
+            cIndex = lvConsumerIndex();
+            seqOffset = calcCircularLongElementOffset(cIndex, mask);
+            seq = lvLongElement(sBuffer, seqOffset);
+            expectedSeq = cIndex + 1;
+            if (seq < expectedSeq)
+            { // slot has not been moved by producer
+                if (cIndex >= pIndex && // test against cached pIndex
+                    cIndex == (pIndex = lvProducerIndex()))
+                { // update pIndex if we must
+                    // strict empty check, this ensures [Queue.poll() == null iff isEmpty()]
+                    return -1;
+                }
+                else
+                {
+                    seq = expectedSeq + 1; // trip another go around
+                }
+            }
+        }
+        while (seq > expectedSeq || // another consumer beat us to it
+            !casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
+        return cIndex;
+    }
+
+    private int removeElement(final long cIndex)
+    {
+        final long mask = this.mask;
+        final int e = lpIntElement(buffer, calcCircularIntElementOffset(cIndex, mask));
+        // i.e. seq += capacity
+        soLongElement(sequenceBuffer, calcCircularLongElementOffset(cIndex, mask), cIndex + mask + 1);
+        return e;
+    }
+
+    @Override
+    public int peek()
+    {
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+        long cIndex;
+        int e;
+        do
+        {
+            cIndex = lvConsumerIndex();
+            final long seqOffset = calcCircularLongElementOffset(cIndex, mask);
+            if (lvLongElement(sBuffer, seqOffset) == cIndex + 1)
+            {
+                e = lpIntElement(buffer, calcCircularIntElementOffset(cIndex, mask));
+                // the element is only valid if no consumer has taken it (and a producer replaced it) meanwhile
+                if (lvLongElement(sBuffer, seqOffset) == cIndex + 1)
+                {
+                    return e;
+                }
+            }
+            // other consumers may have grabbed the element, or queue might be empty
+        }
+        while (cIndex != lvProducerIndex());
+        return emptyValue;
+    }
+
+    @Override
+    public int drain(final IntConsumer c, final int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+
+        final long[] sBuffer = sequenceBuffer;
+        final long mask = this.mask;
+
+        long cIndex;
+        long seqOffset;
+        long seq;
+        long expectedSeq;
+        for (int i = 0; i < limit; i++)
+        {
+            do
+            {
+                cIndex = lvConsumerIndex();
+                seqOffset = calcCircularLongElementOffset(cIndex, mask);
+                seq = lvLongElement(sBuffer, seqOffset);
+                expectedSeq = cIndex + 1;
+                if (seq < expectedSeq)
+                {
+                    return i;
+                }
+            }
+            while (seq > expectedSeq || // another consumer beat us to it
+                !casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
+
+            c.accept(removeElement(cIndex));
+        }
+        return limit;
+    }
+
+    @Override
+    public int drain(final IntConsumer c)
+    {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public int emptyValue()
+    {
+        return emptyValue;
+    }
+
+    @Override
+    public int size()
+    {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    @Override
+    public int capacity()
+    {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public void clear()
+    {
+        long cIndex;
+        while ((cIndex = claimConsumerIndex()) >= 0)
+        {
+            removeElement(cIndex);
+        }
+    }
+
+    @Override
+    public long currentProducerIndex()
+    {
+        return lvProducerIndex();
+    }
+
+    @Override
+    public long currentConsumerIndex()
+    {
+        return lvConsumerIndex();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+}
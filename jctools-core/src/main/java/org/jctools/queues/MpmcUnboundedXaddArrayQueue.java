@@ -409,6 +409,116 @@ public class MpmcUnboundedXaddArrayQueue<E> extends MpUnboundedXaddArrayQueue<Mp
         return consumerBuffer.lvElement(ciChunkOffset);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rather than claiming elements one at a time, as {@link #relaxedPoll()} does, consumers claim a contiguous range
+     * of up to {@code limit} published slots with a single CAS on the consumer index. The range stops at the first
+     * slot which is yet to be published and at the end of the current consumer chunk, so the chunk rotation stays with
+     * the single consumer claiming the first slot of the next chunk.
+     */
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        int drained = 0;
+        while (drained < limit)
+        {
+            final long cIndex = this.lvConsumerIndex();
+            final MpmcUnboundedXaddChunk<E> cChunk = this.lvConsumerChunk();
+
+            final int ciChunkOffset = (int) (cIndex & chunkMask);
+            final long ciChunkIndex = cIndex >> chunkShift;
+
+            if (ciChunkOffset == 0 && cIndex != 0)
+            {
+                // first element of a new chunk: poll takes care of moving the consumer chunk forward
+                final E e = poll();
+                if (e == null)
+                {
+                    break;
+                }
+                c.accept(e);
+                drained++;
+                continue;
+            }
+            final long ccChunkIndex = cChunk.lvIndex();
+            if (ccChunkIndex != ciChunkIndex)
+            {
+                // stale view of the world or the consumer chunk is yet to be moved forward
+                continue;
+            }
+            final boolean pooled = cChunk.isPooled();
+            // Only the published prefix of the range is claimed: a slot claimed ahead of its producer could see the
+            // chunk moved on and recycled by other consumers before the producer gets to it.
+            final int maxClaim = Math.min(limit - drained, (chunkMask + 1) - ciChunkOffset);
+            int claim = 0;
+            while (claim < maxClaim && isPublished(cChunk, pooled, ciChunkOffset + claim, ciChunkIndex))
+            {
+                claim++;
+            }
+            if (claim == 0)
+            {
+                // empty, or the next element is yet to be published and we already have a batch to hand over
+                if (drained > 0 || cIndex == lvProducerIndex())
+                {
+                    break;
+                }
+                continue;
+            }
+            if (!casConsumerIndex(cIndex, cIndex + claim))
+            {
+                continue;
+            }
+            for (int i = 0; i < claim; i++)
+            {
+                final int offset = ciChunkOffset + i;
+                final E e = cChunk.lvElement(offset);
+                assert e != null;
+                cChunk.soElement(offset, null);
+                c.accept(e);
+            }
+            drained += claim;
+        }
+        return drained;
+    }
+
+    private static <E> boolean isPublished(
+        MpmcUnboundedXaddChunk<E> chunk,
+        boolean pooled,
+        int offset,
+        long chunkIndex)
+    {
+        if (pooled)
+        {
+            return chunk.lvSequence(offset) == chunkIndex;
+        }
+        return chunk.lvElement(offset) != null;
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        final int chunkCapacity = chunkMask + 1;
+        int drained = 0;
+        int claimed;
+        do
+        {
+            claimed = drain(c, chunkCapacity);
+            drained += claimed;
+        }
+        while (claimed == chunkCapacity);
+        return drained;
+    }
+
     @Override
     public int fill(Supplier<E> s, int limit)
     {
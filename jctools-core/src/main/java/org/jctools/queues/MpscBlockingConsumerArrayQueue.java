@@ -290,19 +290,47 @@ public class MpscBlockingConsumerArrayQueue<E> extends MpscBlockingConsumerArray
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Producers waiting for space park for short intervals rather than spin or yield, so a producer running on a
+     * virtual thread releases its carrier thread while the queue is full.
+     */
     @Override
     public void put(E e) throws InterruptedException
     {
-        if (!offer(e))
-            throw new UnsupportedOperationException();
+        while (!offer(e))
+        {
+            backoff();
+        }
     }
 
     @Override
     public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
     {
         if (offer(e))
+        {
             return true;
-        throw new UnsupportedOperationException();
+        }
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e))
+        {
+            if (deadlineNanos - System.nanoTime() <= 0)
+            {
+                return false;
+            }
+            backoff();
+        }
+        return true;
+    }
+
+    private static void backoff() throws InterruptedException
+    {
+        LockSupport.parkNanos(1L);
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
     }
 
     private boolean offerAndWakeup(E[] buffer, long mask, long pIndex, E e)
@@ -722,6 +750,18 @@ public class MpscBlockingConsumerArrayQueue<E> extends MpscBlockingConsumerArray
         MessagePassingQueueUtil.fill(this, s, wait, exit);
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -0,0 +1,288 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.jctools.util.Pow2.roundToPowerOfTwo;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+// $gen:ordered-fields
+abstract class MpscBlockingConsumerChunkedArrayQueueBlockedField<E> extends MpscChunkedArrayQueue<E>
+{
+    private final static long BLOCKED_OFFSET =
+        fieldOffset(MpscBlockingConsumerChunkedArrayQueueBlockedField.class, "blocked");
+
+    private volatile Thread blocked;
+
+    MpscBlockingConsumerChunkedArrayQueueBlockedField(int initialCapacity, int maxCapacity)
+    {
+        super(initialCapacity, maxCapacity);
+    }
+
+    final Thread lvBlocked()
+    {
+        return blocked;
+    }
+
+    final void svBlocked(Thread thread)
+    {
+        blocked = thread;
+    }
+
+    final void soBlocked(Thread thread)
+    {
+        UNSAFE.putOrderedObject(this, BLOCKED_OFFSET, thread);
+    }
+
+    final boolean casBlocked(Thread expect, Thread newValue)
+    {
+        return UNSAFE.compareAndSwapObject(this, BLOCKED_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpscBlockingConsumerChunkedArrayQueuePad<E>
+    extends MpscBlockingConsumerChunkedArrayQueueBlockedField<E>
+{
+    long p0, p1, p2, p3, p4, p5, p6, p7;
+    long p10, p11, p12, p13, p14, p15, p16;
+
+    MpscBlockingConsumerChunkedArrayQueuePad(int initialCapacity, int maxCapacity)
+    {
+        super(initialCapacity, maxCapacity);
+    }
+}
+
+/**
+ * A {@link MpscChunkedArrayQueue} which implements the consumer side of {@link BlockingQueue}. Producers waiting for
+ * space in a full queue back off with a minimal park rather than block, as there is no consumer to producer wakeup.
+ * <p>
+ * A consumer about to park publishes itself in the {@code blocked} field and re-checks the queue is empty. A producer
+ * reads {@code blocked} after claiming its slot, and only if it finds a parked consumer does it CAS the field to null
+ * and unpark it. Both sides write before they read, through volatile/atomic operations, so either the consumer sees
+ * the new element or the producer sees the consumer. When the consumer is not parked the producer cost is a single
+ * load of a field which is not written to.
+ */
+public class MpscBlockingConsumerChunkedArrayQueue<E> extends MpscBlockingConsumerChunkedArrayQueuePad<E>
+    implements BlockingQueue<E>
+{
+    public MpscBlockingConsumerChunkedArrayQueue(int maxCapacity)
+    {
+        this(max(2, min(1024, roundToPowerOfTwo(maxCapacity / 8))), maxCapacity);
+    }
+
+    /**
+     * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                        Must be 2 or more.
+     * @param maxCapacity     the maximum capacity will be rounded up to the closest power of 2 and will be the
+     *                        upper limit of number of elements in this queue. Must be 4 or more and round up to a larger
+     *                        power of 2 than initialCapacity.
+     */
+    public MpscBlockingConsumerChunkedArrayQueue(int initialCapacity, int maxCapacity)
+    {
+        super(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        if (!super.offer(e))
+        {
+            return false;
+        }
+        wakeupConsumerIfBlocked();
+        return true;
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        final int filled = super.fill(s, limit);
+        if (filled != 0)
+        {
+            wakeupConsumerIfBlocked();
+        }
+        return filled;
+    }
+
+    private void wakeupConsumerIfBlocked()
+    {
+        final Thread consumerThread = lvBlocked();
+        // only one producer pays for the unpark
+        if (consumerThread != null && casBlocked(consumerThread, null))
+        {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        while (!offer(e))
+        {
+            backoff();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if (offer(e))
+        {
+            return true;
+        }
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e))
+        {
+            if (deadlineNanos - System.nanoTime() <= 0)
+            {
+                return false;
+            }
+            backoff();
+        }
+        return true;
+    }
+
+    private static void backoff() throws InterruptedException
+    {
+        LockSupport.parkNanos(1L);
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public E take() throws InterruptedException
+    {
+        E e;
+        while ((e = poll()) == null)
+        {
+            parkUntilNotEmpty(false, 0);
+        }
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        E e = poll();
+        if (e != null)
+        {
+            return e;
+        }
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        while (true)
+        {
+            final long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0 || !parkUntilNotEmpty(true, remainingNanos))
+            {
+                // last chance, an element may have arrived as we timed out
+                return poll();
+            }
+            e = poll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * @return false if timed out while still empty, true once the queue is not empty
+     */
+    private boolean parkUntilNotEmpty(boolean timed, long nanos) throws InterruptedException
+    {
+        final Thread currentThread = Thread.currentThread();
+        final long deadlineNanos = timed ? System.nanoTime() + nanos : 0;
+        try
+        {
+            while (true)
+            {
+                // StoreLoad: the blocked store must be visible before we load the producer index
+                svBlocked(currentThread);
+                if (!isEmpty())
+                {
+                    return true;
+                }
+                if (timed)
+                {
+                    final long remainingNanos = deadlineNanos - System.nanoTime();
+                    if (remainingNanos <= 0)
+                    {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remainingNanos);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        finally
+        {
+            soBlocked(null);
+        }
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return capacity() - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        if (null == c)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException("c is this queue");
+        int i = 0;
+        E e;
+        while (i < maxElements && (e = poll()) != null)
+        {
+            c.add(e);
+            i++;
+        }
+        return i;
+    }
+}
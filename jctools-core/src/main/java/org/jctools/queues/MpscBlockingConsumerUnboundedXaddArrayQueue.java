@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+// $gen:ordered-fields
+abstract class MpscBlockingConsumerUnboundedXaddArrayQueueBlockedField<E> extends MpscUnboundedXaddArrayQueue<E>
+{
+    private final static long BLOCKED_OFFSET =
+        fieldOffset(MpscBlockingConsumerUnboundedXaddArrayQueueBlockedField.class, "blocked");
+
+    private volatile Thread blocked;
+
+    MpscBlockingConsumerUnboundedXaddArrayQueueBlockedField(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+
+    final Thread lvBlocked()
+    {
+        return blocked;
+    }
+
+    final void svBlocked(Thread thread)
+    {
+        blocked = thread;
+    }
+
+    final void soBlocked(Thread thread)
+    {
+        UNSAFE.putOrderedObject(this, BLOCKED_OFFSET, thread);
+    }
+
+    final boolean casBlocked(Thread expect, Thread newValue)
+    {
+        return UNSAFE.compareAndSwapObject(this, BLOCKED_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpscBlockingConsumerUnboundedXaddArrayQueuePad<E>
+    extends MpscBlockingConsumerUnboundedXaddArrayQueueBlockedField<E>
+{
+    long p0, p1, p2, p3, p4, p5, p6, p7;
+    long p10, p11, p12, p13, p14, p15, p16;
+
+    MpscBlockingConsumerUnboundedXaddArrayQueuePad(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+}
+
+/**
+ * A {@link MpscUnboundedXaddArrayQueue} which implements the consumer side of {@link BlockingQueue}, producers never
+ * block as the queue is unbounded.
+ * <p>
+ * A consumer about to park publishes itself in the {@code blocked} field and re-checks the queue is empty. A producer
+ * reads {@code blocked} after claiming its slot, and only if it finds a parked consumer does it CAS the field to null
+ * and unpark it. Both sides write before they read, through volatile/atomic operations, so either the consumer sees
+ * the new element or the producer sees the consumer. When the consumer is not parked the producer cost is a single
+ * load of a field which is not written to.
+ */
+public class MpscBlockingConsumerUnboundedXaddArrayQueue<E> extends MpscBlockingConsumerUnboundedXaddArrayQueuePad<E>
+    implements BlockingQueue<E>
+{
+    /**
+     * @param chunkSize       The buffer size to be used in each chunk of this queue
+     * @param maxPooledChunks The maximum number of reused chunks kept around to avoid allocation, chunks are
+     *                        pre-allocated
+     */
+    public MpscBlockingConsumerUnboundedXaddArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+
+    public MpscBlockingConsumerUnboundedXaddArrayQueue(int chunkSize)
+    {
+        this(chunkSize, 2);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        super.offer(e);
+        wakeupConsumerIfBlocked();
+        return true;
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        final int filled = super.fill(s, limit);
+        if (filled != 0)
+        {
+            wakeupConsumerIfBlocked();
+        }
+        return filled;
+    }
+
+    private void wakeupConsumerIfBlocked()
+    {
+        final Thread consumerThread = lvBlocked();
+        // only one producer pays for the unpark
+        if (consumerThread != null && casBlocked(consumerThread, null))
+        {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    @Override
+    public void put(E e)
+    {
+        offer(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit)
+    {
+        return offer(e);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public E take() throws InterruptedException
+    {
+        E e;
+        while ((e = poll()) == null)
+        {
+            parkUntilNotEmpty(false, 0);
+        }
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        E e = poll();
+        if (e != null)
+        {
+            return e;
+        }
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        while (true)
+        {
+            final long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0 || !parkUntilNotEmpty(true, remainingNanos))
+            {
+                // last chance, an element may have arrived as we timed out
+                return poll();
+            }
+            e = poll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * @return false if timed out while still empty, true once the queue is not empty
+     */
+    private boolean parkUntilNotEmpty(boolean timed, long nanos) throws InterruptedException
+    {
+        final Thread currentThread = Thread.currentThread();
+        final long deadlineNanos = timed ? System.nanoTime() + nanos : 0;
+        try
+        {
+            while (true)
+            {
+                // StoreLoad: the blocked store must be visible before we load the producer index
+                svBlocked(currentThread);
+                if (!isEmpty())
+                {
+                    return true;
+                }
+                if (timed)
+                {
+                    final long remainingNanos = deadlineNanos - System.nanoTime();
+                    if (remainingNanos <= 0)
+                    {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remainingNanos);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        finally
+        {
+            soBlocked(null);
+        }
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        if (null == c)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException("c is this queue");
+        int i = 0;
+        E e;
+        while (i < maxElements && (e = poll()) != null)
+        {
+            c.add(e);
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
+import org.jctools.util.Pow2;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+
+abstract class MpscLongArrayQueueL0Pad
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpscLongArrayQueueColdFields extends MpscLongArrayQueueL0Pad
+{
+    protected final long mask;
+    protected final long[] buffer;
+    // slot i holds (index + 1) once the element for index has been written, 0 before the first write
+    protected final long[] sequenceBuffer;
+    protected final long emptyValue;
+
+    MpscLongArrayQueueColdFields(int capacity, long emptyValue)
+    {
+        int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        mask = actualCapacity - 1;
+        buffer = allocateLongArray(actualCapacity);
+        sequenceBuffer = allocateLongArray(actualCapacity);
+        this.emptyValue = emptyValue;
+    }
+}
+
+abstract class MpscLongArrayQueueL1Pad extends MpscLongArrayQueueColdFields
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpscLongArrayQueueL1Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class MpscLongArrayQueueProducerIndexField extends MpscLongArrayQueueL1Pad
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(MpscLongArrayQueueProducerIndexField.class, "producerIndex");
+
+    private volatile long producerIndex;
+
+    MpscLongArrayQueueProducerIndexField(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpscLongArrayQueueMidPad extends MpscLongArrayQueueProducerIndexField
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpscLongArrayQueueMidPad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class MpscLongArrayQueueProducerLimitField extends MpscLongArrayQueueMidPad
+{
+    private final static long P_LIMIT_OFFSET = fieldOffset(MpscLongArrayQueueProducerLimitField.class, "producerLimit");
+
+    // First unavailable index the producer may claim up to before rereading the consumer index
+    private volatile long producerLimit;
+
+    MpscLongArrayQueueProducerLimitField(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+        this.producerLimit = mask + 1;
+    }
+
+    final long lvProducerLimit()
+    {
+        return producerLimit;
+    }
+
+    final void soProducerLimit(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
+
+abstract class MpscLongArrayQueueL2Pad extends MpscLongArrayQueueProducerLimitField
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpscLongArrayQueueL2Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class MpscLongArrayQueueConsumerIndexField extends MpscLongArrayQueueL2Pad
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(MpscLongArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    MpscLongArrayQueueConsumerIndexField(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex()
+    {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class MpscLongArrayQueueL3Pad extends MpscLongArrayQueueConsumerIndexField
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    MpscLongArrayQueueL3Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+/**
+ * A Multi-Producer-Single-Consumer queue of primitive {@code long} values backed by a pre-allocated
+ * {@code long[]}.
+ * <p>
+ * The producer side follows {@link MpscArrayQueue}: producers claim an index with a CAS on the producer index,
+ * rechecking the consumer index only when the cached producer limit is reached. As any {@code long} is a valid
+ * element, a claimed slot is published by an ordered store of its index into a sequence buffer rather than by the
+ * element becoming non-null.
+ */
+public class MpscLongArrayQueue extends MpscLongArrayQueueL3Pad
+    implements MessagePassingLongQueue, IndexedQueue, QueueProgressIndicators
+{
+    public MpscLongArrayQueue(final int capacity)
+    {
+        this(capacity, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param capacity   rounded up to the next power of 2
+     * @param emptyValue returned by {@link #poll()} and {@link #peek()} when the queue is empty
+     */
+    public MpscLongArrayQueue(final int capacity, final long emptyValue)
+    {
+        super(Math.max(capacity, 2), emptyValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * Lock free offer using a single CAS. As class name suggests access is permitted to many threads
+     * concurrently.
+     */
+    @Override
+    public boolean offer(final long e)
+    {
+        // use a cached view on consumer index (potentially updated in loop)
+        final long mask = this.mask;
+        long producerLimit = lvProducerLimit();
+        long pIndex;
+        do
+        {
+            pIndex = lvProducerIndex();
+            if (pIndex >= producerLimit)
+            {
+                final long cIndex = lvConsumerIndex();
+                producerLimit = cIndex + mask + 1;
+
+                if (pIndex >= producerLimit)
+                {
+                    return false; // FULL :(
+                }
+                else
+                {
+                    // update producer limit to the next index that we must recheck the consumer index
+                    // this is racy, but the race is benign
+                    soProducerLimit(producerLimit);
+                }
+            }
+        }
+        while (!casProducerIndex(pIndex, pIndex + 1));
+
+        // Won CAS, store the element and then publish it by moving the slot sequence
+        spLongElement(buffer, calcCircularLongElementOffset(pIndex, mask), e);
+        soLongElement(sequenceBuffer, calcCircularLongElementOffset(pIndex, mask), pIndex + 1);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * As class name suggests access is limited to a single thread. A producer which has claimed the next slot but
+     * not yet published it will cause this method to spin until it does.
+     */
+    @Override
+    public long poll()
+    {
+        final long cIndex = lpConsumerIndex();
+        if (!awaitAvailable(cIndex))
+        {
+            return emptyValue;
+        }
+        final long e = lpLongElement(buffer, calcCircularLongElementOffset(cIndex, mask));
+        soConsumerIndex(cIndex + 1);
+        return e;
+    }
+
+    @Override
+    public long peek()
+    {
+        final long cIndex = lpConsumerIndex();
+        if (!awaitAvailable(cIndex))
+        {
+            return emptyValue;
+        }
+        return lpLongElement(buffer, calcCircularLongElementOffset(cIndex, mask));
+    }
+
+    @Override
+    public boolean poll(final LongConsumer c)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        final long cIndex = lpConsumerIndex();
+        if (!awaitAvailable(cIndex))
+        {
+            return false;
+        }
+        final long e = lpLongElement(buffer, calcCircularLongElementOffset(cIndex, mask));
+        soConsumerIndex(cIndex + 1);
+        c.accept(e);
+        return true;
+    }
+
+    private boolean awaitAvailable(final long cIndex)
+    {
+        final long[] sBuffer = this.sequenceBuffer;
+        final long seqOffset = calcCircularLongElementOffset(cIndex, mask);
+        if (lvLongElement(sBuffer, seqOffset) != cIndex + 1)
+        {
+            /*
+             * NOTE: Queue may not actually be empty in the case of a producer (P1) being interrupted after
+             * winning the CAS on offer but before publishing the element in the queue. Other producers may go on
+             * to fill up the queue after this element.
+             */
+            if (cIndex == lvProducerIndex())
+            {
+                return false;
+            }
+            while (lvLongElement(sBuffer, seqOffset) != cIndex + 1)
+            {
+                // spin until the producer publishes
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int drain(final LongConsumer c, final int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final long[] buffer = this.buffer;
+        final long[] sBuffer = this.sequenceBuffer;
+        final long mask = this.mask;
+        final long cIndex = lpConsumerIndex();
+
+        for (int i = 0; i < limit; i++)
+        {
+            final long index = cIndex + i;
+            final long offset = calcCircularLongElementOffset(index, mask);
+            if (lvLongElement(sBuffer, offset) != index + 1)
+            {
+                return i;
+            }
+            final long e = lpLongElement(buffer, offset);
+            soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            c.accept(e);
+        }
+        return limit;
+    }
+
+    @Override
+    public int drain(final LongConsumer c)
+    {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public long emptyValue()
+    {
+        return emptyValue;
+    }
+
+    @Override
+    public int size()
+    {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    @Override
+    public int capacity()
+    {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public void clear()
+    {
+        while (poll(NOOP))
+        {
+            // if you stare into the void
+        }
+    }
+
+    @Override
+    public long currentProducerIndex()
+    {
+        return lvProducerIndex();
+    }
+
+    @Override
+    public long currentConsumerIndex()
+    {
+        return lvConsumerIndex();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    private static final LongConsumer NOOP = new LongConsumer()
+    {
+        @Override
+        public void accept(long e)
+        {
+        }
+    };
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+abstract class MpscPriorityArrayQueueL0Pad<E> extends AbstractQueue<E> implements MessagePassingQueue<E>
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpscPriorityArrayQueueColdFields<E> extends MpscPriorityArrayQueueL0Pad<E>
+{
+    protected final MpscArrayQueue<E>[] levels;
+
+    @SuppressWarnings("unchecked")
+    MpscPriorityArrayQueueColdFields(int levelCount, int levelCapacity)
+    {
+        RangeUtil.checkGreaterThanOrEqual(levelCount, 1, "levelCount");
+        levels = new MpscArrayQueue[levelCount];
+        for (int i = 0; i < levelCount; i++)
+        {
+            levels[i] = new MpscArrayQueue<E>(levelCapacity);
+        }
+    }
+}
+
+/**
+ * A bounded MPSC queue with a fixed number of priority levels, each backed by its own {@link MpscArrayQueue} lane.
+ * Level 0 is the highest priority. Consumer methods always service a higher level before a lower one, so an element
+ * offered to a higher level overtakes any elements waiting in lower levels. Ordering is FIFO within a level.
+ * <p>
+ * The {@link MessagePassingQueue} producer methods which take no level offer to the lowest priority level, so
+ * existing producers keep FIFO semantics while control messages can be offered via {@link #offer(Object, int)}.
+ * {@link #size()} and {@link #capacity()} cover all levels, {@link #size(int)} and {@link #capacity(int)} report a
+ * single level.
+ */
+public class MpscPriorityArrayQueue<E> extends MpscPriorityArrayQueueColdFields<E>
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    /**
+     * @param levelCount the number of priority levels, level 0 being the highest priority
+     * @param levelCapacity the capacity of each level, rounded up to the next power of 2
+     */
+    public MpscPriorityArrayQueue(int levelCount, int levelCapacity)
+    {
+        super(levelCount, levelCapacity);
+    }
+
+    /**
+     * @return the number of priority levels
+     */
+    public int levels()
+    {
+        return levels.length;
+    }
+
+    /**
+     * Offer to the lowest priority level.
+     */
+    @Override
+    public boolean offer(E e)
+    {
+        return levels[levels.length - 1].offer(e);
+    }
+
+    /**
+     * @param level the priority level, 0 being the highest priority
+     * @return true if the element was added to the given level, false if the level is full
+     * @throws IndexOutOfBoundsException if level is not in [0, levels())
+     */
+    public boolean offer(E e, int level)
+    {
+        return levels[level].offer(e);
+    }
+
+    /**
+     * @param level the priority level, 0 being the highest priority
+     * @return false if the element was not added to the given level, see {@link #relaxedOffer(Object)}
+     * @throws IndexOutOfBoundsException if level is not in [0, levels())
+     */
+    public boolean relaxedOffer(E e, int level)
+    {
+        return levels[level].relaxedOffer(e);
+    }
+
+    /**
+     * @param level the priority level, 0 being the highest priority
+     * @return the number of elements filled into the given level, see {@link #fill(Supplier, int)}
+     * @throws IndexOutOfBoundsException if level is not in [0, levels())
+     */
+    public int fill(Supplier<E> s, int limit, int level)
+    {
+        return levels[level].fill(s, limit);
+    }
+
+    @Override
+    public E poll()
+    {
+        final MpscArrayQueue<E>[] levels = this.levels;
+        for (int i = 0; i < levels.length; i++)
+        {
+            final E e = levels[i].poll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek()
+    {
+        final MpscArrayQueue<E>[] levels = this.levels;
+        for (int i = 0; i < levels.length; i++)
+        {
+            final E e = levels[i].peek();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return levels[levels.length - 1].relaxedOffer(e);
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        final MpscArrayQueue<E>[] levels = this.levels;
+        for (int i = 0; i < levels.length; i++)
+        {
+            final E e = levels[i].relaxedPoll();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        final MpscArrayQueue<E>[] levels = this.levels;
+        for (int i = 0; i < levels.length; i++)
+        {
+            final E e = levels[i].relaxedPeek();
+            if (e != null)
+            {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size()
+    {
+        int size = 0;
+        for (MpscArrayQueue<E> level : levels)
+        {
+            size += level.size();
+        }
+        return size;
+    }
+
+    /**
+     * @param level the priority level, 0 being the highest priority
+     * @return the number of elements in the given level, see {@link #size()}
+     * @throws IndexOutOfBoundsException if level is not in [0, levels())
+     */
+    public int size(int level)
+    {
+        return levels[level].size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for (MpscArrayQueue<E> level : levels)
+        {
+            if (!level.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return levels.length * levels[0].capacity();
+    }
+
+    /**
+     * @param level the priority level, 0 being the highest priority
+     * @return the capacity of the given level
+     * @throws IndexOutOfBoundsException if level is not in [0, levels())
+     */
+    public int capacity(int level)
+    {
+        return levels[level].capacity();
+    }
+
+    @Override
+    public void clear()
+    {
+        for (MpscArrayQueue<E> level : levels)
+        {
+            level.clear();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return levels[levels.length - 1].offer(src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Levels are re-checked from the highest priority for every element, so an element offered to a higher level
+     * during the drain is handed over before the remaining lower level elements.
+     */
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        return drain(c, capacity());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Levels are re-checked from the highest priority for every element, so an element offered to a higher level
+     * during the drain is handed over before the remaining lower level elements.
+     */
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        return levels[levels.length - 1].fill(s);
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        return levels[levels.length - 1].fill(s, limit);
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        levels[levels.length - 1].fill(s, wait, exit);
+    }
+}
@@ -30,6 +30,16 @@ public class MpscUnboundedArrayQueue<E> extends BaseMpscLinkedArrayQueue<E>
         super(chunkSize);
     }
 
+    /**
+     * @param chunkSize       the size of each linked chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse rather than allocating new ones,
+     *                        0 disables pooling
+     */
+    public MpscUnboundedArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+
 
     @Override
     protected long availableInQueue(long pIndex, long cIndex)
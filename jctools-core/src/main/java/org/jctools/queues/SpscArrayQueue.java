@@ -331,6 +331,88 @@ public class SpscArrayQueue<E> extends SpscArrayQueueL3Pad<E>
         return limit;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single producer thread use only.
+     */
+    @Override
+    public int offer(final E[] src, final int srcOffset, final int length)
+    {
+        MessagePassingQueueUtil.checkOfferRange(src, srcOffset, length);
+        if (length == 0)
+            return 0;
+
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        final int lookAheadStep = this.lookAheadStep;
+        final long producerIndex = this.lpProducerIndex();
+
+        for (int i = 0; i < length; i++)
+        {
+            final long index = producerIndex + i;
+            final long lookAheadElementOffset =
+                calcCircularRefElementOffset(index + lookAheadStep, mask);
+            if (null == lvRefElement(buffer, lookAheadElementOffset))
+            {
+                int lookAheadLimit = Math.min(lookAheadStep, length - i);
+                for (int j = 0; j < lookAheadLimit; j++)
+                {
+                    final long offset = calcCircularRefElementOffset(index + j, mask);
+                    soRefElement(buffer, offset, src[srcOffset + i + j]);
+                    soProducerIndex(index + j + 1); // ordered store -> atomic and ordered for size()
+                }
+                i += lookAheadLimit - 1;
+            }
+            else
+            {
+                final long offset = calcCircularRefElementOffset(index, mask);
+                if (null != lvRefElement(buffer, offset))
+                {
+                    return i;
+                }
+                soRefElement(buffer, offset, src[srcOffset + i]);
+                soProducerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            }
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public int poll(final E[] dst, final int dstOffset, final int length)
+    {
+        MessagePassingQueueUtil.checkPollRange(dst, dstOffset, length);
+        if (length == 0)
+            return 0;
+
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long consumerIndex = this.lpConsumerIndex();
+
+        int i = 0;
+        for (; i < length; i++)
+        {
+            final long offset = calcCircularRefElementOffset(consumerIndex + i, mask);
+            final E e = lvRefElement(buffer, offset);
+            if (null == e)
+            {
+                break;
+            }
+            soRefElement(buffer, offset, null);
+            dst[dstOffset + i] = e;
+        }
+        if (i != 0)
+        {
+            soConsumerIndex(consumerIndex + i); // ordered store -> atomic and ordered for size()
+        }
+        return i;
+    }
+
     @Override
     public void drain(final Consumer<E> c, final WaitStrategy w, final ExitCondition exit)
     {
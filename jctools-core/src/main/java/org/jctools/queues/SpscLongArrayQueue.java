@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
+import org.jctools.util.Pow2;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+
+abstract class SpscLongArrayQueueL0Pad
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class SpscLongArrayQueueColdFields extends SpscLongArrayQueueL0Pad
+{
+    protected final long mask;
+    protected final long[] buffer;
+    protected final long emptyValue;
+
+    SpscLongArrayQueueColdFields(int capacity, long emptyValue)
+    {
+        int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        mask = actualCapacity - 1;
+        buffer = allocateLongArray(actualCapacity);
+        this.emptyValue = emptyValue;
+    }
+}
+
+abstract class SpscLongArrayQueueL1Pad extends SpscLongArrayQueueColdFields
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    SpscLongArrayQueueL1Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class SpscLongArrayQueueProducerIndexFields extends SpscLongArrayQueueL1Pad
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(SpscLongArrayQueueProducerIndexFields.class, "producerIndex");
+
+    private volatile long producerIndex;
+    // First unavailable index the producer may claim up to before rereading the consumer index
+    protected long producerLimit;
+
+    SpscLongArrayQueueProducerIndexFields(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+        producerLimit = mask + 1;
+    }
+
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    final long lpProducerIndex()
+    {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    final void soProducerIndex(final long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscLongArrayQueueL2Pad extends SpscLongArrayQueueProducerIndexFields
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    SpscLongArrayQueueL2Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+abstract class SpscLongArrayQueueConsumerIndexFields extends SpscLongArrayQueueL2Pad
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(SpscLongArrayQueueConsumerIndexFields.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+    // Last observed producer index, the consumer may read up to it before rereading the producer index
+    protected long producerIndexCache;
+
+    SpscLongArrayQueueConsumerIndexFields(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex()
+    {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(final long newValue)
+    {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscLongArrayQueueL3Pad extends SpscLongArrayQueueConsumerIndexFields
+{
+    long p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    SpscLongArrayQueueL3Pad(int capacity, long emptyValue)
+    {
+        super(capacity, emptyValue);
+    }
+}
+
+/**
+ * A Single-Producer-Single-Consumer queue of primitive {@code long} values backed by a pre-allocated
+ * {@code long[]}.
+ * <p>
+ * As there is no reserved element value to mark an empty slot this is a Leslie Lamport style queue: elements are
+ * published by an ordered store of the producer index and slots are released by an ordered store of the consumer
+ * index. Each side caches its view of the other side's index to avoid reading the contended cache line on every
+ * operation.
+ */
+public class SpscLongArrayQueue extends SpscLongArrayQueueL3Pad
+    implements MessagePassingLongQueue, IndexedQueue, QueueProgressIndicators
+{
+    public SpscLongArrayQueue(final int capacity)
+    {
+        this(capacity, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param capacity   rounded up to the next power of 2
+     * @param emptyValue returned by {@link #poll()} and {@link #peek()} when the queue is empty
+     */
+    public SpscLongArrayQueue(final int capacity, final long emptyValue)
+    {
+        super(Math.max(capacity, 2), emptyValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single producer thread use only.
+     */
+    @Override
+    public boolean offer(final long e)
+    {
+        final long[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long producerIndex = lpProducerIndex();
+        if (producerIndex >= producerLimit)
+        {
+            final long producerLimit = lvConsumerIndex() + mask + 1;
+            if (producerIndex >= producerLimit)
+            {
+                return false; // FULL :(
+            }
+            this.producerLimit = producerLimit;
+        }
+        spLongElement(buffer, calcCircularLongElementOffset(producerIndex, mask), e);
+        soProducerIndex(producerIndex + 1); // ordered store -> publishes the element
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public long poll()
+    {
+        final long consumerIndex = lpConsumerIndex();
+        if (!isAvailable(consumerIndex))
+        {
+            return emptyValue;
+        }
+        final long e = lpLongElement(buffer, calcCircularLongElementOffset(consumerIndex, mask));
+        soConsumerIndex(consumerIndex + 1); // ordered store -> releases the slot
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public long peek()
+    {
+        final long consumerIndex = lpConsumerIndex();
+        if (!isAvailable(consumerIndex))
+        {
+            return emptyValue;
+        }
+        return lpLongElement(buffer, calcCircularLongElementOffset(consumerIndex, mask));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public boolean poll(final LongConsumer c)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        final long consumerIndex = lpConsumerIndex();
+        if (!isAvailable(consumerIndex))
+        {
+            return false;
+        }
+        final long e = lpLongElement(buffer, calcCircularLongElementOffset(consumerIndex, mask));
+        soConsumerIndex(consumerIndex + 1); // ordered store -> releases the slot
+        c.accept(e);
+        return true;
+    }
+
+    private boolean isAvailable(final long consumerIndex)
+    {
+        if (consumerIndex >= producerIndexCache)
+        {
+            final long producerIndex = lvProducerIndex();
+            if (consumerIndex >= producerIndex)
+            {
+                return false;
+            }
+            producerIndexCache = producerIndex;
+        }
+        return true;
+    }
+
+    @Override
+    public int drain(final LongConsumer c, final int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final long[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long consumerIndex = lpConsumerIndex();
+        long producerIndex = producerIndexCache;
+        if (consumerIndex + limit > producerIndex)
+        {
+            producerIndex = lvProducerIndex();
+            producerIndexCache = producerIndex;
+        }
+        final int count = (int) Math.min(producerIndex - consumerIndex, limit);
+        for (int i = 0; i < count; i++)
+        {
+            final long index = consumerIndex + i;
+            final long e = lpLongElement(buffer, calcCircularLongElementOffset(index, mask));
+            soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            c.accept(e);
+        }
+        return count;
+    }
+
+    @Override
+    public int drain(final LongConsumer c)
+    {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public long emptyValue()
+    {
+        return emptyValue;
+    }
+
+    @Override
+    public int size()
+    {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    @Override
+    public int capacity()
+    {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public void clear()
+    {
+        soConsumerIndex(lvProducerIndex());
+    }
+
+    @Override
+    public long currentProducerIndex()
+    {
+        return lvProducerIndex();
+    }
+
+    @Override
+    public long currentConsumerIndex()
+    {
+        return lvConsumerIndex();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+}
@@ -29,6 +29,17 @@ public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E>
 
     public SpscUnboundedArrayQueue(int chunkSize)
     {
+        this(chunkSize, 0);
+    }
+
+    /**
+     * @param chunkSize       the size of each linked chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse rather than allocating new ones,
+     *                        0 disables pooling
+     */
+    public SpscUnboundedArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        super(maxPooledChunks);
         int chunkCapacity = Math.max(Pow2.roundToPowerOfTwo(chunkSize), 16);
         long mask = chunkCapacity - 1;
         E[] buffer = allocateRefArray(chunkCapacity + 1);
@@ -60,7 +71,7 @@ public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E>
         {
             // we got one slot left to write into, and we are not full. Need to link new buffer.
             // allocate new buffer of same length
-            final E[] newBuffer = allocateRefArray((int) (mask + 2));
+            final E[] newBuffer = allocateOrReuseBuffer((int) (mask + 2));
             producerBuffer = newBuffer;
             producerBufferLimit = pIndex + mask - 1;
 
@@ -165,12 +165,29 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
 
     private static final int QUEUE_RESIZE = 3;
 
+    /**
+     * Consumed buffers handed back from the consumer to the resizing producer, null if pooling is disabled.
+     */
+    private final SpscAtomicArrayQueue<Object> freeChunksPool;
+
     /**
      * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
      *                        Must be 2 or more.
      */
     public BaseMpscLinkedAtomicArrayQueue(final int initialCapacity) {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                        Must be 2 or more.
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse by producers, 0 disables pooling.
+     *                        Only chunks of the size the producer is about to allocate are reused.
+     */
+    public BaseMpscLinkedAtomicArrayQueue(final int initialCapacity, final int maxPooledChunks) {
         RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+        RangeUtil.checkGreaterThanOrEqual(maxPooledChunks, 0, "maxPooledChunks");
+        freeChunksPool = maxPooledChunks == 0 ? null : new SpscAtomicArrayQueue<Object>(maxPooledChunks);
         int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
         // leave lower bit of mask clear
         long mask = (p2capacity - 1) << 1;
@@ -292,7 +309,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
             }
         }
         if (e == JUMP) {
-            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask, offset);
             return newBufferPoll(nextBuffer, index);
         }
         // release element null
@@ -322,7 +339,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
             } while (e == null);
         }
         if (e == JUMP) {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            return newBufferPeek(nextBuffer(buffer, mask, offset), index);
         }
         return (E) e;
     }
@@ -361,15 +378,34 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
     protected abstract long availableInQueue(long pIndex, long cIndex);
 
     @SuppressWarnings("unchecked")
-    private AtomicReferenceArray<E> nextBuffer(final AtomicReferenceArray<E> buffer, final long mask) {
-        final int offset = nextArrayOffset(mask);
-        final AtomicReferenceArray<E> nextBuffer = (AtomicReferenceArray<E>) lvRefElement(buffer, offset);
+    private AtomicReferenceArray<E> nextBuffer(final AtomicReferenceArray<E> buffer, final long mask, final int offset) {
+        final AtomicReferenceArray<E> nextBuffer = (AtomicReferenceArray<E>) lvRefElement(buffer, nextArrayOffset(mask));
         consumerBuffer = nextBuffer;
         consumerMask = (length(nextBuffer) - 2) << 1;
-        soRefElement(buffer, offset, BUFFER_CONSUMED);
+        if (freeChunksPool == null) {
+            soRefElement(buffer, nextArrayOffset(mask), BUFFER_CONSUMED);
+        } else {
+            // All elements are consumed and producers never revisit a linked buffer, clear the JUMP and the link and
+            // hand it back. The pool offer is a release, so the clearing is visible to the producer which reuses it.
+            soRefElement(buffer, offset, null);
+            soRefElement(buffer, nextArrayOffset(mask), null);
+            freeChunksPool.relaxedOffer(buffer);
+        }
         return nextBuffer;
     }
 
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<E> allocateOrReuseBuffer(int length) {
+        if (freeChunksPool != null) {
+            // only the resizing producer polls the pool, resizing is exclusive
+            final AtomicReferenceArray<E> pooled = (AtomicReferenceArray<E>) freeChunksPool.relaxedPoll();
+            if (pooled != null && length(pooled) == length) {
+                return pooled;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
     private static int nextArrayOffset(long mask) {
         return modifiedCalcCircularRefElementOffset(mask + 2, Long.MAX_VALUE);
     }
@@ -424,7 +460,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
             return null;
         }
         if (e == JUMP) {
-            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask, offset);
             return newBufferPoll(nextBuffer, index);
         }
         soRefElement(buffer, offset, null);
@@ -441,7 +477,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         final int offset = modifiedCalcCircularRefElementOffset(index, mask);
         Object e = lvRefElement(buffer, offset);
         if (e == JUMP) {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            return newBufferPeek(nextBuffer(buffer, mask, offset), index);
         }
         return (E) e;
     }
@@ -522,6 +558,16 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         MessagePassingQueueUtil.fill(this, s, wait, exit);
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length) {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length) {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c) {
         return drain(c, capacity());
@@ -544,6 +590,8 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
      * The returned iterator is not guaranteed to return elements in queue order,
      * and races with the consumer thread may cause gaps in the sequence of returned elements.
      * Like {link #relaxedPoll}, the iterator may not immediately return newly inserted elements.
+     * If chunk pooling is enabled the iterator stops early on reaching a chunk which was recycled, and may return
+     * elements from a recycled chunk which are out of order with respect to the rest.
      *
      * @return The iterator.
      */
@@ -638,7 +686,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         int newBufferLength = getNextBufferSize(oldBuffer);
         final AtomicReferenceArray<E> newBuffer;
         try {
-            newBuffer = allocateRefArray(newBufferLength);
+            newBuffer = allocateOrReuseBuffer(newBufferLength);
         } catch (OutOfMemoryError oom) {
             assert lvProducerIndex() == pIndex + 1;
             soProducerIndex(pIndex);
@@ -15,6 +15,7 @@ package org.jctools.queues.atomic;
 
 import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
 import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.RangeUtil;
 import java.util.AbstractQueue;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -130,6 +131,24 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private static final Object JUMP = new Object();
 
+    /**
+     * Consumed buffers handed back from the consumer to the producer, null if pooling is disabled.
+     */
+    private final SpscAtomicArrayQueue<Object> freeChunksPool;
+
+    BaseSpscLinkedAtomicArrayQueue() {
+        this(0);
+    }
+
+    /**
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse by the producer, 0 disables pooling.
+     *                        Only chunks of the size the producer is about to allocate are reused.
+     */
+    BaseSpscLinkedAtomicArrayQueue(int maxPooledChunks) {
+        RangeUtil.checkGreaterThanOrEqual(maxPooledChunks, 0, "maxPooledChunks");
+        freeChunksPool = maxPooledChunks == 0 ? null : new SpscAtomicArrayQueue<Object>(maxPooledChunks);
+    }
+
     @Override
     public final Iterator<E> iterator() {
         throw new UnsupportedOperationException();
@@ -189,6 +208,16 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
         return peek();
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length) {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length) {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c) {
         return MessagePassingQueueUtil.drain(this, c);
@@ -331,6 +360,29 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
         soProducerIndex(currIndex + 1);
     }
 
+    @SuppressWarnings("unchecked")
+    final AtomicReferenceArray<E> allocateOrReuseBuffer(int length) {
+        if (freeChunksPool != null) {
+            final AtomicReferenceArray<E> pooled = (AtomicReferenceArray<E>) freeChunksPool.relaxedPoll();
+            if (pooled != null && length(pooled) == length) {
+                return pooled;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
+    /**
+     * Hand a fully consumed buffer back to the producer, must be called before the consumer mask is updated.
+     */
+    private void recycleBuffer(final AtomicReferenceArray<E> buffer, final long index) {
+        if (freeChunksPool != null) {
+            // The link is already cleared, clear the JUMP. The pool offer is a release, so the clearing is visible to
+            // the producer when it reuses the buffer.
+            soRefElement(buffer, calcCircularRefElementOffset(index, consumerMask), null);
+            freeChunksPool.relaxedOffer(buffer);
+        }
+    }
+
     final void writeToQueue(final AtomicReferenceArray<E> buffer, final E e, final long index, final int offset) {
         soRefElement(buffer, offset, e);
         // this ensures atomic write of long on 32bit platforms
@@ -339,6 +391,7 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private E newBufferPeek(final AtomicReferenceArray<E> buffer, final long index) {
         AtomicReferenceArray<E> nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, index);
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -348,6 +401,7 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private E newBufferPoll(final AtomicReferenceArray<E> buffer, final long index) {
         AtomicReferenceArray<E> nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, index);
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
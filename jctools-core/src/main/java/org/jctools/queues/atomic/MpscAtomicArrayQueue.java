@@ -464,6 +464,78 @@ public class MpscAtomicArrayQueue<E> extends MpscAtomicArrayQueueL3Pad<E> {
         return actualLimit;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * Lock free batch offer, claiming all the slots for the batch using a single CAS.
+     */
+    @Override
+    public int offer(final E[] src, final int srcOffset, final int length) {
+        MessagePassingQueueUtil.checkOfferRange(src, srcOffset, length);
+        if (length == 0)
+            return 0;
+        final int mask = this.mask;
+        final long capacity = mask + 1;
+        long producerLimit = lvProducerLimit();
+        long pIndex;
+        int actualLength;
+        do {
+            pIndex = lvProducerIndex();
+            long available = producerLimit - pIndex;
+            if (available < length) {
+                final long cIndex = lvConsumerIndex();
+                producerLimit = cIndex + capacity;
+                available = producerLimit - pIndex;
+                if (available <= 0) {
+                    // FULL :(
+                    return 0;
+                } else {
+                    // update producer limit to the next index that we must recheck the consumer index
+                    soProducerLimit(producerLimit);
+                }
+            }
+            actualLength = (int) Math.min(available, length);
+        } while (!casProducerIndex(pIndex, pIndex + actualLength));
+        // Won CAS, the whole range is ours to store into
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        for (int i = 0; i < actualLength; i++) {
+            final int offset = calcCircularRefElementOffset(pIndex + i, mask);
+            soRefElement(buffer, offset, src[srcOffset + i]);
+        }
+        return actualLength;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * The consumer index is only released once for the whole batch.
+     */
+    @Override
+    public int poll(final E[] dst, final int dstOffset, final int length) {
+        MessagePassingQueueUtil.checkPollRange(dst, dstOffset, length);
+        if (length == 0)
+            return 0;
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        final int mask = this.mask;
+        final long cIndex = lpConsumerIndex();
+        int i = 0;
+        for (; i < length; i++) {
+            final int offset = calcCircularRefElementOffset(cIndex + i, mask);
+            final E e = lvRefElement(buffer, offset);
+            if (null == e) {
+                break;
+            }
+            soRefElement(buffer, offset, null);
+            dst[dstOffset + i] = e;
+        }
+        if (i != 0) {
+            soConsumerIndex(cIndex + i);
+        }
+        return i;
+    }
+
     @Override
     public int drain(Consumer<E> c) {
         return drain(c, capacity());
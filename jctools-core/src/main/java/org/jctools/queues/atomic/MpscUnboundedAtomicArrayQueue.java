@@ -41,6 +41,15 @@ public class MpscUnboundedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArrayQ
         super(chunkSize);
     }
 
+    /**
+     * @param chunkSize       the size of each linked chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse rather than allocating new ones,
+     *                        0 disables pooling
+     */
+    public MpscUnboundedAtomicArrayQueue(int chunkSize, int maxPooledChunks) {
+        super(chunkSize, maxPooledChunks);
+    }
+
     @Override
     protected long availableInQueue(long pIndex, long cIndex) {
         return Integer.MAX_VALUE;
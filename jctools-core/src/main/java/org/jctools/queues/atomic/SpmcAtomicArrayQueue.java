@@ -331,6 +331,63 @@ public class SpmcAtomicArrayQueue<E> extends SpmcAtomicArrayQueueL3Pad<E> {
         return limit;
     }
 
+    @Override
+    public int offer(final E[] src, final int srcOffset, final int length) {
+        MessagePassingQueueUtil.checkOfferRange(src, srcOffset, length);
+        if (length == 0)
+            return 0;
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        final int mask = this.mask;
+        long producerIndex = this.lpProducerIndex();
+        for (int i = 0; i < length; i++) {
+            final int offset = calcCircularRefElementOffset(producerIndex, mask);
+            if (null != lvRefElement(buffer, offset)) {
+                return i;
+            }
+            producerIndex++;
+            soRefElement(buffer, offset, src[srcOffset + i]);
+            // ordered store -> atomic and ordered for size()
+            soProducerIndex(producerIndex);
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * IMPLEMENTATION NOTES:<br>
+     * Lock free batch poll, claiming all the elements for the batch using a single CAS.
+     */
+    @Override
+    public int poll(final E[] dst, final int dstOffset, final int length) {
+        MessagePassingQueueUtil.checkPollRange(dst, dstOffset, length);
+        if (length == 0)
+            return 0;
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        final int mask = this.mask;
+        long currProducerIndexCache = lvProducerIndexCache();
+        int actualLength;
+        long currentConsumerIndex;
+        do {
+            currentConsumerIndex = lvConsumerIndex();
+            if (currentConsumerIndex + length > currProducerIndexCache) {
+                long currProducerIndex = lvProducerIndex();
+                if (currentConsumerIndex >= currProducerIndex) {
+                    return 0;
+                } else if (currProducerIndex != currProducerIndexCache) {
+                    currProducerIndexCache = currProducerIndex;
+                    svProducerIndexCache(currProducerIndex);
+                }
+            }
+            // try and claim up to 'length' elements in one go
+            actualLength = (int) Math.min(currProducerIndexCache - currentConsumerIndex, length);
+        } while (!casConsumerIndex(currentConsumerIndex, currentConsumerIndex + actualLength));
+        for (int i = 0; i < actualLength; i++) {
+            dst[dstOffset + i] = removeElement(buffer, currentConsumerIndex + i, mask);
+        }
+        return actualLength;
+    }
+
     @Override
     public int drain(final Consumer<E> c) {
         return MessagePassingQueueUtil.drain(this, c);
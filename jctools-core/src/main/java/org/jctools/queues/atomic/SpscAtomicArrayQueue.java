@@ -150,7 +150,7 @@ abstract class SpscAtomicArrayQueueL3Pad<E> extends SpscAtomicArrayQueueConsumer
  * For convenience the relevant papers are available in the `resources` folder:<br>
  * <i>
  *     2010 - Pisa - SPSC Queues on Shared Cache Multi-Core Systems.pdf<br>
- *     2012 - Junchang- BQueue- Efﬁcient and Practical Queuing.pdf <br>
+ *     2012 - Junchang- BQueue- Ef?cient and Practical Queuing.pdf <br>
  * </i>
  * This implementation is wait free.
  */
@@ -316,6 +316,75 @@ public class SpscAtomicArrayQueue<E> extends SpscAtomicArrayQueueL3Pad<E> {
         return limit;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single producer thread use only.
+     */
+    @Override
+    public int offer(final E[] src, final int srcOffset, final int length) {
+        MessagePassingQueueUtil.checkOfferRange(src, srcOffset, length);
+        if (length == 0)
+            return 0;
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        final int mask = this.mask;
+        final int lookAheadStep = this.lookAheadStep;
+        final long producerIndex = this.lpProducerIndex();
+        for (int i = 0; i < length; i++) {
+            final long index = producerIndex + i;
+            final int lookAheadElementOffset = calcCircularRefElementOffset(index + lookAheadStep, mask);
+            if (null == lvRefElement(buffer, lookAheadElementOffset)) {
+                int lookAheadLimit = Math.min(lookAheadStep, length - i);
+                for (int j = 0; j < lookAheadLimit; j++) {
+                    final int offset = calcCircularRefElementOffset(index + j, mask);
+                    soRefElement(buffer, offset, src[srcOffset + i + j]);
+                    // ordered store -> atomic and ordered for size()
+                    soProducerIndex(index + j + 1);
+                }
+                i += lookAheadLimit - 1;
+            } else {
+                final int offset = calcCircularRefElementOffset(index, mask);
+                if (null != lvRefElement(buffer, offset)) {
+                    return i;
+                }
+                soRefElement(buffer, offset, src[srcOffset + i]);
+                // ordered store -> atomic and ordered for size()
+                soProducerIndex(index + 1);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for single consumer thread use only.
+     */
+    @Override
+    public int poll(final E[] dst, final int dstOffset, final int length) {
+        MessagePassingQueueUtil.checkPollRange(dst, dstOffset, length);
+        if (length == 0)
+            return 0;
+        final AtomicReferenceArray<E> buffer = this.buffer;
+        final int mask = this.mask;
+        final long consumerIndex = this.lpConsumerIndex();
+        int i = 0;
+        for (; i < length; i++) {
+            final int offset = calcCircularRefElementOffset(consumerIndex + i, mask);
+            final E e = lvRefElement(buffer, offset);
+            if (null == e) {
+                break;
+            }
+            soRefElement(buffer, offset, null);
+            dst[dstOffset + i] = e;
+        }
+        if (i != 0) {
+            // ordered store -> atomic and ordered for size()
+            soConsumerIndex(consumerIndex + i);
+        }
+        return i;
+    }
+
     @Override
     public void drain(final Consumer<E> c, final WaitStrategy w, final ExitCondition exit) {
         if (null == c)
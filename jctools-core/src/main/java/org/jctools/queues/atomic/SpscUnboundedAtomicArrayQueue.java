@@ -37,6 +37,16 @@ import static org.jctools.queues.atomic.AtomicQueueUtil.*;
 public class SpscUnboundedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArrayQueue<E> {
 
     public SpscUnboundedAtomicArrayQueue(int chunkSize) {
+        this(chunkSize, 0);
+    }
+
+    /**
+     * @param chunkSize       the size of each linked chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept for reuse rather than allocating new ones,
+     *                        0 disables pooling
+     */
+    public SpscUnboundedAtomicArrayQueue(int chunkSize, int maxPooledChunks) {
+        super(maxPooledChunks);
         int chunkCapacity = Math.max(Pow2.roundToPowerOfTwo(chunkSize), 16);
         long mask = chunkCapacity - 1;
         AtomicReferenceArray<E> buffer = allocateRefArray(chunkCapacity + 1);
@@ -64,7 +74,7 @@ public class SpscUnboundedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArrayQ
         } else {
             // we got one slot left to write into, and we are not full. Need to link new buffer.
             // allocate new buffer of same length
-            final AtomicReferenceArray<E> newBuffer = allocateRefArray((int) (mask + 2));
+            final AtomicReferenceArray<E> newBuffer = allocateOrReuseBuffer((int) (mask + 2));
             producerBuffer = newBuffer;
             producerBufferLimit = pIndex + mask - 1;
             linkOldToNew(pIndex, buffer, offset, newBuffer, offset, v == null ? s.get() : v);
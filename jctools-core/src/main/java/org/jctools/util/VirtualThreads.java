@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Detects virtual threads (JDK 21+) without a compile time dependency on the API. On JVMs without virtual thread
+ * support every thread is reported as a platform thread.
+ */
+@InternalAPI
+public final class VirtualThreads
+{
+    private static final Method IS_VIRTUAL;
+
+    static
+    {
+        Method isVirtual = null;
+        try
+        {
+            isVirtual = Thread.class.getMethod("isVirtual");
+        }
+        catch (Exception ignored)
+        {
+            // pre JDK 21, no virtual threads
+        }
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported()
+    {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * @return true if {@code t} is a virtual thread, false if it is a platform thread or virtual threads are not
+     * supported
+     */
+    public static boolean isVirtual(Thread t)
+    {
+        if (IS_VIRTUAL == null)
+        {
+            return false;
+        }
+        try
+        {
+            return (Boolean) IS_VIRTUAL.invoke(t);
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the calling thread is a virtual thread
+     */
+    public static boolean isCurrentThreadVirtual()
+    {
+        return isVirtual(Thread.currentThread());
+    }
+}
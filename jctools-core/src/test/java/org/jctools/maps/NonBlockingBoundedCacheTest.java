@@ -0,0 +1,153 @@
+package org.jctools.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NonBlockingBoundedCacheTest
+{
+    @Test
+    public void testBasic()
+    {
+        final NonBlockingBoundedCache<String, String> cache = new NonBlockingBoundedCache<>(10);
+        assertNull(cache.get("a"));
+        assertNull(cache.put("a", "1"));
+        assertEquals("1", cache.put("a", "2"));
+        assertEquals("2", cache.putIfAbsent("a", "3"));
+        assertNull(cache.putIfAbsent("b", "3"));
+        assertEquals("2", cache.get("a"));
+        assertTrue(cache.containsKey("b"));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.weightedSize());
+        assertEquals("3", cache.remove("b"));
+        assertNull(cache.remove("b"));
+        assertEquals(1, cache.weightedSize());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void testSizeBound()
+    {
+        final NonBlockingBoundedCache<Integer, Integer> cache = new NonBlockingBoundedCache<>(100);
+        for (int i = 0; i < 10000; i++)
+        {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.weightedSize());
+        assertEquals(9900, cache.evictionCount());
+    }
+
+    @Test
+    public void testWeightBound()
+    {
+        final NonBlockingBoundedCache<Integer, String> cache =
+            new NonBlockingBoundedCache<>(1000, (k, v) -> v.length());
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put(i, new String(new char[i % 50]));
+            assertTrue(cache.weightedSize() <= 1000);
+        }
+        assertEquals(1000, cache.maximumWeight());
+        assertTrue(cache.evictionCount() > 0);
+        // a replaced value is accounted at its new weight
+        cache.put(999, "");
+        cache.put(999, "0123456789");
+        assertEquals(10, cache.weightedSize() - sumOtherWeights(cache, 999));
+    }
+
+    private static long sumOtherWeights(NonBlockingBoundedCache<Integer, String> cache, int skip)
+    {
+        long sum = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            final String v = cache.get(i);
+            if (i != skip && v != null)
+            {
+                sum += v.length();
+            }
+        }
+        return sum;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightIsRejected()
+    {
+        new NonBlockingBoundedCache<Integer, Integer>(10, (k, v) -> -1).put(1, 1);
+    }
+
+    @Test
+    public void testReferencedEntriesGetASecondChance()
+    {
+        final NonBlockingBoundedCache<Integer, Integer> cache = new NonBlockingBoundedCache<>(64);
+        for (int i = 0; i < 64; i++)
+        {
+            cache.put(i, i);
+        }
+        // keep the even keys hot while streaming in new keys
+        int hits = 0;
+        for (int i = 64; i < 96; i++)
+        {
+            for (int hot = 0; hot < 64; hot += 2)
+            {
+                if (cache.get(hot) != null)
+                {
+                    hits++;
+                }
+            }
+            cache.cleanUp();
+            cache.put(i, i);
+        }
+        assertEquals(32 * 32, hits);
+        for (int hot = 0; hot < 64; hot += 2)
+        {
+            assertNotNull("hot key " + hot, cache.get(hot));
+        }
+    }
+
+    @Test
+    public void testConcurrentAccessStaysBounded() throws Exception
+    {
+        final NonBlockingBoundedCache<Integer, Integer> cache = new NonBlockingBoundedCache<>(1000);
+        final int threads = 4;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(ex.submit(() -> {
+                final ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int i = 0; i < 200000; i++)
+                {
+                    final int k = r.nextInt(10000);
+                    final Integer v = cache.get(k);
+                    if (v == null)
+                    {
+                        cache.putIfAbsent(k, k);
+                    }
+                    else
+                    {
+                        assertEquals(k, (int) v);
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        cache.cleanUp();
+        assertTrue(cache.size() <= 1000);
+        assertEquals(cache.size(), cache.weightedSize());
+    }
+}
@@ -0,0 +1,301 @@
+package org.jctools.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NonBlockingSkipListMapLongTest
+{
+    @Test
+    public void testBasic()
+    {
+        final NonBlockingSkipListMapLong<String> map = new NonBlockingSkipListMapLong<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertNull(map.firstEntry());
+        assertNull(map.lastEntry());
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.putIfAbsent(1, "c"));
+        assertNull(map.putIfAbsent(Long.MIN_VALUE, "min"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+        assertNull(map.replace(2, "x"));
+        assertEquals("b", map.replace(1, "a"));
+        assertEquals(3, map.size());
+        assertTrue(map.containsKey(Long.MIN_VALUE));
+        assertEquals("{-9223372036854775808=min, 1=a, 9223372036854775807=max}", map.toString());
+        assertFalse(map.remove(1, "b"));
+        assertTrue(map.remove(1, "a"));
+        assertNull(map.remove(1));
+        assertEquals("max", map.remove(Long.MAX_VALUE));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue()
+    {
+        new NonBlockingSkipListMapLong<String>().put(1, null);
+    }
+
+    @Test
+    public void testNavigation()
+    {
+        final NonBlockingSkipListMapLong<Long> map = new NonBlockingSkipListMapLong<>();
+        for (long k = -100; k <= 100; k += 10)
+        {
+            map.put(k, k * 2);
+        }
+        assertEquals(-100, map.firstEntry().getKey());
+        assertEquals(100, map.lastEntry().getKey());
+        assertEquals(200L, (long) map.lastEntry().getValue());
+        assertEquals(20, map.floorEntry(25).getKey());
+        assertEquals(20, map.floorEntry(20).getKey());
+        assertEquals(10, map.lowerEntry(20).getKey());
+        assertEquals(30, map.ceilingEntry(25).getKey());
+        assertEquals(20, map.ceilingEntry(20).getKey());
+        assertEquals(30, map.higherEntry(20).getKey());
+        assertNull(map.floorEntry(-101));
+        assertNull(map.lowerEntry(-100));
+        assertNull(map.ceilingEntry(101));
+        assertNull(map.higherEntry(100));
+        assertEquals(100, map.floorEntry(Long.MAX_VALUE).getKey());
+        assertEquals(-100, map.ceilingEntry(Long.MIN_VALUE).getKey());
+
+        final NonBlockingSkipListMapLong<Long>.RangeIterator it = map.range(-15, 25);
+        final List<Long> keys = new ArrayList<>();
+        while (it.hasNext())
+        {
+            final Long v = it.next();
+            assertEquals(it.key() * 2, (long) v);
+            keys.add(it.key());
+            if (it.key() == 0)
+            {
+                it.remove();
+            }
+        }
+        assertEquals(java.util.Arrays.asList(-10L, 0L, 10L, 20L), keys);
+        assertNull(map.get(0));
+        assertFalse(map.range(25, 29).hasNext());
+        assertFalse(map.range(30, 20).hasNext());
+
+        assertEquals(-100, map.pollFirstEntry().getKey());
+        assertEquals(-90, map.firstEntry().getKey());
+        assertEquals(19, map.size());
+    }
+
+    @Test
+    public void testAgainstTreeMap()
+    {
+        final NonBlockingSkipListMapLong<Long> map = new NonBlockingSkipListMapLong<>();
+        final TreeMap<Long, Long> model = new TreeMap<>();
+        final Random r = new Random(42);
+        for (int i = 0; i < 200000; i++)
+        {
+            final long k = r.nextInt(2000) - 1000;
+            final long v = r.nextLong();
+            switch (r.nextInt(6))
+            {
+            case 0:
+            case 1:
+                assertEquals(model.put(k, v), map.put(k, v));
+                break;
+            case 2:
+                assertEquals(model.remove(k), map.remove(k));
+                break;
+            case 3:
+                assertEquals(model.get(k), map.get(k));
+                break;
+            case 4:
+                assertEntry(model.floorEntry(k), map.floorEntry(k));
+                assertEntry(model.lowerEntry(k), map.lowerEntry(k));
+                break;
+            default:
+                assertEntry(model.ceilingEntry(k), map.ceilingEntry(k));
+                assertEntry(model.higherEntry(k), map.higherEntry(k));
+                break;
+            }
+        }
+        assertEquals(model.size(), map.size());
+        assertEntry(model.firstEntry(), map.firstEntry());
+        assertEntry(model.lastEntry(), map.lastEntry());
+        final NonBlockingSkipListMapLong<Long>.RangeIterator it = map.iterator();
+        for (Map.Entry<Long, Long> e : model.entrySet())
+        {
+            assertTrue(it.hasNext());
+            assertEquals(e.getValue(), it.next());
+            assertEquals((long) e.getKey(), it.key());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    private static void assertEntry(Map.Entry<Long, Long> expected, NonBlockingSkipListMapLong.Entry<Long> actual)
+    {
+        if (expected == null)
+        {
+            assertNull(actual);
+        }
+        else
+        {
+            assertNotNull(actual);
+            assertEquals((long) expected.getKey(), actual.getKey());
+            assertEquals(expected.getValue(), actual.getValue());
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testConcurrentAppendAndTrim() throws Exception
+    {
+        // order book style: appenders add increasing keys, a trimmer polls the head, readers look up near the tail
+        final NonBlockingSkipListMapLong<Long> map = new NonBlockingSkipListMapLong<>();
+        final int appenders = 2;
+        final int perAppender = 100000;
+        final AtomicLong sequence = new AtomicLong();
+        final AtomicLong polled = new AtomicLong();
+        final ConcurrentHashMap<Long, Boolean> seen = new ConcurrentHashMap<>();
+        final CyclicBarrier barrier = new CyclicBarrier(appenders + 2);
+        final ExecutorService ex = Executors.newFixedThreadPool(appenders + 2);
+        final List<Future<?>> appending = new ArrayList<>();
+        for (int t = 0; t < appenders; t++)
+        {
+            appending.add(ex.submit(() -> {
+                barrier.await();
+                for (int i = 0; i < perAppender; i++)
+                {
+                    final long k = sequence.incrementAndGet();
+                    assertNull(map.put(k, k));
+                }
+                return null;
+            }));
+        }
+        final Future<?> trimmer = ex.submit(() -> {
+            barrier.await();
+            long last = Long.MIN_VALUE;
+            while (polled.get() < (long) appenders * perAppender / 2)
+            {
+                final NonBlockingSkipListMapLong.Entry<Long> e = map.pollFirstEntry();
+                if (e != null)
+                {
+                    assertEquals(e.getKey(), (long) e.getValue());
+                    assertNull(seen.put(e.getKey(), Boolean.TRUE));
+                    polled.incrementAndGet();
+                    last = e.getKey();
+                }
+            }
+            return last;
+        });
+        final Future<?> reader = ex.submit(() -> {
+            barrier.await();
+            while (!trimmer.isDone())
+            {
+                final long k = sequence.get();
+                final NonBlockingSkipListMapLong.Entry<Long> e = map.floorEntry(k);
+                if (e != null)
+                {
+                    assertTrue(e.getKey() <= k);
+                    assertEquals(e.getKey(), (long) e.getValue());
+                }
+            }
+            return null;
+        });
+        for (Future<?> f : appending)
+        {
+            f.get();
+        }
+        trimmer.get();
+        reader.get();
+        ex.shutdown();
+
+        final long total = (long) appenders * perAppender;
+        assertEquals(total - polled.get(), map.size());
+        // every key was either polled exactly once or is still in the map, in order
+        long expected = 1;
+        final NonBlockingSkipListMapLong<Long>.RangeIterator it = map.iterator();
+        while (it.hasNext())
+        {
+            it.next();
+            while (seen.containsKey(expected))
+            {
+                expected++;
+            }
+            assertEquals(expected++, it.key());
+        }
+        while (seen.containsKey(expected))
+        {
+            expected++;
+        }
+        assertEquals(total + 1, expected);
+    }
+
+    @Test(timeout = 60000L)
+    public void testConcurrentRandomUpdates() throws Exception
+    {
+        final NonBlockingSkipListMapLong<Long> map = new NonBlockingSkipListMapLong<>();
+        final int threads = 4;
+        final int keys = 1000;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int seed = t;
+            results.add(ex.submit(() -> {
+                final Random r = new Random(seed);
+                long net = 0;
+                barrier.await();
+                for (int i = 0; i < 200000; i++)
+                {
+                    // each thread owns the keys congruent to its index, so the net count is exact
+                    final long k = (long) r.nextInt(keys) * threads + seed;
+                    if (r.nextBoolean())
+                    {
+                        if (map.putIfAbsent(k, k) == null)
+                        {
+                            net++;
+                        }
+                    }
+                    else if (map.remove(k) != null)
+                    {
+                        net--;
+                    }
+                    final NonBlockingSkipListMapLong.Entry<Long> e = map.ceilingEntry(k - threads);
+                    assertTrue(e == null || e.getKey() >= k - threads);
+                }
+                return net;
+            }));
+        }
+        long net = 0;
+        for (Future<Long> f : results)
+        {
+            net += f.get();
+        }
+        ex.shutdown();
+        assertEquals(net, map.size());
+        long count = 0;
+        long prev = Long.MIN_VALUE;
+        final NonBlockingSkipListMapLong<Long>.RangeIterator it = map.iterator();
+        while (it.hasNext())
+        {
+            final long v = it.next();
+            assertEquals(it.key(), v);
+            assertTrue(it.key() > prev);
+            prev = it.key();
+            count++;
+        }
+        assertEquals(net, count);
+    }
+}
@@ -16,6 +16,7 @@ package org.jctools.maps.nbhm_test;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -523,6 +524,33 @@ public class NBHMID_Tester2
         }
     }
 
+    // --- spliterators / parallel bulk operations
+    @Test
+    public void testSpliteratorsAndParallelBulkOperations()
+    {
+        final NonBlockingIdentityHashMap<String, Integer> nbhmid = new NonBlockingIdentityHashMap<>();
+        final int n = 5000;
+        final String[] keys = new String[n];
+        for (int i = 0; i < n; i++)
+        {
+            keys[i] = new String("k" + i); // identity keys
+            nbhmid.put(keys[i], i);
+        }
+        assertNotNull(nbhmid.keySet().spliterator().trySplit());
+        assertThat(nbhmid.keySet().parallelStream().count(), is((long) n));
+        assertThat(nbhmid.values().parallelStream().mapToLong(Integer::longValue).sum(), is((long) n * (n - 1) / 2));
+        assertThat(nbhmid.entrySet().parallelStream().filter(e -> e.getKey() == keys[e.getValue()]).count(), is((long) n));
+        for (long threshold : new long[]{1, 100, Long.MAX_VALUE})
+        {
+            final AtomicLong sum = new AtomicLong();
+            nbhmid.forEach(threshold, (k, v) -> sum.addAndGet(v));
+            assertThat(sum.get(), is((long) n * (n - 1) / 2));
+            assertThat(nbhmid.reduceValues(threshold, Math::max), is(n - 1));
+            assertThat(nbhmid.search(threshold, (k, v) -> v == 1234 ? k : null), sameInstance(keys[1234]));
+            assertThat(nbhmid.search(threshold, (k, v) -> v < 0 ? k : null), nullValue());
+        }
+    }
+
     // --- NBHMLFeeder ---
     // Class to be called from another thread, to get concurrent installs into
     // the table.
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps.nbhm_test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.Test;
+
+import org.jctools.maps.NonBlockingHashMapIntInt;
+
+import static org.jctools.maps.NonBlockingHashMapIntInt.NO_VALUE;
+import static org.junit.Assert.*;
+
+// Test NonBlockingHashMapIntInt via JUnit
+public class NBHMII_Tester2
+{
+    @Test
+    public void testBasic()
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        assertTrue(map.isEmpty());
+        assertEquals(NO_VALUE, map.put(1, 10));
+        assertEquals(NO_VALUE, map.put(0, 0)); // key 0 is kept out of the table
+        assertEquals(NO_VALUE, map.put(-7, -70));
+        assertEquals(3, map.size());
+        assertEquals(10, map.get(1));
+        assertEquals(0, map.get(0));
+        assertEquals(-70, map.get(-7));
+        assertEquals(NO_VALUE, map.get(2));
+        assertEquals(42, map.getOrDefault(2, 42));
+        assertEquals(0, map.getOrDefault(0, 42));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(2));
+
+        assertEquals(10, map.put(1, 11));
+        assertEquals(11, map.putIfAbsent(1, 12));
+        assertEquals(NO_VALUE, map.putIfAbsent(2, 20));
+        assertEquals(NO_VALUE, map.replace(3, 30));
+        assertFalse(map.containsKey(3));
+        assertEquals(20, map.replace(2, 21));
+        assertFalse(map.replace(2, 20, 22));
+        assertTrue(map.replace(2, 21, 22));
+        assertFalse(map.remove(2, 21));
+        assertTrue(map.remove(2, 22));
+        assertEquals(0, map.remove(0));
+        assertEquals(NO_VALUE, map.remove(0));
+        assertEquals(2, map.size());
+        assertEquals("{1=11, -7=-70}", map.toString());
+        assertArrayEquals(new int[]{1, -7}, map.keySetInt());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(NO_VALUE, map.get(1));
+    }
+
+    @Test
+    public void testReservedValues()
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        for (int v = Integer.MIN_VALUE; v <= Integer.MIN_VALUE + 6; v++)
+        {
+            try
+            {
+                map.put(1, v);
+                fail("stored reserved value " + v);
+            }
+            catch (IllegalArgumentException expected)
+            {
+            }
+        }
+        assertEquals(NO_VALUE, map.put(1, Integer.MIN_VALUE + 7));
+        assertEquals(NO_VALUE, map.put(2, Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE + 7, map.get(1));
+        assertEquals(Integer.MAX_VALUE, map.get(2));
+    }
+
+    @Test
+    public void testAddAndGet()
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        assertEquals(5, map.addAndGet(3, 5));
+        assertEquals(2, map.addAndGet(3, -3));
+        assertEquals(-1, map.addAndGet(0, -1));
+        assertEquals(0, map.addAndGet(0, 1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testResizeKeepsValues()
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        final int n = 100000;
+        for (int i = 0; i < n; i++)
+        {
+            assertEquals(NO_VALUE, map.put(i * 31, i));
+        }
+        assertEquals(n, map.size());
+        for (int i = 0; i < n; i++)
+        {
+            assertEquals(i, map.get(i * 31));
+        }
+        for (int i = 0; i < n; i += 2)
+        {
+            assertEquals(i, map.remove(i * 31));
+        }
+        assertEquals(n / 2, map.size());
+        assertEquals(n / 2, map.keySetInt().length);
+    }
+
+    @Test
+    public void testConcurrentCounters() throws Exception
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        final int threads = 4;
+        final int keys = 5000; // enough keys to resize while counting
+        final int rounds = 50;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(ex.submit(() -> {
+                for (int r = 0; r < rounds; r++)
+                {
+                    for (int k = 0; k < keys; k++)
+                    {
+                        map.addAndGet(k, 1);
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        assertEquals(keys, map.size());
+        for (int k = 0; k < keys; k++)
+        {
+            assertEquals(threads * rounds, map.get(k));
+        }
+    }
+
+    @Test
+    public void testConcurrentPutRemove() throws Exception
+    {
+        final NonBlockingHashMapIntInt map = new NonBlockingHashMapIntInt();
+        final int threads = 4;
+        final int perThread = 50000;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int base = t * perThread;
+            futures.add(ex.submit(() -> {
+                for (int i = base; i < base + perThread; i++)
+                {
+                    assertEquals(NO_VALUE, map.putIfAbsent(i, -i));
+                }
+                for (int i = base; i < base + perThread; i += 2)
+                {
+                    assertEquals(-i, map.remove(i));
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        assertEquals(threads * perThread / 2, map.size());
+        for (int i = 0; i < threads * perThread; i++)
+        {
+            assertEquals((i & 1) == 0 ? NO_VALUE : -i, map.get(i));
+        }
+    }
+}
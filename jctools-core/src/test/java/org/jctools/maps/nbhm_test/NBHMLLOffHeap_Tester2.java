@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.maps.nbhm_test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.jctools.maps.NonBlockingHashMapLongLongOffHeap;
+
+import static org.jctools.maps.NonBlockingHashMapLongLongOffHeap.NO_VALUE;
+import static org.junit.Assert.*;
+
+// Test NonBlockingHashMapLongLongOffHeap via JUnit
+public class NBHMLLOffHeap_Tester2
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBasic() throws IOException
+    {
+        final NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap();
+        assertTrue(map.isEmpty());
+        assertEquals(NO_VALUE, map.put(1, 10));
+        assertEquals(NO_VALUE, map.put(0, 0)); // key 0 is kept out of the table
+        assertEquals(NO_VALUE, map.put(-7, -70));
+        assertEquals(3, map.size());
+        assertEquals(10, map.get(1));
+        assertEquals(0, map.get(0));
+        assertEquals(-70, map.get(-7));
+        assertEquals(NO_VALUE, map.get(2));
+        assertEquals(42, map.getOrDefault(2, 42));
+
+        assertEquals(10, map.put(1, 11));
+        assertEquals(11, map.putIfAbsent(1, 12));
+        assertEquals(NO_VALUE, map.replace(3, 30));
+        assertEquals(NO_VALUE, map.putIfAbsent(2, 20));
+        assertTrue(map.replace(2, 20, 22));
+        assertTrue(map.remove(2, 22));
+        assertEquals(0, map.remove(0));
+        assertEquals(5, map.addAndGet(3, 5));
+        assertEquals(3, map.size());
+        assertEquals("{1=11, 3=5, -7=-70}", map.toString());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(NO_VALUE, map.get(1));
+        try
+        {
+            map.put(1, Long.MIN_VALUE + 3);
+            fail("stored a reserved value");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+        map.close();
+    }
+
+    @Test
+    public void testClosedMapIsUnusable() throws IOException
+    {
+        final NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap(1000);
+        map.put(1, 1);
+        map.close();
+        map.close(); // closing twice is harmless
+        try
+        {
+            map.get(1);
+            fail("read a closed map");
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+        try
+        {
+            map.put(0, 1);
+            fail("wrote a closed map");
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+    }
+
+    @Test
+    public void testResizeKeepsValues() throws IOException
+    {
+        final NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap();
+        final int n = 100000;
+        for (long i = 0; i < n; i++)
+        {
+            assertEquals(NO_VALUE, map.put(i * 31, i));
+        }
+        assertEquals(n, map.size());
+        for (long i = 0; i < n; i++)
+        {
+            assertEquals(i, map.get(i * 31));
+        }
+        for (long i = 0; i < n; i += 2)
+        {
+            assertEquals(i, map.remove(i * 31));
+        }
+        assertEquals(n / 2, map.size());
+        assertEquals(n / 2, map.keySetLong().length);
+        map.close();
+    }
+
+    @Test
+    public void testConcurrentCounters() throws Exception
+    {
+        final NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap();
+        final int threads = 4;
+        final int keys = 5000; // enough keys to resize while counting
+        final int rounds = 50;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(ex.submit(() -> {
+                for (int r = 0; r < rounds; r++)
+                {
+                    for (long k = 0; k < keys; k++)
+                    {
+                        map.addAndGet(k, 1);
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        assertEquals(keys, map.size());
+        for (long k = 0; k < keys; k++)
+        {
+            assertEquals((long) threads * rounds, map.get(k));
+        }
+        map.close();
+    }
+
+    @Test
+    public void testMappedSurvivesReopen() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "index");
+        NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap(file, 16);
+        final int n = 50000; // resizes the mapped table several times
+        for (long i = 0; i < n; i++)
+        {
+            map.put(i, -i);
+        }
+        map.put(0, 42);
+        map.remove(7);
+        map.close();
+
+        map = new NonBlockingHashMapLongLongOffHeap(file, 16);
+        assertEquals(n - 1, map.size());
+        assertEquals(42, map.get(0));
+        assertEquals(NO_VALUE, map.get(7));
+        for (long i = 1; i < n; i++)
+        {
+            if (i != 7)
+            {
+                assertEquals(-i, map.get(i));
+            }
+        }
+        // and keeps working after the reopen
+        assertEquals(NO_VALUE, map.put(n, 1));
+        assertEquals(-1, map.addAndGet(1, 0));
+        map.clear();
+        map.put(5, 5);
+        map.close();
+
+        map = new NonBlockingHashMapLongLongOffHeap(file, 0);
+        assertEquals("{5=5}", map.toString());
+        map.close();
+    }
+
+    @Test
+    public void testMappedRefusesUnclosedOrForeignFile() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "index");
+        final NonBlockingHashMapLongLongOffHeap map = new NonBlockingHashMapLongLongOffHeap(file, 16);
+        map.put(1, 1);
+        try
+        {
+            new NonBlockingHashMapLongLongOffHeap(file, 16);
+            fail("opened a map which is still open");
+        }
+        catch (IOException expected)
+        {
+        }
+        map.close();
+
+        final File foreign = folder.newFile("foreign");
+        try (FileOutputStream out = new FileOutputStream(foreign))
+        {
+            out.write(new byte[8192]);
+        }
+        try
+        {
+            new NonBlockingHashMapLongLongOffHeap(foreign, 16);
+            fail("opened a file which is not a map");
+        }
+        catch (IOException expected)
+        {
+        }
+    }
+}
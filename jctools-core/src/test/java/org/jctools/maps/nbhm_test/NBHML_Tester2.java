@@ -16,6 +16,8 @@ package org.jctools.maps.nbhm_test;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -487,6 +489,98 @@ public class NBHML_Tester2
         assertEquals("values().iterator() count", itemCount, iteratorCount);
     }
 
+    // --- spliterators / parallel bulk operations
+    @Test
+    public void testSpliteratorsAndParallelBulkOperations()
+    {
+        final NonBlockingHashMapLong<Long> nbhml = new NonBlockingHashMapLong<>();
+        final int n = 10000;
+        for (long i = 0; i < n; i++)
+        {
+            nbhml.put(i, Long.valueOf(i)); // key 0 lives outside the table
+        }
+        final Spliterator<Long> keys = nbhml.keySet().spliterator();
+        assertTrue(keys.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.DISTINCT));
+        assertNotNull(keys.trySplit());
+        assertThat(nbhml.keySet().parallelStream().count(), is((long) n));
+        assertThat(nbhml.keySet().parallelStream().collect(Collectors.toSet()).size(), is(n));
+        assertThat(nbhml.values().parallelStream().mapToLong(Long::longValue).sum(), is((long) n * (n - 1) / 2));
+        assertThat(nbhml.entrySet().parallelStream().filter(e -> e.getKey().equals(e.getValue())).count(), is((long) n));
+        for (long threshold : new long[]{1, 100, Long.MAX_VALUE})
+        {
+            final AtomicLong sum = new AtomicLong();
+            nbhml.forEach(threshold, (k, v) -> sum.addAndGet(k + v));
+            assertThat(sum.get(), is((long) n * (n - 1)));
+            assertThat(nbhml.reduceValues(threshold, Long::sum), is((long) n * (n - 1) / 2));
+            assertThat(nbhml.search(threshold, (k, v) -> v == 0 ? k : null), is(0L));
+            assertThat(nbhml.search(threshold, (k, v) -> v == 9999 ? k : null), is(9999L));
+            assertThat(nbhml.search(threshold, (k, v) -> v < 0 ? k : null), nullValue());
+        }
+        nbhml.remove(0);
+        assertThat(nbhml.keySet().parallelStream().filter(k -> k == 0).count(), is(0L));
+        assertThat(nbhml.reduceValues(1, Math::min), is(1L));
+    }
+
+    @Test
+    public void testChurnAndCompact()
+    {
+        final NonBlockingHashMapLong<Long> nbhml = new NonBlockingHashMapLong<>();
+        final int live = 100;
+        for (long i = 0; i < 200000; i++)
+        {
+            nbhml.put(i, Long.valueOf(i));
+            if (i >= live)
+            {
+                assertThat(nbhml.remove(i - live), is(i - live));
+            }
+        }
+        assertThat(nbhml.size(), is(live));
+        nbhml.compact();
+        assertThat(nbhml.size(), is(live));
+        for (long i = 200000 - live; i < 200000; i++)
+        {
+            assertThat(nbhml.get(i), is(i));
+        }
+        assertNull(nbhml.get(0));
+        nbhml.put(0, Long.valueOf(0)); // key 0 lives outside the table
+        nbhml.compact();
+        assertThat(nbhml.get(0), is(0L));
+        assertThat(nbhml.size(), is(live + 1));
+        nbhml.clear();
+        nbhml.compact();
+        assertTrue(nbhml.isEmpty());
+    }
+
+    @Test(timeout = 60000L)
+    public void testCompactWhileWriting() throws Exception
+    {
+        final NonBlockingHashMapLong<Long> nbhml = new NonBlockingHashMapLong<>();
+        final int n = 100000;
+        final ExecutorService ex = Executors.newSingleThreadExecutor();
+        final Future<?> writer = ex.submit(() -> {
+            for (long i = 1; i <= n; i++)
+            {
+                nbhml.put(i, Long.valueOf(i));
+                if ((i & 1) == 0)
+                {
+                    nbhml.remove(i);
+                }
+            }
+        });
+        ex.shutdown();
+        while (!writer.isDone())
+        {
+            nbhml.compact();
+        }
+        writer.get();
+        nbhml.compact();
+        assertThat(nbhml.size(), is(n / 2));
+        for (long i = 1; i <= n; i++)
+        {
+            assertThat(nbhml.get(i), is((i & 1) == 0 ? null : Long.valueOf(i)));
+        }
+    }
+
     // --- NBHMLFeeder ---
     // Class to be called from another thread, to get concurrent installs into
     // the table.
@@ -16,6 +16,8 @@ package org.jctools.maps.nbhm_test;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -484,6 +486,368 @@ public class NBHM_Tester2
         assertEquals("values().iterator() count", itemCount, iteratorCount);
     }
 
+    // --- compute / merge
+    @Test
+    public void testComputeMergeBasic()
+    {
+        final NonBlockingHashMap<String, Integer> nbhm = new NonBlockingHashMap<>();
+        assertThat(nbhm.computeIfPresent("a", (k, v) -> v + 1), nullValue());
+        assertFalse(nbhm.containsKey("a"));
+        assertThat(nbhm.computeIfAbsent("a", k -> 1), is(1));
+        assertThat(nbhm.computeIfAbsent("a", k -> { throw new AssertionError("mapped key"); }), is(1));
+        assertThat(nbhm.computeIfPresent("a", (k, v) -> v + 1), is(2));
+        assertThat(nbhm.compute("a", (k, v) -> v == null ? 0 : v * 10), is(20));
+        assertThat(nbhm.compute("b", (k, v) -> v == null ? 0 : v * 10), is(0));
+        assertThat(nbhm.size(), is(2));
+        assertThat(nbhm.merge("a", 5, Integer::sum), is(25));
+        assertThat(nbhm.merge("c", 5, Integer::sum), is(5));
+        assertThat(nbhm.size(), is(3));
+
+        // null results remove
+        assertThat(nbhm.compute("a", (k, v) -> null), nullValue());
+        assertThat(nbhm.merge("b", 1, (o, n) -> null), nullValue());
+        assertThat(nbhm.computeIfPresent("c", (k, v) -> null), nullValue());
+        assertThat(nbhm.computeIfAbsent("d", k -> null), nullValue());
+        assertThat(nbhm.size(), is(0));
+        assertTrue(nbhm.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentMerge() throws Exception
+    {
+        final NonBlockingHashMap<Integer, Long> nbhm = new NonBlockingHashMap<>();
+        final int threads = 4;
+        final int keys = 1000; // enough keys to force a few resizes while merging
+        final int rounds = 200;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(ex.submit(() -> {
+                for (int r = 0; r < rounds; r++)
+                {
+                    for (int k = 0; k < keys; k++)
+                    {
+                        nbhm.merge(k, 1L, Long::sum);
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        assertThat(nbhm.size(), is(keys));
+        for (int k = 0; k < keys; k++)
+        {
+            assertThat(nbhm.get(k), is((long) threads * rounds));
+        }
+    }
+
+    @Test
+    public void testConcurrentComputeAddRemove() throws Exception
+    {
+        final NonBlockingHashMap<Integer, Integer> nbhm = new NonBlockingHashMap<>();
+        final int threads = 4;
+        final int iters = 100000;
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(ex.submit(() -> {
+                // every increment is undone by a decrement, removing the key at 0
+                for (int i = 0; i < iters; i++)
+                {
+                    final int k = i & 63;
+                    nbhm.compute(k, (key, v) -> v == null ? 1 : v + 1);
+                    nbhm.compute(k, (key, v) -> v == 1 ? null : v - 1);
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        assertThat(nbhm.size(), is(0));
+        assertTrue(nbhm.isEmpty());
+    }
+
+    // --- spliterators / parallel bulk operations
+    @Test
+    public void testSpliteratorSplitsCoverAllMappings()
+    {
+        final NonBlockingHashMap<Integer, Integer> nbhm = new NonBlockingHashMap<>();
+        final int n = 10000;
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put(i, -i);
+        }
+        final Spliterator<Integer> root = nbhm.keySet().spliterator();
+        assertTrue(root.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.DISTINCT));
+        assertThat(root.estimateSize(), is((long) n));
+        final Deque<Spliterator<Integer>> parts = new ArrayDeque<>();
+        parts.push(root);
+        final BitSet seen = new BitSet(n);
+        int leaves = 0;
+        while (!parts.isEmpty())
+        {
+            final Spliterator<Integer> s = parts.pop();
+            final Spliterator<Integer> prefix = leaves < 64 ? s.trySplit() : null;
+            if (prefix != null)
+            {
+                parts.push(prefix);
+                parts.push(s);
+                continue;
+            }
+            leaves++;
+            final java.util.function.Consumer<Integer> mark = k -> {
+                assertFalse("duplicate " + k, seen.get(k));
+                seen.set(k);
+            };
+            s.tryAdvance(mark);
+            s.forEachRemaining(mark);
+        }
+        assertTrue(leaves > 1);
+        assertThat(seen.cardinality(), is(n));
+        assertThat(nbhm.keySet().parallelStream().count(), is((long) n));
+        assertThat(nbhm.values().parallelStream().mapToLong(v -> -v).sum(), is((long) n * (n - 1) / 2));
+        assertThat(nbhm.entrySet().parallelStream().filter(e -> e.getKey() == -e.getValue()).count(), is((long) n));
+        assertThat(nbhm.keySet().parallelStream().collect(Collectors.toSet()).size(), is(n));
+    }
+
+    @Test
+    public void testParallelBulkOperations()
+    {
+        final NonBlockingHashMap<String, Long> nbhm = new NonBlockingHashMap<>();
+        final int n = 5000;
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put("k" + i, (long) i);
+        }
+        for (long threshold : new long[]{1, 100, Long.MAX_VALUE})
+        {
+            final AtomicLong sum = new AtomicLong();
+            final ConcurrentHashMap<String, Long> copy = new ConcurrentHashMap<>();
+            nbhm.forEach(threshold, (k, v) -> {
+                sum.addAndGet(v);
+                assertNull(copy.put(k, v));
+            });
+            assertThat(sum.get(), is((long) n * (n - 1) / 2));
+            assertThat(copy.size(), is(n));
+            assertThat(nbhm.reduceValues(threshold, Long::sum), is((long) n * (n - 1) / 2));
+            assertThat(nbhm.reduceValues(threshold, Math::max), is((long) n - 1));
+            assertThat(nbhm.search(threshold, (k, v) -> v == 4321 ? k : null), is("k4321"));
+            assertThat(nbhm.search(threshold, (k, v) -> v < 0 ? k : null), nullValue());
+        }
+        final NonBlockingHashMap<String, Long> empty = new NonBlockingHashMap<>();
+        assertThat(empty.reduceValues(1, Long::sum), nullValue());
+        assertThat(empty.search(1, (k, v) -> k), nullValue());
+    }
+
+    @Test(timeout = 60000L)
+    public void testIncrementalResize() throws Exception
+    {
+        final ExecutorService copier = Executors.newSingleThreadExecutor();
+        try
+        {
+            testIncrementalResize(new NonBlockingHashMap<>(0, 1, null));
+            testIncrementalResize(new NonBlockingHashMap<>(0, 16, null));
+            testIncrementalResize(new NonBlockingHashMap<>(0, 64, copier));
+        }
+        finally
+        {
+            copier.shutdown();
+        }
+        // a rejecting copier leaves all the copying to the map operations
+        testIncrementalResize(new NonBlockingHashMap<>(0, 8, r -> {
+            throw new RejectedExecutionException();
+        }));
+    }
+
+    private void testIncrementalResize(final NonBlockingHashMap<Integer, Integer> nbhm) throws Exception
+    {
+        final int threads = 4;
+        final int perThread = 50000;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService ex = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int base = t * perThread;
+            results.add(ex.submit(() -> {
+                barrier.await();
+                for (int i = base; i < base + perThread; i++)
+                {
+                    assertNull(nbhm.put(i, i));
+                    if ((i & 3) == 0)
+                    {
+                        assertEquals((Integer) i, nbhm.remove(i));
+                    }
+                    else
+                    {
+                        assertEquals((Integer) i, nbhm.get(i));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : results)
+        {
+            f.get();
+        }
+        ex.shutdown();
+        final int total = threads * perThread;
+        assertThat(nbhm.size(), is(total - total / 4));
+        for (int i = 0; i < total; i++)
+        {
+            assertEquals(((i & 3) == 0) ? null : (Integer) i, nbhm.get(i));
+        }
+    }
+
+    @Test
+    public void testStats()
+    {
+        final NonBlockingHashMap<String, String> nbhm = new NonBlockingHashMap<>();
+        NonBlockingHashMap.Stats stats = nbhm.stats();
+        assertThat(stats.size(), is(0L));
+        assertThat(stats.slots(), is(0L));
+        assertThat(stats.resizes(), is(0L));
+        assertThat(stats.copyHelpsPerResize(), is(0.0));
+        final int tableLength = stats.tableLength();
+
+        final int n = 10000;
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put("k" + i, "v" + i);
+        }
+        // iterating finishes any copy still in progress
+        assertThat(nbhm.keySet().size(), is(n));
+        for (String k : nbhm.keySet())
+        {
+            assertNotNull(k);
+        }
+        for (int i = 0; i < n; i += 2)
+        {
+            nbhm.remove("k" + i);
+        }
+        stats = nbhm.stats();
+        assertFalse(stats.toString(), stats.resizing());
+        assertTrue(stats.toString(), stats.tableLength() > tableLength);
+        assertThat(stats.size(), is((long) n / 2));
+        assertThat(stats.slots(), is((long) n));
+        assertThat(stats.tombstones(), is((long) n / 2));
+        assertTrue(stats.toString(), stats.resizes() > 0);
+        assertTrue(stats.toString(), stats.resizeNanos() >= stats.lastResizeNanos());
+        assertTrue(stats.toString(), stats.lastResizeNanos() > 0);
+        assertTrue(stats.toString(), stats.copyHelps() >= stats.resizes());
+        assertTrue(stats.toString(), stats.lastCopyHelps() > 0);
+        long reprobing = 0;
+        for (long count : stats.reprobeHistogram())
+        {
+            reprobing += count;
+        }
+        assertTrue(stats.toString(), reprobing > 0);
+        // reading the stats does not reset them
+        assertThat(nbhm.stats().resizes(), is(stats.resizes()));
+        // a clone has counters of its own
+        final NonBlockingHashMap<String, String> clone = (NonBlockingHashMap<String, String>) nbhm.clone();
+        assertThat(clone.size(), is(n / 2));
+        assertTrue(clone.stats().resizes() <= stats.resizes());
+        assertThat(nbhm.stats().resizes(), is(stats.resizes()));
+    }
+
+    @Test
+    public void testChurnDoesNotGrowTable()
+    {
+        final NonBlockingHashMap<String, String> nbhm = new NonBlockingHashMap<>();
+        nbhm.stats(); // turn the resize counters on
+        final int live = 100;
+        for (int i = 0; i < 200000; i++)
+        {
+            nbhm.put("k" + i, "v" + i);
+            if (i >= live)
+            {
+                assertThat(nbhm.remove("k" + (i - live)), is("v" + (i - live)));
+            }
+        }
+        assertThat(nbhm.size(), is(live));
+        final NonBlockingHashMap.Stats stats = nbhm.stats();
+        // tables mostly holding removed keys are compacted instead of doubled
+        assertTrue(stats.toString(), stats.tableLength() <= 1024);
+        assertTrue(stats.toString(), stats.resizes() > 0);
+        for (int i = 200000 - live; i < 200000; i++)
+        {
+            assertThat(nbhm.get("k" + i), is("v" + i));
+        }
+    }
+
+    @Test
+    public void testCompact()
+    {
+        final NonBlockingHashMap<String, String> nbhm = new NonBlockingHashMap<>();
+        final int n = 100000;
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put("k" + i, "v" + i);
+        }
+        for (int i = 10; i < n; i++)
+        {
+            nbhm.remove("k" + i);
+        }
+        final int grown = nbhm.stats().tableLength();
+        nbhm.compact();
+        final NonBlockingHashMap.Stats stats = nbhm.stats();
+        assertFalse(stats.toString(), stats.resizing());
+        assertTrue(stats.toString(), stats.tableLength() < grown);
+        assertThat(stats.tableLength(), is(64));
+        assertThat(stats.size(), is(10L));
+        assertThat(stats.tombstones(), is(0L));
+        for (int i = 0; i < 10; i++)
+        {
+            assertThat(nbhm.get("k" + i), is("v" + i));
+        }
+        assertNull(nbhm.get("k10"));
+
+        nbhm.clear();
+        nbhm.compact();
+        assertThat(nbhm.stats().tableLength(), is(8));
+        assertTrue(nbhm.isEmpty());
+        nbhm.put("k", "v");
+        assertThat(nbhm.get("k"), is("v"));
+    }
+
+    @Test
+    public void testStatsAreOffUntilFirstCall()
+    {
+        final NonBlockingHashMap<String, String> nbhm = new NonBlockingHashMap<>();
+        final int n = 10000;
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put("a" + i, "v" + i);
+        }
+        assertThat(nbhm.reprobes(), is(0L));
+
+        final NonBlockingHashMap.Stats stats = nbhm.stats();
+        assertThat(stats.size(), is((long) n));
+        assertThat(stats.resizes(), is(0L));
+        assertThat(stats.copyHelps(), is(0L));
+
+        for (int i = 0; i < n; i++)
+        {
+            nbhm.put("b" + i, "v" + i);
+        }
+        assertTrue(nbhm.reprobes() > 0);
+        assertTrue(nbhm.stats().toString(), nbhm.stats().resizes() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncrementalResizeRejectsZeroCopyWork()
+    {
+        new NonBlockingHashMap<String, String>(0, 0, null);
+    }
+
     // --- Tests on equality of values
     @Test
     public void replaceResultIsBasedOnEquality() {
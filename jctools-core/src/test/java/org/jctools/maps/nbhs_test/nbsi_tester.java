@@ -1,7 +1,11 @@
 package org.jctools.maps.nbhs_test;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -188,6 +192,159 @@ public class nbsi_tester
         _nbsi.clear();
     }
 
+    // Bulk operations against a java.util.BitSet model, with plenty of the
+    // every-64th elements which live in the nested arrays
+    @Test
+    public void testBulkOps()
+    {
+        final Random r = new Random(42);
+        for (int round = 0; round < 20; round++)
+        {
+            final int max = 64 << r.nextInt(12);
+            final NonBlockingSetInt a = new NonBlockingSetInt();
+            final NonBlockingSetInt b = new NonBlockingSetInt();
+            final BitSet ma = new BitSet();
+            final BitSet mb = new BitSet();
+            for (int i = 0; i < max / 4; i++)
+            {
+                int x = r.nextInt(max);
+                int y = r.nextBoolean() ? (r.nextInt(max) | 63) : r.nextInt(max);
+                a.add(x);
+                ma.set(x);
+                b.add(y);
+                mb.set(y);
+            }
+            a.add(4095);
+            ma.set(4095);
+
+            assertEquals(ma.cardinality(), a.cardinality());
+            assertEquals(a.size(), a.cardinality());
+            for (int i = 0; i < max + 128; i += 1 + r.nextInt(7))
+            {
+                assertEquals("nextSetBit(" + i + ")", ma.nextSetBit(i), a.nextSetBit(i));
+            }
+
+            final List<Integer> seen = new ArrayList<>();
+            b.forEach((int i) -> seen.add(i));
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = mb.nextSetBit(0); i >= 0; i = mb.nextSetBit(i + 1))
+            {
+                expected.add(i);
+            }
+            assertEquals(expected, seen);
+
+            final NonBlockingSetInt or = new NonBlockingSetInt();
+            assertEquals(!ma.isEmpty(), a.orInto(or));
+            assertTrue(b.orInto(or));
+            assertFalse(a.orInto(or));
+            final BitSet mor = (BitSet) ma.clone();
+            mor.or(mb);
+            assertEquals(mor.toString(), bitSet(or).toString());
+            assertEquals(mor.cardinality(), or.size());
+
+            final NonBlockingSetInt and = new NonBlockingSetInt();
+            a.orInto(and);
+            b.andInto(and);
+            assertFalse(b.andInto(and));
+            final BitSet mand = (BitSet) ma.clone();
+            mand.and(mb);
+            assertEquals(mand.toString(), bitSet(and).toString());
+            assertEquals(mand.cardinality(), and.size());
+            new NonBlockingSetInt().andInto(and);
+            assertTrue(and.isEmpty());
+            assertEquals(-1, and.nextSetBit(0));
+        }
+    }
+
+    private static BitSet bitSet(NonBlockingSetInt s)
+    {
+        final BitSet bs = new BitSet();
+        for (Integer x : s)
+        {
+            bs.set(x);
+        }
+        return bs;
+    }
+
+    @Test
+    public void testContainsAllRange()
+    {
+        final NonBlockingSetInt s = new NonBlockingSetInt();
+        for (int i = 60; i < 300; i++)
+        {
+            s.add(i);
+        }
+        assertTrue(s.containsAll(60, 300));
+        assertTrue(s.containsAll(63, 64));
+        assertTrue(s.containsAll(64, 128));
+        assertTrue(s.containsAll(100, 100));
+        assertTrue(s.containsAll(5000, 5000));
+        assertFalse(s.containsAll(59, 300));
+        assertFalse(s.containsAll(60, 301));
+        assertFalse(s.containsAll(1000, 1001));
+        s.remove(127);
+        assertFalse(s.containsAll(64, 128));
+        assertTrue(s.containsAll(64, 127));
+        assertTrue(s.containsAll(128, 300));
+        try
+        {
+            s.containsAll(10, 9);
+            fail();
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+        try
+        {
+            s.nextSetBit(-1);
+            fail();
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    // Bulk operations while another thread grows both sets through resizes
+    @Test
+    public void testBulkOpsDuringResize() throws Exception
+    {
+        final int fixed = 1 << 12;
+        final int grown = 1 << 20;
+        for (int round = 0; round < 5; round++)
+        {
+            final NonBlockingSetInt src = new NonBlockingSetInt();
+            final NonBlockingSetInt dst = new NonBlockingSetInt();
+            for (int i = 0; i < fixed; i += 3)
+            {
+                src.add(i);
+            }
+            final int srcCount = src.size();
+            Thread t = new Thread(() -> {
+                for (int i = fixed; i < grown; i += 5)
+                {
+                    dst.add(i);
+                    src.add(i);
+                }
+            });
+            t.start();
+            while (t.isAlive())
+            {
+                src.orInto(dst);
+                assertTrue(dst.containsAll(0, 1));
+                assertTrue(src.cardinality() >= srcCount);
+                assertEquals(0, src.nextSetBit(0));
+                assertEquals(fixed - 1, src.nextSetBit(fixed - 2));
+            }
+            t.join();
+            src.orInto(dst);
+            assertEquals(src.cardinality(), dst.cardinality());
+            assertEquals(src.cardinality(), src.size());
+            assertEquals(dst.cardinality(), dst.size());
+            src.andInto(dst);
+            assertEquals(src.size(), dst.size());
+        }
+    }
+
     // Do some simple concurrent testing
     @Test
     public void testConcurrentSimple() throws InterruptedException
@@ -0,0 +1,219 @@
+package org.jctools.queues;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class LongQueueSanityTest
+{
+    static final int SIZE = 8192 * 2;
+    static final int CONCURRENT_TEST_DURATION = Integer.getInteger("org.jctools.concTestDurationMs", 500);
+    static final int TEST_TIMEOUT = 30000;
+
+    private final MessagePassingLongQueue queue;
+    private final int producers;
+
+    public LongQueueSanityTest(int producers, MessagePassingLongQueue queue)
+    {
+        this.producers = producers;
+        this.queue = queue;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(new Object[] {1, new SpscLongArrayQueue(2)});
+        list.add(new Object[] {1, new SpscLongArrayQueue(SIZE)});
+        list.add(new Object[] {0, new MpscLongArrayQueue(2)});
+        list.add(new Object[] {0, new MpscLongArrayQueue(SIZE)});
+        return list;
+    }
+
+    @After
+    public void clear()
+    {
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void emptyPollAndPeekReturnEmptyValue()
+    {
+        assertEquals(queue.emptyValue(), queue.poll());
+        assertEquals(queue.emptyValue(), queue.peek());
+        assertFalse(queue.poll(new LongCollector()));
+        assertEquals(0, queue.drain(new LongCollector()));
+    }
+
+    @Test
+    public void emptyValueIsAValidElement()
+    {
+        assertTrue(queue.offer(queue.emptyValue()));
+        assertFalse(queue.isEmpty());
+        assertEquals(1, queue.size());
+        LongCollector c = new LongCollector();
+        assertTrue(queue.poll(c));
+        assertEquals(1, c.count);
+        assertEquals(queue.emptyValue(), c.last);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void offerUpToCapacity()
+    {
+        int i = 0;
+        while (queue.offer(i))
+        {
+            i++;
+            assertEquals(i, queue.size());
+        }
+        assertEquals(queue.capacity(), i);
+        assertEquals(0, queue.peek());
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(i));
+        assertFalse(queue.offer(i + 1));
+    }
+
+    @Test
+    public void sanity()
+    {
+        for (int i = 0; i < SIZE; i++)
+        {
+            assertEquals(queue.emptyValue(), queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+        long i = -1;
+        while (i < SIZE && queue.offer(i))
+        {
+            i++;
+        }
+        final int size = (int) (i + 1);
+        assertEquals(size, queue.size());
+        for (long expected = -1; expected < size - 1; expected++)
+        {
+            assertEquals(expected, queue.peek());
+            assertEquals(expected, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void drainInBatches()
+    {
+        int offered = 0;
+        while (queue.offer(Long.MAX_VALUE - offered))
+        {
+            offered++;
+        }
+        final LongCollector c = new LongCollector();
+        int drained;
+        do
+        {
+            drained = queue.drain(c, 3);
+            assertEquals(offered - c.count, queue.size());
+        }
+        while (drained != 0);
+        assertEquals(offered, c.count);
+        assertEquals(Long.MAX_VALUE - offered + 1, c.last);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainNullConsumer()
+    {
+        queue.drain(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainNegativeLimit()
+    {
+        queue.drain(new LongCollector(), -1);
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void testProducerOrderIsPreserved() throws Exception
+    {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final int producerCount = producers == 1 ? 1 : Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        final Thread[] threads = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++)
+        {
+            // encode the producer id in the top bits so every producer sequence is independently increasing
+            final long base = ((long) p) << 48;
+            threads[p] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long next = base;
+                    while (!stop.get())
+                    {
+                        if (queue.offer(next))
+                        {
+                            next++;
+                        }
+                    }
+                }
+            });
+        }
+        final long[] lastSeen = new long[producerCount];
+        java.util.Arrays.fill(lastSeen, -1);
+        final int[] fail = new int[1];
+        final Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final MessagePassingLongQueue.LongConsumer c = new MessagePassingLongQueue.LongConsumer()
+                {
+                    @Override
+                    public void accept(long e)
+                    {
+                        final int p = (int) (e >>> 48);
+                        final long seq = e & ((1L << 48) - 1);
+                        if (seq != lastSeen[p] + 1)
+                        {
+                            fail[0]++;
+                        }
+                        lastSeen[p] = seq;
+                    }
+                };
+                while (!stop.get())
+                {
+                    queue.drain(c, 64);
+                }
+            }
+        });
+        for (Thread t : threads)
+            t.start();
+        consumer.start();
+        Thread.sleep(CONCURRENT_TEST_DURATION);
+        stop.set(true);
+        for (Thread t : threads)
+            t.join();
+        consumer.join();
+        assertEquals("reordering detected", 0, fail[0]);
+    }
+
+    static final class LongCollector implements MessagePassingLongQueue.LongConsumer
+    {
+        int count;
+        long last;
+
+        @Override
+        public void accept(long e)
+        {
+            count++;
+            last = e;
+        }
+    }
+}
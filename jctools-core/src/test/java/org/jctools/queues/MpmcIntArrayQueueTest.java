@@ -0,0 +1,157 @@
+package org.jctools.queues;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MpmcIntArrayQueueTest
+{
+    static final int CONCURRENT_TEST_DURATION = Integer.getInteger("org.jctools.concTestDurationMs", 500);
+    static final int TEST_TIMEOUT = 30000;
+
+    @Test
+    public void emptyQueue()
+    {
+        MpmcIntArrayQueue queue = new MpmcIntArrayQueue(4, -1);
+        assertEquals(-1, queue.emptyValue());
+        assertEquals(-1, queue.poll());
+        assertEquals(-1, queue.peek());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+        assertEquals(4, queue.capacity());
+    }
+
+    @Test
+    public void offerPollFifo()
+    {
+        MpmcIntArrayQueue queue = new MpmcIntArrayQueue(8);
+        for (int round = 0; round < 3; round++)
+        {
+            int i = 0;
+            while (queue.offer(Integer.MIN_VALUE + i))
+            {
+                i++;
+            }
+            assertEquals(queue.capacity(), i);
+            assertEquals(queue.capacity(), queue.size());
+            for (int j = 0; j < i; j++)
+            {
+                assertEquals(Integer.MIN_VALUE + j, queue.peek());
+                final int[] polled = new int[1];
+                assertTrue(queue.poll(new MessagePassingIntQueue.IntConsumer()
+                {
+                    @Override
+                    public void accept(int e)
+                    {
+                        polled[0] = e;
+                    }
+                }));
+                assertEquals(Integer.MIN_VALUE + j, polled[0]);
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void drainAndClear()
+    {
+        MpmcIntArrayQueue queue = new MpmcIntArrayQueue(16);
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(queue.offer(i));
+        }
+        final int[] sum = new int[1];
+        MessagePassingIntQueue.IntConsumer c = new MessagePassingIntQueue.IntConsumer()
+        {
+            @Override
+            public void accept(int e)
+            {
+                sum[0] += e;
+            }
+        };
+        assertEquals(4, queue.drain(c, 4));
+        assertEquals(0 + 1 + 2 + 3, sum[0]);
+        assertEquals(6, queue.size());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drain(c));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityTooSmall()
+    {
+        new MpmcIntArrayQueue(1);
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void concurrentSumIsPreserved() throws Exception
+    {
+        final MpmcIntArrayQueue queue = new MpmcIntArrayQueue(64);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong produced = new AtomicLong();
+        final AtomicLong consumed = new AtomicLong();
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        Thread[] producers = new Thread[threads];
+        Thread[] consumers = new Thread[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            producers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long sum = 0;
+                    int next = 1;
+                    while (!stop.get())
+                    {
+                        if (queue.offer(next))
+                        {
+                            sum += next;
+                            next = (next % 1000) + 1;
+                        }
+                    }
+                    produced.addAndGet(sum);
+                }
+            });
+            consumers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long sum = 0;
+                    while (!stop.get())
+                    {
+                        final int e = queue.poll();
+                        if (e != queue.emptyValue())
+                        {
+                            sum += e;
+                        }
+                    }
+                    consumed.addAndGet(sum);
+                }
+            });
+        }
+        for (int i = 0; i < threads; i++)
+        {
+            producers[i].start();
+            consumers[i].start();
+        }
+        Thread.sleep(CONCURRENT_TEST_DURATION);
+        stop.set(true);
+        for (int i = 0; i < threads; i++)
+        {
+            producers[i].join();
+            consumers[i].join();
+        }
+        long remaining = 0;
+        int e;
+        while ((e = queue.poll()) != queue.emptyValue())
+        {
+            remaining += e;
+        }
+        assertEquals(produced.get(), consumed.get() + remaining);
+    }
+}
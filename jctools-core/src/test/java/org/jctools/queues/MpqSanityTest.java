@@ -8,6 +8,7 @@ import org.jctools.util.Pow2;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -217,6 +218,159 @@ public abstract class MpqSanityTest
         fail();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void offerBatchNullSrc()
+    {
+        queue.offer(null, 0, 1);
+        fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offerBatchNegativeLength()
+    {
+        queue.offer(new Integer[] {DUMMY_ELEMENT}, 0, -1);
+        fail();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void offerBatchOutOfBounds()
+    {
+        queue.offer(new Integer[] {DUMMY_ELEMENT, DUMMY_ELEMENT}, 1, 2);
+        fail();
+    }
+
+    @Test
+    public void offerBatchNullElementOffersNothing()
+    {
+        try
+        {
+            queue.offer(new Integer[] {DUMMY_ELEMENT, null}, 0, 2);
+            fail();
+        }
+        catch (NullPointerException expected)
+        {
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.relaxedPoll());
+    }
+
+    @Test
+    public void offerBatch0()
+    {
+        assertEquals(0, queue.offer(new Integer[] {DUMMY_ELEMENT}, 0, 0));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pollBatchNullDst()
+    {
+        queue.poll(null, 0, 1);
+        fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pollBatchNegativeLength()
+    {
+        queue.poll(new Integer[1], 0, -1);
+        fail();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void pollBatchOutOfBounds()
+    {
+        queue.poll(new Integer[2], -1, 1);
+        fail();
+    }
+
+    @Test
+    public void pollBatch0()
+    {
+        queue.offer(DUMMY_ELEMENT);
+        assertEquals(0, queue.poll(new Integer[1], 0, 0));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void offerBatchToCapacityOnBounded()
+    {
+        assumeThat(spec.isBounded(), is(Boolean.TRUE));
+        final Integer[] src = new Integer[queue.capacity() + 1];
+        Arrays.fill(src, DUMMY_ELEMENT);
+
+        int offered = 0;
+        int batch;
+        do
+        {
+            offered += batch = queue.offer(src, offered, src.length - offered);
+            assertEquals(offered, queue.size());
+        }
+        while (batch != 0);
+        assertEquals(queue.capacity(), offered);
+        assertEquals(0, queue.offer(src, 0, 1));
+    }
+
+    @Test
+    public void sanityBatch()
+    {
+        final int batchSize = 7;
+        final Integer[] batch = new Integer[batchSize];
+        assertEquals(0, queue.poll(batch, 0, batchSize));
+        assertTrue(queue.isEmpty());
+
+        int offered = 0;
+        int sum = 0;
+        while (offered < SIZE)
+        {
+            for (int i = 0; i < batchSize; i++)
+            {
+                batch[i] = offered + i;
+            }
+            final int length = Math.min(batchSize, SIZE - offered);
+            final int count = queue.offer(batch, 0, length);
+            for (int i = 0; i < count; i++)
+            {
+                sum += offered + i;
+            }
+            offered += count;
+            assertEquals(offered, queue.size());
+            if (count < length)
+            {
+                break;
+            }
+        }
+        final int size = offered;
+
+        // poll into the middle of the array and make sure the edges are left alone
+        final Integer[] dst = new Integer[batchSize + 2];
+        int polled = 0;
+        int count;
+        do
+        {
+            Arrays.fill(dst, null);
+            count = queue.poll(dst, 1, batchSize);
+            assertNull(dst[0]);
+            assertNull(dst[batchSize + 1]);
+            for (int i = 0; i < count; i++)
+            {
+                if (spec.ordering == Ordering.FIFO)
+                {
+                    assertEquals(polled + i, dst[1 + i].intValue());
+                }
+                sum -= dst[1 + i];
+            }
+            for (int i = count; i < batchSize; i++)
+            {
+                assertNull(dst[1 + i]);
+            }
+            polled += count;
+            assertEquals(size - polled, queue.size());
+        }
+        while (count != 0);
+        assertEquals(size, polled);
+        assertEquals(0, sum);
+        assertTrue(queue.isEmpty());
+    }
+
     @Test
     public void sanity()
     {
@@ -513,6 +667,63 @@ public abstract class MpqSanityTest
 
     }
 
+    @Test(timeout = TEST_TIMEOUT)
+    public void testHappensBeforeBatch() throws Exception
+    {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final MessagePassingQueue<Val> q = (MessagePassingQueue) queue;
+        final Val fail = new Val();
+        final Runnable runnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Val[] batch = new Val[10];
+                while (!stop.get())
+                {
+                    for (int i = 0; i < batch.length; i++)
+                    {
+                        Val v = new Val();
+                        v.value = i + 1;
+                        batch[i] = v;
+                    }
+                    q.offer(batch, 0, batch.length);
+                    // slow down the producer, this will make the queue mostly empty encouraging visibility
+                    // issues.
+                    Thread.yield();
+                }
+            }
+        };
+        Thread[] producers = producers(runnable);
+
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Val[] batch = new Val[16];
+                while (!stop.get())
+                {
+                    final int count = q.poll(batch, 0, batch.length);
+                    for (int i = 0; i < count; i++)
+                    {
+                        Val v = batch[i];
+                        if (v == null || v.value == 0)
+                        {
+                            fail.value = 1;
+                            stop.set(true);
+                        }
+                        batch[i] = null;
+                    }
+                }
+            }
+        });
+
+        stopAll(stop, producers, consumer);
+        assertEquals("reordering detected", 0, fail.value);
+        queue.clear();
+    }
+
     @Test(timeout = TEST_TIMEOUT)
     public void testHappensBeforePerpetualDrain() throws Exception
     {
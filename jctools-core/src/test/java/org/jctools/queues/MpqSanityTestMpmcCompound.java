@@ -0,0 +1,29 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpmcCompound extends MpqSanityTest
+{
+    public MpqSanityTestMpmcCompound(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeMpq(0, 0, 4, Ordering.NONE, new MpmcCompoundQueue<>(4, 2)));
+        list.add(makeMpq(0, 0, SIZE, Ordering.NONE, new MpmcCompoundQueue<>(SIZE, 4)));
+        list.add(makeMpq(0, 0, SIZE, Ordering.NONE, new MpmcCompoundQueue<>(SIZE)));
+        return list;
+    }
+}
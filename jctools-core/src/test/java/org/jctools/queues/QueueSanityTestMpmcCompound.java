@@ -0,0 +1,30 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpmcCompound extends QueueSanityTest
+{
+    public QueueSanityTestMpmcCompound(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(0, 0, 4, Ordering.NONE, new MpmcCompoundQueue<>(4, 2)));
+        list.add(makeQueue(0, 0, SIZE, Ordering.NONE, new MpmcCompoundQueue<>(SIZE, 4)));
+        list.add(makeQueue(0, 0, SIZE, Ordering.NONE, new MpmcCompoundQueue<>(SIZE)));
+        return list;
+    }
+}
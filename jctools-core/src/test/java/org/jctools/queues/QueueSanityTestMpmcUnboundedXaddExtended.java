@@ -0,0 +1,127 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueSanityTestMpmcUnboundedXaddExtended
+{
+    @Test
+    public void testDrainLimitClaimsWithinChunk()
+    {
+        final MpmcUnboundedXaddArrayQueue<Integer> q = new MpmcUnboundedXaddArrayQueue<>(4, 0);
+        for (int i = 0; i < 10; i++)
+        {
+            q.offer(i);
+        }
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(3, q.drain(drained::add, 3));
+        assertEquals(6, q.drain(drained::add, 6));
+        assertEquals(1, q.drain(drained::add, 6));
+        assertEquals(0, q.drain(drained::add, 6));
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals((Integer) i, drained.get(i));
+        }
+        assertTrue(q.isEmpty());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void testDrainAllAcrossChunks()
+    {
+        final MpmcUnboundedXaddArrayQueue<Integer> q = new MpmcUnboundedXaddArrayQueue<>(8, 2);
+        for (int round = 0; round < 3; round++)
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                q.offer(i);
+            }
+            final List<Integer> drained = new ArrayList<>();
+            assertEquals(100, q.drain(drained::add));
+            for (int i = 0; i < 100; i++)
+            {
+                assertEquals((Integer) i, drained.get(i));
+            }
+            assertTrue(q.isEmpty());
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void testConcurrentBatchDrain() throws Exception
+    {
+        testConcurrentBatchDrain(1, 0);
+        testConcurrentBatchDrain(64, 0);
+        testConcurrentBatchDrain(64, 2);
+        testConcurrentBatchDrain(128, 4);
+    }
+
+    private void testConcurrentBatchDrain(int chunkSize, int maxPooledChunks) throws Exception
+    {
+        final int producers = 3;
+        final int consumers = 3;
+        final int perProducer = 100000;
+        final int total = producers * perProducer;
+        final MpmcUnboundedXaddArrayQueue<Integer> q = new MpmcUnboundedXaddArrayQueue<>(chunkSize, maxPooledChunks);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final AtomicLong consumed = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++)
+        {
+            final int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perProducer; i++)
+                {
+                    q.offer(base + i);
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++)
+        {
+            final int batch = 64 << c;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                while (consumed.get() < total)
+                {
+                    final int drained = q.drain(e -> seen.incrementAndGet(e), batch);
+                    consumed.addAndGet(drained);
+                }
+            }));
+        }
+        for (Thread t : threads)
+        {
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        assertEquals(total, consumed.get());
+        for (int i = 0; i < total; i++)
+        {
+            assertEquals("element " + i, 1, seen.get(i));
+        }
+        assertTrue(q.isEmpty());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -248,4 +248,48 @@ public class QueueSanityTestMpscBlockingConsumerArrayExtended
         assertTrue(wasInterrupted.get());
         assertEquals(someElements, v.value);
     }
+
+    @Test(timeout = 1000L)
+    public void testOfferWithTimeoutOnFullQueue() throws Exception
+    {
+        final MpscBlockingConsumerArrayQueue<Integer> q = new MpscBlockingConsumerArrayQueue<>(2);
+        while (q.offer(1));
+
+        long beforeNanos = System.nanoTime();
+        assertFalse(q.offer(2, 100L, MILLISECONDS));
+        long tookMillis = MILLISECONDS.convert(System.nanoTime() - beforeNanos, NANOSECONDS);
+        assertTrue("took " + tookMillis + "ms", 100L <= tookMillis);
+    }
+
+    @Test(timeout = 1000L)
+    public void testPutBlocksUntilSpaceIsAvailable() throws Exception
+    {
+        final MpscBlockingConsumerArrayQueue<Integer> q = new MpscBlockingConsumerArrayQueue<>(2);
+        int filled = 0;
+        while (q.offer(filled))
+        {
+            filled++;
+        }
+        final int last = filled;
+        Thread producer = new Thread(() -> {
+            try
+            {
+                q.put(last);
+            }
+            catch (InterruptedException e)
+            {
+                throw new AssertionError(e);
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        Thread.sleep(50);
+        assertTrue(producer.isAlive());
+
+        for (int i = 0; i <= last; i++)
+        {
+            assertEquals((Integer) i, q.take());
+        }
+        producer.join();
+    }
 }
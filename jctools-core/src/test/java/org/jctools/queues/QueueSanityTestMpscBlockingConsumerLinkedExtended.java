@@ -0,0 +1,201 @@
+package org.jctools.queues;
+
+import java.lang.Thread.State;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.QueueSanityTest.Val;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpscBlockingConsumerLinkedExtended
+{
+    private final Supplier<BlockingQueue<Integer>> factory;
+
+    public QueueSanityTestMpscBlockingConsumerLinkedExtended(String name, Supplier<BlockingQueue<Integer>> factory)
+    {
+        this.factory = factory;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(new Object[]{"UnboundedXadd",
+            (Supplier<BlockingQueue<Integer>>) () -> new MpscBlockingConsumerUnboundedXaddArrayQueue<>(16, 2)});
+        list.add(new Object[]{"Chunked",
+            (Supplier<BlockingQueue<Integer>>) () -> new MpscBlockingConsumerChunkedArrayQueue<>(16, 1024)});
+        return list;
+    }
+
+    @Test(timeout = 1000L)
+    public void testPollTimeoutSemantics() throws Exception
+    {
+        final BlockingQueue<Integer> q = factory.get();
+
+        assertNull(q.poll(0, NANOSECONDS));
+
+        q.offer(1);
+        assertEquals((Integer) 1, q.poll(0, NANOSECONDS));
+
+        long beforeNanos = System.nanoTime();
+        assertNull(q.poll(250L, MILLISECONDS));
+        long tookMillis = MILLISECONDS.convert(System.nanoTime() - beforeNanos, NANOSECONDS);
+
+        assertTrue("took " + tookMillis + "ms", 200L < tookMillis && tookMillis < 300L);
+    }
+
+    @Test(timeout = 1000L)
+    public void testTakeBlocksAndIsInterrupted() throws Exception
+    {
+        testTakeBlocksAndIsInterrupted(false);
+    }
+
+    @Test(timeout = 1000L)
+    public void testPollWithTimeoutBlocksAndIsInterrupted() throws Exception
+    {
+        testTakeBlocksAndIsInterrupted(true);
+    }
+
+    private void testTakeBlocksAndIsInterrupted(boolean withTimeout) throws Exception
+    {
+        final AtomicBoolean wasInterrupted = new AtomicBoolean();
+        final AtomicBoolean interruptedStatusAfter = new AtomicBoolean();
+        final BlockingQueue<Integer> q = factory.get();
+        Thread consumer = new Thread(() -> {
+            try
+            {
+                Integer take = withTimeout ? q.poll(1L, DAYS) : q.take();
+            }
+            catch (InterruptedException e)
+            {
+                wasInterrupted.set(true);
+            }
+            interruptedStatusAfter.set(Thread.currentThread().isInterrupted());
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+        State waitState = withTimeout ? State.TIMED_WAITING : State.WAITING;
+        while (consumer.getState() != waitState)
+        {
+            Thread.yield();
+        }
+        // If we got here -> thread got to the waiting state -> parked
+        consumer.interrupt();
+        consumer.join();
+        assertTrue(wasInterrupted.get());
+        assertFalse(interruptedStatusAfter.get());
+
+        // Queue should remain in original state (empty)
+        assertNull(q.poll());
+    }
+
+    @Test(timeout = 1000L)
+    public void testTakeSomeElementsThenBlocksAndIsInterrupted() throws Exception
+    {
+        testTakeSomeElementsThenBlocksAndIsInterrupted(false);
+    }
+
+    @Test(timeout = 1000L)
+    public void testTakeSomeElementsThenPollWithTimeoutAndIsInterrupted() throws Exception
+    {
+        testTakeSomeElementsThenBlocksAndIsInterrupted(true);
+    }
+
+    private void testTakeSomeElementsThenBlocksAndIsInterrupted(boolean withTimeout) throws Exception
+    {
+        Val v = new Val();
+        final AtomicBoolean wasInterrupted = new AtomicBoolean();
+        final BlockingQueue<Integer> q = factory.get();
+        Thread consumer = new Thread(() -> {
+            try
+            {
+                while (true)
+                {
+                    Integer take = withTimeout ? q.poll(1L, DAYS) : q.take();
+                    assertNotNull(take); // take never returns null
+                    assertEquals(take.intValue(), v.value);
+                    v.value++;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                wasInterrupted.set(true);
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+        State waitState = withTimeout ? State.TIMED_WAITING : State.WAITING;
+        while (consumer.getState() != waitState)
+        {
+            Thread.yield();
+        }
+        // If we got here -> thread got to the waiting state -> parked
+        int someElements = ThreadLocalRandom.current().nextInt(10000);
+        for (int i = 0; i < someElements; i++)
+            while (!q.offer(i));
+
+        while (!q.isEmpty())
+        {
+            Thread.yield();
+        }
+        // Eventually queue is drained
+
+        while (consumer.getState() != waitState)
+        {
+            Thread.yield();
+        }
+        // If we got here -> thread got to the waiting state -> parked
+
+        consumer.interrupt();
+        consumer.join();
+        assertTrue(wasInterrupted.get());
+        assertEquals(someElements, v.value);
+    }
+
+    @Test(timeout = 10000L)
+    public void testTakeNeverMissesWakeupFromManyProducers() throws Exception
+    {
+        final int producers = 4;
+        final int perProducer = 20000;
+        final BlockingQueue<Integer> q = factory.get();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++)
+        {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++)
+                {
+                    while (!q.offer(i))
+                    {
+                        Thread.yield();
+                    }
+                    if ((i & 1023) == 0)
+                    {
+                        // let the consumer catch up and park
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (int i = 0; i < producers * perProducer; i++)
+        {
+            assertNotNull(q.take());
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        assertTrue(q.isEmpty());
+    }
+}
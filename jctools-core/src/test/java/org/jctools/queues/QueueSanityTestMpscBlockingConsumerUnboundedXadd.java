@@ -0,0 +1,31 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpscBlockingConsumerUnboundedXadd extends QueueSanityTest
+{
+    public QueueSanityTestMpscBlockingConsumerUnboundedXadd(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscBlockingConsumerUnboundedXaddArrayQueue<>(1, 0)));
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscBlockingConsumerUnboundedXaddArrayQueue<>(64, 0)));
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscBlockingConsumerUnboundedXaddArrayQueue<>(1, 2)));
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscBlockingConsumerUnboundedXaddArrayQueue<>(64, 2)));
+        return list;
+    }
+}
@@ -0,0 +1,90 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueSanityTestMpscPriorityExtended
+{
+    @Test
+    public void testHigherLevelsArePolledFirst()
+    {
+        final MpscPriorityArrayQueue<Integer> q = new MpscPriorityArrayQueue<>(3, 8);
+        assertTrue(q.offer(20));
+        assertTrue(q.offer(10, 1));
+        assertTrue(q.offer(21, 2));
+        assertTrue(q.offer(0, 0));
+        assertTrue(q.offer(11, 1));
+
+        assertEquals((Integer) 0, q.peek());
+        assertEquals((Integer) 0, q.poll());
+        assertEquals((Integer) 10, q.relaxedPeek());
+        assertEquals((Integer) 10, q.relaxedPoll());
+        assertEquals((Integer) 11, q.poll());
+        assertEquals((Integer) 20, q.poll());
+        assertEquals((Integer) 21, q.poll());
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testSizeAndCapacityPerLevel()
+    {
+        final MpscPriorityArrayQueue<Integer> q = new MpscPriorityArrayQueue<>(2, 3);
+        assertEquals(2, q.levels());
+        assertEquals(4, q.capacity(0));
+        assertEquals(4, q.capacity(1));
+        assertEquals(8, q.capacity());
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(q.offer(i, 0));
+        }
+        assertFalse(q.offer(4, 0));
+        assertTrue(q.offer(5));
+
+        assertEquals(4, q.size(0));
+        assertEquals(1, q.size(1));
+        assertEquals(5, q.size());
+    }
+
+    @Test
+    public void testDrainServicesHigherLevelsFirst()
+    {
+        final MpscPriorityArrayQueue<Integer> q = new MpscPriorityArrayQueue<>(2, 8);
+        for (int i = 0; i < 4; i++)
+        {
+            q.offer(100 + i, 1);
+        }
+        q.offer(0, 0);
+
+        final List<Integer> drained = new ArrayList<>();
+        // an element offered to the higher level mid drain overtakes the rest of the lower level
+        assertEquals(6, q.drain(e -> {
+            drained.add(e);
+            if (e == 100)
+            {
+                q.offer(1, 0);
+            }
+        }));
+        assertEquals(0, (int) drained.get(0));
+        assertEquals(100, (int) drained.get(1));
+        assertEquals(1, (int) drained.get(2));
+        assertEquals(101, (int) drained.get(3));
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testFillToLevel()
+    {
+        final MpscPriorityArrayQueue<Integer> q = new MpscPriorityArrayQueue<>(2, 4);
+        assertEquals(4, q.fill(() -> 7, 10, 0));
+        assertEquals(4, q.fill(() -> 8));
+        assertEquals(4, q.size(0));
+        assertEquals(4, q.size(1));
+        assertEquals((Integer) 7, q.poll());
+    }
+}
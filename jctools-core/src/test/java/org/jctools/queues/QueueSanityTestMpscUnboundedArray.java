@@ -24,6 +24,8 @@ public class QueueSanityTestMpscUnboundedArray extends QueueSanityTest
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2)));// MPSC size 1
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(64)));// MPSC size SIZE
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2, 4)));// pooled chunks
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(64, 4)));// pooled chunks
         return list;
     }
 }
@@ -25,6 +25,8 @@ public class QueueSanityTestSpscUnbounded extends QueueSanityTest
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2)));
         list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64)));
+        list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2, 4)));
+        list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64, 4)));
         return list;
     }
 }
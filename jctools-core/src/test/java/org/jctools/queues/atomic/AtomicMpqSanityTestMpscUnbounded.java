@@ -26,6 +26,8 @@ public class AtomicMpqSanityTestMpscUnbounded extends MpqSanityTestMpscUnbounded
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeAtomic(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2)));
         list.add(makeAtomic(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(64)));
+        list.add(makeAtomic(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2, 4)));
+        list.add(makeAtomic(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(64, 4)));
         return list;
     }
 }
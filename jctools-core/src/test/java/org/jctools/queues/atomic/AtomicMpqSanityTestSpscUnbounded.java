@@ -27,6 +27,8 @@ public class AtomicMpqSanityTestSpscUnbounded extends MpqSanityTestSpscUnbounded
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2)));
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64)));
+        list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2, 4)));
+        list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64, 4)));
         return list;
     }
 }
@@ -26,6 +26,8 @@ public class AtomicQueueSanityTestSpscUnbounded extends QueueSanityTestSpscUnbou
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(2)));
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(64)));
+        list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(2, 4)));
+        list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(64, 4)));
         return list;
     }
 }
@@ -183,6 +183,16 @@ public class MpscSequencedArrayQueue<E> extends MpscSequencedArrayQueueConsumerF
 		return peek();
 	}
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length) {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length) {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c) {
         final int limit = capacity();
@@ -18,6 +18,7 @@
 package org.jctools.queues.atomic;
 
 import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueueUtil;
 import org.jctools.util.PortableJvmInfo;
 import org.jctools.util.Pow2;
 
@@ -542,6 +543,18 @@ public final class MpscRelaxedAtomicArrayQueue<E> extends MpscRelaxedAtomicArray
         return this.buffer.get(offset);
     }
 
+    @Override
+    public int offer(E[] src, int srcOffset, int length)
+    {
+        return MessagePassingQueueUtil.offer(this, src, srcOffset, length);
+    }
+
+    @Override
+    public int poll(E[] dst, int dstOffset, int length)
+    {
+        return MessagePassingQueueUtil.poll(this, dst, dstOffset, length);
+    }
+
     @Override
     public int drain(Consumer<E> c)
     {
@@ -28,6 +28,7 @@ import org.jctools.util.CompilationResult;
 import org.jctools.util.SimpleCompiler;
 import org.jctools.util.Template;
 import org.jctools.util.UnsafeAccess;
+import org.jctools.util.VirtualThreads;
 
 /**
  * The queue factory produces {@link java.util.Queue} instances based on a best fit to the {@link ConcurrentQueueSpec}.
@@ -49,9 +50,15 @@ public class BlockingQueueFactory {
         public String PutStrategy;
     }
 
+    /**
+     * On JVMs which support virtual threads the default strategies avoid monitor waits and yield loops, which pin or
+     * busy a carrier thread, see {@link McConditionTakeStrategy} and {@link ParkPutStrategy}.
+     */
     public static <E> BlockingQueue<E> newBlockingQueue(ConcurrentQueueSpec qs) {
-        Class takeStratClass = (qs.consumers == 1) ? ScParkTakeStrategy.class : McParkTakeStrategy.class;
-        Class putStratClass = YieldPutStrategy.class;
+        final boolean virtualThreads = VirtualThreads.isSupported();
+        Class takeStratClass = (qs.consumers == 1) ? ScParkTakeStrategy.class :
+            virtualThreads ? McConditionTakeStrategy.class : McParkTakeStrategy.class;
+        Class putStratClass = virtualThreads ? ParkPutStrategy.class : YieldPutStrategy.class;
 
         return newBlockingQueue(qs, takeStratClass, putStratClass);
     }
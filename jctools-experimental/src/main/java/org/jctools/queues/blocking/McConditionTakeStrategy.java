@@ -0,0 +1,85 @@
+package org.jctools.queues.blocking;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A multi consumer take strategy which waits on a {@link Condition} rather than an object monitor. Waiting on a
+ * monitor pins a virtual thread to its carrier, while {@link Condition#await()} parks through
+ * {@link java.util.concurrent.locks.LockSupport} and lets the carrier run other virtual threads. Platform threads
+ * see the same behaviour as {@link McParkTakeStrategy}.
+ */
+public final class McConditionTakeStrategy<E> implements TakeStrategy<E>
+{
+    private static final AtomicLongFieldUpdater<McConditionTakeStrategy> WAITERS_UPDATER = AtomicLongFieldUpdater.newUpdater(McConditionTakeStrategy.class, "waiters");
+    private volatile long waiters = 0;
+    public volatile int storeFence = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    @Override
+    public void signal()
+    {
+        // Make sure the offer is visible before the waiters load
+        storeFence = 1; // store load barrier
+
+        if (waiters > 0)
+        {
+            lock.lock();
+            try
+            {
+                if (waiters > 0)
+                {
+                    notEmpty.signal();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public E waitPoll(Queue<E> q) throws InterruptedException
+    {
+        E e = q.poll();
+        if (e != null)
+        {
+            return e;
+        }
+
+        WAITERS_UPDATER.incrementAndGet(this);
+        try
+        {
+            lock.lockInterruptibly();
+            try
+            {
+                while ((e = q.poll()) == null)
+                {
+                    notEmpty.await();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        finally
+        {
+            WAITERS_UPDATER.decrementAndGet(this);
+        }
+
+        return e;
+    }
+
+    @Override
+    public boolean supportsSpec(ConcurrentQueueSpec qs)
+    {
+        return true;
+    }
+}
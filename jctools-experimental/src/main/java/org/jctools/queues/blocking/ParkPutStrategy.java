@@ -0,0 +1,58 @@
+package org.jctools.queues.blocking;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.util.VirtualThreads;
+
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A put strategy which behaves like {@link YieldPutStrategy} on platform threads, but parks virtual threads while the
+ * queue is full. {@link Thread#yield()} on a virtual thread only hands the carrier to the next runnable virtual
+ * thread, so many yielding producers keep every carrier busy; parking takes them off the carriers until the backoff
+ * expires. The park time doubles on every failed attempt up to {@link #MAX_PARK_NANOS}.
+ */
+public class ParkPutStrategy<E> implements PutStrategy<E>
+{
+    static final long MIN_PARK_NANOS = 1000L;
+    static final long MAX_PARK_NANOS = 1000000L;
+
+    @Override
+    public void waitOffer(Queue<E> q, E e) throws InterruptedException
+    {
+        if (q.offer(e))
+        {
+            return;
+        }
+        final boolean isVirtual = VirtualThreads.isCurrentThreadVirtual();
+        long parkNanos = MIN_PARK_NANOS;
+        while (!q.offer(e))
+        {
+            if (isVirtual)
+            {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+            }
+            else
+            {
+                Thread.yield();
+            }
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException("Interrupted while waiting for the queue to put in queue");
+            }
+        }
+    }
+
+    @Override
+    public void signal()
+    {
+        // Nothing
+    }
+
+    @Override
+    public boolean supportsSpec(ConcurrentQueueSpec qs)
+    {
+        return true;
+    }
+}
@@ -22,28 +22,41 @@ public class BlockingQueueTest
 
     private BlockingQueue<Integer> q;
     private final ConcurrentQueueSpec spec;
+    private final Class<? extends TakeStrategy> takeStrategy;
+    private final Class<? extends PutStrategy> putStrategy;
 
     @Parameterized.Parameters
     public static Collection queues() {
         return Arrays.asList(
                 test(1, 1, CAPACITY, Ordering.FIFO), test(10, 1, CAPACITY, Ordering.FIFO),
-                test(1, 10, CAPACITY, Ordering.FIFO), test(10, 10, CAPACITY, Ordering.FIFO));
+                test(1, 10, CAPACITY, Ordering.FIFO), test(10, 10, CAPACITY, Ordering.FIFO),
+                test(1, 1, CAPACITY, Ordering.FIFO, ScParkTakeStrategy.class, ParkPutStrategy.class),
+                test(10, 10, CAPACITY, Ordering.FIFO, McConditionTakeStrategy.class, ParkPutStrategy.class));
     }
 
     private static Object[] test(int producers, int consumers, int capacity, Ordering ordering) {
+        return test(producers, consumers, capacity, ordering, null, null);
+    }
+
+    private static Object[] test(int producers, int consumers, int capacity, Ordering ordering,
+            Class<? extends TakeStrategy> takeStrategy, Class<? extends PutStrategy> putStrategy) {
         return new Object[] { new ConcurrentQueueSpec(producers, consumers, capacity, ordering,
-                Preference.NONE) };
+                Preference.NONE), takeStrategy, putStrategy };
     }
 
-    public BlockingQueueTest(ConcurrentQueueSpec spec)
+    public BlockingQueueTest(ConcurrentQueueSpec spec,
+            Class<? extends TakeStrategy> takeStrategy, Class<? extends PutStrategy> putStrategy)
     {
         this.spec = spec;
+        this.takeStrategy = takeStrategy;
+        this.putStrategy = putStrategy;
     }
 
     @Before
     public void setUp()
     {
-        q = BlockingQueueFactory.newBlockingQueue(spec);
+        q = takeStrategy == null ? BlockingQueueFactory.<Integer>newBlockingQueue(spec) :
+                BlockingQueueFactory.<Integer>newBlockingQueue(spec, takeStrategy, putStrategy);
     }
 
     @Test